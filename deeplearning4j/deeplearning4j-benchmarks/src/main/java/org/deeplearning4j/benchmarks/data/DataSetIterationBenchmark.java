@@ -0,0 +1,89 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.data;
+
+import org.deeplearning4j.datasets.iterator.impl.ListDataSetIterator;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.dataset.AsyncDataSetIterator;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.preprocessor.NormalizerStandardize;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for a full pass (one epoch) over an in-memory {@link DataSetIterator}: plain iteration, iteration with
+ * a normalizer preprocessor, and asynchronous prefetching via {@link AsyncDataSetIterator}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataSetIterationBenchmark {
+
+    private static final int N_EXAMPLES = 4096;
+    private static final int N_IN = 784;
+    private static final int N_OUT = 10;
+
+    @Param({"32", "256"})
+    public int minibatch;
+
+    private List<DataSet> examples;
+    private NormalizerStandardize normalizer;
+
+    @Setup
+    public void setup() {
+        DataSet all = new DataSet(Nd4j.rand(DataType.FLOAT, N_EXAMPLES, N_IN), Nd4j.rand(DataType.FLOAT, N_EXAMPLES, N_OUT));
+        examples = all.asList();
+        normalizer = new NormalizerStandardize();
+        normalizer.fit(all);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        consume(new ListDataSetIterator<>(examples, minibatch), bh);
+    }
+
+    @Benchmark
+    public void iterateNormalized(Blackhole bh) {
+        DataSetIterator iter = new ListDataSetIterator<>(examples, minibatch);
+        iter.setPreProcessor(normalizer);
+        consume(iter, bh);
+    }
+
+    @Benchmark
+    public void iterateAsync(Blackhole bh) {
+        AsyncDataSetIterator iter = new AsyncDataSetIterator(new ListDataSetIterator<>(examples, minibatch), 4);
+        try {
+            consume(iter, bh);
+        } finally {
+            iter.shutdown();
+        }
+    }
+
+    private static void consume(DataSetIterator iter, Blackhole bh) {
+        while (iter.hasNext()) {
+            bh.consume(iter.next());
+        }
+    }
+}
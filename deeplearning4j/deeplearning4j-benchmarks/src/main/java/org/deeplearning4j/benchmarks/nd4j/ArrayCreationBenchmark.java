@@ -0,0 +1,74 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.nd4j;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link Nd4j#create(DataType, long...)} and related array creation methods
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayCreationBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int size;
+
+    private double[] data;
+
+    @Setup
+    public void setup() {
+        data = new double[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = i;
+        }
+    }
+
+    @Benchmark
+    public INDArray createZeros() {
+        return Nd4j.create(DataType.FLOAT, size, size);
+    }
+
+    @Benchmark
+    public INDArray createUninitialized() {
+        return Nd4j.createUninitialized(DataType.FLOAT, size, size);
+    }
+
+    @Benchmark
+    public INDArray createFromJavaArray() {
+        return Nd4j.createFromArray(data);
+    }
+
+    @Benchmark
+    public INDArray createScalar() {
+        return Nd4j.scalar(1.0f);
+    }
+
+    @Benchmark
+    public INDArray createRand() {
+        return Nd4j.rand(DataType.FLOAT, size, size);
+    }
+}
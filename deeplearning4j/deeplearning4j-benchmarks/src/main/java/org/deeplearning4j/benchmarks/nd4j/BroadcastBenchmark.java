@@ -0,0 +1,81 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.nd4j;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.broadcast.BroadcastAddOp;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for row/column vector broadcast operations and implicit broadcasting, with and without in-place
+ * modification of the result
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"32", "512"})
+    public int size;
+
+    private INDArray matrix;
+    private INDArray rowVector;
+    private INDArray columnVector;
+    private INDArray rank4;
+    private INDArray channelBias;
+
+    @Setup
+    public void setup() {
+        matrix = Nd4j.rand(DataType.FLOAT, size, size);
+        rowVector = Nd4j.rand(DataType.FLOAT, 1, size);
+        columnVector = Nd4j.rand(DataType.FLOAT, size, 1);
+        rank4 = Nd4j.rand(DataType.FLOAT, 16, 32, size / 8, size / 8);
+        channelBias = Nd4j.rand(DataType.FLOAT, 32);
+    }
+
+    @Benchmark
+    public INDArray addRowVector() {
+        return matrix.addRowVector(rowVector);
+    }
+
+    @Benchmark
+    public INDArray addiRowVector() {
+        return matrix.addiRowVector(rowVector);
+    }
+
+    @Benchmark
+    public INDArray mulColumnVector() {
+        return matrix.mulColumnVector(columnVector);
+    }
+
+    @Benchmark
+    public INDArray implicitBroadcastAdd() {
+        return matrix.add(rowVector);
+    }
+
+    @Benchmark
+    public INDArray channelBiasAdd() {
+        return Nd4j.getExecutioner().exec(new BroadcastAddOp(rank4, channelBias, rank4.ulike(), 1));
+    }
+}
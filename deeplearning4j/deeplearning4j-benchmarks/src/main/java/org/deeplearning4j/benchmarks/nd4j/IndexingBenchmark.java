@@ -0,0 +1,90 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.nd4j;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for view creation and indexing: {@link INDArray#get(org.nd4j.linalg.indexing.INDArrayIndex...)},
+ * {@link INDArray#getRow(long)}, {@link INDArray#tensorAlongDimension(long, int...)} and related methods
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexingBenchmark {
+
+    @Param({"64", "1024"})
+    public int size;
+
+    private INDArray matrix;
+    private INDArray rank4;
+
+    @Setup
+    public void setup() {
+        matrix = Nd4j.rand(DataType.FLOAT, size, size);
+        rank4 = Nd4j.rand(DataType.FLOAT, 8, 16, 32, 32);
+    }
+
+    @Benchmark
+    public INDArray getInterval() {
+        return matrix.get(NDArrayIndex.interval(1, size / 2), NDArrayIndex.all());
+    }
+
+    @Benchmark
+    public INDArray getPointAndInterval() {
+        return matrix.get(NDArrayIndex.point(size / 2), NDArrayIndex.interval(0, size / 4));
+    }
+
+    @Benchmark
+    public INDArray getRank4Interval() {
+        return rank4.get(NDArrayIndex.all(), NDArrayIndex.interval(0, 8), NDArrayIndex.all(), NDArrayIndex.interval(4, 28));
+    }
+
+    @Benchmark
+    public INDArray getRow() {
+        return matrix.getRow(size / 2);
+    }
+
+    @Benchmark
+    public INDArray getColumn() {
+        return matrix.getColumn(size / 2);
+    }
+
+    @Benchmark
+    public INDArray tensorAlongDimension() {
+        return rank4.tensorAlongDimension(3, 2, 3);
+    }
+
+    @Benchmark
+    public double getDouble() {
+        return matrix.getDouble(size / 2, size / 3);
+    }
+
+    @Benchmark
+    public INDArray dupView() {
+        return matrix.get(NDArrayIndex.interval(0, size / 2), NDArrayIndex.interval(0, size / 2)).dup();
+    }
+}
@@ -0,0 +1,79 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.benchmarks.nd4j;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.aggregates.CustomOpBatch;
+import org.nd4j.linalg.api.ops.impl.transforms.pairwise.arithmetic.AddOp;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for executing a sequence of small custom ops one at a time vs. as a single {@link CustomOpBatch}.
+ * For small arrays, execution time is dominated by per-op overhead rather than the actual computation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpBatchBenchmark {
+
+    @Param({"8", "1024"})
+    public int size;
+
+    @Param({"64"})
+    public int numOps;
+
+    private INDArray[] x;
+    private INDArray y;
+    private INDArray[] z;
+
+    @Setup
+    public void setup() {
+        x = new INDArray[numOps];
+        z = new INDArray[numOps];
+        for (int i = 0; i < numOps; i++) {
+            x[i] = Nd4j.rand(DataType.FLOAT, size);
+            z[i] = Nd4j.create(DataType.FLOAT, size);
+        }
+        y = Nd4j.rand(DataType.FLOAT, size);
+    }
+
+    @Benchmark
+    public INDArray individual() {
+        for (int i = 0; i < numOps; i++) {
+            Nd4j.exec(new AddOp(x[i], y, z[i]));
+        }
+        return z[numOps - 1];
+    }
+
+    @Benchmark
+    public INDArray batched() {
+        CustomOpBatch batch = new CustomOpBatch();
+        for (int i = 0; i < numOps; i++) {
+            batch.append(new AddOp(x[i], y, z[i]));
+        }
+        Nd4j.exec(batch);
+        return z[numOps - 1];
+    }
+}
@@ -0,0 +1,83 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.nd4j;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for full and along-dimension reductions, plus matrix multiplication as a reference point
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReductionBenchmark {
+
+    @Param({"32", "512"})
+    public int size;
+
+    private INDArray matrix;
+    private INDArray other;
+
+    @Setup
+    public void setup() {
+        matrix = Nd4j.rand(DataType.FLOAT, size, size);
+        other = Nd4j.rand(DataType.FLOAT, size, size);
+    }
+
+    @Benchmark
+    public double sumNumber() {
+        return matrix.sumNumber().doubleValue();
+    }
+
+    @Benchmark
+    public INDArray sumDim0() {
+        return matrix.sum(0);
+    }
+
+    @Benchmark
+    public INDArray sumDim1() {
+        return matrix.sum(1);
+    }
+
+    @Benchmark
+    public INDArray meanDim1() {
+        return matrix.mean(1);
+    }
+
+    @Benchmark
+    public INDArray argMaxDim1() {
+        return Nd4j.argMax(matrix, 1);
+    }
+
+    @Benchmark
+    public double norm2Number() {
+        return matrix.norm2Number().doubleValue();
+    }
+
+    @Benchmark
+    public INDArray mmul() {
+        return matrix.mmul(other);
+    }
+}
@@ -0,0 +1,105 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.nn;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.SubsamplingLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for forward pass ({@link MultiLayerNetwork#output(INDArray)}) and training
+ * ({@link MultiLayerNetwork#fit(DataSet)}) of a small convolutional network with batch normalization and pooling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvolutionNetworkBenchmark {
+
+    private static final int HEIGHT = 32;
+    private static final int WIDTH = 32;
+    private static final int CHANNELS = 3;
+    private static final int N_OUT = 10;
+
+    @Param({"1", "32"})
+    public int minibatch;
+
+    private MultiLayerNetwork net;
+    private INDArray features;
+    private DataSet dataSet;
+
+    @Setup
+    public void setup() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.FLOAT)
+                .seed(12345)
+                .updater(new Adam(1e-3))
+                .weightInit(WeightInit.RELU)
+                .list()
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).stride(1, 1).nOut(32)
+                        .activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().activation(Activation.RELU).build())
+                .layer(new SubsamplingLayer.Builder().poolingType(SubsamplingLayer.PoolingType.MAX)
+                        .kernelSize(2, 2).stride(2, 2).build())
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).stride(1, 1).nOut(64)
+                        .activation(Activation.RELU).build())
+                .layer(new SubsamplingLayer.Builder().poolingType(SubsamplingLayer.PoolingType.MAX)
+                        .kernelSize(2, 2).stride(2, 2).build())
+                .layer(new OutputLayer.Builder().nOut(N_OUT).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(HEIGHT, WIDTH, CHANNELS))
+                .build();
+        net = new MultiLayerNetwork(conf);
+        net.init();
+
+        features = Nd4j.rand(DataType.FLOAT, minibatch, CHANNELS, HEIGHT, WIDTH);
+        INDArray labels = Nd4j.zeros(DataType.FLOAT, minibatch, N_OUT);
+        for (int i = 0; i < minibatch; i++) {
+            labels.putScalar(i, i % N_OUT, 1.0);
+        }
+        dataSet = new DataSet(features, labels);
+    }
+
+    @Benchmark
+    public INDArray output() {
+        return net.output(features);
+    }
+
+    @Benchmark
+    public MultiLayerNetwork fit() {
+        net.fit(dataSet);
+        return net;
+    }
+}
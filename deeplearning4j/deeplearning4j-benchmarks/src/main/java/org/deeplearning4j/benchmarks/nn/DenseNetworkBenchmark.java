@@ -0,0 +1,96 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.nn;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link MultiLayerNetwork#output(INDArray)} (forward pass) and {@link MultiLayerNetwork#fit(DataSet)}
+ * (forward pass, backward pass and updater) on a multi-layer perceptron
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DenseNetworkBenchmark {
+
+    private static final int N_IN = 784;
+    private static final int N_OUT = 10;
+
+    @Param({"1", "32", "256"})
+    public int minibatch;
+
+    @Param({"256"})
+    public int layerSize;
+
+    private MultiLayerNetwork net;
+    private INDArray features;
+    private DataSet dataSet;
+
+    @Setup
+    public void setup() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.FLOAT)
+                .seed(12345)
+                .updater(new Adam(1e-3))
+                .weightInit(WeightInit.XAVIER)
+                .activation(Activation.RELU)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(N_IN).nOut(layerSize).build())
+                .layer(new DenseLayer.Builder().nOut(layerSize).build())
+                .layer(new OutputLayer.Builder().nOut(N_OUT).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+        net = new MultiLayerNetwork(conf);
+        net.init();
+
+        features = Nd4j.rand(DataType.FLOAT, minibatch, N_IN);
+        INDArray labels = Nd4j.zeros(DataType.FLOAT, minibatch, N_OUT);
+        for (int i = 0; i < minibatch; i++) {
+            labels.putScalar(i, i % N_OUT, 1.0);
+        }
+        dataSet = new DataSet(features, labels);
+    }
+
+    @Benchmark
+    public INDArray output() {
+        return net.output(features);
+    }
+
+    @Benchmark
+    public MultiLayerNetwork fit() {
+        net.fit(dataSet);
+        return net;
+    }
+}
@@ -0,0 +1,112 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.nn;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for recurrent networks: full-sequence forward pass, training (including backprop through time) and
+ * single step inference via {@link MultiLayerNetwork#rnnTimeStep(INDArray)}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LSTMNetworkBenchmark {
+
+    private static final int N_IN = 32;
+    private static final int N_OUT = 8;
+
+    @Param({"1", "32"})
+    public int minibatch;
+
+    @Param({"128"})
+    public int layerSize;
+
+    @Param({"50"})
+    public int tsLength;
+
+    private MultiLayerNetwork net;
+    private INDArray features;
+    private INDArray singleStep;
+    private DataSet dataSet;
+
+    @Setup
+    public void setup() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.FLOAT)
+                .seed(12345)
+                .updater(new Adam(1e-3))
+                .weightInit(WeightInit.XAVIER)
+                .list()
+                .layer(new LSTM.Builder().nIn(N_IN).nOut(layerSize).activation(Activation.TANH).build())
+                .layer(new LSTM.Builder().nOut(layerSize).activation(Activation.TANH).build())
+                .layer(new RnnOutputLayer.Builder().nOut(N_OUT).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+        net = new MultiLayerNetwork(conf);
+        net.init();
+
+        features = Nd4j.rand(DataType.FLOAT, minibatch, N_IN, tsLength);
+        singleStep = Nd4j.rand(DataType.FLOAT, minibatch, N_IN);
+        INDArray labels = Nd4j.zeros(DataType.FLOAT, minibatch, N_OUT, tsLength);
+        for (int i = 0; i < minibatch; i++) {
+            for (int j = 0; j < tsLength; j++) {
+                labels.putScalar(i, (i + j) % N_OUT, j, 1.0);
+            }
+        }
+        dataSet = new DataSet(features, labels);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearState() {
+        net.rnnClearPreviousState();
+    }
+
+    @Benchmark
+    public INDArray output() {
+        return net.output(features);
+    }
+
+    @Benchmark
+    public MultiLayerNetwork fit() {
+        net.fit(dataSet);
+        return net;
+    }
+
+    @Benchmark
+    public INDArray rnnTimeStep() {
+        return net.rnnTimeStep(singleStep);
+    }
+}
@@ -0,0 +1,84 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.benchmarks.samediff;
+
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link SameDiff#output(Map, String...)} on a small multi-layer perceptron.<br>
+ * Small minibatch sizes are included deliberately: for these, the per-call session overhead (dependency tracking,
+ * op scheduling) rather than the math usually dominates the inference time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SameDiffInferenceBenchmark {
+
+    private static final int N_IN = 64;
+    private static final int LAYER_SIZE = 128;
+    private static final int N_OUT = 10;
+    private static final int N_LAYERS = 4;
+
+    @Param({"1", "32", "256"})
+    public int minibatch;
+
+    private SameDiff sd;
+    private Map<String, INDArray> placeholders;
+
+    @Setup
+    public void setup() {
+        Nd4j.getRandom().setSeed(12345);
+        sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, N_IN);
+
+        SDVariable x = in;
+        long layerIn = N_IN;
+        for (int i = 0; i < N_LAYERS; i++) {
+            SDVariable w = sd.var("w" + i, Nd4j.rand(DataType.FLOAT, layerIn, LAYER_SIZE).subi(0.5));
+            SDVariable b = sd.var("b" + i, Nd4j.rand(DataType.FLOAT, 1, LAYER_SIZE).subi(0.5));
+            x = sd.nn.relu(x.mmul(w).add(b), 0);
+            layerIn = LAYER_SIZE;
+        }
+        SDVariable wOut = sd.var("wOut", Nd4j.rand(DataType.FLOAT, LAYER_SIZE, N_OUT).subi(0.5));
+        SDVariable bOut = sd.var("bOut", Nd4j.rand(DataType.FLOAT, 1, N_OUT).subi(0.5));
+        sd.nn.softmax("out", x.mmul(wOut).add(bOut));
+
+        placeholders = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, minibatch, N_IN));
+    }
+
+    @Benchmark
+    public Map<String, INDArray> output() {
+        return sd.output(placeholders, "out");
+    }
+
+    @Benchmark
+    public INDArray outputSingle() {
+        return sd.outputSingle(placeholders, "out");
+    }
+}
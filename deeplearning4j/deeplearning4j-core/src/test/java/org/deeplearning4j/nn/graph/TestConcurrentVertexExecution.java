@@ -0,0 +1,139 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.graph;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.TestUtils;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.GlobalPoolingLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.SubsamplingLayer;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestConcurrentVertexExecution extends BaseDL4JTest {
+
+    @Override
+    public DataType getDataType() {
+        return DataType.FLOAT;
+    }
+
+    private static ComputationGraph getNet(WorkspaceMode wsm, int vertexThreads) {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.FLOAT)
+                .inferenceWorkspaceMode(wsm)
+                .trainingWorkspaceMode(wsm)
+                .activation(Activation.TANH)
+                .graphBuilder()
+                .inferenceVertexThreads(vertexThreads)
+                .addInputs("img", "vec")
+                .setInputTypes(InputType.convolutional(16, 16, 3), InputType.feedForward(10))
+                .addLayer("c1a", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(8).build(), "img")
+                .addLayer("c1b", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(8).build(), "img")
+                .addLayer("c1c", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(8).build(), "img")
+                .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "c1a", "c1b")
+                .addLayer("pool", new SubsamplingLayer.Builder().kernelSize(2, 2).stride(2, 2).build(), "add")
+                .addLayer("c2", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(8).build(), "pool")
+                .addLayer("gp1", new GlobalPoolingLayer(), "c2")
+                .addLayer("gp2", new GlobalPoolingLayer(), "c1c")
+                .addLayer("d1", new DenseLayer.Builder().nOut(12).build(), "vec")
+                .addLayer("d2", new DenseLayer.Builder().nOut(12).build(), "vec")
+                .addVertex("merge", new MergeVertex(), "gp1", "gp2", "d1", "d2")
+                .addLayer("d3", new DenseLayer.Builder().nOut(16).build(), "merge")
+                .addLayer("out1", new OutputLayer.Builder().nOut(4).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "d3")
+                .addLayer("out2", new OutputLayer.Builder().nOut(3).activation(Activation.IDENTITY)
+                        .lossFunction(LossFunctions.LossFunction.MSE).build(), "d2")
+                .setOutputs("out1", "out2")
+                .build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        return net;
+    }
+
+    @Test
+    public void testConcurrentOutputMatchesSequential() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray img = Nd4j.rand(DataType.FLOAT, 5, 3, 16, 16);
+        INDArray vec = Nd4j.rand(DataType.FLOAT, 5, 10);
+
+        for (WorkspaceMode wsm : new WorkspaceMode[]{WorkspaceMode.NONE, WorkspaceMode.ENABLED}) {
+            ComputationGraph sequential = getNet(wsm, 1);
+            ComputationGraph concurrent = getNet(wsm, 4);
+            assertEquals(sequential.params(), concurrent.params());
+            assertEquals(4, concurrent.getConfiguration().getInferenceVertexThreads());
+
+            INDArray[] exp = sequential.output(img, vec);
+            for (int i = 0; i < 10; i++) {
+                INDArray[] act = concurrent.output(img, vec);
+                assertArrayEquals(exp, act);
+            }
+
+            //Training is unaffected by the setting
+            concurrent.fit(new INDArray[]{img, vec}, new INDArray[]{exp[0], exp[1]});
+            sequential.fit(new INDArray[]{img, vec}, new INDArray[]{exp[0], exp[1]});
+            assertEquals(sequential.params(), concurrent.params());
+            assertArrayEquals(sequential.output(img, vec), concurrent.output(img, vec));
+
+            //Setting should be retained after serialization
+            ComputationGraph restored = TestUtils.testModelSerialization(concurrent);
+            assertEquals(4, restored.getConfiguration().getInferenceVertexThreads());
+            assertArrayEquals(concurrent.output(img, vec), restored.output(img, vec));
+            restored.shutdownInferenceExecutor();
+
+            //Network is still usable after the thread pool has been shut down
+            concurrent.shutdownInferenceExecutor();
+            assertArrayEquals(sequential.output(img, vec), concurrent.output(img, vec));
+            concurrent.shutdownInferenceExecutor();
+        }
+    }
+
+    @Test
+    public void testConcurrentExceptionPropagated() {
+        ComputationGraph net = getNet(WorkspaceMode.ENABLED, 4);
+        INDArray img = Nd4j.rand(DataType.FLOAT, 5, 3, 16, 16);
+        INDArray vec = Nd4j.rand(DataType.FLOAT, 5, 7);    //Wrong size: d1 and d2 should fail
+        try {
+            net.output(img, vec);
+            throw new AssertionError("Expected exception");
+        } catch (Exception e) {
+            //Expected
+        }
+
+        //Network should be usable after a failure
+        vec = Nd4j.rand(DataType.FLOAT, 5, 10);
+        assertArrayEquals(getNet(WorkspaceMode.ENABLED, 1).output(img, vec), net.output(img, vec));
+        net.shutdownInferenceExecutor();
+    }
+}
@@ -0,0 +1,215 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.nn.graph;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.TestUtils;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.recurrent.SimpleRnn;
+import org.deeplearning4j.nn.conf.weightnoise.DropConnect;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.MultiDataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestGradientCheckpointing extends BaseDL4JTest {
+
+    private static ComputationGraphConfiguration.GraphBuilder getDenseGraph(WorkspaceMode wsm) {
+        ComputationGraphConfiguration.GraphBuilder b = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .trainingWorkspaceMode(wsm)
+                .inferenceWorkspaceMode(wsm)
+                .activation(Activation.TANH)
+                .updater(new Adam(1e-2))
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(6).build(), "in")
+                .addLayer("1", new DenseLayer.Builder().nIn(6).nOut(6).build(), "0")
+                .addLayer("2", new BatchNormalization.Builder().nOut(6).build(), "1")
+                .addLayer("3", new DenseLayer.Builder().nIn(6).nOut(6).build(), "2")
+                .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "1", "3")
+                .addLayer("4", new DenseLayer.Builder().nIn(6).nOut(6).build(), "add")
+                .addLayer("5", new DenseLayer.Builder().nIn(6).nOut(6).build(), "4")
+                .addVertex("merge", new MergeVertex(), "0", "5")
+                .addLayer("6", new DenseLayer.Builder().nIn(12).nOut(6).build(), "merge")
+                .addLayer("out", new OutputLayer.Builder().nIn(6).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "6")
+                .setOutputs("out");
+        return b;
+    }
+
+    @Test
+    public void testGradientCheckpointingDense() {
+        INDArray f = Nd4j.rand(DataType.DOUBLE, 5, 4);
+        INDArray l = TestUtils.randomOneHot(DataType.DOUBLE, 5, 3);
+        MultiDataSet mds = new MultiDataSet(f, l);
+
+        for (WorkspaceMode wsm : WorkspaceMode.values()) {
+            ComputationGraph netStd = new ComputationGraph(getDenseGraph(wsm).build());
+            netStd.init();
+
+            ComputationGraphConfiguration[] confs = new ComputationGraphConfiguration[]{
+                    getDenseGraph(wsm).gradientCheckpointing(true).build(),
+                    getDenseGraph(wsm).gradientCheckpointing("2").build(),
+                    getDenseGraph(wsm).gradientCheckpointing("4", "merge").build()
+            };
+
+            for (ComputationGraphConfiguration conf : confs) {
+                String msg = wsm + " - " + conf.getGradientCheckpoints();
+                assertTrue(conf.isGradientCheckpointing());
+                assertEquals(conf, ComputationGraphConfiguration.fromJson(conf.toJson()));
+
+                ComputationGraph net = new ComputationGraph(conf);
+                net.init(netStd.params().dup(), false);
+                ComputationGraph netBase = new ComputationGraph(getDenseGraph(wsm).build());
+                netBase.init(netStd.params().dup(), false);
+
+                for (int i = 0; i < 3; i++) {
+                    netBase.setInputs(f);
+                    netBase.setLabels(l);
+                    netBase.computeGradientAndScore();
+                    net.setInputs(f);
+                    net.setLabels(l);
+                    net.computeGradientAndScore();
+
+                    assertEquals(msg, netBase.score(), net.score(), 1e-10);
+                    Map<String, INDArray> expGrad = netBase.gradient().gradientForVariable();
+                    Map<String, INDArray> actGrad = net.gradient().gradientForVariable();
+                    assertEquals(msg, expGrad.keySet(), actGrad.keySet());
+                    for (String s : expGrad.keySet()) {
+                        assertEquals(msg + " - " + s, expGrad.get(s), actGrad.get(s));
+                    }
+
+                    netBase.fit(mds);
+                    net.fit(mds);
+                    assertEquals(msg, netBase.params(), net.params());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGradientCheckpointingDropout() {
+        INDArray f = Nd4j.rand(DataType.DOUBLE, 5, 4);
+        INDArray l = TestUtils.randomOneHot(DataType.DOUBLE, 5, 3);
+
+        for (WorkspaceMode wsm : WorkspaceMode.values()) {
+            ComputationGraphConfiguration.GraphBuilder b = new NeuralNetConfiguration.Builder()
+                    .dataType(DataType.DOUBLE)
+                    .seed(12345)
+                    .trainingWorkspaceMode(wsm)
+                    .inferenceWorkspaceMode(wsm)
+                    .activation(Activation.TANH)
+                    .graphBuilder()
+                    .addInputs("in")
+                    .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(6).build(), "in")
+                    .addLayer("1", new DenseLayer.Builder().nIn(6).nOut(6).dropOut(0.5).build(), "0")
+                    .addLayer("2", new DenseLayer.Builder().nIn(6).nOut(6).weightNoise(new DropConnect(0.5)).build(), "1")
+                    .addLayer("3", new DenseLayer.Builder().nIn(6).nOut(6).dropOut(0.5).build(), "2")
+                    .addLayer("out", new OutputLayer.Builder().nIn(6).nOut(3).activation(Activation.SOFTMAX)
+                            .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "3")
+                    .setOutputs("out");
+            ComputationGraph netStd = new ComputationGraph(b.build());
+            netStd.init();
+            ComputationGraph net = new ComputationGraph(b.gradientCheckpointing("0").build());
+            net.init(netStd.params().dup(), false);
+
+            for (int i = 0; i < 3; i++) {
+                Nd4j.getRandom().setSeed(12345 + i);
+                netStd.setInputs(f);
+                netStd.setLabels(l);
+                netStd.computeGradientAndScore();
+                Nd4j.getRandom().setSeed(12345 + i);
+                net.setInputs(f);
+                net.setLabels(l);
+                net.computeGradientAndScore();
+
+                assertEquals(wsm.toString(), netStd.score(), net.score(), 1e-10);
+                Gradient exp = netStd.gradient();
+                Gradient act = net.gradient();
+                for (String s : exp.gradientForVariable().keySet()) {
+                    assertEquals(wsm + " - " + s, exp.getGradientFor(s), act.getGradientFor(s));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGradientCheckpointingRnn() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray f = Nd4j.rand(DataType.DOUBLE, 3, 4, 10);
+        INDArray l = Nd4j.rand(DataType.DOUBLE, 3, 2, 10);
+        INDArray fMask = Nd4j.ones(DataType.DOUBLE, 3, 10);
+        fMask.putScalar(0, 9, 0.0);
+        fMask.putScalar(1, 8, 0.0);
+        fMask.putScalar(1, 9, 0.0);
+
+        for (boolean checkpoint : new boolean[]{false, true}) {
+            ComputationGraphConfiguration.GraphBuilder b = new NeuralNetConfiguration.Builder()
+                    .dataType(DataType.DOUBLE)
+                    .seed(12345)
+                    .activation(Activation.TANH)
+                    .graphBuilder()
+                    .addInputs("in")
+                    .addLayer("0", new SimpleRnn.Builder().nIn(4).nOut(5).build(), "in")
+                    .addLayer("1", new SimpleRnn.Builder().nIn(5).nOut(5).build(), "0")
+                    .addLayer("2", new SimpleRnn.Builder().nIn(5).nOut(5).build(), "1")
+                    .addLayer("3", new SimpleRnn.Builder().nIn(5).nOut(5).build(), "2")
+                    .addLayer("out", new RnnOutputLayer.Builder().nIn(5).nOut(2).activation(Activation.IDENTITY)
+                            .lossFunction(LossFunctions.LossFunction.MSE).build(), "3")
+                    .setOutputs("out");
+            ComputationGraph netStd = new ComputationGraph(b.build());
+            netStd.init();
+            ComputationGraph net = new ComputationGraph(b.gradientCheckpointing("1").build());
+            net.init(netStd.params().dup(), false);
+
+            netStd.setInputs(f);
+            netStd.setLabels(l);
+            netStd.setLayerMaskArrays(new INDArray[]{fMask}, null);
+            netStd.computeGradientAndScore();
+            net.setInputs(f);
+            net.setLabels(l);
+            net.setLayerMaskArrays(new INDArray[]{fMask}, null);
+            net.computeGradientAndScore();
+
+            assertEquals(netStd.score(), net.score(), 1e-10);
+            Gradient exp = netStd.gradient();
+            Gradient act = net.gradient();
+            for (String s : exp.gradientForVariable().keySet()) {
+                assertEquals(s, exp.getGradientFor(s), act.getGradientFor(s));
+            }
+        }
+    }
+}
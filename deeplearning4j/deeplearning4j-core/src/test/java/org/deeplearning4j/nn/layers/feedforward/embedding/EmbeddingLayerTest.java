@@ -21,6 +21,7 @@ import org.deeplearning4j.BaseDL4JTest;
 import org.deeplearning4j.TestUtils;
 import org.deeplearning4j.nn.api.Layer;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
+import org.deeplearning4j.nn.api.RowSparseGradients;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.inputs.InputType;
@@ -39,6 +40,8 @@ import org.nd4j.linalg.activations.impl.ActivationIdentity;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.learning.config.Adam;
 import org.nd4j.linalg.learning.config.Sgd;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 
@@ -793,6 +796,78 @@ public class EmbeddingLayerTest extends BaseDL4JTest {
 
     }
 
+    @Test
+    public void testSparseGradients() {
+        for (boolean seq : new boolean[]{false, true}) {
+            for (boolean adam : new boolean[]{false, true}) {
+                String str = (seq ? "EmbeddingSequenceLayer" : "EmbeddingLayer") + " - " + (adam ? "Adam" : "Sgd");
+                MultiLayerNetwork[] nets = new MultiLayerNetwork[2];
+                for (int i = 0; i < 2; i++) {
+                    boolean sparse = (i == 1);
+                    MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                            .seed(12345)
+                            .updater(adam ? new Adam(0.01) : new Sgd(0.1))
+                            .list()
+                            .layer(seq ?
+                                    new EmbeddingSequenceLayer.Builder().inputLength(3).hasBias(true).sparseGradients(sparse).nIn(50).nOut(8).build() :
+                                    new EmbeddingLayer.Builder().hasBias(true).sparseGradients(sparse).nIn(50).nOut(8).build())
+                            .layer(seq ?
+                                    new RnnOutputLayer.Builder().nIn(8).nOut(4).activation(Activation.SOFTMAX)
+                                            .lossFunction(LossFunctions.LossFunction.MCXENT).build() :
+                                    new OutputLayer.Builder().nIn(8).nOut(4).activation(Activation.SOFTMAX)
+                                            .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                            .build();
+                    nets[i] = new MultiLayerNetwork(conf);
+                    nets[i].init();
+                }
+                assertEquals(nets[0].params(), nets[1].params());
+
+                //Only rows 0 to 19 are used as input
+                INDArray unusedBefore = nets[1].getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY)
+                        .get(NDArrayIndex.interval(20, 50), NDArrayIndex.all()).dup();
+
+                Random r = new Random(12345);
+                for (int iter = 0; iter < 3; iter++) {
+                    INDArray in = Nd4j.create(DataType.FLOAT, 5, seq ? 3 : 1);
+                    for (int j = 0; j < in.length(); j++) {
+                        in.putScalar(j, r.nextInt(20));
+                    }
+                    INDArray labels = seq ? TestUtils.randomOneHotTimeSeries(5, 4, 3, r) : TestUtils.randomOneHot(5, 4, r);
+
+                    nets[0].fit(in, labels);
+                    nets[1].fit(in, labels);
+
+                    int[] touched = ((RowSparseGradients) nets[1].getLayer(0)).getTouchedRows(DefaultParamInitializer.WEIGHT_KEY);
+                    assertArrayEquals(str, EmbeddingGradientUtil.uniqueRows(in.data().asInt()), touched);
+                    assertNull(str, ((RowSparseGradients) nets[0].getLayer(0)).getTouchedRows(DefaultParamInitializer.WEIGHT_KEY));
+
+                    if (!adam || iter == 0) {
+                        //With SGD - or with Adam on the first iteration, before any updater state exists - sparse and
+                        // dense updates are identical
+                        assertTrue(str + " - iter " + iter, nets[0].params().equalsWithEps(nets[1].params(), 1e-6));
+                        if (adam) {
+                            //Row-sparse weights are in an updater block of their own: updater state is laid out as
+                            // [mW, vW, mRest, vRest] instead of [mW, mRest, vW, vRest]
+                            long nW = 50 * 8;
+                            long n = nets[0].numParams();
+                            INDArray d = nets[0].getUpdater().getStateViewArray();
+                            INDArray expState = Nd4j.hstack(
+                                    d.get(NDArrayIndex.all(), NDArrayIndex.interval(0, nW)),
+                                    d.get(NDArrayIndex.all(), NDArrayIndex.interval(n, n + nW)),
+                                    d.get(NDArrayIndex.all(), NDArrayIndex.interval(nW, n)),
+                                    d.get(NDArrayIndex.all(), NDArrayIndex.interval(n + nW, 2 * n)));
+                            assertTrue(str, expState.equalsWithEps(nets[1].getUpdater().getStateViewArray(), 1e-6));
+                        }
+                    }
+                }
+
+                INDArray unusedAfter = nets[1].getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY)
+                        .get(NDArrayIndex.interval(20, 50), NDArrayIndex.all());
+                assertEquals(str, unusedBefore, unusedAfter);
+            }
+        }
+    }
+
     public static double relErr(double d1, double d2){
         if(d1 == 0.0 && d2 == 0.0)
             return 0.0;
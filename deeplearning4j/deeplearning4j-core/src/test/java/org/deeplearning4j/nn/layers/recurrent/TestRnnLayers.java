@@ -48,7 +48,11 @@ import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.nd4j.linalg.indexing.NDArrayIndex.all;
+import static org.nd4j.linalg.indexing.NDArrayIndex.interval;
 
 @RunWith(Parameterized.class)
 public class TestRnnLayers extends BaseDL4JTest {
@@ -251,4 +255,71 @@ public class TestRnnLayers extends BaseDL4JTest {
 
 
     }
+
+    @Test
+    public void testFusedTimeStep() {
+        //rnnTimeStep uses the fused single step implementation for LSTM and GravesLSTM (tanh/sigmoid activations)
+        //Output and stored state should match the standard forward pass
+        int nIn = 4;
+        int mb = 5;
+        int tsLength = 6;
+
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .updater(new NoOp())
+                .weightInit(WeightInit.XAVIER)
+                .list()
+                .layer(new LSTM.Builder().nIn(nIn).nOut(6).activation(Activation.TANH).dataFormat(rnnDataFormat).build())
+                .layer(new GravesLSTM.Builder().nIn(6).nOut(7).activation(Activation.TANH).dataFormat(rnnDataFormat).build())
+                .layer(new RnnOutputLayer.Builder().nIn(7).nOut(3).activation(Activation.SOFTMAX).dataFormat(rnnDataFormat).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        //Random recurrent weights and biases, including peepholes
+        net.params().assign(Nd4j.rand(DataType.DOUBLE, net.params().shape()).subi(0.5));
+
+        boolean nwc = rnnDataFormat == RNNFormat.NWC;
+        INDArray in = Nd4j.rand(DataType.DOUBLE, nwc ? new long[]{mb, tsLength, nIn} : new long[]{mb, nIn, tsLength});
+        INDArray expOut = net.output(in);
+
+        //One step at a time
+        net.rnnClearPreviousState();
+        for (int t = 0; t < tsLength; t++) {
+            INDArray step = nwc ? in.get(all(), interval(t, t + 1), all()) : in.get(all(), all(), interval(t, t + 1));
+            INDArray out = net.rnnTimeStep(step);
+            INDArray exp = nwc ? expOut.get(all(), interval(t, t + 1), all()) : expOut.get(all(), all(), interval(t, t + 1));
+            assertEquals(exp, out);
+        }
+        assertNotNull(((org.deeplearning4j.nn.layers.recurrent.LSTM) net.getLayer(0)).fusedTimeStepParams);
+        assertNotNull(((org.deeplearning4j.nn.layers.recurrent.GravesLSTM) net.getLayer(1)).fusedTimeStepParams);
+
+        //Multiple steps per call, continuing from stored state
+        net.rnnClearPreviousState();
+        INDArray first = nwc ? in.get(all(), interval(0, 2), all()) : in.get(all(), all(), interval(0, 2));
+        INDArray rest = nwc ? in.get(all(), interval(2, tsLength), all()) : in.get(all(), all(), interval(2, tsLength));
+        net.rnnTimeStep(first);
+        INDArray outRest = net.rnnTimeStep(rest);
+        INDArray expRest = nwc ? expOut.get(all(), interval(2, tsLength), all()) : expOut.get(all(), all(), interval(2, tsLength));
+        assertEquals(expRest, outRest);
+
+        //Changing the parameters should invalidate the packed weights
+        net.getLayer(0).setParams(net.getLayer(0).params().mul(0.5));
+        net.getLayer(1).setParam("RW", net.getLayer(1).getParam("RW").mul(0.5));
+        assertNull(((org.deeplearning4j.nn.layers.recurrent.LSTM) net.getLayer(0)).fusedTimeStepParams);
+        assertNull(((org.deeplearning4j.nn.layers.recurrent.GravesLSTM) net.getLayer(1)).fusedTimeStepParams);
+        net.rnnClearPreviousState();
+        INDArray exp2 = net.output(in);
+        INDArray out2 = net.rnnTimeStep(in);
+        assertEquals(exp2, out2);
+
+        //Network level setParams: also clears the fused parameters
+        net.setParams(net.params().mul(2.0));
+        assertNull(((org.deeplearning4j.nn.layers.recurrent.LSTM) net.getLayer(0)).fusedTimeStepParams);
+        assertNull(((org.deeplearning4j.nn.layers.recurrent.GravesLSTM) net.getLayer(1)).fusedTimeStepParams);
+        net.rnnClearPreviousState();
+        INDArray exp3 = net.output(in);
+        INDArray out3 = net.rnnTimeStep(in);
+        assertEquals(exp3, out3);
+    }
 }
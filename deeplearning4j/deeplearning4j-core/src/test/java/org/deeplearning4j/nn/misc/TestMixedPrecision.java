@@ -0,0 +1,163 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.nn.misc;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.TestUtils;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class TestMixedPrecision extends BaseDL4JTest {
+
+    private static MultiLayerConfiguration getConf(DataType dataType, MixedPrecision mixedPrecision) {
+        return new NeuralNetConfiguration.Builder()
+                .dataType(dataType)
+                .mixedPrecision(mixedPrecision)
+                .activation(Activation.TANH)
+                .updater(new Sgd(0.1))
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(8).build())
+                .layer(new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+    }
+
+    @Test
+    public void testMixedPrecisionMLN() {
+        MixedPrecision mp = MixedPrecision.builder().initialLossScale(1024).dynamicLossScaling(false).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.HALF, mp));
+        net.init();
+
+        MultiLayerNetwork netFloat = new MultiLayerNetwork(getConf(DataType.FLOAT, null));
+        netFloat.init();
+        netFloat.params().assign(net.params().castTo(DataType.FLOAT));
+
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 16, 4), TestUtils.randomOneHot(DataType.FLOAT, 16, 3));
+        DataSet dsHalf = new DataSet(ds.getFeatures().castTo(DataType.HALF), ds.getLabels().castTo(DataType.HALF));
+        for (int i = 0; i < 5; i++) {
+            net.fit(dsHalf);
+            netFloat.fit(ds);
+        }
+
+        BaseMultiLayerUpdater u = (BaseMultiLayerUpdater) net.getUpdater();
+        assertEquals(DataType.HALF, net.params().dataType());
+        assertEquals(DataType.FLOAT, u.getMasterParams().dataType());
+        assertEquals(1024, net.getLossScale(), 0.0);
+        assertEquals(0, u.getSkippedSteps());
+
+        //Network parameters are the rounded master parameters, and should closely match FP32 training
+        assertEquals(u.getMasterParams().castTo(DataType.HALF), net.params());
+        INDArray exp = netFloat.params();
+        INDArray act = u.getMasterParams();
+        assertTrue(exp.sub(act).amaxNumber().doubleValue() < 1e-2);
+    }
+
+    @Test
+    public void testLossScaleOverflowAndGrowth() {
+        MixedPrecision mp = MixedPrecision.builder().initialLossScale(1e8).growthInterval(3).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.HALF, mp));
+        net.init();
+
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 16, 4), TestUtils.randomOneHot(DataType.FLOAT, 16, 3));
+        ds = new DataSet(ds.getFeatures().castTo(DataType.HALF), ds.getLabels().castTo(DataType.HALF));
+
+        //Loss scale of 1e8 overflows the HALF gradients: update should be skipped, and loss scale reduced
+        INDArray paramsBefore = net.params().dup();
+        net.fit(ds);
+        BaseMultiLayerUpdater u = (BaseMultiLayerUpdater) net.getUpdater();
+        assertEquals(paramsBefore, net.params());
+        assertEquals(1, u.getSkippedSteps());
+        assertEquals(5e7, net.getLossScale(), 1.0);
+
+        //Eventually the loss scale becomes small enough to train
+        for (int i = 0; i < 30 && net.params().equals(paramsBefore); i++) {
+            net.fit(ds);
+        }
+        assertNotEquals(paramsBefore, net.params());
+        assertTrue(net.getLossScale() < 1e8);
+
+        //With a loss scale that can't overflow, the loss scale is doubled after every growthInterval steps
+        mp = MixedPrecision.builder().initialLossScale(1.0).growthInterval(3).build();
+        net = new MultiLayerNetwork(getConf(DataType.HALF, mp));
+        net.init();
+        u = (BaseMultiLayerUpdater) net.getUpdater();
+        for (int i = 0; i < 3; i++) {
+            net.fit(ds);
+        }
+        assertEquals(0, u.getSkippedSteps());
+        assertEquals(2.0, net.getLossScale(), 0.0);
+        for (int i = 0; i < 3; i++) {
+            net.fit(ds);
+        }
+        assertEquals(0, u.getSkippedSteps());
+        assertEquals(4.0, net.getLossScale(), 0.0);
+    }
+
+    @Test
+    public void testMixedPrecisionCG() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.HALF)
+                .mixedPrecision(MixedPrecision.builder().initialLossScale(256).build())
+                .activation(Activation.TANH)
+                .updater(new Adam(0.01))
+                .seed(12345)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(8).build(), "in")
+                .addLayer("out", new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "0")
+                .setOutputs("out")
+                .build();
+
+        ComputationGraph cg = new ComputationGraph(conf);
+        cg.init();
+        assertNotNull(cg.getConfiguration().getMixedPrecision());
+
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 16, 4), TestUtils.randomOneHot(DataType.FLOAT, 16, 3));
+        ds = new DataSet(ds.getFeatures().castTo(DataType.HALF), ds.getLabels().castTo(DataType.HALF));
+        double scoreBefore = cg.score(ds);
+        for (int i = 0; i < 20; i++) {
+            cg.fit(ds);
+        }
+        assertEquals(DataType.FLOAT, cg.getUpdater().getMasterParams().dataType());
+        assertEquals(256, cg.getLossScale(), 0.0);
+        assertTrue(cg.score(ds) < scoreBefore);
+
+        //Config serialization round trip
+        ComputationGraphConfiguration fromJson = ComputationGraphConfiguration.fromJson(conf.toJson());
+        assertEquals(conf.getMixedPrecision(), fromJson.getMixedPrecision());
+    }
+}
@@ -0,0 +1,134 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.nn.transferlearning;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.TestUtils;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.ActivationLayer;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.SubsamplingLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.activations.impl.ActivationReLU;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class TestLayerFusion extends BaseDL4JTest {
+
+    @Test
+    public void testFoldBatchNormMLN() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.05))
+                .list()
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).activation(Activation.IDENTITY).hasBias(false).build())
+                .layer(new BatchNormalization.Builder().build())
+                .layer(new ActivationLayer(Activation.RELU))
+                .layer(new ConvolutionLayer.Builder().kernelSize(2, 2).nOut(5).activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().useLogStd(false).build())
+                .layer(new SubsamplingLayer.Builder().kernelSize(2, 2).stride(2, 2).build())
+                .layer(new DenseLayer.Builder().nOut(6).activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().lockGammaBeta(true).gamma(2.0).beta(0.5).build())
+                .layer(new ActivationLayer(Activation.TANH))
+                .layer(new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(8, 8, 2))
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 8, 2, 8, 8).muli(3).addi(1), TestUtils.randomOneHot(DataType.FLOAT, 8, 3));
+        for (int i = 0; i < 10; i++) {
+            net.fit(ds);
+        }
+        INDArray paramsBefore = net.params().dup();
+
+        MultiLayerNetwork folded = LayerFusion.foldBatchNorm(net, ds.getFeatures(), 1e-4);
+        assertEquals(5, folded.getnLayers());
+        assertEquals(paramsBefore, net.params());     //Original network should not be modified
+        assertTrue(folded.getLayer(0).conf().getLayer() instanceof ConvolutionLayer);
+        assertTrue(folded.getLayer(1).conf().getLayer() instanceof ConvolutionLayer);
+        assertTrue(folded.getLayer(2).conf().getLayer() instanceof SubsamplingLayer);
+        assertTrue(folded.getLayer(3).conf().getLayer() instanceof DenseLayer);
+        assertTrue(((ConvolutionLayer) folded.getLayer(0).conf().getLayer()).getActivationFn() instanceof ActivationReLU);
+
+        INDArray exp = net.output(ds.getFeatures());
+        INDArray act = folded.output(ds.getFeatures());
+        assertTrue(exp.equalsWithEps(act, 1e-4));
+
+        MultiLayerNetwork fromJson = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(folded.getLayerWiseConfigurations().toJson()));
+        fromJson.init(folded.params().dup(), false);
+        assertEquals(act, fromJson.output(ds.getFeatures()));
+    }
+
+    @Test
+    public void testFoldBatchNormCG() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.05))
+                .graphBuilder()
+                .addInputs("in")
+                .setInputTypes(InputType.convolutional(8, 8, 2))
+                .addLayer("c0", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).activation(Activation.IDENTITY).build(), "in")
+                .addLayer("bn0", new BatchNormalization.Builder().build(), "c0")
+                .addLayer("a0", new ActivationLayer(Activation.RELU), "bn0")
+                .addLayer("c1", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).activation(Activation.IDENTITY).build(), "in")
+                .addLayer("bn1", new BatchNormalization.Builder().build(), "c1")
+                //Not folded: c2 output is used by two vertices
+                .addLayer("c2", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).activation(Activation.IDENTITY).build(), "in")
+                .addLayer("bn2", new BatchNormalization.Builder().build(), "c2")
+                .addVertex("merge", new MergeVertex(), "a0", "bn1", "bn2", "c2")
+                .addLayer("out", new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "merge")
+                .setOutputs("out")
+                .build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 8, 2, 8, 8).muli(3).addi(1), TestUtils.randomOneHot(DataType.FLOAT, 8, 3));
+        for (int i = 0; i < 10; i++) {
+            net.fit(ds);
+        }
+
+        ComputationGraph folded = LayerFusion.foldBatchNorm(net, new INDArray[]{ds.getFeatures()}, 1e-4);
+        assertNull(folded.getVertex("bn0"));
+        assertNull(folded.getVertex("a0"));
+        assertNull(folded.getVertex("bn1"));
+        assertNotNull(folded.getVertex("bn2"));
+        assertEquals(7, folded.getVertices().length);     //in, c0, c1, c2, bn2, merge, out
+
+        INDArray exp = net.outputSingle(ds.getFeatures());
+        INDArray act = folded.outputSingle(ds.getFeatures());
+        assertTrue(exp.equalsWithEps(act, 1e-4));
+    }
+}
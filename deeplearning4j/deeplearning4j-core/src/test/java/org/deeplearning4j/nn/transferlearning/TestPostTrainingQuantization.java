@@ -0,0 +1,199 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.transferlearning;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.TestUtils;
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.deeplearning4j.nn.conf.CNN2DFormat;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer;
+import org.deeplearning4j.nn.conf.layers.SubsamplingLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.QuantizedParamInitializer;
+import org.deeplearning4j.util.QuantizationUtils;
+import org.junit.Test;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestPostTrainingQuantization extends BaseDL4JTest {
+
+    @Test
+    public void testQuantizeMLN() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .convolutionMode(ConvolutionMode.Same)
+                .list()
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).activation(Activation.RELU).build())
+                .layer(new SubsamplingLayer.Builder().kernelSize(2, 2).stride(2, 2).build())
+                .layer(new DenseLayer.Builder().nOut(10).activation(Activation.RELU).build())
+                .layer(new DenseLayer.Builder().nOut(6).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.convolutional(8, 8, 2))
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 32, 2, 8, 8).muli(3).subi(1), TestUtils.randomOneHot(DataType.FLOAT, 32, 3));
+        for (int i = 0; i < 10; i++) {
+            net.fit(ds);
+        }
+        INDArray paramsBefore = net.params().dup();
+
+        DataSetIterator iter = new ExistingDataSetIterator(ds.batchBy(8));
+        MultiLayerNetwork quantized = PostTrainingQuantization.quantize(net, iter);
+        assertEquals(paramsBefore, net.params());     //Original network should not be modified
+        assertTrue(quantized.getLayer(0).conf().getLayer() instanceof QuantizedConvolutionLayer);
+        assertTrue(quantized.getLayer(1).conf().getLayer() instanceof SubsamplingLayer);
+        assertTrue(quantized.getLayer(2).conf().getLayer() instanceof QuantizedDenseLayer);
+        assertTrue(quantized.getLayer(3).conf().getLayer() instanceof QuantizedDenseLayer);
+        assertTrue(quantized.getLayer(4).conf().getLayer() instanceof OutputLayer);
+
+        //Check quantized dense layer against manual calculation: (int8(x) x int8(W)) * inputScale * weightScale + b
+        List<INDArray> activations = quantized.feedForward(ds.getFeatures(), false);
+        org.deeplearning4j.nn.api.Layer l3 = quantized.getLayer(3);
+        double inputScale = l3.getParam(QuantizedParamInitializer.INPUT_SCALE_KEY).getDouble(0);
+        INDArray w = ((org.deeplearning4j.nn.layers.feedforward.dense.QuantizedDenseLayer) l3).getQuantizedWeights().castTo(DataType.FLOAT);
+        assertArrayEquals(new long[]{10, 6}, w.shape());
+        assertEquals(127.0, Transforms.abs(w).maxNumber().doubleValue(), 0.0);
+        //INT8 weights are packed 3 per parameter
+        assertEquals(20, l3.getParam(QuantizedParamInitializer.WEIGHT_KEY).length());
+        assertTrue(quantized.numParams() < net.numParams());
+        INDArray x = QuantizationUtils.quantize(activations.get(3), inputScale).castTo(DataType.FLOAT);
+        INDArray exp = x.mmul(w).muliRowVector(l3.getParam(QuantizedParamInitializer.WEIGHT_SCALE_KEY).mul(inputScale))
+                .addiRowVector(l3.getParam(QuantizedParamInitializer.BIAS_KEY));
+        assertTrue(Transforms.tanh(exp).equalsWithEps(activations.get(4), 1e-5));
+
+        //Dequantized weights are cached until the parameters are set
+        org.deeplearning4j.nn.layers.feedforward.dense.QuantizedDenseLayer q3 =
+                (org.deeplearning4j.nn.layers.feedforward.dense.QuantizedDenseLayer) l3;
+        INDArray dequantized = q3.getDequantizedWeights();
+        assertTrue(w.mulRowVector(l3.getParam(QuantizedParamInitializer.WEIGHT_SCALE_KEY)).equalsWithEps(dequantized, 1e-6));
+        assertSame(dequantized, q3.getDequantizedWeights());
+        quantized.setParams(quantized.params().dup());
+        assertNotSame(dequantized, q3.getDequantizedWeights());
+        assertEquals(dequantized, q3.getDequantizedWeights());
+
+        INDArray outExp = net.output(ds.getFeatures());
+        INDArray outAct = quantized.output(ds.getFeatures());
+        assertTrue(outExp.equalsWithEps(outAct, 0.02));
+
+        Pair<Evaluation, Evaluation> eval = PostTrainingQuantization.evaluate(net, quantized, iter);
+        assertEquals(32, eval.getFirst().getNumRowCounter(), 0.0);
+        assertEquals(32, eval.getSecond().getNumRowCounter(), 0.0);
+        assertEquals(eval.getFirst().accuracy(), eval.getSecond().accuracy(), 0.1);
+
+        MultiLayerNetwork restored = TestUtils.testModelSerialization(quantized);
+        assertEquals(outAct, restored.output(ds.getFeatures()));
+
+        try {
+            quantized.fit(ds);
+            fail("Expected exception");
+        } catch (UnsupportedOperationException e) {
+            assertTrue(e.getMessage().contains("inference only"));
+        }
+    }
+
+    @Test
+    public void testPackUnpack() {
+        INDArray in = Nd4j.createFromArray(new byte[]{1, -2, 127, -127, 0, 5, -6});
+        INDArray packed = QuantizationUtils.pack(in, 'c');
+        assertEquals(DataType.FLOAT, packed.dataType());
+        assertArrayEquals(new long[]{1, 3}, packed.shape());
+        INDArray exp = in.castTo(DataType.INT32);
+        assertEquals(exp, QuantizationUtils.unpack(packed, 7));
+        assertEquals(exp, QuantizationUtils.unpack(packed.castTo(DataType.DOUBLE), 7));
+
+        INDArray m = Nd4j.createFromArray(new byte[][]{{1, 2, 3}, {4, 5, 6}});
+        INDArray unpacked = QuantizationUtils.unpack(QuantizationUtils.pack(m, 'f'), 6);
+        assertEquals(m.castTo(DataType.INT32), unpacked.reshape('f', 2, 3));
+    }
+
+    @Test
+    public void testQuantizeCG() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .graphBuilder()
+                .addInputs("in")
+                .setInputTypes(InputType.convolutional(8, 8, 2, CNN2DFormat.NHWC))
+                .addLayer("c0", new ConvolutionLayer.Builder().kernelSize(3, 3).stride(2, 2).nOut(4)
+                        .dataFormat(CNN2DFormat.NHWC).activation(Activation.RELU).build(), "in")
+                .addLayer("c1", new ConvolutionLayer.Builder().kernelSize(2, 2).nOut(3).hasBias(false)
+                        .dataFormat(CNN2DFormat.NHWC).activation(Activation.TANH).build(), "c0")
+                .addLayer("d0", new DenseLayer.Builder().nOut(8).activation(Activation.RELU).build(), "c1")
+                .addLayer("out", new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "d0")
+                .setOutputs("out")
+                .build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 32, 8, 8, 2).muli(3).subi(1), TestUtils.randomOneHot(DataType.FLOAT, 32, 3));
+        for (int i = 0; i < 10; i++) {
+            net.fit(ds);
+        }
+
+        DataSetIterator iter = new ExistingDataSetIterator(ds.batchBy(8));
+        ComputationGraph quantized = PostTrainingQuantization.quantize(net, iter);
+        assertTrue(quantized.getLayer("c0").conf().getLayer() instanceof QuantizedConvolutionLayer);
+        assertTrue(quantized.getLayer("c1").conf().getLayer() instanceof QuantizedConvolutionLayer);
+        assertTrue(quantized.getLayer("d0").conf().getLayer() instanceof QuantizedDenseLayer);
+        assertTrue(quantized.getLayer("out").conf().getLayer() instanceof OutputLayer);
+
+        //Activations of each quantized layer should be close to the original activations
+        Map<String, INDArray> exp = net.feedForward(ds.getFeatures(), false);
+        Map<String, INDArray> act = quantized.feedForward(ds.getFeatures(), false);
+        for (String s : new String[]{"c0", "c1", "d0"}) {
+            double maxAbs = exp.get(s).amaxNumber().doubleValue();
+            double maxDiff = Transforms.abs(exp.get(s).sub(act.get(s))).maxNumber().doubleValue();
+            assertTrue(s + ": " + maxDiff + " vs. " + maxAbs, maxDiff < 0.05 * maxAbs);
+        }
+
+        Pair<Evaluation, Evaluation> eval = PostTrainingQuantization.evaluate(net, quantized, iter);
+        assertEquals(eval.getFirst().accuracy(), eval.getSecond().accuracy(), 0.1);
+
+        ComputationGraph restored = TestUtils.testModelSerialization(quantized);
+        assertEquals(quantized.outputSingle(ds.getFeatures()), restored.outputSingle(ds.getFeatures()));
+    }
+}
@@ -0,0 +1,186 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.transferlearning;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.TestUtils;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.constraint.MagnitudePruningConstraint;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.util.CsrMatrix;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.nd4j.linalg.schedule.MapSchedule;
+import org.nd4j.linalg.schedule.ScheduleType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestWeightPruning extends BaseDL4JTest {
+
+    @Test
+    public void testCsrMatrix() {
+        for (DataType dt : new DataType[]{DataType.FLOAT, DataType.DOUBLE}) {
+            Nd4j.getRandom().setSeed(12345);
+            INDArray w = Nd4j.rand(dt, 10, 7).subi(0.5);
+            MagnitudePruningConstraint.prune(w, 0.7);
+            assertEquals(49, w.eq(0.0).castTo(DataType.INT32).sumNumber().intValue());
+
+            CsrMatrix csr = CsrMatrix.fromDense(w);
+            assertEquals(21, csr.nnz());
+            assertEquals(0.7, csr.sparsity(), 1e-6);
+
+            INDArray x = Nd4j.rand(dt, 4, 10);
+            x.putScalar(0, 0, 0.0);
+            INDArray out = Nd4j.create(dt, 4, 7);
+            csr.leftMultiply(x, out);
+            assertTrue(x.mmul(w).equalsWithEps(out, 1e-5));
+
+            //Views, f order and mismatched data types: use a temporary copy
+            INDArray xBig = Nd4j.rand(dt, 6, 10);
+            INDArray xView = xBig.get(NDArrayIndex.interval(1, 5), NDArrayIndex.all());
+            INDArray outF = Nd4j.create(dt, new long[]{4, 7}, 'f');
+            csr.leftMultiply(xView, outF);
+            assertTrue(xView.mmul(w).equalsWithEps(outF, 1e-5));
+            csr.leftMultiply(xView.castTo(DataType.HALF), outF);
+            assertTrue(xView.mmul(w).equalsWithEps(outF, 1e-2));
+        }
+    }
+
+    @Test
+    public void testPruningConstraintMLN() {
+        Map<Integer, Double> m = new HashMap<>();
+        m.put(0, 0.0);
+        m.put(5, 0.5);
+        m.put(10, 0.8);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .list()
+                .layer(new DenseLayer.Builder().nIn(20).nOut(30).activation(Activation.RELU)
+                        .constrainWeights(new MagnitudePruningConstraint(new MapSchedule(ScheduleType.ITERATION, m))).build())
+                //Structured: prune output units of the second layer
+                .layer(new DenseLayer.Builder().nOut(10).activation(Activation.TANH)
+                        .constrainWeights(new MagnitudePruningConstraint(0.5, 0)).build())
+                .layer(new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .setInputType(InputType.feedForward(20))
+                .build();
+
+        MultiLayerConfiguration fromJson = MultiLayerConfiguration.fromJson(conf.toJson());
+        assertEquals(conf, fromJson);
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 16, 20).subi(0.5), TestUtils.randomOneHot(DataType.FLOAT, 16, 3));
+        net.fit(ds);
+        assertEquals(0.0, WeightPruning.sparsity(net.getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY)), 0.0);
+        for (int i = 0; i < 15; i++) {
+            net.fit(ds);
+        }
+        assertEquals(0.8, WeightPruning.sparsity(net.getLayer(0).getParam(DefaultParamInitializer.WEIGHT_KEY)), 1e-6);
+
+        INDArray w1 = net.getLayer(1).getParam(DefaultParamInitializer.WEIGHT_KEY);
+        assertEquals(0.5, WeightPruning.sparsity(w1), 1e-6);
+        assertEquals(5, w1.norm2(0).eq(0.0).castTo(DataType.INT32).sumNumber().intValue());   //5 of 10 units pruned
+
+        MultiLayerNetwork sparse = WeightPruning.toSparse(net, 0.7);
+        assertTrue(((DenseLayer) sparse.getLayer(0).conf().getLayer()).isSparseInference());
+        assertFalse(((DenseLayer) sparse.getLayer(1).conf().getLayer()).isSparseInference());
+        assertFalse(((DenseLayer) net.getLayer(0).conf().getLayer()).isSparseInference());
+        assertTrue(net.output(ds.getFeatures()).equalsWithEps(sparse.output(ds.getFeatures()), 1e-5));
+
+        //Sparse weights should be recalculated after training
+        sparse.fit(ds);
+        MultiLayerNetwork dense = new MultiLayerNetwork(conf.clone());
+        dense.init(sparse.params().dup(), false);
+        assertTrue(dense.output(ds.getFeatures()).equalsWithEps(sparse.output(ds.getFeatures()), 1e-5));
+
+        MultiLayerNetwork restored = TestUtils.testModelSerialization(sparse);
+        assertEquals(sparse.output(ds.getFeatures()), restored.output(ds.getFeatures()));
+
+        //Sparse weights should be recalculated when the network parameters are set
+        INDArray newParams = WeightPruning.prune(net, 0.9).params();
+        sparse.setParams(newParams);
+        dense.setParams(newParams);
+        assertTrue(dense.output(ds.getFeatures()).equalsWithEps(sparse.output(ds.getFeatures()), 1e-5));
+
+        sparse.setParamTable(net.paramTable());
+        dense.setParamTable(net.paramTable());
+        assertTrue(dense.output(ds.getFeatures()).equalsWithEps(sparse.output(ds.getFeatures()), 1e-5));
+
+        //In place modification: caches must be cleared manually
+        sparse.params().assign(newParams);
+        sparse.clearParamCaches();
+        dense.params().assign(newParams);
+        assertTrue(dense.output(ds.getFeatures()).equalsWithEps(sparse.output(ds.getFeatures()), 1e-5));
+    }
+
+    @Test
+    public void testPruneCG() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .updater(new Adam(0.01))
+                .graphBuilder()
+                .addInputs("in")
+                .setInputTypes(InputType.convolutional(6, 6, 2))
+                .addLayer("c0", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).activation(Activation.RELU).build(), "in")
+                .addLayer("d0", new DenseLayer.Builder().nOut(20).activation(Activation.RELU).build(), "c0")
+                .addLayer("out", new OutputLayer.Builder().nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "d0")
+                .setOutputs("out")
+                .build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        INDArray paramsBefore = net.params().dup();
+
+        ComputationGraph pruned = WeightPruning.prune(net, 0.9);
+        assertEquals(paramsBefore, net.params());
+        assertEquals(0.9, WeightPruning.sparsity(pruned.getLayer("c0").getParam(DefaultParamInitializer.WEIGHT_KEY)), 0.02);
+        assertEquals(0.9, WeightPruning.sparsity(pruned.getLayer("d0").getParam(DefaultParamInitializer.WEIGHT_KEY)), 0.02);
+        assertEquals(0.0, WeightPruning.sparsity(pruned.getLayer("out").getParam(DefaultParamInitializer.WEIGHT_KEY)), 0.0);
+
+        ComputationGraph sparse = WeightPruning.toSparse(pruned, 0.8);
+        assertTrue(((DenseLayer) sparse.getLayer("d0").conf().getLayer()).isSparseInference());
+        INDArray in = Nd4j.rand(DataType.FLOAT, 5, 2, 6, 6);
+        assertTrue(pruned.outputSingle(in).equalsWithEps(sparse.outputSingle(in), 1e-5));
+
+        //Sparse weights should be recalculated when the network parameters are set
+        ComputationGraph pruned2 = WeightPruning.prune(net, 0.5);
+        sparse.setParams(pruned2.params());
+        assertTrue(pruned2.outputSingle(in).equalsWithEps(sparse.outputSingle(in), 1e-5));
+    }
+}
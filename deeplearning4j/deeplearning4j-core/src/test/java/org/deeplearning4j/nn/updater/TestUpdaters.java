@@ -20,8 +20,10 @@ package org.deeplearning4j.nn.updater;
 import org.apache.commons.math3.util.FastMath;
 import org.deeplearning4j.BaseDL4JTest;
 import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Trainable;
 import org.deeplearning4j.nn.api.Updater;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.GradientNormalization;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.layers.*;
@@ -1105,4 +1107,57 @@ public class TestUpdaters extends BaseDL4JTest {
         INDArray expView3 = view.get(interval(0,0,true), interval(start3, start3 + length3));
         assertEquals(expView3, l.get(2));
     }
+
+    @Test
+    public void testPipelinedUpdates() {
+        //Pipelined updates (updater applied per layer during backprop) should give the same result as standard updates
+
+        INDArray f = Nd4j.rand(DataType.FLOAT, 8, 10);
+        INDArray l = Nd4j.rand(DataType.FLOAT, 8, 3);
+
+        MultiLayerNetwork[] nets = new MultiLayerNetwork[2];
+        for (int i = 0; i < 2; i++) {
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                    .seed(12345)
+                    .dataType(DataType.FLOAT)
+                    .updater(new Adam(0.01))
+                    .l2(1e-3)
+                    .list()
+                    .layer(new DenseLayer.Builder().nIn(10).nOut(12).activation(Activation.TANH).build())
+                    .layer(new BatchNormalization.Builder().nOut(12).build())
+                    .layer(new DenseLayer.Builder().nIn(12).nOut(12).activation(Activation.TANH)
+                            .updater(new Nesterovs(0.01, 0.9))
+                            .gradientNormalization(GradientNormalization.ClipL2PerLayer)
+                            .gradientNormalizationThreshold(0.1).build())
+                    .layer(new OutputLayer.Builder().nIn(12).nOut(3).activation(Activation.IDENTITY)
+                            .lossFunction(LossFunctions.LossFunction.MSE).build())
+                    .pipelinedUpdates(i == 1)
+                    .build();
+            nets[i] = new MultiLayerNetwork(conf);
+            nets[i].init();
+        }
+        assertEquals(nets[0].params(), nets[1].params());
+
+        //Updater blocks should not span multiple layers when pipelined
+        BaseMultiLayerUpdater u = (BaseMultiLayerUpdater) nets[1].getUpdater();
+        Set<Trainable> seen = new HashSet<>();
+        for (UpdaterBlock ub : (List<UpdaterBlock>) u.getUpdaterBlocks()) {
+            Trainable t = ub.getLayersAndVariablesInBlock().get(0).getLayer();
+            for (UpdaterBlock.ParamState ps : ub.getLayersAndVariablesInBlock()) {
+                assertSame(t, ps.getLayer());
+            }
+            seen.add(t);
+        }
+        assertEquals(4, seen.size());
+
+        for (int i = 0; i < 5; i++) {
+            nets[0].fit(f, l);
+            nets[1].fit(f, l);
+            assertEquals(nets[0].score(), nets[1].score(), 1e-6);
+            assertEquals(nets[0].params(), nets[1].params());
+        }
+        assertEquals(5, nets[1].getIterationCount());
+        assertEquals(nets[0].getUpdater().getStateViewArray().sumNumber().doubleValue(),
+                nets[1].getUpdater().getStateViewArray().sumNumber().doubleValue(), 1e-4);
+    }
 }
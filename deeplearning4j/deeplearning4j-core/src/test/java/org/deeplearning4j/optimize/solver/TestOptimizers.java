@@ -1001,6 +1001,11 @@ public class TestOptimizers extends BaseDL4JTest {
 
         }
 
+        @Override
+        public void clearParamCaches() {
+
+        }
+
         @Override
         public int getIterationCount() {
             return 0;
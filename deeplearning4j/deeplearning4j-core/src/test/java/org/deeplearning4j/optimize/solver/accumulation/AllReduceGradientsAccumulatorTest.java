@@ -0,0 +1,148 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.optimize.solver.accumulation;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.optimize.solvers.accumulation.AllReduceGradientsAccumulator;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for dense all-reduce of updates across consumers
+ */
+public class AllReduceGradientsAccumulatorTest extends BaseDL4JTest {
+
+    @Test
+    public void testAveraging() throws Exception {
+        int parties = 4;
+        AllReduceGradientsAccumulator accumulator = new AllReduceGradientsAccumulator(parties);
+
+        // length isn't divisible by number of consumers or chunk alignment, and last cycle has fewer consumers
+        for (int numConsumers : new int[] {4, 3, 2}) {
+            for (int length : new int[] {1, 37, 1031}) {
+                List<INDArray> updates = new ArrayList<>();
+                INDArray expected = Nd4j.create(1, length);
+                for (int e = 0; e < numConsumers; e++) {
+                    INDArray u = Nd4j.rand(1, length);
+                    expected.addi(u);
+                    updates.add(u);
+                }
+                expected.divi(numConsumers);
+
+                accumulator.registerConsumers(numConsumers);
+                storeConcurrently(accumulator, updates);
+
+                for (int e = 0; e < numConsumers; e++)
+                    assertEquals("Consumers: " + numConsumers + ", length: " + length, expected, updates.get(e));
+            }
+        }
+    }
+
+    @Test
+    public void testSingleConsumerMode() throws Exception {
+        AllReduceGradientsAccumulator accumulator = new AllReduceGradientsAccumulator(2);
+        accumulator.fallbackToSingleConsumerMode(true);
+
+        INDArray update = Nd4j.rand(1, 10);
+        INDArray copy = update.dup();
+
+        // no other consumers will come, so this call must return immediately, leaving updates intact
+        accumulator.registerConsumers(2);
+        accumulator.storeUpdate(update, 0, 0);
+        assertEquals(copy, update);
+
+        accumulator.registerConsumers(2);
+        accumulator.storeUpdate(update, 1, 0);
+        assertEquals(copy, update);
+    }
+
+    @Test(timeout = 30000L)
+    public void testAbort() throws Exception {
+        final AllReduceGradientsAccumulator accumulator = new AllReduceGradientsAccumulator(3);
+        accumulator.registerConsumers(3);
+
+        // only 2 of 3 consumers arrive, so they must fail once the accumulator is aborted instead of waiting forever
+        final AtomicInteger failures = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<>();
+        for (int e = 0; e < 2; e++) {
+            final INDArray u = Nd4j.rand(1, 10);
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        accumulator.storeUpdate(u, 0, 0);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        Thread.sleep(100);
+        accumulator.abort(new RuntimeException("Worker failed"));
+
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(2, failures.get());
+
+        try {
+            accumulator.registerConsumers(3);
+            fail("Expected exception");
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    protected static void storeConcurrently(final AllReduceGradientsAccumulator accumulator, List<INDArray> updates)
+                    throws Exception {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (final INDArray u : updates) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        accumulator.storeUpdate(u, 0, 0);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        for (Thread t : threads)
+            t.join();
+
+        assertNull(failure.get());
+    }
+}
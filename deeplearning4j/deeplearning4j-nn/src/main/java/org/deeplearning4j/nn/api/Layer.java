@@ -194,6 +194,14 @@ public interface Layer extends Serializable, Cloneable, Model, Trainable {
 
     void clearNoiseWeightParams();
 
+    /**
+     * Clear any values cached by the layer that are derived from the parameters, such as fused or sparse copies of the
+     * weights. This is done automatically when the parameters are set via the setParam/setParams/setParamTable methods
+     * of the layer or network, but must be called after modifying the parameter arrays in place by other means
+     * (for example, {@code net.params().assign(newParams)})
+     */
+    void clearParamCaches();
+
     /**
      * A performance optimization: mark whether the layer is allowed to modify its input array in-place. In many cases,
      * this is totally safe - in others, the input array will be shared by multiple layers, and hence it's not safe to
@@ -0,0 +1,43 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.api;
+
+/**
+ * RowSparseGradients: implemented by layers (such as embedding layers) whose gradients for some parameters are
+ * non-zero only in a small subset of rows - i.e., the rows that were looked up in the forward pass.<br>
+ * For these parameters, the layer guarantees that all rows of the gradient view other than those returned by
+ * {@link #getTouchedRows(String)} are zero, which allows the updater to apply the updater (Adam, RMSProp, etc) and
+ * regularization only to the touched rows. Note that this means the updater state of the other rows is updated lazily:
+ * for example, Adam moment estimates are not decayed for rows that don't appear in a minibatch.
+ */
+public interface RowSparseGradients {
+
+    /**
+     * @param paramName Name of the parameter
+     * @return True if the gradient of the specified (2d) parameter is row-sparse
+     */
+    boolean isRowSparse(String paramName);
+
+    /**
+     * @param paramName Name of the parameter
+     * @return Sorted, unique indices of the rows with (possibly) non-zero gradients in the last backward pass, or null
+     * if not available (in which case the whole parameter is updated)
+     */
+    int[] getTouchedRows(String paramName);
+
+}
@@ -63,7 +63,7 @@ import java.util.*;
  * @author Alex Black
  */
 @Data
-@EqualsAndHashCode(exclude = {"trainingWorkspaceMode", "inferenceWorkspaceMode", "cacheMode", "topologicalOrder", "topologicalOrderStr"})
+@EqualsAndHashCode(exclude = {"trainingWorkspaceMode", "inferenceWorkspaceMode", "cacheMode", "inferenceVertexThreads", "topologicalOrder", "topologicalOrderStr"})
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @NoArgsConstructor
 public class ComputationGraphConfiguration implements Serializable, Cloneable {
@@ -88,8 +88,30 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
     @Setter
     protected DataType dataType = DataType.FLOAT;   //Default to float for 1.0.0-beta3 and earlier nets
 
+    @Getter
+    @Setter
+    protected MixedPrecision mixedPrecision;
+
     protected boolean validateOutputLayerConfig = true;     //Default for 1.0.0-beta3 and earlier nets
 
+    /**
+     * If true: use gradient checkpointing (activation recomputation) for standard backprop. See
+     * {@link GraphBuilder#gradientCheckpointing(String...)}
+     */
+    protected boolean gradientCheckpointing = false;
+
+    /**
+     * Names of the checkpoint vertices for gradient checkpointing. If null (and gradient checkpointing is enabled),
+     * checkpoints are selected automatically
+     */
+    protected List<String> gradientCheckpoints;
+
+    /**
+     * Number of threads used to execute independent vertices concurrently for inference. See
+     * {@link GraphBuilder#inferenceVertexThreads(int)}
+     */
+    protected int inferenceVertexThreads = 1;
+
     /**
      * List of inputs to the network, by name
      */
@@ -343,6 +365,10 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         conf.defaultConfiguration.cacheMode = this.cacheMode;
         conf.validateOutputLayerConfig = this.validateOutputLayerConfig;
         conf.dataType = this.dataType;
+        conf.mixedPrecision = (this.mixedPrecision == null ? null : this.mixedPrecision.toBuilder().build());
+        conf.gradientCheckpointing = this.gradientCheckpointing;
+        conf.gradientCheckpoints = (this.gradientCheckpoints == null ? null : new ArrayList<>(this.gradientCheckpoints));
+        conf.inferenceVertexThreads = this.inferenceVertexThreads;
 
         return conf;
     }
@@ -690,6 +716,9 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         protected boolean allowNoOutput = false;
         protected boolean validateOutputConfig = true;
         protected boolean validateTbpttConfig = true;
+        protected boolean gradientCheckpointing = false;
+        protected List<String> gradientCheckpoints;
+        protected int inferenceVertexThreads = 1;
 
         protected String lastAdded = null;
 
@@ -709,6 +738,9 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             this.backpropType = clonedConf.getBackpropType();
             this.tbpttFwdLength = clonedConf.getTbpttFwdLength();
             this.tbpttBackLength = clonedConf.getTbpttBackLength();
+            this.gradientCheckpointing = clonedConf.isGradientCheckpointing();
+            this.gradientCheckpoints = clonedConf.getGradientCheckpoints();
+            this.inferenceVertexThreads = clonedConf.getInferenceVertexThreads();
             this.globalConfiguration = globalConfiguration;
             //this.getGlobalConfiguration().setSeed(clonedConf.getDefaultConfiguration().getSeed());
         }
@@ -780,6 +812,57 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             return tBPTTBackwardLength(tbpttLength);
         }
 
+        /**
+         * Enable or disable gradient checkpointing (activation recomputation), with automatically selected checkpoints:
+         * roughly every sqrt(N)th vertex (in topological order) is used as a checkpoint, for a network with N vertices.
+         * See {@link #gradientCheckpointing(String...)} for details.
+         *
+         * @param enabled If true: use gradient checkpointing. Default: false
+         */
+        public GraphBuilder gradientCheckpointing(boolean enabled) {
+            this.gradientCheckpointing = enabled;
+            this.gradientCheckpoints = null;
+            return this;
+        }
+
+        /**
+         * Enable gradient checkpointing (activation recomputation) with the specified checkpoint vertices.<br>
+         * When training with standard backprop, only the activations of the checkpoint vertices (and network inputs)
+         * are kept in memory after the forward pass. The activations of the other vertices are released, and recomputed
+         * (one segment between checkpoints at a time) during backprop. This reduces the memory required for activations
+         * at the cost of (approximately) one additional forward pass per iteration.<br>
+         * The inputs to the network output layers are always checkpoints. Gradient checkpointing is not used with
+         * truncated BPTT.<br>
+         * Recomputation uses the same RNG state as the original forward pass, so layers with dropout or weight noise
+         * between checkpoints use the same random masks in both passes.
+         *
+         * @param checkpointVertices Names of the vertices to use as checkpoints
+         */
+        public GraphBuilder gradientCheckpointing(String... checkpointVertices) {
+            this.gradientCheckpointing = true;
+            this.gradientCheckpoints = new ArrayList<>(Arrays.asList(checkpointVertices));
+            return this;
+        }
+
+        /**
+         * Number of threads used to execute independent vertices concurrently during inference (output methods).<br>
+         * With the default of 1, vertices are executed one at a time in topological order. With more than one thread,
+         * any vertex whose inputs are available may be executed concurrently with others - for example, the branches
+         * of an Inception module or of a multi-tower model. The output is the same as for sequential execution.<br>
+         * This is most useful when individual ops do not use all cores, such as for small minibatches. To trade
+         * intra-op threads for inter-vertex threads, also reduce the number of threads used by each op via
+         * {@code Nd4j.getEnvironment().setMaxMasterThreads(int)} (or the OMP_NUM_THREADS environment variable).<br>
+         * Training, and the rnnTimeStep methods, always execute vertices sequentially. This value can also be changed
+         * after the network is created, via {@code ComputationGraph.getConfiguration().setInferenceVertexThreads(int)}
+         *
+         * @param numThreads Number of threads for concurrent vertex execution. Default: 1 (sequential execution)
+         */
+        public GraphBuilder inferenceVertexThreads(int numThreads) {
+            Preconditions.checkArgument(numThreads >= 1, "Number of threads must be 1 or more, got %s", numThreads);
+            this.inferenceVertexThreads = numThreads;
+            return this;
+        }
+
         /**
          * Add a layer, with no {@link InputPreProcessor}, with the specified name and specified inputs.
          *
@@ -1158,6 +1241,10 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             conf.cacheMode = globalConfiguration.cacheMode;
             conf.validateOutputLayerConfig = validateOutputConfig;
             conf.dataType = globalConfiguration.dataType;
+            conf.mixedPrecision = globalConfiguration.mixedPrecision;
+            conf.gradientCheckpointing = gradientCheckpointing;
+            conf.gradientCheckpoints = gradientCheckpoints;
+            conf.inferenceVertexThreads = inferenceVertexThreads;
 
             conf.defaultConfiguration = globalConfiguration.build();
 
@@ -1202,6 +1289,14 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
                 conf.addPreProcessors(networkInputTypes.toArray(new InputType[networkInputs.size()]));
             }
 
+            if(gradientCheckpoints != null){
+                for(String s : gradientCheckpoints){
+                    if(!vertices.containsKey(s) && !networkInputs.contains(s)){
+                        throw new IllegalStateException("Invalid gradient checkpoint: no vertex with name \"" + s + "\" exists in the network");
+                    }
+                }
+            }
+
             if(validateOutputConfig) {
                 //Validate output layer configurations...
                 for (Map.Entry<String, GraphVertex> e : conf.getVertices().entrySet()) {
@@ -0,0 +1,85 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Configuration for mixed precision training, set via {@link NeuralNetConfiguration.Builder#mixedPrecision(MixedPrecision)}.<br>
+ * In mixed precision mode the network itself (parameters, activations, gradients) uses a 16-bit datatype - HALF or
+ * BFLOAT16, set via {@link NeuralNetConfiguration.Builder#dataType(org.nd4j.linalg.api.buffer.DataType)} - while the
+ * updater keeps a FLOAT (FP32) master copy of the parameters and its state, and applies the parameter updates to the
+ * master copy.<br>
+ * To avoid small gradients underflowing in 16-bit precision, the gradients are scaled by a loss scale during the
+ * backward pass, and unscaled in FP32 by the updater. With dynamic loss scaling, the loss scale is reduced (and the
+ * parameter update is skipped) whenever the gradients overflow, and increased after {@link #getGrowthInterval()}
+ * iterations without overflow.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class MixedPrecision implements Serializable {
+
+    /**
+     * Initial loss scale. Default: 2^15
+     */
+    @Builder.Default
+    private double initialLossScale = 32768.0;
+
+    /**
+     * If true (default): adjust the loss scale during training. If false: use {@link #getInitialLossScale()} throughout
+     */
+    @Builder.Default
+    private boolean dynamicLossScaling = true;
+
+    /**
+     * Factor to multiply the loss scale by after {@link #getGrowthInterval()} iterations without overflow. Default: 2
+     */
+    @Builder.Default
+    private double growthFactor = 2.0;
+
+    /**
+     * Factor to multiply the loss scale by when the gradients overflow. Default: 0.5
+     */
+    @Builder.Default
+    private double backoffFactor = 0.5;
+
+    /**
+     * Number of consecutive iterations without overflow after which the loss scale is increased. Default: 2000
+     */
+    @Builder.Default
+    private int growthInterval = 2000;
+
+    /**
+     * Minimum loss scale. Default: 1.0
+     */
+    @Builder.Default
+    private double minLossScale = 1.0;
+
+    /**
+     * Maximum loss scale. Default: 2^24
+     */
+    @Builder.Default
+    private double maxLossScale = 16777216.0;
+}
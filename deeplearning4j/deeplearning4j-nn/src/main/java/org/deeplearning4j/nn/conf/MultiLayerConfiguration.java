@@ -82,6 +82,14 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
     @Setter
     protected DataType dataType = DataType.FLOAT;   //Default to float for deserialization of beta3 and earlier nets
 
+    @Getter
+    @Setter
+    protected MixedPrecision mixedPrecision;
+
+    //If true: apply the updater to each layer's parameters as soon as that layer's gradients have been calculated,
+    // concurrently with the backprop of the remaining layers. See Builder.pipelinedUpdates(boolean)
+    protected boolean pipelinedUpdates = false;
+
     //Counter for the number of parameter updates so far
     // This is important for learning rate schedules, for example, and is stored here to ensure it is persisted
     // for Spark and model serialization
@@ -393,6 +401,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             clone.cacheMode = this.cacheMode;
             clone.validateOutputLayerConfig = this.validateOutputLayerConfig;
             clone.dataType = this.dataType;
+            clone.mixedPrecision = (this.mixedPrecision == null ? null : this.mixedPrecision.toBuilder().build());
+            clone.pipelinedUpdates = this.pipelinedUpdates;
 
             return clone;
 
@@ -479,6 +489,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
         protected boolean validateOutputConfig = true;
         protected boolean validateTbpttConfig = true;
         protected DataType dataType;
+        protected MixedPrecision mixedPrecision;
+        protected boolean pipelinedUpdates = false;
 
         /**
          * Specify the processors.
@@ -629,6 +641,38 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * Enable mixed precision training. See {@link MixedPrecision} for details
+         * @param mixedPrecision Mixed precision configuration. May be null (default: mixed precision disabled)
+         */
+        public Builder mixedPrecision(MixedPrecision mixedPrecision){
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
+        /**
+         * Enable pipelined parameter updates during fitting. Disabled (false) by default.<br>
+         * Normally, the gradients for all layers are calculated, and then the updater (Adam, etc) is applied to the
+         * parameters of all layers. With pipelined updates, the updater for each layer is applied on a separate thread
+         * as soon as that layer's gradients have been calculated, concurrently with the backprop for the remaining
+         * layers. This overlaps the (memory bound) updater with the backward pass, and is most beneficial for
+         * networks with large layers. The resulting parameters are the same as with standard (non-pipelined) updates.<br>
+         * Notes:<br>
+         * - Pipelining is only used for stochastic gradient descent, without mixed precision training or a gradients
+         * accumulator (as used in ParallelWrapper). Otherwise, updates are applied as normal<br>
+         * - The score is calculated before backprop rather than after, and the gradients are replaced by the updates
+         * as they are applied. Consequently, {@link org.deeplearning4j.optimize.api.TrainingListener}s will see the
+         * updates, not the raw gradients, in onGradientCalculation<br>
+         * - Updater state for each layer is stored separately (rather than in blocks combining layers with the same
+         * updater configuration), so the updater state layout differs from that of the equivalent non-pipelined network
+         *
+         * @param pipelinedUpdates Whether to use pipelined parameter updates
+         */
+        public Builder pipelinedUpdates(boolean pipelinedUpdates) {
+            this.pipelinedUpdates = pipelinedUpdates;
+            return this;
+        }
+
 
         public MultiLayerConfiguration build() {
             //Validate BackpropType setting
@@ -715,6 +759,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
             conf.cacheMode = cacheMode;
             conf.dataType = dataType;
+            conf.mixedPrecision = mixedPrecision;
+            conf.pipelinedUpdates = pipelinedUpdates;
 
             Nd4j.getRandom().setSeed(conf.getConf(0).getSeed());
 
@@ -255,6 +255,8 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
                             .trainingWorkspaceMode(wsmTrain).cacheMode(globalConfig.cacheMode)
                             .inferenceWorkspaceMode(wsmTest).confs(list).validateOutputLayerConfig(validateOutputConfig)
                             .dataType(globalConfig.dataType)
+                            .mixedPrecision(globalConfig.mixedPrecision)
+                            .pipelinedUpdates(pipelinedUpdates)
                             .build();
         }
 
@@ -409,6 +411,7 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
         protected boolean setIWM = false;
         protected CacheMode cacheMode = CacheMode.NONE;
         protected DataType dataType = DataType.FLOAT;
+        protected MixedPrecision mixedPrecision;
 
         protected ConvolutionMode convolutionMode = ConvolutionMode.Truncate;
         protected ConvolutionLayer.AlgoMode cudnnAlgoMode = ConvolutionLayer.AlgoMode.PREFER_FASTEST;
@@ -1068,15 +1071,39 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
 
         /**
          * Set the DataType for the network parameters and activations. Must be a floating point type: {@link DataType#DOUBLE},
-         * {@link DataType#FLOAT} or {@link DataType#HALF}.<br>
+         * {@link DataType#FLOAT}, {@link DataType#HALF} or {@link DataType#BFLOAT16}.<br>
+         * For training with 16-bit types, see also {@link #mixedPrecision(MixedPrecision)}
          */
         public Builder dataType(@NonNull DataType dataType){
-            Preconditions.checkState(dataType == DataType.DOUBLE || dataType == DataType.FLOAT || dataType == DataType.HALF,
-                    "Data type must be a floating point type: one of DOUBLE, FLOAT, or HALF. Got datatype: %s", dataType);
+            Preconditions.checkState(dataType == DataType.DOUBLE || dataType == DataType.FLOAT || dataType == DataType.HALF
+                            || dataType == DataType.BFLOAT16,
+                    "Data type must be a floating point type: one of DOUBLE, FLOAT, HALF or BFLOAT16. Got datatype: %s", dataType);
             this.dataType = dataType;
             return this;
         }
 
+        /**
+         * Enable mixed precision training: the network uses the (16-bit) datatype set via {@link #dataType(DataType)}
+         * for the forward and backward pass, while the updater applies updates to FP32 master parameters, with
+         * (dynamic) loss scaling. See {@link MixedPrecision} for details.<br>
+         * Note that mixed precision training is only supported with the stochastic gradient descent optimization
+         * algorithm, and not with external gradients or gradient sharing.
+         *
+         * @param mixedPrecision Mixed precision configuration. May be null (default: mixed precision disabled)
+         */
+        public Builder mixedPrecision(MixedPrecision mixedPrecision){
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
+        /**
+         * Enable mixed precision training with the default {@link MixedPrecision} configuration (dynamic loss scaling).
+         * See {@link #mixedPrecision(MixedPrecision)}
+         */
+        public Builder mixedPrecision(){
+            return mixedPrecision(MixedPrecision.builder().build());
+        }
+
         /**
          * Return a configuration based on this builder
          *
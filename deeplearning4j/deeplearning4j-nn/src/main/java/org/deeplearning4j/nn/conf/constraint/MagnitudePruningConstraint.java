@@ -0,0 +1,146 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.conf.constraint;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.deeplearning4j.nn.api.Layer;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Broadcast;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.BooleanIndexing;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+import org.nd4j.linalg.ops.transforms.Transforms;
+import org.nd4j.linalg.schedule.FixedSchedule;
+import org.nd4j.linalg.schedule.ISchedule;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Magnitude-based weight pruning: after each parameter update, the fraction (sparsity) of parameters with the smallest
+ * absolute values are set to 0.0.<br>
+ * The sparsity can be fixed, or provided by a schedule - for example a {@link org.nd4j.linalg.schedule.MapSchedule}
+ * that gradually increases the sparsity during training, which usually gives better accuracy than pruning all at once.
+ * <p>
+ * Two modes are supported:<br>
+ * - Unstructured pruning (no dimensions specified): individual parameters are pruned<br>
+ * - Structured pruning (dimensions specified): entire slices of the parameters are pruned, based on their L2 norm
+ * along the specified dimensions. For DenseLayer this should be dimension 0 to prune output units (columns of the
+ * [nIn, nOut] weights). For CNNs, this should be dimensions [1,2,3] to prune entire filters of the
+ * [depthOut, depthIn, kH, kW] weights
+ * <p>
+ * Pruned DenseLayers can be converted to use sparse weights for inference using
+ * {@link org.deeplearning4j.nn.transferlearning.WeightPruning#toSparse(org.deeplearning4j.nn.multilayer.MultiLayerNetwork, double)}
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class MagnitudePruningConstraint extends BaseConstraint {
+
+    private ISchedule sparsitySchedule;
+
+    private MagnitudePruningConstraint() {
+        //No arg for json ser/de
+    }
+
+    /**
+     * @param sparsity   Fraction of parameters (or slices, for structured pruning) to prune, in range [0, 1)
+     * @param dimensions Dimensions for structured pruning. If not specified: unstructured pruning
+     */
+    public MagnitudePruningConstraint(double sparsity, int... dimensions) {
+        this(new FixedSchedule(sparsity), dimensions);
+    }
+
+    /**
+     * @param sparsitySchedule Schedule for the fraction of parameters (or slices, for structured pruning) to prune,
+     *                         in range [0, 1)
+     * @param dimensions       Dimensions for structured pruning. If not specified: unstructured pruning
+     */
+    public MagnitudePruningConstraint(ISchedule sparsitySchedule, int... dimensions) {
+        this(sparsitySchedule, Collections.<String>emptySet(), dimensions);
+    }
+
+    /**
+     * @param sparsitySchedule Schedule for the fraction of parameters (or slices, for structured pruning) to prune,
+     *                         in range [0, 1)
+     * @param paramNames       Which parameter names to apply constraint to
+     * @param dimensions       Dimensions for structured pruning. If not specified: unstructured pruning
+     */
+    public MagnitudePruningConstraint(ISchedule sparsitySchedule, Set<String> paramNames, int... dimensions) {
+        super(paramNames, DEFAULT_EPSILON, dimensions);
+        this.sparsitySchedule = sparsitySchedule;
+    }
+
+    @Override
+    public void applyConstraint(Layer layer, int iteration, int epoch) {
+        Map<String, INDArray> paramTable = layer.paramTable();
+        if (paramTable == null || paramTable.isEmpty() || params == null) {
+            return;
+        }
+
+        double sparsity = sparsitySchedule.valueAt(iteration, epoch);
+        for (Map.Entry<String, INDArray> e : paramTable.entrySet()) {
+            if (params.contains(e.getKey())) {
+                prune(e.getValue(), sparsity, dimensions);
+            }
+        }
+    }
+
+    /**
+     * Prune the parameters using the sparsity at iteration 0, epoch 0 of the schedule
+     */
+    @Override
+    public void apply(INDArray param) {
+        prune(param, sparsitySchedule.valueAt(0, 0), dimensions);
+    }
+
+    /**
+     * Prune (set to 0.0) the fraction of values with the smallest magnitude, in-place
+     *
+     * @param param      Parameters to prune
+     * @param sparsity   Fraction of values (or slices, for structured pruning) to prune, in range [0, 1)
+     * @param dimensions Dimensions for structured pruning: slices with the smallest L2 norm along these dimensions
+     *                   are pruned. If null or empty: unstructured pruning
+     */
+    public static void prune(INDArray param, double sparsity, int... dimensions) {
+        Preconditions.checkArgument(sparsity >= 0.0 && sparsity < 1.0, "Sparsity must be in range [0, 1), got %s", sparsity);
+        boolean structured = dimensions != null && dimensions.length > 0;
+        INDArray magnitude = structured ? param.norm2(dimensions) : Transforms.abs(param, true);
+        long k = (long) (sparsity * magnitude.length());
+        if (k == 0) {
+            return;
+        }
+
+        //Threshold: k-th smallest magnitude. Values with magnitude <= threshold are pruned; values already pruned are
+        //included in the count, so applying the same sparsity repeatedly does not prune further
+        double threshold = Nd4j.sort(magnitude.reshape(magnitude.length()).dup(), true).getDouble(k - 1);
+        if (structured) {
+            INDArray mask = magnitude.gt(threshold).castTo(param.dataType());
+            Broadcast.mul(param, mask, param, getBroadcastDims(dimensions, param.rank()));
+        } else {
+            BooleanIndexing.replaceWhere(param, 0.0, Conditions.absLessThanOrEqual(threshold));
+        }
+    }
+
+    @Override
+    public MagnitudePruningConstraint clone() {
+        return new MagnitudePruningConstraint(sparsitySchedule.clone(), params, dimensions);
+    }
+}
@@ -42,11 +42,13 @@ public class DenseLayer extends FeedForwardLayer {
 
     private boolean hasLayerNorm = false;
     private boolean hasBias = true;
+    private boolean sparseInference = false;
 
     private DenseLayer(Builder builder) {
         super(builder);
         this.hasBias = builder.hasBias;
         this.hasLayerNorm = builder.hasLayerNorm;
+        this.sparseInference = builder.sparseInference;
 
         initializeConstraints(builder);
     }
@@ -143,6 +145,22 @@ public class DenseLayer extends FeedForwardLayer {
             return this;
         }
 
+        /**
+         * See {@link #sparseInference(boolean)}
+         */
+        private boolean sparseInference = false;
+
+        /**
+         * If true (default = false): use a sparse (CSR) representation of the weights for inference. This reduces
+         * the number of FLOPs for inference when most of the weights are zero - for example, after pruning with
+         * {@link org.deeplearning4j.nn.conf.constraint.MagnitudePruningConstraint}. Training is not affected.
+         *
+         * @param sparseInference If true: use sparse weights for inference
+         */
+        public Builder sparseInference(boolean sparseInference){
+            this.setSparseInference(sparseInference);
+            return this;
+        }
 
         @Override
         @SuppressWarnings("unchecked")
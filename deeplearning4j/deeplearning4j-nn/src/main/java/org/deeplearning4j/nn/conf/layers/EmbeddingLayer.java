@@ -57,10 +57,12 @@ import java.util.Map;
 public class EmbeddingLayer extends FeedForwardLayer {
 
     private boolean hasBias = true; //Default for pre-0.9.2 implementations
+    private boolean sparseGradients = false;
 
     private EmbeddingLayer(Builder builder) {
         super(builder);
         this.hasBias = builder.hasBias;
+        this.sparseGradients = builder.sparseGradients;
         initializeConstraints(builder);
     }
 
@@ -116,6 +118,12 @@ public class EmbeddingLayer extends FeedForwardLayer {
          */
         private boolean hasBias = false;
 
+        /**
+         * If true: only update and regularize the rows of the weights used in the current minibatch. False (default):
+         * update all weights.
+         */
+        private boolean sparseGradients = false;
+
         public Builder(){
             //Default to Identity activation - i.e., don't inherit.
             //For example, if user sets ReLU as global default, they very likely don't intend to use it for Embedding layer also
@@ -133,6 +141,20 @@ public class EmbeddingLayer extends FeedForwardLayer {
             return this;
         }
 
+        /**
+         * If true: treat the weight gradient as row-sparse, so that only the rows (embeddings) used in the current
+         * minibatch are updated and regularized. The cost of a parameter update then scales with the number of rows
+         * in the minibatch instead of the vocabulary size. Note that updater state (such as Adam moment estimates) is
+         * then updated lazily: rows that don't appear in a minibatch are left unchanged.<br>
+         * Default: false
+         *
+         * @param sparseGradients If true: use sparse (row-wise) updates for the weights
+         */
+        public Builder sparseGradients(boolean sparseGradients) {
+            this.setSparseGradients(sparseGradients);
+            return this;
+        }
+
         @Override
         public Builder weightInit(IWeightInit weightInit) {
             if(weightInit instanceof WeightInitEmbedding){
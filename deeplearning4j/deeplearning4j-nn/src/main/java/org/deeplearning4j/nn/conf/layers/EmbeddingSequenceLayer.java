@@ -60,6 +60,7 @@ public class EmbeddingSequenceLayer extends FeedForwardLayer {
     private boolean hasBias = false;
     private boolean inferInputLength = false; // use input length as provided by input data
     private RNNFormat outputFormat = RNNFormat.NCW;       //Default value for older deserialized models
+    private boolean sparseGradients = false;
 
     private EmbeddingSequenceLayer(Builder builder) {
         super(builder);
@@ -67,6 +68,7 @@ public class EmbeddingSequenceLayer extends FeedForwardLayer {
         this.inputLength = builder.inputLength;
         this.inferInputLength = builder.inferInputLength;
         this.outputFormat = builder.outputFormat;
+        this.sparseGradients = builder.sparseGradients;
         initializeConstraints(builder);
     }
 
@@ -172,6 +174,12 @@ public class EmbeddingSequenceLayer extends FeedForwardLayer {
 
         private RNNFormat outputFormat = RNNFormat.NCW;       //Default value for older deserialized models
 
+        /**
+         * If true: only update and regularize the rows of the weights used in the current minibatch. False (default):
+         * update all weights.
+         */
+        private boolean sparseGradients = false;
+
         public Builder outputDataFormat(RNNFormat format){
             this.outputFormat = format;
             return this;
@@ -210,6 +218,20 @@ public class EmbeddingSequenceLayer extends FeedForwardLayer {
             return this;
         }
 
+        /**
+         * If true: treat the weight gradient as row-sparse, so that only the rows (embeddings) used in the current
+         * minibatch are updated and regularized. The cost of a parameter update then scales with the number of rows
+         * in the minibatch instead of the vocabulary size. Note that updater state (such as Adam moment estimates) is
+         * then updated lazily: rows that don't appear in a minibatch are left unchanged.<br>
+         * Default: false
+         *
+         * @param sparseGradients If true: use sparse (row-wise) updates for the weights
+         */
+        public Builder sparseGradients(boolean sparseGradients) {
+            this.setSparseGradients(sparseGradients);
+            return this;
+        }
+
         @Override
         public Builder weightInit(IWeightInit weightInit) {
             this.setWeightInitFn(weightInit);
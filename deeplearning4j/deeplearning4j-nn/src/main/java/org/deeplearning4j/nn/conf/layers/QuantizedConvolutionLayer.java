@@ -0,0 +1,99 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.conf.layers;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.ParamInitializer;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.params.QuantizedParamInitializer;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.learning.config.NoOp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Inference-only quantized version of {@link ConvolutionLayer} (2D convolution): weights are stored as INT8 values
+ * with a per output channel scale, and the input activations are quantized to INT8 using a calibrated per-tensor
+ * scale. The convolution is performed as im2col followed by a matrix multiplication of the quantized values, and the
+ * result is dequantized before the (floating point) bias and activation function are applied.<br>
+ * Layers of this type are created by {@link org.deeplearning4j.nn.transferlearning.PostTrainingQuantization}, and
+ * can't be trained.
+ */
+@Data
+@NoArgsConstructor
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class QuantizedConvolutionLayer extends ConvolutionLayer {
+
+    /**
+     * Create a quantized layer with the same configuration as the specified convolution layer
+     *
+     * @param layer Convolution layer to quantize
+     */
+    public QuantizedConvolutionLayer(ConvolutionLayer layer) {
+        this.layerName = layer.getLayerName();
+        this.nIn = layer.getNIn();
+        this.nOut = layer.getNOut();
+        this.activationFn = layer.getActivationFn();
+        this.hasBias = layer.hasBias();
+        this.convolutionMode = layer.getConvolutionMode();
+        this.kernelSize = layer.getKernelSize().clone();
+        this.stride = layer.getStride().clone();
+        this.padding = layer.getPadding().clone();
+        this.dilation = layer.getDilation().clone();
+        this.cnn2dDataFormat = layer.getCnn2dDataFormat();
+        this.iUpdater = new NoOp();
+        this.regularization = new ArrayList<>();
+        this.regularizationBias = new ArrayList<>();
+    }
+
+    @Override
+    public Layer instantiate(NeuralNetConfiguration conf, Collection<TrainingListener> trainingListeners,
+                             int layerIndex, INDArray layerParamsView, boolean initializeParams, DataType networkDataType) {
+        LayerValidation.assertNInNOutSet("QuantizedConvolutionLayer", getLayerName(), layerIndex, getNIn(), getNOut());
+        if (networkDataType != DataType.FLOAT && networkDataType != DataType.DOUBLE) {
+            //Quantized weights are packed into the parameter array as 24-bit integers - see QuantizedParamInitializer
+            throw new DL4JInvalidConfigException("QuantizedConvolutionLayer (index=" + layerIndex + ", name=" + getLayerName()
+                    + "): quantized layers require FLOAT or DOUBLE network data type, got " + networkDataType);
+        }
+
+        org.deeplearning4j.nn.layers.convolution.QuantizedConvolutionLayer ret =
+                        new org.deeplearning4j.nn.layers.convolution.QuantizedConvolutionLayer(conf, networkDataType);
+        ret.setListeners(trainingListeners);
+        ret.setIndex(layerIndex);
+        ret.setParamsViewArray(layerParamsView);
+        Map<String, INDArray> paramTable = initializer().init(conf, layerParamsView, initializeParams);
+        ret.setParamTable(paramTable);
+        ret.setConf(conf);
+        return ret;
+    }
+
+    @Override
+    public ParamInitializer initializer() {
+        return QuantizedParamInitializer.getInstance();
+    }
+}
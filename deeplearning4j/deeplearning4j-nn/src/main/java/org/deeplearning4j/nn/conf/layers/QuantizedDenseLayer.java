@@ -0,0 +1,117 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.conf.layers;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.val;
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.ParamInitializer;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.memory.LayerMemoryReport;
+import org.deeplearning4j.nn.conf.memory.MemoryReport;
+import org.deeplearning4j.nn.params.QuantizedParamInitializer;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.learning.config.NoOp;
+import org.nd4j.linalg.learning.regularization.Regularization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Inference-only quantized version of {@link DenseLayer}: weights are stored as INT8 values with a per output
+ * channel scale, and the input activations are quantized to INT8 using a calibrated per-tensor scale. The matrix
+ * multiplication is performed on the quantized values, and the result is dequantized before the (floating point)
+ * bias and activation function are applied.<br>
+ * Layers of this type are created by {@link org.deeplearning4j.nn.transferlearning.PostTrainingQuantization}, and
+ * can't be trained.
+ */
+@Data
+@NoArgsConstructor
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class QuantizedDenseLayer extends FeedForwardLayer {
+
+    private boolean hasBias = true;
+
+    /**
+     * Create a quantized layer with the same configuration as the specified dense layer
+     *
+     * @param layer Dense layer to quantize
+     */
+    public QuantizedDenseLayer(DenseLayer layer) {
+        this.layerName = layer.getLayerName();
+        this.nIn = layer.getNIn();
+        this.nOut = layer.getNOut();
+        this.activationFn = layer.getActivationFn();
+        this.hasBias = layer.hasBias();
+        this.iUpdater = new NoOp();
+        this.regularization = new ArrayList<>();
+        this.regularizationBias = new ArrayList<>();
+    }
+
+    @Override
+    public Layer instantiate(NeuralNetConfiguration conf, Collection<TrainingListener> trainingListeners,
+                             int layerIndex, INDArray layerParamsView, boolean initializeParams, DataType networkDataType) {
+        LayerValidation.assertNInNOutSet("QuantizedDenseLayer", getLayerName(), layerIndex, getNIn(), getNOut());
+        if (networkDataType != DataType.FLOAT && networkDataType != DataType.DOUBLE) {
+            //Quantized weights are packed into the parameter array as 24-bit integers - see QuantizedParamInitializer
+            throw new DL4JInvalidConfigException("QuantizedDenseLayer (index=" + layerIndex + ", name=" + getLayerName()
+                    + "): quantized layers require FLOAT or DOUBLE network data type, got " + networkDataType);
+        }
+
+        org.deeplearning4j.nn.layers.feedforward.dense.QuantizedDenseLayer ret =
+                        new org.deeplearning4j.nn.layers.feedforward.dense.QuantizedDenseLayer(conf, networkDataType);
+        ret.setListeners(trainingListeners);
+        ret.setIndex(layerIndex);
+        ret.setParamsViewArray(layerParamsView);
+        Map<String, INDArray> paramTable = initializer().init(conf, layerParamsView, initializeParams);
+        ret.setParamTable(paramTable);
+        ret.setConf(conf);
+        return ret;
+    }
+
+    @Override
+    public ParamInitializer initializer() {
+        return QuantizedParamInitializer.getInstance();
+    }
+
+    @Override
+    public LayerMemoryReport getMemoryReport(InputType inputType) {
+        InputType outputType = getOutputType(-1, inputType);
+        val numParams = initializer().numParams(this);
+
+        //Inference only: no updater state, and no training memory. INT32 accumulator is the same size as the output
+        return new LayerMemoryReport.Builder(layerName, QuantizedDenseLayer.class, inputType, outputType)
+                        .standardMemory(numParams, 0)
+                        .workingMemory(0, outputType.arrayElementsPerExample(), 0, 0)
+                        .cacheMemory(MemoryReport.CACHE_MODE_ALL_ZEROS, MemoryReport.CACHE_MODE_ALL_ZEROS)
+                        .build();
+    }
+
+    public boolean hasBias() {
+        return hasBias;
+    }
+}
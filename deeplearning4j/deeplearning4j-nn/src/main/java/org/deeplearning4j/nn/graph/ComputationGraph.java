@@ -65,6 +65,7 @@ import org.nd4j.evaluation.classification.Evaluation;
 import org.nd4j.evaluation.classification.ROC;
 import org.nd4j.evaluation.classification.ROCMultiClass;
 import org.nd4j.evaluation.regression.RegressionEvaluation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
@@ -98,6 +99,13 @@ import org.nd4j.common.util.OneTimeLogger;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -126,6 +134,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
     private transient final AtomicLong occupiedBy = new AtomicLong(-1);
 
+    //Thread pool and per-thread helper workspaces for concurrent vertex execution during inference.
+    //Created lazily (see getInferenceExecutor), as transient fields are not initialized after deserialization
+    private transient ExecutorService inferenceExecutor;
+    private transient int inferenceExecutorThreads;
+    private transient ThreadLocal<Map<String,Pointer>> inferenceHelperWorkspaces;
+
     /**
      * Workspace for working memory for a single layer: forward pass and backward pass
      * Note that this is opened/closed once per op (activate/backpropGradient call)
@@ -210,6 +224,17 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
     private transient int[] outputLayerIdxs;
 
+    //Gradient checkpointing: checkpoint vertices (by vertex index). Null if gradient checkpointing is not used
+    private transient boolean[] gradientCheckpoints;
+    //Gradient checkpointing, between the forward pass and the end of backprop: the activations of the checkpoint
+    // vertices, the vertices that had their inputs released after the forward pass, and their mask arrays
+    private transient INDArray[] checkpointActivations;
+    private transient boolean[] releasedInputs;
+    private transient INDArray[] releasedMasks;
+    //Gradient checkpointing: RNG state before the forward pass of each vertex, so that recomputation (and backprop of
+    // vertices with restored inputs) draws the same dropout masks and weight noise as the original forward pass
+    private transient long[][] recomputeRngStates;
+
     private NeuralNetConfiguration defaultConfiguration;
     private Collection<TrainingListener> trainingListeners = new ArrayList<>();
 
@@ -805,6 +830,212 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return  outputLayerIdxs;
     }
 
+    /**
+     * Get the gradient checkpoint vertices, if gradient checkpointing is enabled. Network inputs and the inputs to the
+     * network outputs are always checkpoints. If no checkpoint vertices have been configured, roughly every sqrt(N)th
+     * vertex (in topological order) is used as a checkpoint.
+     *
+     * @return Checkpoint vertices by vertex index, or null if gradient checkpointing is not used
+     */
+    protected boolean[] getGradientCheckpoints(){
+        if(!configuration.isGradientCheckpointing()){
+            return null;
+        }
+        if(gradientCheckpoints == null){
+            boolean[] c = new boolean[vertices.length];
+            for(GraphVertex gv : vertices){
+                if(gv.isInputVertex()){
+                    c[gv.getVertexIndex()] = true;
+                }
+                if(gv.isOutputVertex() && gv.getInputVertices() != null){
+                    for(VertexIndices vi : gv.getInputVertices()){
+                        c[vi.getVertexIndex()] = true;
+                    }
+                }
+            }
+            if(configuration.getGradientCheckpoints() != null){
+                for(String s : configuration.getGradientCheckpoints()){
+                    c[verticesMap.get(s).getVertexIndex()] = true;
+                }
+            } else {
+                int interval = Math.max(1, (int)Math.round(Math.sqrt(topologicalOrder.length)));
+                for(int i = interval; i < topologicalOrder.length; i += interval){
+                    c[topologicalOrder[i]] = true;
+                }
+            }
+            gradientCheckpoints = c;
+        }
+        return gradientCheckpoints;
+    }
+
+    /**
+     * Workspace manager for the activations of non-checkpoint vertices, when using gradient checkpointing: these
+     * activations (and layer inputs) are detached, so that they can be released after use
+     */
+    private LayerWorkspaceMgr getRecomputeWorkspaceMgr(){
+        if(configuration.getTrainingWorkspaceMode() == WorkspaceMode.NONE){
+            return LayerWorkspaceMgr.noWorkspaces(helperWorkspaces);
+        }
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.builder()
+                .noWorkspaceFor(ArrayType.ACTIVATIONS)
+                .noWorkspaceFor(ArrayType.INPUT)
+                .noWorkspaceFor(ArrayType.FF_CACHE)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        mgr.setHelperWorkspacePointers(helperWorkspaces);
+        return mgr;
+    }
+
+    /**
+     * Gradient checkpointing: after the forward pass, keep only the activations of the checkpoint vertices, and clear
+     * the inputs of all vertices that have one or more non-checkpoint inputs. These inputs are recomputed during
+     * backprop by {@link #recomputeSegment(int, INDArray[], boolean[], LayerWorkspaceMgr)}
+     */
+    private void releaseNonCheckpointActivations(Map<String,INDArray> activations){
+        boolean[] checkpoints = getGradientCheckpoints();
+        checkpointActivations = new INDArray[vertices.length];
+        releasedInputs = new boolean[vertices.length];
+        releasedMasks = new INDArray[vertices.length];
+        for(GraphVertex gv : vertices){
+            int idx = gv.getVertexIndex();
+            if(checkpoints[idx]){
+                checkpointActivations[idx] = activations.get(gv.getVertexName());
+            }
+            VertexIndices[] inputsFrom = gv.getInputVertices();
+            if(inputsFrom == null){
+                continue;
+            }
+            for(VertexIndices vi : inputsFrom){
+                if(!checkpoints[vi.getVertexIndex()]){
+                    releasedInputs[idx] = true;
+                    break;
+                }
+            }
+            if(releasedInputs[idx]){
+                if(gv.hasLayer()){
+                    releasedMasks[idx] = gv.getLayer().getMaskArray();
+                }
+                gv.clear();
+            }
+        }
+
+        //Release the non-checkpoint activations now, instead of waiting for garbage collection. Listeners may have
+        // kept references to the activations, in which case they are left to the garbage collector
+        if(trainingListeners.isEmpty()){
+            for(GraphVertex gv : vertices){
+                if(!checkpoints[gv.getVertexIndex()] && !gv.isInputVertex()){
+                    releaseActivations(activations.get(gv.getVertexName()), null, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gradient checkpointing: close an activations array that is no longer required. The array is kept if it shares
+     * its buffer with an array that is still in use: the network inputs, the checkpoint activations, the recomputed
+     * activations, or the specified arrays
+     */
+    private void releaseActivations(INDArray arr, INDArray[] recomputed, INDArray[] inUse){
+        if(arr == null || arr.isEmpty() || !arr.closeable()){
+            return;
+        }
+        if(sharesBuffer(arr, inputs) || sharesBuffer(arr, checkpointActivations) || sharesBuffer(arr, recomputed)
+                || sharesBuffer(arr, inUse)){
+            return;
+        }
+        arr.close();
+    }
+
+    private static boolean sharesBuffer(INDArray arr, INDArray[] others){
+        if(others == null){
+            return false;
+        }
+        DataBuffer b = arr.data().originalDataBuffer() == null ? arr.data() : arr.data().originalDataBuffer();
+        for(INDArray o : others){
+            if(o == null || o.isEmpty()){
+                continue;
+            }
+            DataBuffer ob = o.data().originalDataBuffer() == null ? o.data() : o.data().originalDataBuffer();
+            if(ob == b){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gradient checkpointing: restore the inputs of the vertices in the segment ending at the specified position in the
+     * topological order (i.e., back to the previous checkpoint), by redoing the forward pass from the checkpoints
+     *
+     * @param topoPos    Position (in the topological order) of the vertex about to be backpropagated
+     * @param recomputed Recomputed activations, by vertex index. Updated by this method
+     * @param restored   Vertices that have had their inputs restored. Updated by this method
+     * @param mgr        Workspace manager for the recomputation
+     */
+    private void recomputeSegment(int topoPos, INDArray[] recomputed, boolean[] restored, LayerWorkspaceMgr mgr){
+        boolean[] checkpoints = getGradientCheckpoints();
+        int segmentStart = topoPos;
+        while(segmentStart > 0 && !checkpoints[topologicalOrder[segmentStart - 1]]){
+            segmentStart--;
+        }
+
+        //Determine which vertices need their inputs restored, and which activations need to be recomputed for this.
+        //Vertices outside of the segment may be required also, for skip connections from non-checkpoint vertices
+        boolean[] restore = new boolean[vertices.length];
+        boolean[] compute = new boolean[vertices.length];
+        int first = topoPos;
+        for(int i = topoPos; i >= 0; i--){
+            int idx = topologicalOrder[i];
+            boolean needsInputs = releasedInputs[idx] && !restored[idx];
+            if(needsInputs && (i >= segmentStart || compute[idx])){
+                restore[idx] = true;
+                for(VertexIndices vi : vertices[idx].getInputVertices()){
+                    int inIdx = vi.getVertexIndex();
+                    if(!checkpoints[inIdx] && recomputed[inIdx] == null){
+                        compute[inIdx] = true;
+                    }
+                }
+            }
+            if(restore[idx] || compute[idx]){
+                first = i;
+            }
+        }
+
+        //Recompute with the same RNG state as the original forward pass, so dropout masks and weight noise match
+        org.nd4j.linalg.api.rng.Random rng = Nd4j.getRandom();
+        long rootState = rng.rootState();
+        long nodeState = rng.nodeState();
+        try {
+            for(int i = first; i <= topoPos; i++){
+                int idx = topologicalOrder[i];
+                GraphVertex gv = vertices[idx];
+                if(restore[idx]){
+                    VertexIndices[] inputsFrom = gv.getInputVertices();
+                    for(VertexIndices vi : inputsFrom){
+                        int inIdx = vi.getVertexIndex();
+                        INDArray in = (checkpoints[inIdx] ? checkpointActivations[inIdx] : recomputed[inIdx]);
+                        gv.setInput(vi.getVertexEdgeNumber(), in, mgr);
+                    }
+                    if(gv.hasLayer() && releasedMasks[idx] != null){
+                        gv.getLayer().setMaskArray(releasedMasks[idx]);
+                    }
+                    restored[idx] = true;
+                }
+                if(compute[idx]){
+                    if(recomputeRngStates[idx] != null){
+                        rng.setStates(recomputeRngStates[idx][0], recomputeRngStates[idx][1]);
+                    }
+                    try(MemoryWorkspace wsFFWorking = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
+                        recomputed[idx] = gv.doForward(true, mgr);
+                    }
+                }
+            }
+        } finally {
+            rng.setStates(rootState, nodeState);
+        }
+    }
+
     /**
      * Perform layerwise pretraining for one epoch - see {@link #pretrain(DataSetIterator, int)}
      */
@@ -1379,6 +1610,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     }
                 }
             }
+            if (!tbptt && getGradientCheckpoints() != null) {
+                //Only keep checkpoint activations: the remainder are recomputed as required during backprop
+                releaseNonCheckpointActivations(activations);
+                activations = null;
+            }
             calcBackpropGradients(false,false);
 
             workspaceMgr.assertCurrentWorkspace(ArrayType.ACTIVATIONS, null);
@@ -2101,6 +2337,14 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         }
         workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
 
+        //Gradient checkpointing: activations of non-checkpoint vertices are detached, so they can be released after
+        // the forward pass
+        boolean[] checkpoints = (train && fwdPassType == FwdPassType.STANDARD ? getGradientCheckpoints() : null);
+        LayerWorkspaceMgr recomputeMgr = (checkpoints == null ? null : getRecomputeWorkspaceMgr());
+        if(checkpoints != null){
+            recomputeRngStates = new long[vertices.length][];
+        }
+
         boolean traceLog = log.isTraceEnabled();
 
         Map<String, INDArray> activations = new HashMap<>();
@@ -2126,14 +2370,19 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
             try(MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
                 VertexIndices[] inputsTo = current.getOutputVertices();
+                LayerWorkspaceMgr mgr = (checkpoints == null || checkpoints[vIdx] ? workspaceMgr : recomputeMgr);
 
                 INDArray out;
                 if(current.isInputVertex()){
                     out = inputs[vIdx];
                 } else {
+                    if(checkpoints != null){
+                        org.nd4j.linalg.api.rng.Random rng = Nd4j.getRandom();
+                        recomputeRngStates[vIdx] = new long[]{rng.rootState(), rng.nodeState()};
+                    }
 
                     if(fwdPassType == FwdPassType.STANDARD){
-                        out = current.doForward(train, workspaceMgr);
+                        out = current.doForward(train, mgr);
                     } else if(fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE) {
                         if (current.hasLayer()) {
                             Layer l = current.getLayer();
@@ -2158,7 +2407,9 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                         throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
                     }
 
-                    validateArrayWorkspaces(workspaceMgr, out, ArrayType.ACTIVATIONS, vName, false, "Feed forward (inference)");
+                    if(mgr == workspaceMgr) {
+                        validateArrayWorkspaces(workspaceMgr, out, ArrayType.ACTIVATIONS, vName, false, "Feed forward (inference)");
+                    }
                 }
                 activations.put(current.getVertexName(), out);
 
@@ -2169,7 +2420,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                         // this method
                         int inputToIndex = v.getVertexIndex();
                         int vIdxEdge = v.getVertexEdgeNumber();
-                        vertices[inputToIndex].setInput(vIdxEdge, out, workspaceMgr);
+                        vertices[inputToIndex].setInput(vIdxEdge, out, mgr);
                     }
                 }
 
@@ -2270,6 +2521,10 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         for( int i=0; i<layerIndexes.length; i++ ){
             stopIndex = Math.max(stopIndex, ArrayUtils.indexOf(topologicalOrder, layerIndexes[i]));
         }
+        if (!train && fwdPassType == FwdPassType.STANDARD && configuration.getInferenceVertexThreads() > 1
+                && (outputWorkspace == null || outputWorkspace instanceof DummyWorkspace)) {
+            return outputOfLayersConcurrent(layerIndexes, features, stopIndex, clearLayerInputs);
+        }
         List<LayerWorkspaceMgr> allWorkspaceManagers = new ArrayList<>();
         List<LayerWorkspaceMgr> freeWorkspaceManagers = new ArrayList<>();  //Basically used as a stack
         Map<MemoryWorkspace, LayerWorkspaceMgr> openActivationsWorkspaces = new IdentityHashMap<>();
@@ -2480,6 +2735,188 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return outputs;
     }
 
+    /**
+     * Inference forward pass for {@link #outputOfLayersDetached}, executing independent vertices concurrently using
+     * {@link ComputationGraphConfiguration#getInferenceVertexThreads()} threads. Each vertex is submitted for execution
+     * once all of its inputs are available. As activations are passed between threads, they are not placed in
+     * workspaces; each thread uses its own workspaces for working memory.<br>
+     * Each vertex's output is independent of the execution order, so the result is the same as for sequential execution.
+     *
+     * @param layerIndexes     Indexes of the vertices to get the activations for
+     * @param features         Input features for the network
+     * @param stopIndex        Last position in the topological order that needs to be executed
+     * @param clearLayerInputs If true: the layer input fields will be cleared
+     * @return Output of the specified vertices, detached from any workspace
+     */
+    protected INDArray[] outputOfLayersConcurrent(@NonNull final int[] layerIndexes, @NonNull INDArray[] features, int stopIndex,
+                                                  final boolean clearLayerInputs) {
+        final INDArray[] outputs = new INDArray[layerIndexes.length];
+        final boolean noWS = configuration.getInferenceWorkspaceMode() == WorkspaceMode.NONE;
+        final Integer deviceId = Nd4j.getAffinityManager().getDeviceForCurrentThread();
+        ExecutorService executor = getInferenceExecutor(configuration.getInferenceVertexThreads());
+
+        //Number of inputs for each vertex that are not yet available. Only vertices up to stopIndex are executed
+        int[] remainingInputs = new int[topologicalOrder.length];
+        boolean[] toExecute = new boolean[topologicalOrder.length];
+        for (int i = 0; i <= stopIndex; i++) {
+            GraphVertex gv = vertices[topologicalOrder[i]];
+            toExecute[gv.getVertexIndex()] = true;
+            remainingInputs[gv.getVertexIndex()] = gv.isInputVertex() ? 0 : gv.getInputVertices().length;
+        }
+
+        //Completed vertices (index, or -1 - index if an exception was thrown) are reported back to this thread, which
+        // submits any vertices that have become ready
+        final BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        final Throwable[] exception = new Throwable[1];
+        LayerWorkspaceMgr inputMgr = LayerWorkspaceMgr.noWorkspaces(helperWorkspaces);
+        List<GraphVertex> ready = new ArrayList<>();
+        for (int i = 0; i < numInputArrays; i++) {
+            GraphVertex in = verticesMap.get(configuration.getNetworkInputs().get(i));
+            if (!toExecute[in.getVertexIndex()])
+                continue;
+            int posInOutputs = ArrayUtils.indexOf(layerIndexes, in.getVertexIndex());
+            if (posInOutputs >= 0)
+                outputs[posInOutputs] = features[i];
+            if (in.getOutputVertices() != null) {
+                for (VertexIndices v : in.getOutputVertices()) {
+                    vertices[v.getVertexIndex()].setInput(v.getVertexEdgeNumber(), features[i], inputMgr);
+                    if (toExecute[v.getVertexIndex()] && --remainingInputs[v.getVertexIndex()] == 0)
+                        ready.add(vertices[v.getVertexIndex()]);
+                }
+            }
+        }
+
+        int submitted = 0;
+        int numCompleted = 0;
+        do {
+            if (exception[0] == null) {
+                for (final GraphVertex current : ready) {
+                    submitted++;
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            int vIdx = current.getVertexIndex();
+                            try {
+                                Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+                                LayerWorkspaceMgr workspaceMgr;
+                                if (noWS) {
+                                    workspaceMgr = LayerWorkspaceMgr.noWorkspaces(helperWorkspacesForThread());
+                                } else {
+                                    workspaceMgr = LayerWorkspaceMgr.builder()
+                                            .noWorkspaceFor(ArrayType.INPUT)
+                                            .noWorkspaceFor(ArrayType.ACTIVATIONS)
+                                            .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                                            .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                                            .build();
+                                    workspaceMgr.setHelperWorkspacePointers(helperWorkspacesForThread());
+                                }
+
+                                try (MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                                    INDArray out = current.doForward(false, workspaceMgr);
+                                    if (current.getOutputVertices() != null) {
+                                        for (VertexIndices v : current.getOutputVertices()) {
+                                            vertices[v.getVertexIndex()].setInput(v.getVertexEdgeNumber(), out, workspaceMgr);
+                                        }
+                                    }
+                                    if (clearLayerInputs) {
+                                        current.clear();
+                                    }
+                                    int posInOutputs = ArrayUtils.indexOf(layerIndexes, vIdx);
+                                    if (posInOutputs >= 0) {
+                                        outputs[posInOutputs] = out;
+                                    }
+                                }
+                                completed.add(vIdx);
+                            } catch (Throwable t) {
+                                synchronized (exception) {
+                                    if (exception[0] == null)
+                                        exception[0] = t;
+                                }
+                                completed.add(-1 - vIdx);
+                            }
+                        }
+                    });
+                }
+            }
+            ready.clear();
+
+            if (numCompleted == submitted)
+                break;
+
+            int vIdx;
+            try {
+                vIdx = completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted during neural network forward pass", e);
+            }
+            numCompleted++;
+            if (vIdx >= 0 && vertices[vIdx].getOutputVertices() != null) {
+                for (VertexIndices v : vertices[vIdx].getOutputVertices()) {
+                    if (toExecute[v.getVertexIndex()] && --remainingInputs[v.getVertexIndex()] == 0)
+                        ready.add(vertices[v.getVertexIndex()]);
+                }
+            }
+        } while (true);
+
+        Nd4j.getExecutioner().commit();
+        if (exception[0] != null) {
+            if (exception[0] instanceof RuntimeException) {
+                throw (RuntimeException) exception[0];
+            }
+            throw new RuntimeException("Error during neural network forward pass", exception[0]);
+        }
+        return outputs;
+    }
+
+    protected synchronized ExecutorService getInferenceExecutor(int numThreads) {
+        if (inferenceExecutor == null || inferenceExecutorThreads != numThreads) {
+            if (inferenceExecutor != null)
+                inferenceExecutor.shutdown();
+            //Threads are released when idle, so that no threads are retained by networks (or replicas of networks)
+            // that are no longer used for inference
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ComputationGraph-inference-" + count.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            inferenceExecutor = executor;
+            inferenceExecutorThreads = numThreads;
+        }
+        if (inferenceHelperWorkspaces == null)
+            inferenceHelperWorkspaces = new ThreadLocal<>();
+        return inferenceExecutor;
+    }
+
+    /**
+     * Shut down the thread pool used for concurrent vertex execution during inference (see
+     * {@link ComputationGraphConfiguration.GraphBuilder#inferenceVertexThreads(int)}), if any, releasing its threads.
+     * Idle threads of the pool are released automatically after 60 seconds; this method releases them immediately.
+     * The network can still be used after calling this method: a new thread pool is created when required.
+     */
+    public synchronized void shutdownInferenceExecutor() {
+        if (inferenceExecutor != null) {
+            inferenceExecutor.shutdown();
+            inferenceExecutor = null;
+        }
+    }
+
+    private Map<String, Pointer> helperWorkspacesForThread() {
+        Map<String, Pointer> m = inferenceHelperWorkspaces.get();
+        if (m == null) {
+            m = new HashMap<>();
+            inferenceHelperWorkspaces.set(m);
+        }
+        return m;
+    }
+
     private INDArray reshapeTimeStepInput(INDArray input) {
         if (input.rank() == 2) { // dynamically reshape to 3D input with one time-step.
             long[] inShape = input.shape();
@@ -2542,6 +2979,8 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     " in calcBackpropGradients when workspace mode is not set to NONE");
         }
 
+        double lossScale = (externalEpsilons == null || externalEpsilons.length == 0 ? getLossScale() : 1.0);
+
         //Validate the network configuration for external errors - no output layers
         if(externalEpsilons != null && externalEpsilons.length > 0){
             List<String> outputLayers = configuration.getNetworkOutputs();
@@ -2600,6 +3039,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
         boolean traceLog = log.isTraceEnabled();
 
+        //Gradient checkpointing: recomputed activations (by vertex index) and vertices with restored inputs
+        INDArray[] recomputed = (releasedInputs == null ? null : new INDArray[vertices.length]);
+        boolean[] restored = (releasedInputs == null ? null : new boolean[vertices.length]);
+        LayerWorkspaceMgr recomputeMgr = (releasedInputs == null ? null : getRecomputeWorkspaceMgr());
+
         Throwable t = null;
         try {
             for (int i = topologicalOrder.length - 1; i >= 0; i--) {
@@ -2632,6 +3076,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     continue;
                 }
 
+                if (releasedInputs != null && releasedInputs[vIdx] && !restored[vIdx]) {
+                    //Gradient checkpointing: recompute the activations for this segment of the network
+                    recomputeSegment(i, recomputed, restored, recomputeMgr);
+                }
+
 
                 //First: determine what workspace manager we should use for the activation gradients from this vertex
                 LayerWorkspaceMgr workspaceMgr;
@@ -2709,10 +3158,31 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
                 Pair<Gradient, INDArray[]> pair;
                 INDArray[] epsilons;
+                //Gradient checkpointing: a vertex with restored (but not recomputed) inputs reapplies dropout and weight
+                // noise during backprop, so it needs the RNG state of the original forward pass
+                boolean restoreRng = releasedInputs != null && releasedInputs[vIdx] && recomputed[vIdx] == null
+                        && recomputeRngStates[vIdx] != null;
+                org.nd4j.linalg.api.rng.Random rng = Nd4j.getRandom();
+                long rootState = (restoreRng ? rng.rootState() : 0);
+                long nodeState = (restoreRng ? rng.nodeState() : 0);
                 try (MemoryWorkspace wsWorkingMem = workspaceMgr.notifyScopeEntered(ArrayType.BP_WORKING_MEM)) {
+                    if (restoreRng) {
+                        rng.setStates(recomputeRngStates[vIdx][0], recomputeRngStates[vIdx][1]);
+                    }
                     pair = current.doBackward(truncatedBPTT, workspaceMgr);
                     epsilons = pair.getSecond();
 
+                    if (lossScale != 1.0 && current.isOutputVertex()) {
+                        //Mixed precision: scale the loss (and hence all gradients) to avoid underflow in 16-bit gradients
+                        for (INDArray g : pair.getFirst().gradientForVariable().values()) {
+                            g.muli(lossScale);
+                        }
+                        for (INDArray epsilon : epsilons) {
+                            if (epsilon != null)
+                                epsilon.muli(lossScale);
+                        }
+                    }
+
                     //Validate workspace location for the activation gradients:
                     //validateArrayWorkspaces(LayerWorkspaceMgr mgr, INDArray array, ArrayType arrayType, String vertexName, boolean isInputVertex, String op){
                     for (INDArray epsilon : epsilons) {
@@ -2721,6 +3191,10 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                             validateArrayWorkspaces(workspaceMgr, epsilon, ArrayType.ACTIVATION_GRAD, vertexName, false, "Backprop");
                         }
                     }
+                } finally {
+                    if (restoreRng) {
+                        rng.setStates(rootState, nodeState);
+                    }
                 }
 
                 //Inputs to the current GraphVertex:
@@ -2773,6 +3247,16 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     closeAtEndIteraton[i] = null;
                 }
 
+                if (releasedInputs != null) {
+                    //Gradient checkpointing: recomputed activations for this vertex are no longer required
+                    INDArray r = recomputed[vIdx];
+                    recomputed[vIdx] = null;
+                    releaseActivations(r, recomputed, current.getInputs());
+                    if (releasedInputs[vIdx]) {
+                        current.clear();
+                    }
+                }
+
                 if (traceLog) {
                     log.trace("Completed backprop: {} (\"{}\") - {}", i, vertexName, current.getClass().getSimpleName());
                 }
@@ -2793,6 +3277,10 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                 }
             }
             Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
+            checkpointActivations = null;
+            releasedInputs = null;
+            releasedMasks = null;
+            recomputeRngStates = null;
 
             if(t != null){
                 if(t instanceof RuntimeException){
@@ -2927,6 +3415,20 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return getUpdater(true);
     }
 
+    /**
+     * Get the current loss scale, used for mixed precision training (see {@link ComputationGraphConfiguration#getMixedPrecision()}).
+     *
+     * @return The current loss scale, or 1.0 if mixed precision training is not used
+     */
+    public double getLossScale() {
+        if (configuration.getMixedPrecision() == null)
+            return 1.0;
+        //May be called during backprop: the updater (if not yet created) should not be allocated in a workspace
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            return getUpdater(true).getLossScale();
+        }
+    }
+
     /**
      * Get the ComputationGraphUpdater for this network
      * @param initializeIfAbsent If true: create the updater if one is absent. False: return null if absent.
@@ -3270,6 +3772,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
         if (this.flattenedParams != null && this.flattenedParams.length() == params.length()) {
             this.flattenedParams.assign(params);
+            clearParamCaches();
             return;
         }
 
@@ -3412,6 +3915,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             INDArray arrNew = paramTable.get(s);
             arrCurrent.assign(arrNew);
         }
+        clearParamCaches();
     }
 
     @Override
@@ -4463,6 +4967,17 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return CrashReportingUtil.generateMemoryStatus(this, minibatch, inputTypes);
     }
 
+    /**
+     * Clear any values cached by the layers that are derived from the parameters. Must be called after modifying the
+     * parameters in place other than via {@link #setParams(INDArray)}, {@link #setParam(String, INDArray)} or
+     * {@link #setParamTable(Map)} - for example, {@code net.params().assign(newParams)}
+     */
+    public void clearParamCaches() {
+        for (Layer layer : layers) {
+            layer.clearParamCaches();
+        }
+    }
+
     /**
      * This method just makes sure there's no state preserved within layers
      */
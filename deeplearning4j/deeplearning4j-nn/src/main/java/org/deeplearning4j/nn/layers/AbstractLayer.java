@@ -417,6 +417,11 @@ public abstract class AbstractLayer<LayerConfT extends org.deeplearning4j.nn.con
         inputModificationAllowed = allow;
     }
 
+    @Override
+    public void clearParamCaches() {
+        //No op for layers without parameter caches
+    }
+
     @Override
     public LayerHelper getHelper() {
         //Layers with helpers should override this method!
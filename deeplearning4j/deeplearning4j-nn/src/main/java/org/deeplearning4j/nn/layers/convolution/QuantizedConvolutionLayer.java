@@ -0,0 +1,181 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.nn.layers.convolution;
+
+import org.deeplearning4j.nn.conf.CNN2DFormat;
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.params.QuantizedParamInitializer;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.util.ConvolutionUtils;
+import org.deeplearning4j.util.QuantizationUtils;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.convolution.Convolution;
+import org.nd4j.linalg.exception.ND4JArraySizeException;
+
+import java.util.Map;
+
+/**
+ * Inference-only 2D convolution layer with INT8 weights and inputs.<br>
+ * The input is converted to a 2d array using im2col, rounded to the INT8 grid, and multiplied by the weights. MKL-DNN
+ * and cuDNN helpers are not used for this layer.<br>
+ * The INT8 weights are stored packed in the parameter array (see {@link QuantizationUtils#pack(INDArray, char)}).
+ * libnd4j has no INT8 matrix multiplication, so the weights are dequantized once and cached, and a floating point
+ * matrix multiplication is used (see {@link QuantizationUtils#dequantize}). The cache is cleared when the parameters
+ * are set; {@link #clearParamCaches()} must be called after in-place parameter changes.
+ *
+ * @see org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer
+ */
+public class QuantizedConvolutionLayer extends ConvolutionLayer {
+
+    //Dequantized weights, created on first use
+    protected transient INDArray dequantizedWeights;
+
+    public QuantizedConvolutionLayer(NeuralNetConfiguration conf, DataType dataType) {
+        super(conf, dataType);
+    }
+
+    @Override
+    void initializeHelper() {
+        //No helpers for quantized convolution
+        helper = null;
+    }
+
+    @Override
+    public Pair<Gradient, INDArray> backpropGradient(INDArray epsilon, LayerWorkspaceMgr workspaceMgr) {
+        throw new UnsupportedOperationException("Quantized layers are inference only: backprop is not supported - " + layerId());
+    }
+
+    @Override
+    protected Pair<INDArray, INDArray> preOutput(boolean training, boolean forBackprop, LayerWorkspaceMgr workspaceMgr) {
+        assertInputSet(false);
+        validateInputRank();
+
+        INDArray input = this.input.castTo(dataType);
+        if (layerConf().getCnn2dDataFormat() == CNN2DFormat.NHWC) {
+            input = workspaceMgr.dup(ArrayType.FF_WORKING_MEM, input.permute(0, 3, 1, 2), 'c'); //NHWC to NCHW
+        }
+
+        long miniBatch = input.size(0);
+        long outDepth = layerConf().getNOut();
+        long inDepth = layerConf().getNIn();
+        validateInputDepth(inDepth);
+
+        int[] dilation = layerConf().getDilation();
+        int[] kernel = layerConf().getKernelSize();
+        int[] strides = layerConf().getStride();
+        long kH = kernel[0];
+        long kW = kernel[1];
+
+        int[] pad;
+        int[] outSize;
+        if (convolutionMode == ConvolutionMode.Same) {
+            outSize = ConvolutionUtils.getOutputSize(input, kernel, strides, null, convolutionMode, dilation, CNN2DFormat.NCHW);
+            if (input.size(2) > Integer.MAX_VALUE || input.size(3) > Integer.MAX_VALUE)
+                throw new ND4JArraySizeException();
+            pad = ConvolutionUtils.getSameModeTopLeftPadding(outSize, new int[] {(int) input.size(2), (int) input.size(3)}, kernel,
+                    strides, dilation);
+        } else {
+            pad = layerConf().getPadding();
+            outSize = ConvolutionUtils.getOutputSize(input, kernel, strides, pad, convolutionMode, dilation, CNN2DFormat.NCHW);
+        }
+        int outH = outSize[0];
+        int outW = outSize[1];
+
+        //im2col in order [miniBatch,outH,outW,depthIn,kH,kW] - see ConvolutionLayer.preOutput
+        INDArray col = workspaceMgr.createUninitialized(ArrayType.FF_WORKING_MEM, dataType, new long[] {miniBatch, outH, outW, inDepth, kH, kW}, 'c');
+        INDArray col2 = col.permute(0, 3, 4, 5, 1, 2);
+        Convolution.im2col(input, (int) kH, (int) kW, strides[0], strides[1], pad[0], pad[1], dilation[0], dilation[1],
+                convolutionMode == ConvolutionMode.Same, col2);
+        INDArray im2col2d = Shape.newShapeNoCopy(col, new long[] {miniBatch * outH * outW, inDepth * kH * kW}, false);
+
+        //Quantized input x dequantized weights, to f order output: [miniBatch*outH*outW,depthOut]
+        QuantizationUtils.quantizeDequantize(im2col2d, getParam(QuantizedParamInitializer.INPUT_SCALE_KEY).getDouble(0));
+        INDArray z = workspaceMgr.createUninitialized(ArrayType.ACTIVATIONS, dataType, new long[] {im2col2d.size(0), outDepth}, 'f');
+        im2col2d.mmuli(getDequantizedWeights(), z);
+
+        if (layerConf().hasBias()) {
+            z.addiRowVector(getParam(QuantizedParamInitializer.BIAS_KEY));
+        }
+
+        //Reshape to [outW,outH,miniBatch,outDepth], and permute to [miniBatch,outDepth,outH,outW]
+        z = Shape.newShapeNoCopy(z, new long[] {outW, outH, miniBatch, outDepth}, true);
+        z = z.permute(2, 3, 1, 0);
+
+        if (layerConf().getCnn2dDataFormat() == CNN2DFormat.NHWC) {
+            z = z.permute(0, 2, 3, 1); //NCHW to NHWC
+            z = workspaceMgr.dup(ArrayType.ACTIVATIONS, z);
+        }
+        return new Pair<>(z, null);
+    }
+
+    /**
+     * @return The quantized weights (as INT32 values in range [-127, 127]), reshaped to 2d for use with im2col:
+     * [depthIn*kH*kW, depthOut]
+     */
+    public INDArray getQuantizedWeights() {
+        //Packed in c order from [depthOut,depthIn,kH,kW]: equivalent to [kW*kH*depthIn, depthOut] in f order
+        org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer c =
+                (org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer) layerConf();
+        long nIn = c.getNIn() * c.getKernelSize()[0] * c.getKernelSize()[1];
+        return QuantizationUtils.unpack(getParam(QuantizedParamInitializer.WEIGHT_KEY), nIn * c.getNOut())
+                .reshape('f', nIn, c.getNOut());
+    }
+
+    /**
+     * @return The dequantized weights (INT8 weights multiplied by the per-output channel weight scale), reshaped to 2d
+     * for use with im2col: [depthIn*kH*kW, depthOut]
+     */
+    public INDArray getDequantizedWeights() {
+        if (dequantizedWeights == null) {
+            org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer c =
+                    (org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer) layerConf();
+            long nIn = c.getNIn() * c.getKernelSize()[0] * c.getKernelSize()[1];
+            dequantizedWeights = QuantizationUtils.dequantize(getParam(QuantizedParamInitializer.WEIGHT_KEY), nIn,
+                    c.getNOut(), 'f', getParam(QuantizedParamInitializer.WEIGHT_SCALE_KEY));
+        }
+        return dequantizedWeights;
+    }
+
+    @Override
+    public void clearParamCaches() {
+        dequantizedWeights = null;
+    }
+
+    @Override
+    public void setParam(String key, INDArray val) {
+        super.setParam(key, val);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParams(INDArray params) {
+        super.setParams(params);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParamTable(Map<String, INDArray> paramTable) {
+        super.setParamTable(paramTable);
+        clearParamCaches();
+    }
+}
@@ -17,19 +17,96 @@
 package org.deeplearning4j.nn.layers.feedforward.dense;
 
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.layers.BaseLayer;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.util.CsrMatrix;
+import org.nd4j.common.primitives.Pair;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 
+import java.util.Map;
+
 /**
  * @author Adam Gibson
  */
 public class DenseLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.DenseLayer> {
+
+    //Sparse (CSR) weights for inference, when enabled. Created on first use; cleared when the parameters are set or
+    //after backprop, as the parameters may be modified by the subsequent update
+    protected transient CsrMatrix sparseWeights;
+
     public DenseLayer(NeuralNetConfiguration conf, DataType dataType) {
         super(conf, dataType);
     }
 
+    @Override
+    public Pair<Gradient, INDArray> backpropGradient(INDArray epsilon, LayerWorkspaceMgr workspaceMgr) {
+        sparseWeights = null;
+        return super.backpropGradient(epsilon, workspaceMgr);
+    }
+
+    @Override
+    protected Pair<INDArray, INDArray> preOutputWithPreNorm(boolean training, boolean forBackprop, LayerWorkspaceMgr workspaceMgr) {
+        if (training || forBackprop || !layerConf().isSparseInference() || hasLayerNorm() || layerConf().getWeightNoise() != null
+                || (dataType != DataType.FLOAT && dataType != DataType.DOUBLE)) {
+            return super.preOutputWithPreNorm(training, forBackprop, workspaceMgr);
+        }
+        assertInputSet(false);
+        INDArray input = this.input.castTo(dataType);
+        CsrMatrix w = getSparseWeights();
+        if (input.rank() != 2 || input.columns() != w.getRows()) {
+            //Invalid input: use standard implementation for input validation
+            return super.preOutputWithPreNorm(training, forBackprop, workspaceMgr);
+        }
+
+        INDArray ret = workspaceMgr.createUninitialized(ArrayType.ACTIVATIONS, dataType, input.size(0), w.getColumns());
+        w.leftMultiply(input, ret);
+        if (hasBias()) {
+            ret.addiRowVector(getParam(DefaultParamInitializer.BIAS_KEY));
+        }
+        if (maskArray != null) {
+            applyMask(ret);
+        }
+        return new Pair<>(ret, ret);
+    }
+
+    /**
+     * @return Sparse (CSR) representation of the weights, as used for inference when
+     * {@link org.deeplearning4j.nn.conf.layers.DenseLayer#isSparseInference()} is enabled
+     */
+    public CsrMatrix getSparseWeights() {
+        if (sparseWeights == null) {
+            sparseWeights = CsrMatrix.fromDense(getParam(DefaultParamInitializer.WEIGHT_KEY));
+        }
+        return sparseWeights;
+    }
+
+    @Override
+    public void clearParamCaches() {
+        sparseWeights = null;
+    }
+
+    @Override
+    public void setParam(String key, INDArray val) {
+        super.setParam(key, val);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParams(INDArray params) {
+        super.setParams(params);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParamTable(Map<String, INDArray> paramTable) {
+        super.setParamTable(paramTable);
+        clearParamCaches();
+    }
+
     @Override
     public void fit(INDArray input, LayerWorkspaceMgr workspaceMgr) {
         throw new UnsupportedOperationException("Not supported");
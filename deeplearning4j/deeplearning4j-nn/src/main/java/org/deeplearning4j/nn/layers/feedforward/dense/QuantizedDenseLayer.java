@@ -0,0 +1,142 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.layers.feedforward.dense;
+
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.layers.BaseLayer;
+import org.deeplearning4j.nn.params.QuantizedParamInitializer;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.util.QuantizationUtils;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Inference-only dense layer with INT8 weights and inputs.<br>
+ * The INT8 weights are stored packed in the parameter array (see {@link QuantizationUtils#pack(INDArray, char)}).
+ * libnd4j has no INT8 matrix multiplication, so the weights are dequantized once and cached, and the inputs are rounded
+ * to the INT8 grid before a floating point matrix multiplication (see {@link QuantizationUtils#dequantize}). The cache
+ * is cleared when the parameters are set; {@link #clearParamCaches()} must be called after in-place parameter changes.
+ *
+ * @see org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer
+ */
+public class QuantizedDenseLayer extends BaseLayer<org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer> {
+
+    //Dequantized weights, created on first use
+    protected transient INDArray dequantizedWeights;
+
+    public QuantizedDenseLayer(NeuralNetConfiguration conf, DataType dataType) {
+        super(conf, dataType);
+    }
+
+    @Override
+    public Pair<Gradient, INDArray> backpropGradient(INDArray epsilon, LayerWorkspaceMgr workspaceMgr) {
+        throw new UnsupportedOperationException("Quantized layers are inference only: backprop is not supported - " + layerId());
+    }
+
+    @Override
+    public void fit(INDArray input, LayerWorkspaceMgr workspaceMgr) {
+        throw new UnsupportedOperationException("Not supported");
+    }
+
+    @Override
+    protected INDArray preOutput(boolean training, LayerWorkspaceMgr workspaceMgr) {
+        assertInputSet(false);
+        INDArray W = getDequantizedWeights();
+
+        if (input.rank() != 2 || input.columns() != W.rows()) {
+            throw new DL4JInvalidInputException("Input shape " + Arrays.toString(input.shape()) + " is invalid: expected "
+                    + "matrix with " + W.rows() + " columns. Missing preprocessor or wrong input type? " + layerId());
+        }
+
+        INDArray x = workspaceMgr.castTo(ArrayType.FF_WORKING_MEM, dataType, input, true);
+        QuantizationUtils.quantizeDequantize(x, getParam(QuantizedParamInitializer.INPUT_SCALE_KEY).getDouble(0));
+
+        INDArray ret = workspaceMgr.createUninitialized(ArrayType.ACTIVATIONS, dataType, input.size(0), W.size(1));
+        x.mmuli(W, ret);
+
+        if (hasBias()) {
+            ret.addiRowVector(getParam(QuantizedParamInitializer.BIAS_KEY));
+        }
+
+        if (maskArray != null) {
+            applyMask(ret);
+        }
+        return ret;
+    }
+
+    /**
+     * @return The quantized weights (as INT32 values in range [-127, 127]), shape [nIn, nOut]
+     */
+    public INDArray getQuantizedWeights() {
+        org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer c = layerConf();
+        return QuantizationUtils.unpack(getParam(QuantizedParamInitializer.WEIGHT_KEY), c.getNIn() * c.getNOut())
+                .reshape('f', c.getNIn(), c.getNOut());
+    }
+
+    /**
+     * @return The dequantized weights (INT8 weights multiplied by the per-column weight scale), shape [nIn, nOut]
+     */
+    public INDArray getDequantizedWeights() {
+        if (dequantizedWeights == null) {
+            org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer c = layerConf();
+            dequantizedWeights = QuantizationUtils.dequantize(getParam(QuantizedParamInitializer.WEIGHT_KEY), c.getNIn(),
+                    c.getNOut(), 'f', getParam(QuantizedParamInitializer.WEIGHT_SCALE_KEY));
+        }
+        return dequantizedWeights;
+    }
+
+    @Override
+    public void clearParamCaches() {
+        dequantizedWeights = null;
+    }
+
+    @Override
+    public void setParam(String key, INDArray val) {
+        super.setParam(key, val);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParams(INDArray params) {
+        super.setParams(params);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParamTable(Map<String, INDArray> paramTable) {
+        super.setParamTable(paramTable);
+        clearParamCaches();
+    }
+
+    @Override
+    public boolean isPretrainLayer() {
+        return false;
+    }
+
+    @Override
+    public boolean hasBias() {
+        return layerConf().hasBias();
+    }
+}
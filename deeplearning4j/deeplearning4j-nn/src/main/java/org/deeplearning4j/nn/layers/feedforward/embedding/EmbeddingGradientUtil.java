@@ -0,0 +1,64 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.layers.feedforward.embedding;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.scatter.ScatterUpdate;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+
+/**
+ * Utilities for the row-sparse weight gradients of embedding layers
+ */
+class EmbeddingGradientUtil {
+    private static final int[] DIM_1 = new int[]{1};
+
+    private EmbeddingGradientUtil() {
+    }
+
+    /**
+     * Zero the weight gradients before a backward pass. If the rows touched in the previous backward pass are known,
+     * only these are zeroed, as all other rows are zero already.
+     *
+     * @param weightGradients Weight gradient view, shape [nIn, nOut]
+     * @param previousRows    Rows touched in the previous backward pass, or null to zero all rows
+     */
+    static void zeroGradients(INDArray weightGradients, int[] previousRows) {
+        if (previousRows == null) {
+            weightGradients.assign(0);
+        } else if (previousRows.length > 0) {
+            INDArray zeros = Nd4j.zeros(weightGradients.dataType(), previousRows.length, weightGradients.size(1));
+            Nd4j.scatterUpdate(ScatterUpdate.UpdateOp.ASSIGN, weightGradients, Nd4j.createFromArray(previousRows), zeros, DIM_1);
+        }
+    }
+
+    /**
+     * @return Sorted, unique indices
+     */
+    static int[] uniqueRows(int[] indexes) {
+        int[] sorted = Arrays.copyOf(indexes, indexes.length);
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[n++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+}
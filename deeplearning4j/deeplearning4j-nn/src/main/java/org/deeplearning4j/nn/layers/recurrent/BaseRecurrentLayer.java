@@ -46,6 +46,13 @@ public abstract class BaseRecurrentLayer<LayerConfT extends org.deeplearning4j.n
 
     protected int helperCountFail = 0;
 
+    /**
+     * Packed parameters for the fused single time step (rnnTimeStep) implementation, if used by this layer. Created on
+     * first use; cleared when the parameters are set or after backprop, as the parameters may be modified by the
+     * subsequent update
+     */
+    protected transient INDArray[] fusedTimeStepParams;
+
     public BaseRecurrentLayer(NeuralNetConfiguration conf, DataType dataType) {
         super(conf, dataType);
     }
@@ -88,6 +95,29 @@ public abstract class BaseRecurrentLayer<LayerConfT extends org.deeplearning4j.n
         tBpttStateMap.putAll(state);
     }
 
+    @Override
+    public void clearParamCaches() {
+        fusedTimeStepParams = null;
+    }
+
+    @Override
+    public void setParam(String key, INDArray val) {
+        super.setParam(key, val);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParams(INDArray params) {
+        super.setParams(params);
+        clearParamCaches();
+    }
+
+    @Override
+    public void setParamTable(Map<String, INDArray> paramTable) {
+        super.setParamTable(paramTable);
+        clearParamCaches();
+    }
+
     public RNNFormat getDataFormat(){
         return layerConf().getRnnDataFormat();
     }
@@ -545,6 +545,12 @@ public class BidirectionalLayer implements RecurrentLayer {
         bwd.clearNoiseWeightParams();
     }
 
+    @Override
+    public void clearParamCaches() {
+        fwd.clearParamCaches();
+        bwd.clearParamCaches();
+    }
+
     @Override
     public void allowInputModification(boolean allow) {
         fwd.allowInputModification(allow);
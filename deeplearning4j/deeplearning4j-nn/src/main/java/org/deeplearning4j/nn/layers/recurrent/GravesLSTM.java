@@ -74,6 +74,7 @@ public class GravesLSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.la
     private Pair<Gradient, INDArray> backpropGradientHelper(final INDArray epsilon, final boolean truncatedBPTT,
                     final int tbpttBackwardLength, LayerWorkspaceMgr workspaceMgr) {
         assertInputSet(true);
+        fusedTimeStepParams = null;
 
         final INDArray inputWeights = getParamWithNoise(GravesLSTMParamInitializer.INPUT_WEIGHT_KEY, true, workspaceMgr);
         final INDArray recurrentWeights = getParamWithNoise(GravesLSTMParamInitializer.RECURRENT_WEIGHT_KEY, true, workspaceMgr); //Shape: [hiddenLayerSize,4*hiddenLayerSize+3]; order: [wI,wF,wO,wG,wFF,wOO,wGG]
@@ -150,6 +151,20 @@ public class GravesLSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.la
         return fwd;
     }
 
+    private FwdPassReturn activateFusedTimeStep(LayerWorkspaceMgr workspaceMgr) {
+        assertInputSet(false);
+        Preconditions.checkState(this.input.rank() == 3,
+                "3D input expected to RNN layer expected, got " + this.input.rank());
+        if (fusedTimeStepParams == null) {
+            fusedTimeStepParams = LSTMHelpers.fusedTimeStepParams(getParam(GravesLSTMParamInitializer.INPUT_WEIGHT_KEY),
+                            getParam(GravesLSTMParamInitializer.RECURRENT_WEIGHT_KEY), getParam(GravesLSTMParamInitializer.BIAS_KEY), true);
+        }
+        FwdPassReturn fwd = LSTMHelpers.activateFusedTimeStep(this, permuteIfNWC(this.input), fusedTimeStepParams, true,
+                        stateMap.get(STATE_KEY_PREV_ACTIVATION), stateMap.get(STATE_KEY_PREV_MEMCELL), workspaceMgr);
+        fwd.fwdPassOutput = permuteIfNWC(fwd.fwdPassOutput);
+        return fwd;
+    }
+
     @Override
     public Type type() {
         return Type.RECURRENT;
@@ -176,8 +191,13 @@ public class GravesLSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.la
     @Override
     public INDArray rnnTimeStep(INDArray input, LayerWorkspaceMgr workspaceMgr) {
         setInput(input, workspaceMgr);
-        FwdPassReturn fwdPass = activateHelper(false, stateMap.get(STATE_KEY_PREV_ACTIVATION),
-                        stateMap.get(STATE_KEY_PREV_MEMCELL), false, workspaceMgr);
+        FwdPassReturn fwdPass;
+        if (LSTMHelpers.canUseFusedTimeStep(this, layerConf().getGateActivationFn())) {
+            fwdPass = activateFusedTimeStep(workspaceMgr);
+        } else {
+            fwdPass = activateHelper(false, stateMap.get(STATE_KEY_PREV_ACTIVATION),
+                            stateMap.get(STATE_KEY_PREV_MEMCELL), false, workspaceMgr);
+        }
         INDArray outAct = fwdPass.fwdPassOutput;
         //Store last time step of output activations and memory cell state for later use:
         stateMap.put(STATE_KEY_PREV_ACTIVATION, fwdPass.lastAct.detach());
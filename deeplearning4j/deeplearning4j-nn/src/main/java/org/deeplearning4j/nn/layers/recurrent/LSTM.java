@@ -108,6 +108,7 @@ public class LSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.layers.L
     private Pair<Gradient, INDArray> backpropGradientHelper(final INDArray epsilon, final boolean truncatedBPTT,
                     final int tbpttBackwardLength, LayerWorkspaceMgr workspaceMgr) {
         assertInputSet(true);
+        fusedTimeStepParams = null;
 
         final INDArray inputWeights = getParamWithNoise(LSTMParamInitializer.INPUT_WEIGHT_KEY, true, workspaceMgr);
         final INDArray recurrentWeights = getParamWithNoise(LSTMParamInitializer.RECURRENT_WEIGHT_KEY, true, workspaceMgr); //Shape: [hiddenLayerSize,4*hiddenLayerSize+3]; order: [wI,wF,wO,wG,wFF,wOO,wGG]
@@ -193,6 +194,20 @@ public class LSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.layers.L
         return fwd;
     }
 
+    private FwdPassReturn activateFusedTimeStep(LayerWorkspaceMgr workspaceMgr) {
+        assertInputSet(false);
+        Preconditions.checkState(this.input.rank() == 3,
+                "3D input expected to RNN layer expected, got " + this.input.rank());
+        if (fusedTimeStepParams == null) {
+            fusedTimeStepParams = LSTMHelpers.fusedTimeStepParams(getParam(LSTMParamInitializer.INPUT_WEIGHT_KEY),
+                            getParam(LSTMParamInitializer.RECURRENT_WEIGHT_KEY), getParam(LSTMParamInitializer.BIAS_KEY), false);
+        }
+        FwdPassReturn fwd = LSTMHelpers.activateFusedTimeStep(this, permuteIfNWC(this.input), fusedTimeStepParams, false,
+                        stateMap.get(STATE_KEY_PREV_ACTIVATION), stateMap.get(STATE_KEY_PREV_MEMCELL), workspaceMgr);
+        fwd.fwdPassOutput = permuteIfNWC(fwd.fwdPassOutput);
+        return fwd;
+    }
+
     @Override
     public Type type() {
         return Type.RECURRENT;
@@ -219,8 +234,13 @@ public class LSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.layers.L
     @Override
     public INDArray rnnTimeStep(INDArray input, LayerWorkspaceMgr workspaceMgr) {
         setInput(input, workspaceMgr);
-        FwdPassReturn fwdPass = activateHelper(false, stateMap.get(STATE_KEY_PREV_ACTIVATION),
-                        stateMap.get(STATE_KEY_PREV_MEMCELL), false, workspaceMgr);
+        FwdPassReturn fwdPass;
+        if (helper == null && LSTMHelpers.canUseFusedTimeStep(this, layerConf().getGateActivationFn())) {
+            fwdPass = activateFusedTimeStep(workspaceMgr);
+        } else {
+            fwdPass = activateHelper(false, stateMap.get(STATE_KEY_PREV_ACTIVATION),
+                            stateMap.get(STATE_KEY_PREV_MEMCELL), false, workspaceMgr);
+        }
         INDArray outAct = fwdPass.fwdPassOutput;
         //Store last time step of output activations and memory cell state for later use:
         stateMap.put(STATE_KEY_PREV_ACTIVATION, fwdPass.lastAct.detach());
@@ -33,8 +33,10 @@ import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.nd4j.common.base.Preconditions;
 import org.nd4j.linalg.activations.IActivation;
 import org.nd4j.linalg.activations.impl.ActivationSigmoid;
+import org.nd4j.linalg.activations.impl.ActivationTanH;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.DynamicCustomOp;
 import org.nd4j.linalg.api.ops.impl.transforms.pairwise.arithmetic.MulOp;
 import org.nd4j.linalg.api.ops.impl.transforms.same.TimesOneMinus;
 import org.nd4j.linalg.api.shape.Shape;
@@ -426,6 +428,141 @@ public class LSTMHelpers {
         return toReturn;
     }
 
+    /**
+     * Whether the fused single time step implementation ({@link #activateFusedTimeStep}) can be used for inference
+     * with the specified layer: this requires tanh activation, sigmoid gates, floating point parameters, no weight
+     * noise and no mask array
+     */
+    static public boolean canUseFusedTimeStep(final BaseRecurrentLayer layer, final IActivation gateActivationFn) {
+        return layer.layerConf().getActivationFn() instanceof ActivationTanH
+                && gateActivationFn instanceof ActivationSigmoid
+                && layer.params() != null && layer.params().dataType().isFPType()
+                && layer.layerConf().getWeightNoise() == null
+                && layer.getMaskArray() == null;
+    }
+
+    /**
+     * Pack the LSTM parameters into the layout used by {@link #activateFusedTimeStep}: the input and recurrent
+     * weights are stacked into a single [nIn+nOut, 4*nOut] array (so one gemm per time step handles both), with the
+     * gate order changed from [a,f,o,g] (block input, forget, output, input modulation) to [g,a,f,o].
+     * The returned arrays are detached (not in any workspace).
+     *
+     * @return Packed arrays: [weights, input modulation gate peephole, forget gate peephole, output gate peephole, bias]
+     */
+    static public INDArray[] fusedTimeStepParams(final INDArray inputWeights, final INDArray recurrentWeights,
+                                                 final INDArray biases, final boolean hasPeepholeConnections) {
+        long nIn = inputWeights.size(0);
+        long n = recurrentWeights.size(0);
+        //Source block in the DL4J [a,f,o,g] order, for each block of the fused [g,a,f,o] order
+        int[] srcBlock = {3, 0, 1, 2};
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            INDArray w = Nd4j.createUninitialized(inputWeights.dataType(), new long[]{nIn + n, 4 * n}, 'c');
+            INDArray b = Nd4j.createUninitialized(biases.dataType(), new long[]{4 * n}, 'c');
+            INDArray bRow = b.reshape(1, 4 * n);
+            for (int i = 0; i < 4; i++) {
+                long j = srcBlock[i];
+                w.get(interval(0, nIn), interval(i * n, (i + 1) * n))
+                        .assign(inputWeights.get(all(), interval(j * n, (j + 1) * n)));
+                w.get(interval(nIn, nIn + n), interval(i * n, (i + 1) * n))
+                        .assign(recurrentWeights.get(all(), interval(j * n, (j + 1) * n)));
+                bRow.get(all(), interval(i * n, (i + 1) * n)).assign(biases.get(all(), interval(j * n, (j + 1) * n)));
+            }
+
+            INDArray wci, wcf, wco;
+            if (hasPeepholeConnections) {
+                //Recurrent weights peephole columns: [wFF,wOO,wGG]
+                wcf = recurrentWeights.getColumn(4 * n).dup('c');
+                wco = recurrentWeights.getColumn(4 * n + 1).dup('c');
+                wci = recurrentWeights.getColumn(4 * n + 2).dup('c');
+            } else {
+                wci = Nd4j.zeros(inputWeights.dataType(), n);
+                wcf = wci;
+                wco = wci;
+            }
+            return new INDArray[]{w, wci, wcf, wco, b};
+        }
+    }
+
+    /**
+     * Forward pass for inference (rnnTimeStep) using the fused lstmBlockCell op: for each time step, one gemm over the
+     * concatenated [input, previous output] and the packed weights, followed by fused gate activations and cell state
+     * update. Each row of the minibatch is independent, so the states of many separate sequences (sessions) may be
+     * stacked and stepped together in a single call.<br>
+     * Only valid when {@link #canUseFusedTimeStep(BaseRecurrentLayer, IActivation)} returns true.
+     *
+     * @param input                  Input, shape [miniBatch, nIn, timeSeriesLength] (NCW format)
+     * @param fusedParams            Packed parameters, from {@link #fusedTimeStepParams}
+     * @param prevOutputActivations  Previous output activations, [miniBatch, nOut]. May be null (zeros)
+     * @param prevMemCellState       Previous memory cell state, [miniBatch, nOut]. May be null (zeros)
+     */
+    static public FwdPassReturn activateFusedTimeStep(final BaseRecurrentLayer layer, INDArray input,
+                                                      final INDArray[] fusedParams, final boolean hasPeepholeConnections,
+                                                      final INDArray prevOutputActivations, final INDArray prevMemCellState,
+                                                      final LayerWorkspaceMgr workspaceMgr) {
+        if (input == null || input.length() == 0)
+            throw new IllegalArgumentException("Invalid input: not set or 0 length");
+
+        INDArray w = fusedParams[0];
+        input = input.castTo(w.dataType());  //No-op if already correct dtype
+        boolean is2dInput = input.rank() < 3;
+        long hiddenLayerSize = fusedParams[4].length() / 4;
+        long nIn = w.size(0) - hiddenLayerSize;
+        long miniBatchSize = input.size(0);
+        long timeSeriesLength = is2dInput ? 1 : input.size(2);
+
+        if (input.size(1) != nIn) {
+            throw new DL4JInvalidInputException("Received input with size(1) = " + input.size(1)
+                            + " (input array shape = " + Arrays.toString(input.shape())
+                            + "); input.size(1) must match layer nIn size (nIn = " + nIn + ")");
+        }
+        Preconditions.checkState(prevOutputActivations == null || prevOutputActivations.size(0) == input.size(0),
+                "Invalid RNN previous state (last time step activations/initialization): rnnTimeStep with different minibatch size, or forgot to call rnnClearPreviousState between batches?" +
+                        " Previous step output = [batch, nIn] = %ndShape, current input = [batch, nIn, seqLength] = %ndShape", prevOutputActivations, input);
+
+        INDArray outputActivations = workspaceMgr.create(ArrayType.ACTIVATIONS, input.dataType(), new long[] {miniBatchSize, hiddenLayerSize, timeSeriesLength}, 'f'); //F order to keep time steps together
+
+        //Output and cell state: alternate between two buffers, so the previous step's state is never overwritten
+        INDArray[] outBuffers = new INDArray[2];
+        INDArray[] cellBuffers = new INDArray[2];
+        for (int i = 0; i < 2 && i < timeSeriesLength; i++) {
+            outBuffers[i] = workspaceMgr.createUninitialized(ArrayType.ACTIVATIONS, input.dataType(), new long[] {miniBatchSize, hiddenLayerSize}, 'c');
+            cellBuffers[i] = workspaceMgr.createUninitialized(ArrayType.ACTIVATIONS, input.dataType(), new long[] {miniBatchSize, hiddenLayerSize}, 'c');
+        }
+
+        INDArray prevOut = prevOutputActivations == null ? Nd4j.zeros(input.dataType(), miniBatchSize, hiddenLayerSize) : prevOutputActivations.castTo(input.dataType());
+        INDArray prevMem = prevMemCellState == null ? Nd4j.zeros(input.dataType(), miniBatchSize, hiddenLayerSize) : prevMemCellState.castTo(input.dataType());
+
+        for (int time = 0; time < timeSeriesLength; time++) {
+            try (MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.RNN_FF_LOOP_WORKING_MEM)) {
+                INDArray miniBatchData = (is2dInput ? input : input.tensorAlongDimension(time, 1, 0)); //[Expected shape: [m,nIn]
+                INDArray out = outBuffers[time % 2];
+                INDArray cell = cellBuffers[time % 2];
+                long[] shape = out.shape();
+                DynamicCustomOp op = DynamicCustomOp.builder("lstmBlockCell")
+                        .addInputs(miniBatchData, prevMem, prevOut, w, fusedParams[1], fusedParams[2], fusedParams[3], fusedParams[4])
+                        .addOutputs(Nd4j.createUninitialized(input.dataType(), shape), cell,
+                                Nd4j.createUninitialized(input.dataType(), shape), Nd4j.createUninitialized(input.dataType(), shape),
+                                Nd4j.createUninitialized(input.dataType(), shape), Nd4j.createUninitialized(input.dataType(), shape), out)
+                        .addIntegerArguments(hasPeepholeConnections ? 1 : 0)
+                        .addFloatingPointArguments(0.0, 0.0)    //No forget bias offset, no cell clipping
+                        .build();
+                Nd4j.exec(op);
+
+                outputActivations.tensorAlongDimension(time, 1, 0).assign(out);
+                prevOut = out;
+                prevMem = cell;
+            }
+        }
+
+        FwdPassReturn toReturn = new FwdPassReturn();
+        toReturn.fwdPassOutput = outputActivations;
+        toReturn.lastAct = prevOut;
+        toReturn.lastMemCell = prevMem;
+        toReturn.prevAct = prevOutputActivations;
+        toReturn.prevMemCell = prevMemCellState;
+        return toReturn;
+    }
+
     private static boolean shouldCache(boolean training, CacheMode cacheMode, LayerWorkspaceMgr workspaceMgr){
         return training && cacheMode != CacheMode.NONE && workspaceMgr.hasConfiguration(ArrayType.FF_CACHE) && workspaceMgr.isWorkspaceOpen(ArrayType.FF_CACHE);
     }
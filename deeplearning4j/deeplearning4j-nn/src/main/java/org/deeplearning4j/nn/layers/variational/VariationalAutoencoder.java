@@ -889,6 +889,11 @@ public class VariationalAutoencoder implements Layer {
         weightNoiseParams.clear();
     }
 
+    @Override
+    public void clearParamCaches() {
+        //No op
+    }
+
     @Override
     public void allowInputModification(boolean allow) {
         //No op
@@ -305,6 +305,11 @@ public abstract class BaseWrapperLayer implements Layer {
         underlying.clearNoiseWeightParams();
     }
 
+    @Override
+    public void clearParamCaches() {
+        underlying.clearParamCaches();
+    }
+
     @Override
     public Pair<INDArray, MaskState> feedForwardMaskArray(INDArray maskArray, MaskState currentMaskState, int minibatchSize) {
         return underlying.feedForwardMaskArray(maskArray, currentMaskState, minibatchSize);
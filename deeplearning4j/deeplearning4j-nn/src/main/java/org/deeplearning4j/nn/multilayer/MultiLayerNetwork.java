@@ -44,12 +44,14 @@ import org.deeplearning4j.nn.layers.FrozenLayerWithBackprop;
 import org.deeplearning4j.nn.layers.LayerHelper;
 import org.deeplearning4j.nn.layers.recurrent.BidirectionalLayer;
 import org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
 import org.deeplearning4j.nn.updater.UpdaterCreator;
 import org.deeplearning4j.nn.workspace.ArrayType;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.deeplearning4j.optimize.Solver;
 import org.deeplearning4j.optimize.api.ConvexOptimizer;
 import org.deeplearning4j.optimize.api.TrainingListener;
+import org.deeplearning4j.optimize.solvers.PipelinedUpdater;
 import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
 import org.deeplearning4j.util.CrashReportingUtil;
 import org.deeplearning4j.util.ModelSerializer;
@@ -565,6 +567,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             INDArray toSet = paramTable.get(s);
             curr.assign(toSet);
         }
+        clearParamCaches();
     }
 
     /**
@@ -1524,6 +1527,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         if (flattenedParams != null && params.length() == flattenedParams.length()) {
             if (params != flattenedParams) {
                 flattenedParams.assign(params);
+                clearParamCaches();
             }
         } else {
             if (flattenedParams == null)
@@ -1821,11 +1825,24 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      */
     protected Pair<Gradient, INDArray> calcBackpropGradients(INDArray epsilon, boolean withOutputLayer, boolean tbptt,
                                                              boolean returnInputActGrad) {
+        return calcBackpropGradients(epsilon, withOutputLayer, tbptt, returnInputActGrad, null);
+    }
+
+    /**
+     * As per {@link #calcBackpropGradients(INDArray, boolean, boolean, boolean)}, but (optionally) notifying the
+     * provided {@link PipelinedUpdater} once the gradients for each layer have been calculated
+     *
+     * @param pipelinedUpdater May be null. If non-null: the updates for each layer are applied as soon as that layer's
+     *                         gradients are available
+     */
+    protected Pair<Gradient, INDArray> calcBackpropGradients(INDArray epsilon, boolean withOutputLayer, boolean tbptt,
+                                                             boolean returnInputActGrad, PipelinedUpdater pipelinedUpdater) {
         if (flattenedGradients == null) {
             initGradientsView();
         }
         String multiGradientKey;
         Gradient gradient = new DefaultGradient(flattenedGradients);
+        double lossScale = (withOutputLayer ? getLossScale() : 1.0);
 
         LayerWorkspaceMgr mgrEven;
         LayerWorkspaceMgr mgrOdd;
@@ -1954,6 +1971,15 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                         }
                     }
 
+                    if (lossScale != 1.0 && i == layers.length - 1) {
+                        //Mixed precision: scale the loss (and hence all gradients) to avoid underflow in 16-bit gradients
+                        for (INDArray g : currPair.getFirst().gradientForVariable().values()) {
+                            g.muli(lossScale);
+                        }
+                        if (currPair.getSecond() != null)
+                            currPair.getSecond().muli(lossScale);
+                    }
+
                     if (currPair.getSecond() != null) {
                         //Edge case: may be null for Embedding layer, for example
                         validateArrayWorkspaces(workspaceMgr, currPair.getSecond(), ArrayType.ACTIVATION_GRAD, i,
@@ -1966,6 +1992,10 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                         gradientList.addLast(new Triple<>(multiGradientKey, entry.getValue(),
                                 currPair.getFirst().flatteningOrderForVariable(origName)));
                     }
+                    if (pipelinedUpdater != null) {
+                        //Gradients for this layer are final: the update can be applied while backprop continues
+                        pipelinedUpdater.layerGradientsComplete(layers[i], currPair.getFirst());
+                    }
                     if (getLayerWiseConfigurations().getInputPreProcess(i) != null) {
                         currPair = new Pair<>(currPair.getFirst(),
                                 this.layerWiseConfigurations.getInputPreProcess(i)
@@ -2711,6 +2741,18 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     }
 
     public void computeGradientAndScore() {
+        computeGradientAndScore((PipelinedUpdater) null);
+    }
+
+    /**
+     * As per {@link #computeGradientAndScore()}, but with the updates for each layer applied (asynchronously) by the
+     * provided {@link PipelinedUpdater} as soon as that layer's gradients have been calculated. As the parameters are
+     * modified during the backward pass, the score is calculated before the backward pass rather than after it.<br>
+     * Note that {@link PipelinedUpdater#await()} must be called before the parameters or gradients are used.
+     *
+     * @param pipelinedUpdater May be null. If null: same as {@link #computeGradientAndScore()}
+     */
+    public void computeGradientAndScore(PipelinedUpdater pipelinedUpdater) {
 
         if (!(getOutputLayer() instanceof IOutputLayer)) {
             throw new DL4JException(
@@ -2763,14 +2805,25 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                 //Validate activations location
             }
             getOutputLayer().setInput(inputToOutputLayer, mgr);
+            if (pipelinedUpdater != null) {
+                //Calculate score before the parameters are updated
+                ((IOutputLayer) getOutputLayer()).setLabels(labels);
+                try(MemoryWorkspace wsFF = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                    double r = calcRegularizationScore(true);
+                    score = ((IOutputLayer) getOutputLayer()).computeScore(r, true, mgr);
+                }
+            }
+
             //Then: compute gradients
-            Pair<Gradient, INDArray> pair = calcBackpropGradients(null, true, false, false);
+            Pair<Gradient, INDArray> pair = calcBackpropGradients(null, true, false, false, pipelinedUpdater);
             this.gradient = (pair == null ? null : pair.getFirst());
 
             //Calculate score
-            try(MemoryWorkspace wsFF = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
-                double r = calcRegularizationScore(true);
-                score = ((IOutputLayer) getOutputLayer()).computeScore(r, true, mgr);
+            if (pipelinedUpdater == null) {
+                try(MemoryWorkspace wsFF = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                    double r = calcRegularizationScore(true);
+                    score = ((IOutputLayer) getOutputLayer()).computeScore(r, true, mgr);
+                }
             }
 
             //Listeners
@@ -2935,6 +2988,18 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         }
     }
 
+    /**
+     * Clear any values cached by the layers that are derived from the parameters. Must be called after modifying the
+     * parameters in place other than via {@link #setParams(INDArray)}, {@link #setParam(String, INDArray)} or
+     * {@link #setParamTable(Map)} - for example, {@code net.params().assign(newParams)}
+     */
+    @Override
+    public void clearParamCaches() {
+        for(Layer l : layers){
+            l.clearParamCaches();
+        }
+    }
+
     @Override
     public void allowInputModification(boolean allow) {
         throw new UnsupportedOperationException("Not supported");
@@ -3230,6 +3295,22 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         return getUpdater(true);
     }
 
+    /**
+     * Get the current loss scale, used for mixed precision training (see {@link MultiLayerConfiguration#getMixedPrecision()}).
+     *
+     * @return The current loss scale, or 1.0 if mixed precision training is not used
+     */
+    public double getLossScale() {
+        if (layerWiseConfigurations.getMixedPrecision() == null)
+            return 1.0;
+        //May be called during backprop: the updater (if not yet created) should not be allocated in a workspace
+        Updater u;
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            u = getUpdater(true);
+        }
+        return (u instanceof BaseMultiLayerUpdater ? ((BaseMultiLayerUpdater) u).getLossScale() : 1.0);
+    }
+
     public Updater getUpdater(boolean initializeIfReq) {
         if (solver == null && initializeIfReq) {
             synchronized(this){
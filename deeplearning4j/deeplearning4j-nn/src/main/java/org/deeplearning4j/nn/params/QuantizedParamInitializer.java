@@ -0,0 +1,171 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.params;
+
+import lombok.val;
+import org.deeplearning4j.nn.api.ParamInitializer;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.Layer;
+import org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer;
+import org.deeplearning4j.util.QuantizationUtils;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+
+/**
+ * Parameter initializer for the quantized inference layers: {@link QuantizedDenseLayer} and
+ * {@link QuantizedConvolutionLayer}.<br>
+ * Parameters: quantized weights (INT8 values in range [-127, 127], packed 3 per element - see
+ * {@link QuantizationUtils#pack(INDArray, char)} - shape [1, ceil(numWeights/3)]), optional bias, per output channel
+ * weight scale (shape [1, nOut]) and the input (activations) scale (shape [1, 1]). The packed values are only exact
+ * for FLOAT and DOUBLE parameters, so 16-bit network data types are not supported.<br>
+ * Parameters are always initialized to 0 (bias, weights) or 1 (scales): the actual values are set by
+ * {@link org.deeplearning4j.nn.transferlearning.PostTrainingQuantization}
+ */
+public class QuantizedParamInitializer implements ParamInitializer {
+
+    private static final QuantizedParamInitializer INSTANCE = new QuantizedParamInitializer();
+
+    public static QuantizedParamInitializer getInstance() {
+        return INSTANCE;
+    }
+
+    public final static String WEIGHT_KEY = DefaultParamInitializer.WEIGHT_KEY;
+    public final static String BIAS_KEY = DefaultParamInitializer.BIAS_KEY;
+    public final static String WEIGHT_SCALE_KEY = "ws";
+    public final static String INPUT_SCALE_KEY = "is";
+
+    @Override
+    public long numParams(NeuralNetConfiguration conf) {
+        return numParams(conf.getLayer());
+    }
+
+    @Override
+    public long numParams(Layer layer) {
+        long nOut = nOut(layer);
+        return QuantizationUtils.packedLength(numWeights(layer)) + (hasBias(layer) ? nOut : 0) + nOut + 1;
+    }
+
+    @Override
+    public List<String> paramKeys(Layer layer) {
+        List<String> keys = new ArrayList<>(4);
+        keys.add(WEIGHT_KEY);
+        if (hasBias(layer)) {
+            keys.add(BIAS_KEY);
+        }
+        keys.add(WEIGHT_SCALE_KEY);
+        keys.add(INPUT_SCALE_KEY);
+        return keys;
+    }
+
+    @Override
+    public List<String> weightKeys(Layer layer) {
+        return Collections.singletonList(WEIGHT_KEY);
+    }
+
+    @Override
+    public List<String> biasKeys(Layer layer) {
+        return hasBias(layer) ? Collections.singletonList(BIAS_KEY) : Collections.<String>emptyList();
+    }
+
+    @Override
+    public boolean isWeightParam(Layer layer, String key) {
+        return WEIGHT_KEY.equals(key);
+    }
+
+    @Override
+    public boolean isBiasParam(Layer layer, String key) {
+        return BIAS_KEY.equals(key);
+    }
+
+    @Override
+    public Map<String, INDArray> init(NeuralNetConfiguration conf, INDArray paramsView, boolean initializeParams) {
+        Layer layer = conf.getLayer();
+        val length = numParams(conf);
+        if (paramsView.length() != length)
+            throw new IllegalStateException(
+                    "Expected params view of length " + length + ", got length " + paramsView.length());
+
+        Map<String, INDArray> params = views(layer, paramsView);
+        if (initializeParams) {
+            params.get(WEIGHT_KEY).assign(0);
+            if (hasBias(layer)) {
+                params.get(BIAS_KEY).assign(0);
+            }
+            params.get(WEIGHT_SCALE_KEY).assign(1);
+            params.get(INPUT_SCALE_KEY).assign(1);
+        }
+        for (String s : params.keySet()) {
+            conf.addVariable(s);
+        }
+        return params;
+    }
+
+    @Override
+    public Map<String, INDArray> getGradientsFromFlattened(NeuralNetConfiguration conf, INDArray gradientView) {
+        return views(conf.getLayer(), gradientView);
+    }
+
+    protected Map<String, INDArray> views(Layer layer, INDArray view) {
+        Map<String, INDArray> out = Collections.synchronizedMap(new LinkedHashMap<String, INDArray>());
+        long nOut = nOut(layer);
+        long nWeights = QuantizationUtils.packedLength(numWeights(layer));
+        out.put(WEIGHT_KEY, view.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(0, nWeights)));
+
+        long offset = nWeights;
+        if (hasBias(layer)) {
+            out.put(BIAS_KEY, view.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(offset, offset + nOut)));
+            offset += nOut;
+        }
+        out.put(WEIGHT_SCALE_KEY, view.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(offset, offset + nOut)));
+        offset += nOut;
+        out.put(INPUT_SCALE_KEY, view.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(offset, offset + 1)));
+        return out;
+    }
+
+    /**
+     * @return Number of (unpacked) INT8 weights for the specified layer
+     */
+    protected long numWeights(Layer layer) {
+        if (layer instanceof QuantizedConvolutionLayer) {
+            QuantizedConvolutionLayer c = (QuantizedConvolutionLayer) layer;
+            int[] kernel = c.getKernelSize();
+            return c.getNIn() * c.getNOut() * kernel[0] * kernel[1];
+        } else if (layer instanceof QuantizedDenseLayer) {
+            QuantizedDenseLayer d = (QuantizedDenseLayer) layer;
+            return d.getNIn() * d.getNOut();
+        }
+        throw new IllegalArgumentException("Unsupported layer type: " + layer.getClass().getName());
+    }
+
+    protected long nOut(Layer layer) {
+        if (layer instanceof QuantizedConvolutionLayer) {
+            return ((QuantizedConvolutionLayer) layer).getNOut();
+        }
+        return ((QuantizedDenseLayer) layer).getNOut();
+    }
+
+    protected boolean hasBias(Layer layer) {
+        if (layer instanceof QuantizedConvolutionLayer) {
+            return ((QuantizedConvolutionLayer) layer).hasBias();
+        }
+        return ((QuantizedDenseLayer) layer).hasBias();
+    }
+}
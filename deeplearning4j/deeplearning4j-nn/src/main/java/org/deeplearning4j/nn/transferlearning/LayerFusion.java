@@ -0,0 +1,325 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.deeplearning4j.nn.transferlearning;
+
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.InputPreProcessor;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.GraphVertex;
+import org.deeplearning4j.nn.conf.graph.LayerVertex;
+import org.deeplearning4j.nn.conf.layers.ActivationLayer;
+import org.deeplearning4j.nn.conf.layers.BaseLayer;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.Convolution1DLayer;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.activations.impl.ActivationIdentity;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.broadcast.BroadcastMulOp;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.*;
+
+/**
+ * Inference-time layer fusion for {@link MultiLayerNetwork} and {@link ComputationGraph}.<br>
+ * {@link BatchNormalization} layers that directly follow a {@link ConvolutionLayer} or {@link DenseLayer} (with identity
+ * activation function) are folded into that layer: the batch norm global mean/variance and gamma/beta parameters are
+ * applied to the weights and bias of the preceding layer, and the batch norm layer is removed. If the batch norm
+ * layer is followed by an {@link ActivationLayer}, the activation function is fused into the preceding layer also.<br>
+ * This removes a full pass over the activations for each batch norm layer at inference time.<br>
+ * The returned network is a new network: the original network is not modified. As batch norm layers always use the
+ * global mean/variance estimates after folding, the returned network should be used for inference only.
+ * <p>
+ * Usage:<br>
+ * <pre>
+ * {@code MultiLayerNetwork folded = LayerFusion.foldBatchNorm(net, validationFeatures, 1e-4);}
+ * </pre>
+ */
+public class LayerFusion {
+
+    private LayerFusion() {
+    }
+
+    /**
+     * Fold batch normalization layers into the preceding convolution/dense layers, where possible
+     *
+     * @param net Network to fold batch normalization layers for
+     * @return New network with batch normalization layers folded
+     */
+    public static MultiLayerNetwork foldBatchNorm(MultiLayerNetwork net) {
+        MultiLayerConfiguration conf = net.getLayerWiseConfigurations().clone();
+        List<NeuralNetConfiguration> confs = conf.getConfs();
+
+        List<NeuralNetConfiguration> newConfs = new ArrayList<>();
+        Map<Integer, InputPreProcessor> newPreProcessors = new HashMap<>();
+        List<Integer> origIdx = new ArrayList<>();
+        Map<Integer, Integer> foldedBatchNorm = new HashMap<>();    //Key: new layer index. Value: original batch norm index
+        for (int i = 0; i < confs.size(); i++) {
+            int newIdx = newConfs.size();
+            if (conf.getInputPreProcess(i) != null) {
+                newPreProcessors.put(newIdx, conf.getInputPreProcess(i));
+            }
+            newConfs.add(confs.get(i));
+            origIdx.add(i);
+
+            org.deeplearning4j.nn.conf.layers.Layer l = confs.get(i).getLayer();
+            if (canFold(l) && i + 1 < confs.size() && confs.get(i + 1).getLayer() instanceof BatchNormalization
+                    && conf.getInputPreProcess(i + 1) == null) {
+                setBias(l);
+                foldedBatchNorm.put(newIdx, i + 1);
+                i++;
+                if (i + 1 < confs.size() && confs.get(i + 1).getLayer() instanceof ActivationLayer
+                        && conf.getInputPreProcess(i + 1) == null) {
+                    ((BaseLayer) l).setActivationFn(((ActivationLayer) confs.get(i + 1).getLayer()).getActivationFn());
+                    i++;
+                }
+            }
+        }
+
+        conf.setConfs(newConfs);
+        conf.setInputPreProcessors(newPreProcessors);
+        MultiLayerNetwork ret = new MultiLayerNetwork(conf);
+        ret.init();
+
+        for (int i = 0; i < newConfs.size(); i++) {
+            Layer orig = net.getLayer(origIdx.get(i));
+            Layer l = ret.getLayer(i);
+            if (foldedBatchNorm.containsKey(i)) {
+                setFoldedParams(orig, net.getLayer(foldedBatchNorm.get(i)), l);
+            } else {
+                copyParams(orig, l);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Fold batch normalization layers into the preceding convolution/dense layers, where possible, and validate that
+     * the output of the new network matches the output of the original network
+     *
+     * @param net             Network to fold batch normalization layers for
+     * @param validationInput Input features to use for validating the new network
+     * @param maxError        Maximum absolute difference between the original and new network outputs
+     * @return New network with batch normalization layers folded
+     * @throws IllegalStateException If the network outputs differ by more than maxError
+     */
+    public static MultiLayerNetwork foldBatchNorm(MultiLayerNetwork net, INDArray validationInput, double maxError) {
+        MultiLayerNetwork ret = foldBatchNorm(net);
+        validate(new INDArray[]{net.output(validationInput, false)},
+                new INDArray[]{ret.output(validationInput, false)}, maxError);
+        return ret;
+    }
+
+    /**
+     * Fold batch normalization layers into the preceding convolution/dense layers, where possible
+     *
+     * @param net Network to fold batch normalization layers for
+     * @return New network with batch normalization layers folded
+     */
+    public static ComputationGraph foldBatchNorm(ComputationGraph net) {
+        ComputationGraphConfiguration conf = net.getConfiguration().clone();
+        Map<String, GraphVertex> vertices = conf.getVertices();
+        Map<String, List<String>> vertexInputs = conf.getVertexInputs();
+        List<String> outputs = conf.getNetworkOutputs();
+
+        Map<String, String> foldedBatchNorm = new HashMap<>();  //Key: layer name. Value: batch norm layer name
+        for (String name : new ArrayList<>(vertices.keySet())) {
+            if (!vertices.containsKey(name) || !(vertices.get(name) instanceof LayerVertex) || outputs.contains(name))
+                continue;
+            org.deeplearning4j.nn.conf.layers.Layer l = ((LayerVertex) vertices.get(name)).getLayerConf().getLayer();
+            List<String> consumers = getConsumers(vertexInputs, name);
+            if (!canFold(l) || consumers.size() != 1)
+                continue;
+            String bnName = consumers.get(0);
+            if (!isFusable(vertices, outputs, bnName, BatchNormalization.class))
+                continue;
+
+            setBias(l);
+            foldedBatchNorm.put(name, bnName);
+            List<String> removed = new ArrayList<>();
+            removed.add(bnName);
+            List<String> bnConsumers = getConsumers(vertexInputs, bnName);
+            if (bnConsumers.size() == 1 && isFusable(vertices, outputs, bnConsumers.get(0), ActivationLayer.class)) {
+                ActivationLayer a = (ActivationLayer) ((LayerVertex) vertices.get(bnConsumers.get(0))).getLayerConf().getLayer();
+                ((BaseLayer) l).setActivationFn(a.getActivationFn());
+                removed.add(bnConsumers.get(0));
+            }
+
+            //Remove the fused vertices, and connect their consumers directly to the folded layer
+            for (String s : removed) {
+                vertices.remove(s);
+                vertexInputs.remove(s);
+            }
+            for (List<String> inputs : vertexInputs.values()) {
+                for (int i = 0; i < inputs.size(); i++) {
+                    if (removed.contains(inputs.get(i))) {
+                        inputs.set(i, name);
+                    }
+                }
+            }
+        }
+
+        //Topological order is cached in the configuration
+        conf.setTopologicalOrder(null);
+        conf.setTopologicalOrderStr(null);
+        ComputationGraph ret = new ComputationGraph(conf);
+        ret.init();
+
+        for (Layer l : ret.getLayers()) {
+            String name = l.conf().getLayer().getLayerName();
+            if (foldedBatchNorm.containsKey(name)) {
+                setFoldedParams(net.getLayer(name), net.getLayer(foldedBatchNorm.get(name)), l);
+            } else {
+                copyParams(net.getLayer(name), l);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Fold batch normalization layers into the preceding convolution/dense layers, where possible, and validate that
+     * the outputs of the new network match the outputs of the original network
+     *
+     * @param net              Network to fold batch normalization layers for
+     * @param validationInputs Input features to use for validating the new network
+     * @param maxError         Maximum absolute difference between the original and new network outputs
+     * @return New network with batch normalization layers folded
+     * @throws IllegalStateException If the network outputs differ by more than maxError
+     */
+    public static ComputationGraph foldBatchNorm(ComputationGraph net, INDArray[] validationInputs, double maxError) {
+        ComputationGraph ret = foldBatchNorm(net);
+        validate(net.output(false, validationInputs), ret.output(false, validationInputs), maxError);
+        return ret;
+    }
+
+    /**
+     * @return True if batch normalization can be folded into the specified layer
+     */
+    protected static boolean canFold(org.deeplearning4j.nn.conf.layers.Layer l) {
+        if (l.getClass() == DenseLayer.class) {
+            if (((DenseLayer) l).hasLayerNorm())
+                return false;
+        } else if (l.getClass() != ConvolutionLayer.class && l.getClass() != Convolution1DLayer.class) {
+            //Note: subclasses such as Deconvolution2D and DepthwiseConvolution2D have a different weight layout
+            return false;
+        }
+        return ((BaseLayer) l).getActivationFn() instanceof ActivationIdentity;
+    }
+
+    private static boolean isFusable(Map<String, GraphVertex> vertices, List<String> outputs, String name, Class<?> layerClass) {
+        GraphVertex gv = vertices.get(name);
+        return gv instanceof LayerVertex && ((LayerVertex) gv).getPreProcessor() == null && !outputs.contains(name)
+                && layerClass.isInstance(((LayerVertex) gv).getLayerConf().getLayer());
+    }
+
+    private static List<String> getConsumers(Map<String, List<String>> vertexInputs, String name) {
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<String, List<String>> e : vertexInputs.entrySet()) {
+            for (String s : e.getValue()) {
+                if (s.equals(name)) {
+                    out.add(e.getKey());
+                }
+            }
+        }
+        return out;
+    }
+
+    private static void setBias(org.deeplearning4j.nn.conf.layers.Layer l) {
+        if (l instanceof DenseLayer) {
+            ((DenseLayer) l).setHasBias(true);
+        } else {
+            ((ConvolutionLayer) l).setHasBias(true);
+        }
+    }
+
+    private static void copyParams(Layer from, Layer to) {
+        for (Map.Entry<String, INDArray> e : from.paramTable().entrySet()) {
+            to.setParam(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Calculate the folded weights and bias for the specified layer and batch norm layer, and set them on the new layer.<br>
+     * BN(Wx + b) = gamma * (Wx + b - mean) / sqrt(var + eps) + beta = (s * W) x + (s * (b - mean) + beta) with
+     * s = gamma / sqrt(var + eps), applied per output channel
+     */
+    private static void setFoldedParams(Layer layer, Layer batchNorm, Layer newLayer) {
+        BatchNormalization bn = (BatchNormalization) batchNorm.conf().getLayer();
+        INDArray w = layer.getParam(DefaultParamInitializer.WEIGHT_KEY);
+        DataType dt = w.dataType();
+        long nOut = (layer.conf().getLayer() instanceof DenseLayer ? w.size(1) : w.size(0));
+
+        //Calculate in double precision
+        INDArray mean = batchNorm.getParam(BatchNormalizationParamInitializer.GLOBAL_MEAN).castTo(DataType.DOUBLE).reshape(1, nOut);
+        INDArray var;
+        if (bn.isUseLogStd()) {
+            //var = (10^log10(std))^2
+            INDArray log10s = batchNorm.getParam(BatchNormalizationParamInitializer.GLOBAL_LOG_STD).castTo(DataType.DOUBLE);
+            var = Transforms.pow(Nd4j.valueArrayOf(log10s.shape(), 10.0, DataType.DOUBLE), log10s.mul(2), false).reshape(1, nOut);
+        } else {
+            var = batchNorm.getParam(BatchNormalizationParamInitializer.GLOBAL_VAR).castTo(DataType.DOUBLE).reshape(1, nOut);
+        }
+        INDArray gamma;
+        INDArray beta;
+        if (bn.isLockGammaBeta()) {
+            gamma = Nd4j.valueArrayOf(new long[]{1, nOut}, bn.getGamma(), DataType.DOUBLE);
+            beta = Nd4j.valueArrayOf(new long[]{1, nOut}, bn.getBeta(), DataType.DOUBLE);
+        } else {
+            gamma = batchNorm.getParam(BatchNormalizationParamInitializer.GAMMA).castTo(DataType.DOUBLE).reshape(1, nOut);
+            beta = batchNorm.getParam(BatchNormalizationParamInitializer.BETA).castTo(DataType.DOUBLE).reshape(1, nOut);
+        }
+        INDArray scale = gamma.div(Transforms.sqrt(var.add(bn.getEps()), false));
+
+        INDArray wd = w.castTo(DataType.DOUBLE);
+        INDArray newW;
+        if (layer.conf().getLayer() instanceof DenseLayer) {
+            newW = wd.mulRowVector(scale);                      //Weights: [nIn, nOut]
+        } else {
+            newW = Nd4j.createUninitialized(DataType.DOUBLE, wd.shape(), wd.ordering());
+            Nd4j.getExecutioner().exec(new BroadcastMulOp(wd, scale.reshape(nOut), newW, 0));    //Weights: [nOut, nIn, kH, kW]
+        }
+
+        INDArray b = layer.paramTable().get(DefaultParamInitializer.BIAS_KEY);
+        INDArray bd = (b == null ? Nd4j.zeros(DataType.DOUBLE, 1, nOut) : b.castTo(DataType.DOUBLE).reshape(1, nOut));
+        INDArray newB = bd.sub(mean).muli(scale).addi(beta);
+
+        Preconditions.checkState(newLayer.getParam(DefaultParamInitializer.WEIGHT_KEY).length() == newW.length(),
+                "Folded weights have unexpected length for layer %s", newLayer.conf().getLayer().getLayerName());
+        newLayer.setParam(DefaultParamInitializer.WEIGHT_KEY, newW.castTo(dt));
+        newLayer.setParam(DefaultParamInitializer.BIAS_KEY, newB.castTo(dt).reshape(newLayer.getParam(DefaultParamInitializer.BIAS_KEY).shape()));
+    }
+
+    private static void validate(INDArray[] expected, INDArray[] actual, double maxError) {
+        for (int i = 0; i < expected.length; i++) {
+            double maxDiff = Transforms.abs(expected[i].castTo(DataType.DOUBLE).sub(actual[i].castTo(DataType.DOUBLE)), false)
+                    .maxNumber().doubleValue();
+            if (maxDiff > maxError) {
+                throw new IllegalStateException("Validation of folded network failed: maximum absolute difference between" +
+                        " original and folded network output " + i + " is " + maxDiff + ", exceeds maximum allowed error " + maxError);
+            }
+        }
+    }
+}
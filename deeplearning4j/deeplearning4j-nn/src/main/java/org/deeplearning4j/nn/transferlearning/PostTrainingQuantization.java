@@ -0,0 +1,280 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.transferlearning;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.graph.GraphVertex;
+import org.deeplearning4j.nn.conf.graph.LayerVertex;
+import org.deeplearning4j.nn.conf.layers.Convolution2D;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.nn.params.QuantizedParamInitializer;
+import org.deeplearning4j.util.QuantizationUtils;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.broadcast.BroadcastDivOp;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.*;
+
+/**
+ * Post-training INT8 quantization for {@link MultiLayerNetwork} and {@link ComputationGraph}.<br>
+ * {@link DenseLayer} and {@link ConvolutionLayer} (2D) layers are replaced by {@link QuantizedDenseLayer} and
+ * {@link QuantizedConvolutionLayer} respectively, which run with INT8 weights and inputs.
+ * All other layers (including output layers) are unchanged, with activations dequantized at layer boundaries.<br>
+ * Quantization is symmetric: weights use a per output channel scale based on the maximum absolute weight value, and
+ * layer inputs use a per-tensor scale based on the maximum absolute input value, as observed when performing
+ * inference on the calibration data set.<br>
+ * The returned network is a new network: the original network is not modified. The returned network is inference
+ * only. The INT8 weights are stored packed into the parameter array, 3 per element (see
+ * {@link QuantizationUtils#pack(INDArray, char)}), so networks with 16-bit data types are converted to FLOAT.
+ * libnd4j has no INT8 matrix multiplication, so at inference time the quantized layers cache floating point copies of
+ * their dequantized weights: the quantization reduces model size, and reproduces the accuracy of INT8 inference.
+ * Batch normalization layers should be folded beforehand using {@link LayerFusion#foldBatchNorm(MultiLayerNetwork)}
+ * so that convolution layers followed by batch normalization can be quantized.
+ * <p>
+ * Usage:<br>
+ * <pre>
+ * {@code MultiLayerNetwork quantized = PostTrainingQuantization.quantize(net, calibrationIter);
+ * Pair<Evaluation, Evaluation> eval = PostTrainingQuantization.evaluate(net, quantized, testIter);}
+ * </pre>
+ */
+@Slf4j
+public class PostTrainingQuantization {
+
+    private PostTrainingQuantization() {
+    }
+
+    /**
+     * Quantize the dense and convolution layers of the specified network, using the specified data to calibrate the
+     * input scales for each layer
+     *
+     * @param net             Network to quantize
+     * @param calibrationData Data to use for calibration. Should be representative of the data used for inference
+     * @return New network with quantized layers
+     */
+    public static MultiLayerNetwork quantize(MultiLayerNetwork net, DataSetIterator calibrationData) {
+        MultiLayerConfiguration conf = net.getLayerWiseConfigurations().clone();
+        conf.setDataType(quantizedDataType(conf.getDataType()));
+        Set<Integer> quantized = new HashSet<>();
+        for (int i = 0; i < conf.getConfs().size(); i++) {
+            org.deeplearning4j.nn.conf.layers.Layer q = quantizedLayer(conf.getConf(i).getLayer());
+            if (q != null) {
+                conf.getConf(i).setLayer(q);
+                quantized.add(i);
+            }
+        }
+
+        //Calibrate: max absolute value of the input to each quantized layer
+        Map<Integer, Double> maxAbs = new HashMap<>();
+        int count = 0;
+        if (calibrationData.resetSupported()) {
+            calibrationData.reset();
+        }
+        while (calibrationData.hasNext()) {
+            DataSet ds = calibrationData.next();
+            List<INDArray> activations = net.feedForward(ds.getFeatures(), false);
+            for (Integer i : quantized) {
+                updateMaxAbs(maxAbs, i, activations.get(i));
+            }
+            count++;
+        }
+        Preconditions.checkState(count > 0, "No calibration data: calibration iterator has no data");
+
+        MultiLayerNetwork ret = new MultiLayerNetwork(conf);
+        ret.init();
+        for (int i = 0; i < conf.getConfs().size(); i++) {
+            if (quantized.contains(i)) {
+                setQuantizedParams(net.getLayer(i), maxAbs.get(i), ret.getLayer(i));
+            } else {
+                copyParams(net.getLayer(i), ret.getLayer(i));
+            }
+        }
+        log.info("Quantized {} of {} layers", quantized.size(), conf.getConfs().size());
+        return ret;
+    }
+
+    /**
+     * Quantize the dense and convolution layers of the specified single input network, using the specified data to
+     * calibrate the input scales for each layer
+     *
+     * @param net             Network to quantize
+     * @param calibrationData Data to use for calibration. Should be representative of the data used for inference
+     * @return New network with quantized layers
+     */
+    public static ComputationGraph quantize(ComputationGraph net, DataSetIterator calibrationData) {
+        ComputationGraphConfiguration conf = net.getConfiguration().clone();
+        conf.setDataType(quantizedDataType(conf.getDataType()));
+        Map<String, GraphVertex> vertices = conf.getVertices();
+        Set<String> quantized = new HashSet<>();
+        for (Map.Entry<String, GraphVertex> e : vertices.entrySet()) {
+            if (e.getValue() instanceof LayerVertex) {
+                LayerVertex lv = (LayerVertex) e.getValue();
+                org.deeplearning4j.nn.conf.layers.Layer q = quantizedLayer(lv.getLayerConf().getLayer());
+                if (q != null) {
+                    lv.getLayerConf().setLayer(q);
+                    quantized.add(e.getKey());
+                }
+            }
+        }
+
+        Map<String, Double> maxAbs = new HashMap<>();
+        int count = 0;
+        if (calibrationData.resetSupported()) {
+            calibrationData.reset();
+        }
+        while (calibrationData.hasNext()) {
+            DataSet ds = calibrationData.next();
+            net.setInputs(ds.getFeatures());
+            Map<String, INDArray> activations = net.feedForward(false, false, true);
+            for (String s : quantized) {
+                for (String in : conf.getVertexInputs().get(s)) {
+                    updateMaxAbs(maxAbs, s, activations.get(in));
+                }
+            }
+            count++;
+        }
+        net.clear();
+        Preconditions.checkState(count > 0, "No calibration data: calibration iterator has no data");
+
+        ComputationGraph ret = new ComputationGraph(conf);
+        ret.init();
+        for (Layer l : ret.getLayers()) {
+            String name = l.conf().getLayer().getLayerName();
+            if (quantized.contains(name)) {
+                setQuantizedParams(net.getLayer(name), maxAbs.get(name), l);
+            } else {
+                copyParams(net.getLayer(name), l);
+            }
+        }
+        log.info("Quantized {} of {} layers", quantized.size(), ret.getLayers().length);
+        return ret;
+    }
+
+    /**
+     * Evaluate the original and quantized networks on the specified data
+     *
+     * @param original  Original network
+     * @param quantized Quantized network, as returned by {@link #quantize(MultiLayerNetwork, DataSetIterator)}
+     * @param testData  Data to evaluate the networks on
+     * @return Evaluation for the original network (first) and the quantized network (second)
+     */
+    public static Pair<Evaluation, Evaluation> evaluate(MultiLayerNetwork original, MultiLayerNetwork quantized, DataSetIterator testData) {
+        Evaluation before = original.evaluate(testData);
+        Evaluation after = quantized.evaluate(testData);
+        logAccuracy(before, after);
+        return new Pair<>(before, after);
+    }
+
+    /**
+     * Evaluate the original and quantized networks on the specified data
+     *
+     * @param original  Original network
+     * @param quantized Quantized network, as returned by {@link #quantize(ComputationGraph, DataSetIterator)}
+     * @param testData  Data to evaluate the networks on
+     * @return Evaluation for the original network (first) and the quantized network (second)
+     */
+    public static Pair<Evaluation, Evaluation> evaluate(ComputationGraph original, ComputationGraph quantized, DataSetIterator testData) {
+        Evaluation before = original.evaluate(testData);
+        Evaluation after = quantized.evaluate(testData);
+        logAccuracy(before, after);
+        return new Pair<>(before, after);
+    }
+
+    /**
+     * @return The quantized version of the specified layer, or null if the layer can't be quantized
+     */
+    protected static org.deeplearning4j.nn.conf.layers.Layer quantizedLayer(org.deeplearning4j.nn.conf.layers.Layer l) {
+        if (l.getClass() == DenseLayer.class && !((DenseLayer) l).hasLayerNorm()) {
+            return new QuantizedDenseLayer((DenseLayer) l);
+        } else if (l.getClass() == ConvolutionLayer.class || l.getClass() == Convolution2D.class) {
+            //Note: subclasses such as Convolution1DLayer and Deconvolution2D have a different forward pass
+            return new QuantizedConvolutionLayer((ConvolutionLayer) l);
+        }
+        return null;
+    }
+
+    private static DataType quantizedDataType(DataType networkDataType) {
+        return networkDataType == DataType.DOUBLE ? DataType.DOUBLE : DataType.FLOAT;
+    }
+
+    private static <T> void updateMaxAbs(Map<T, Double> maxAbs, T key, INDArray activations) {
+        double m = activations.amaxNumber().doubleValue();
+        Double current = maxAbs.get(key);
+        maxAbs.put(key, current == null ? m : Math.max(current, m));
+    }
+
+    private static void copyParams(Layer from, Layer to) {
+        for (Map.Entry<String, INDArray> e : from.paramTable().entrySet()) {
+            to.setParam(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Quantize the weights of the specified layer with a per output channel scale, and set them along with the
+     * scales and bias on the new (quantized) layer
+     */
+    private static void setQuantizedParams(Layer layer, double inputMaxAbs, Layer newLayer) {
+        INDArray w = layer.getParam(DefaultParamInitializer.WEIGHT_KEY);
+        DataType dt = newLayer.getParam(QuantizedParamInitializer.WEIGHT_SCALE_KEY).dataType();
+        boolean dense = layer.conf().getLayer() instanceof DenseLayer;
+        int channelDim = dense ? 1 : 0;     //Dense weights: [nIn, nOut]. Convolution weights: [nOut, nIn, kH, kW]
+        long nOut = w.size(channelDim);
+
+        INDArray wd = w.castTo(DataType.DOUBLE);
+        INDArray channelMaxAbs = dense ? wd.amax(0) : wd.reshape(nOut, -1).amax(1);
+        INDArray weightScale = Nd4j.create(DataType.DOUBLE, nOut);
+        for (int i = 0; i < nOut; i++) {
+            weightScale.putScalar(i, QuantizationUtils.scale(channelMaxAbs.getDouble(i)));
+        }
+
+        INDArray scaled = Nd4j.createUninitialized(DataType.DOUBLE, wd.shape(), wd.ordering());
+        Nd4j.getExecutioner().exec(new BroadcastDivOp(wd, weightScale, scaled, channelDim));
+        INDArray qw = Transforms.round(scaled, false);
+        Transforms.min(qw, QuantizationUtils.INT8_MAX, false);
+        Transforms.max(qw, -QuantizationUtils.INT8_MAX, false);
+
+        //Pack in the order of the original weights: dense weights are f order, convolution weights are c order
+        newLayer.setParam(QuantizedParamInitializer.WEIGHT_KEY, QuantizationUtils.pack(qw.castTo(DataType.INT8), dense ? 'f' : 'c'));
+        newLayer.setParam(QuantizedParamInitializer.WEIGHT_SCALE_KEY, weightScale.castTo(dt).reshape(1, nOut));
+        newLayer.setParam(QuantizedParamInitializer.INPUT_SCALE_KEY, Nd4j.valueArrayOf(new long[]{1, 1}, QuantizationUtils.scale(inputMaxAbs), dt));
+        INDArray b = layer.paramTable().get(DefaultParamInitializer.BIAS_KEY);
+        if (b != null) {
+            newLayer.setParam(QuantizedParamInitializer.BIAS_KEY, b.reshape(1, nOut));
+        }
+    }
+
+    private static void logAccuracy(Evaluation before, Evaluation after) {
+        log.info("Accuracy: original network {}, quantized network {}, delta {}", before.accuracy(), after.accuracy(),
+                after.accuracy() - before.accuracy());
+    }
+}
@@ -0,0 +1,160 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.nn.transferlearning;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.constraint.MagnitudePruningConstraint;
+import org.deeplearning4j.nn.conf.graph.GraphVertex;
+import org.deeplearning4j.nn.conf.graph.LayerVertex;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Map;
+
+/**
+ * Magnitude-based weight pruning and sparse inference for {@link MultiLayerNetwork} and {@link ComputationGraph}.<br>
+ * Pruning can be done during training (optionally gradually, using a schedule) by adding a
+ * {@link MagnitudePruningConstraint} to the weights of {@link DenseLayer} and {@link ConvolutionLayer} layers, or
+ * after training (one-shot) using the {@code prune} methods here. Pruned dense layers can then be converted to use
+ * sparse (CSR) weights for inference using the {@code toSparse} methods. Convolution layers are not converted, and
+ * run with dense (zero-containing) weights.
+ * <p>
+ * Usage:<br>
+ * <pre>
+ * {@code new DenseLayer.Builder().nOut(1024).constrainWeights(new MagnitudePruningConstraint(sparsitySchedule)).build();
+ * ...
+ * MultiLayerNetwork sparse = WeightPruning.toSparse(net, 0.9);}
+ * </pre>
+ * Methods here return a new network; the original network is not modified.
+ */
+@Slf4j
+public class WeightPruning {
+
+    private WeightPruning() {
+    }
+
+    /**
+     * Prune the weights of all dense and convolution layers: the specified fraction of weights with the smallest
+     * magnitude in each layer are set to 0
+     *
+     * @param net      Network to prune
+     * @param sparsity Fraction of weights to prune, in range [0, 1)
+     * @return New network with pruned weights
+     */
+    public static MultiLayerNetwork prune(MultiLayerNetwork net, double sparsity) {
+        MultiLayerNetwork ret = net.clone();
+        prune(ret.getLayers(), sparsity);
+        return ret;
+    }
+
+    /**
+     * Prune the weights of all dense and convolution layers: the specified fraction of weights with the smallest
+     * magnitude in each layer are set to 0
+     *
+     * @param net      Network to prune
+     * @param sparsity Fraction of weights to prune, in range [0, 1)
+     * @return New network with pruned weights
+     */
+    public static ComputationGraph prune(ComputationGraph net, double sparsity) {
+        ComputationGraph ret = net.clone();
+        prune(ret.getLayers(), sparsity);
+        return ret;
+    }
+
+    /**
+     * Enable sparse inference (see {@link DenseLayer.Builder#sparseInference(boolean)}) for all dense layers with
+     * weight sparsity of at least minSparsity
+     *
+     * @param net         Network to convert
+     * @param minSparsity Minimum fraction of zero weights for a layer to be converted. Sparse inference is usually
+     *                    only faster than dense inference for highly sparse weights - for example, 0.9 or more
+     * @return New network with sparse inference enabled for the sparse dense layers
+     */
+    public static MultiLayerNetwork toSparse(MultiLayerNetwork net, double minSparsity) {
+        MultiLayerConfiguration conf = net.getLayerWiseConfigurations().clone();
+        int count = 0;
+        for (int i = 0; i < conf.getConfs().size(); i++) {
+            if (setSparseInference(conf.getConf(i), net.getLayer(i), minSparsity)) {
+                count++;
+            }
+        }
+        MultiLayerNetwork ret = new MultiLayerNetwork(conf);
+        ret.init(net.params().dup(), false);
+        log.info("Enabled sparse inference for {} layers", count);
+        return ret;
+    }
+
+    /**
+     * Enable sparse inference (see {@link DenseLayer.Builder#sparseInference(boolean)}) for all dense layers with
+     * weight sparsity of at least minSparsity
+     *
+     * @param net         Network to convert
+     * @param minSparsity Minimum fraction of zero weights for a layer to be converted. Sparse inference is usually
+     *                    only faster than dense inference for highly sparse weights - for example, 0.9 or more
+     * @return New network with sparse inference enabled for the sparse dense layers
+     */
+    public static ComputationGraph toSparse(ComputationGraph net, double minSparsity) {
+        ComputationGraphConfiguration conf = net.getConfiguration().clone();
+        int count = 0;
+        for (Map.Entry<String, GraphVertex> e : conf.getVertices().entrySet()) {
+            if (e.getValue() instanceof LayerVertex
+                    && setSparseInference(((LayerVertex) e.getValue()).getLayerConf(), net.getLayer(e.getKey()), minSparsity)) {
+                count++;
+            }
+        }
+        ComputationGraph ret = new ComputationGraph(conf);
+        ret.init(net.params().dup(), false);
+        log.info("Enabled sparse inference for {} layers", count);
+        return ret;
+    }
+
+    /**
+     * @return Fraction of values in the array that are exactly 0
+     */
+    public static double sparsity(INDArray arr) {
+        return arr.eq(0.0).castTo(arr.dataType()).sumNumber().doubleValue() / arr.length();
+    }
+
+    private static void prune(Layer[] layers, double sparsity) {
+        for (Layer l : layers) {
+            org.deeplearning4j.nn.conf.layers.Layer conf = l.conf().getLayer();
+            if (conf instanceof DenseLayer || conf instanceof ConvolutionLayer) {
+                MagnitudePruningConstraint.prune(l.getParam(DefaultParamInitializer.WEIGHT_KEY), sparsity);
+            }
+        }
+    }
+
+    private static boolean setSparseInference(NeuralNetConfiguration conf, Layer layer, double minSparsity) {
+        if (!(conf.getLayer() instanceof DenseLayer) || ((DenseLayer) conf.getLayer()).hasLayerNorm()) {
+            return false;
+        }
+        if (sparsity(layer.getParam(DefaultParamInitializer.WEIGHT_KEY)) < minSparsity) {
+            return false;
+        }
+        ((DenseLayer) conf.getLayer()).setSparseInference(true);
+        return true;
+    }
+}
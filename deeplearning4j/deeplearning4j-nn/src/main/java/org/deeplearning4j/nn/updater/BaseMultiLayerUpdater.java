@@ -17,13 +17,17 @@
 package org.deeplearning4j.nn.updater;
 
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.api.Trainable;
 import org.deeplearning4j.nn.api.Updater;
 import org.deeplearning4j.nn.conf.GradientNormalization;
+import org.deeplearning4j.nn.conf.MixedPrecision;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.CustomOp;
@@ -48,10 +52,16 @@ import java.util.*;
  *     however)<br>
  * are combined into a single {@link org.nd4j.linalg.learning.GradientUpdater} operation, instead of having a set of
  * smaller operations. A smaller number of larger operations improves performance, especially for GPUs.
+ * <p>
+ * In mixed precision mode (see {@link MixedPrecision}), the updater blocks operate on FP32 copies of the (16-bit)
+ * network parameters and gradients: gradients are converted to FP32 and unscaled before the updater is applied, and
+ * the network parameters are set from the updated FP32 master parameters afterwards. If the gradients are not finite
+ * (i.e., overflow due to the loss scale) the update is skipped.
  *
  * @author Alex Black
  */
 @Getter
+@Slf4j
 public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater {
 
     protected final T network;
@@ -61,6 +71,14 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
     protected boolean initializedMinibatchDivision;
     protected List<INDArray> gradientsForMinibatchDivision;
 
+    protected final MixedPrecision mixedPrecision;
+    protected INDArray masterParams;
+    protected INDArray masterGradients;
+    protected Map<Trainable, Pair<Gradient, INDArray>> masterGradientsByLayer;
+    protected double lossScale = 1.0;
+    protected int stepsSinceLossScaleChange;
+    protected long skippedSteps;
+
     public BaseMultiLayerUpdater(T network) {
         this(network, null);
     }
@@ -86,6 +104,20 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
 
         INDArray paramsView = network.params();
         INDArray gradientView = getFlattenedGradientsView();
+
+        mixedPrecision = getMixedPrecision();
+        if (mixedPrecision != null) {
+            Preconditions.checkState(paramsView.dataType() == DataType.HALF || paramsView.dataType() == DataType.BFLOAT16,
+                    "Mixed precision training requires the network datatype to be HALF or BFLOAT16, got %s", paramsView.dataType());
+            //Updater blocks operate on FP32 master copies of the parameters and gradients
+            masterParams = paramsView.castTo(DataType.FLOAT);
+            masterGradients = Nd4j.zeros(DataType.FLOAT, paramsView.shape());
+            paramsView = masterParams;
+            gradientView = masterGradients;
+            lossScale = mixedPrecision.getInitialLossScale();
+        }
+
+        boolean blockPerLayer = isUpdaterBlockPerLayer();
         int paramsViewSoFar = 0;
         int currentUpdaterOffset = 0;
         for (int i = 0; i < layers.length; i++) {
@@ -109,8 +141,8 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
                     }
 
                     //First: decide whether to add to the existing updater block, or create a new one
-                    if (currentBlock == null || !UpdaterUtils.updaterConfigurationsEquals(lastLayer, lastVariable,
-                                    layers[i], var)) {
+                    if (currentBlock == null || (blockPerLayer && lastLayer != layers[i])
+                                    || !UpdaterUtils.updaterConfigurationsEquals(lastLayer, lastVariable, layers[i], var)) {
 
                         if (paramsViewSoFar + paramSizeThisVariable > Integer.MAX_VALUE || paramsViewSoFar + paramSizeThisVariable > Integer.MAX_VALUE)
                             throw new ND4JArraySizeException();
@@ -153,7 +185,7 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             updaterRequiresInit = false;
         } else if (updaterStateSize > 0) {
             //May be 0 if all SGD or NONE updaters, for example
-            updaterStateViewArray = Nd4j.createUninitialized(network.params().dataType(), new long[] {1, updaterStateSize}, Nd4j.order());
+            updaterStateViewArray = Nd4j.createUninitialized(paramsView.dataType(), new long[] {1, updaterStateSize}, Nd4j.order());
             updaterRequiresInit = true;
         }
 
@@ -208,6 +240,28 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      */
     protected abstract boolean isMiniBatch();
 
+    /**
+     * @return The mixed precision configuration for the model, or null if mixed precision training is not used
+     */
+    protected MixedPrecision getMixedPrecision() {
+        return null;
+    }
+
+    /**
+     * @return True if updater blocks should not span multiple layers, as is required for {@link #updateLayer}
+     */
+    protected boolean isUpdaterBlockPerLayer() {
+        return false;
+    }
+
+    /**
+     * @return The current loss scale: the factor the gradients are scaled by in the backward pass. Always 1.0 if
+     * mixed precision training is not used
+     */
+    public double getLossScale() {
+        return lossScale;
+    }
+
     /**
      * Set the view array. Note that this does an assign operation - the provided array is not stored internally.
      *
@@ -271,6 +325,14 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         // hence should be the same object under normal circumstances
         boolean isExternal = gradient.gradient() != getFlattenedGradientsView();
 
+        if (mixedPrecision != null) {
+            Preconditions.checkState(!isExternal, "Mixed precision training is not supported with external gradients");
+            if (!unscaleGradients(batchSize)) {
+                //Gradients overflowed: skip this update
+                return;
+            }
+        }
+
         //Split up the gradients on a per-layer basis, for pre-apply
         Map<String, Gradient> layerGradients = new HashMap<>();
 
@@ -297,7 +359,7 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             }
         }
 
-        if(isMiniBatch()){
+        if(isMiniBatch() && mixedPrecision == null){
             divideByMinibatch(isExternal, gradient, batchSize);
         }
 
@@ -306,7 +368,14 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             String layerName = entry.getKey();
             Trainable layer = layersByName.get(layerName);
 
-            preApply(layer, layerGradients.get(layerName), iteration);
+            if (mixedPrecision != null) {
+                Pair<Gradient, INDArray> master = getMasterGradientsByLayer().get(layer);
+                if (master != null) {
+                    preApply(layer, master.getFirst(), master.getSecond(), iteration);
+                }
+            } else {
+                preApply(layer, layerGradients.get(layerName), iteration);
+            }
         }
 
         //Apply the updaters in blocks. This also applies LR and momentum schedules, L1 and L2
@@ -330,6 +399,152 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
                 }
             }
         }
+
+        if (mixedPrecision != null) {
+            applyMasterUpdate();
+        }
+    }
+
+    /**
+     * Update the gradient for a single layer of the model. Applying this method to each layer of the model is
+     * equivalent to calling {@link #update(Gradient, int, int, int, LayerWorkspaceMgr)} for the full gradient, which
+     * allows the update for one layer to be applied as soon as that layer's gradients are available.<br>
+     * Requires updater blocks that do not span multiple layers (see {@link #isUpdaterBlockPerLayer()}), and is not
+     * supported for mixed precision training or external gradients.
+     *
+     * @param layer         Layer to update the gradient for
+     * @param layerGradient Gradient for the layer, keyed by parameter name. Arrays must be views of the flattened gradients
+     * @param iteration     The current iteration (i.e., number of parameter updates so far)
+     * @param epoch         The current epoch
+     * @param batchSize     The current minibatch size (number of examples)
+     * @param workspaceMgr  Workspace manager
+     */
+    public synchronized void updateLayer(Trainable layer, Gradient layerGradient, int iteration, int epoch, int batchSize,
+                                         LayerWorkspaceMgr workspaceMgr) {
+        Preconditions.checkState(isUpdaterBlockPerLayer(), "Per layer updates require updater blocks that do not span multiple layers");
+        Preconditions.checkState(mixedPrecision == null, "Per layer updates are not supported with mixed precision training");
+
+        List<UpdaterBlock> layerBlocks = new ArrayList<>();
+        for (UpdaterBlock ub : updaterBlocks) {
+            if (ub.getLayersAndVariablesInBlock().get(0).getLayer() == layer)
+                layerBlocks.add(ub);
+        }
+        if (layerBlocks.isEmpty())
+            return;     //No parameters
+
+        if (isMiniBatch()) {
+            for (UpdaterBlock ub : layerBlocks) {
+                for (UpdaterBlock.ParamState ps : ub.getLayersAndVariablesInBlock()) {
+                    if (ps.getGradView() != null && layer.updaterDivideByMinibatch(ps.getParamName()))
+                        ps.getGradView().divi(batchSize);
+                }
+            }
+        }
+
+        preApply(layer, layerGradient, iteration);
+
+        for (UpdaterBlock ub : layerBlocks) {
+            if (ub.skipDueToPretrainConfig(this instanceof LayerUpdater)) {
+                continue;
+            }
+            try (MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.UPDATER_WORKING_MEM)) {
+                ub.update(iteration, epoch);
+            }
+        }
+    }
+
+    /**
+     * Mixed precision: convert the network gradients to FP32 and unscale them (including division by the minibatch
+     * size, if applicable), and update the loss scale.
+     *
+     * @return False if the gradients are not finite, in which case the network gradients are zeroed so that the
+     * parameters are not changed by the current iteration
+     */
+    protected boolean unscaleGradients(int batchSize) {
+        INDArray networkGradients = getFlattenedGradientsView();
+        INDArray networkParams = getParams();
+
+        double sum;
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            //Network parameters may have been modified outside of the updater (constraints, setParams, etc): if so,
+            // take the network values for the modified parameters, otherwise keep the FP32 values
+            INDArray expected = masterParams.castTo(networkParams.dataType()).castTo(DataType.FLOAT);
+            masterParams.addi(networkParams.castTo(DataType.FLOAT).subi(expected));
+
+            masterGradients.assign(networkGradients);
+            sum = masterGradients.sumNumber().doubleValue();
+        }
+        if (Double.isNaN(sum) || Double.isInfinite(sum)) {
+            skippedSteps++;
+            if (mixedPrecision.isDynamicLossScaling()) {
+                lossScale = Math.max(mixedPrecision.getMinLossScale(), lossScale * mixedPrecision.getBackoffFactor());
+                stepsSinceLossScaleChange = 0;
+            }
+            log.debug("Mixed precision: non-finite gradients, skipping update. New loss scale: {}", lossScale);
+            networkGradients.assign(0);
+            return false;
+        }
+
+        //Non-gradient "updates" (such as batch norm mean/variance estimates) aren't scaled, and aren't divided by
+        // the minibatch size
+        if(!initializedMinibatchDivision){
+            gradientsForMinibatchDivision = getMinibatchDivisionSubsets(masterGradients);
+            initializedMinibatchDivision = true;
+        }
+        double divisor = lossScale * (isMiniBatch() ? batchSize : 1);
+        for(INDArray arr : gradientsForMinibatchDivision){
+            arr.divi(divisor);
+        }
+
+        if (mixedPrecision.isDynamicLossScaling() && ++stepsSinceLossScaleChange >= mixedPrecision.getGrowthInterval()) {
+            lossScale = Math.min(mixedPrecision.getMaxLossScale(), lossScale * mixedPrecision.getGrowthFactor());
+            stepsSinceLossScaleChange = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Mixed precision: apply the updates (the updated FP32 gradients) to the FP32 master parameters, and copy the
+     * result to the network parameters. The network gradients are zeroed, as the network parameters are already
+     * updated at this point.
+     */
+    protected void applyMasterUpdate() {
+        masterParams.subi(masterGradients);
+        getParams().assign(masterParams);
+        getFlattenedGradientsView().assign(0);
+    }
+
+    /**
+     * @return Per layer gradients and full layer gradient views for the FP32 master gradients, for use in
+     * {@link #preApply(Trainable, Gradient, INDArray, int)}
+     */
+    protected Map<Trainable, Pair<Gradient, INDArray>> getMasterGradientsByLayer() {
+        if (masterGradientsByLayer == null) {
+            Map<Trainable, Pair<Gradient, INDArray>> m = new IdentityHashMap<>();
+            Map<Trainable, long[]> ranges = new IdentityHashMap<>();
+            for (UpdaterBlock ub : updaterBlocks) {
+                for (UpdaterBlock.ParamState ps : ub.getLayersAndVariablesInBlock()) {
+                    if (ps.getGradView() == null)
+                        continue;
+                    Pair<Gradient, INDArray> p = m.get(ps.getLayer());
+                    if (p == null) {
+                        p = new Pair<Gradient, INDArray>(new DefaultGradient(), null);
+                        m.put(ps.getLayer(), p);
+                        ranges.put(ps.getLayer(), new long[]{ps.getParamOffsetStart(), ps.getParamOffsetEnd()});
+                    }
+                    p.getFirst().setGradientFor(ps.getParamName(), ps.getGradView());
+                    long[] r = ranges.get(ps.getLayer());
+                    r[0] = Math.min(r[0], ps.getParamOffsetStart());
+                    r[1] = Math.max(r[1], ps.getParamOffsetEnd());
+                }
+            }
+            for (Map.Entry<Trainable, long[]> e : ranges.entrySet()) {
+                long[] r = e.getValue();
+                m.get(e.getKey()).setSecond(masterGradients.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(r[0], r[1])));
+            }
+            masterGradientsByLayer = m;
+        }
+        return masterGradientsByLayer;
     }
 
     protected void divideByMinibatch(boolean isExternal, Gradient gradient, int batchSize){
@@ -398,6 +613,18 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      * @param iteration The current iteration (i.e., number of parameter updates so far)
      */
     public void preApply(Trainable layer, Gradient gradient, int iteration) {
+        preApply(layer, gradient, layer.getGradientsViewArray(), iteration);
+    }
+
+    /**
+     * Pre-apply: Apply gradient normalization/clipping
+     *
+     * @param layer             Layer to apply gradient normalization/clipping for
+     * @param gradient          Gradient to update
+     * @param layerGradientView Gradient view array for the whole layer
+     * @param iteration         The current iteration (i.e., number of parameter updates so far)
+     */
+    protected void preApply(Trainable layer, Gradient gradient, INDArray layerGradientView, int iteration) {
 
         if (layer.getConfig() == null || layer.numParams() == 0) {
             //Layer does not have parameters -> no gradient
@@ -409,7 +636,6 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             return; //no op
 
         final double threshold = layer.getConfig().getGradientNormalizationThreshold();
-        INDArray layerGradientView = layer.getGradientsViewArray();
 
         switch (normalization) {
             case RenormalizeL2PerLayer:
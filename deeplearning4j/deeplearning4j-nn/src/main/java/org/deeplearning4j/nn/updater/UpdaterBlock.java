@@ -20,11 +20,13 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.val;
 import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.RowSparseGradients;
 import org.deeplearning4j.nn.api.Trainable;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.layers.BaseLayer;
 import org.deeplearning4j.nn.layers.FrozenLayer;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.scatter.ScatterUpdate;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.learning.GradientUpdater;
@@ -156,6 +158,11 @@ public class UpdaterBlock {
             return;
         }
 
+        //Row-sparse parameters (embeddings): only update the rows used in this minibatch
+        if (!externalGradient && updateRowSparse(iteration, epoch)) {
+            return;
+        }
+
         //Pre-updater regularization: l1 and l2
         applyRegularizationAllVariables(Regularization.ApplyStep.BEFORE_UPDATER, iteration, epoch, externalGradient, fullNetworkGradientView, fullNetworkParamsArray);
 
@@ -166,6 +173,70 @@ public class UpdaterBlock {
         applyRegularizationAllVariables(Regularization.ApplyStep.POST_UPDATER, iteration, epoch, externalGradient, fullNetworkGradientView, fullNetworkParamsArray);
     }
 
+    /**
+     * Apply regularization and the updater to the touched rows of a row-sparse parameter only (see
+     * {@link RowSparseGradients}). The rows of the gradient, parameters and each updater state array are gathered,
+     * updated as a (small) dense block, and then the gradient and state rows are scattered back.
+     *
+     * @return False if this block doesn't consist of a single row-sparse parameter with known touched rows, in which
+     * case nothing is done and the standard (dense) update should be applied
+     */
+    protected boolean updateRowSparse(int iteration, int epoch) {
+        if (layersAndVariablesInBlock.size() != 1)
+            return false;
+        ParamState p = layersAndVariablesInBlock.get(0);
+        RowSparseGradients sparse = UpdaterUtils.getRowSparseGradients(p.getLayer());
+        int[] rows = (sparse == null ? null : sparse.getTouchedRows(p.getParamName()));
+        if (rows == null)
+            return false;
+
+        //Use the block's view (rather than the layer's parameter) for the values, as the updater may operate on a
+        // separate (master) copy of the parameters
+        INDArray layerParam = p.getLayer().paramTable(false).get(p.getParamName());
+        INDArray param = p.getParamView().reshape(layerParam.ordering(), layerParam.shape());
+        long n = param.length();
+        int numStateArrays = (updaterView == null ? 0 : (int) (updaterView.length() / n));
+        if (param.rank() != 2 || (updaterView != null && updaterView.length() != numStateArrays * n))
+            return false;
+        if (rows.length == 0)
+            return true;
+
+        char order = param.ordering();
+        long[] shape = param.shape();
+        INDArray grad = p.getGradView().reshape(order, shape);
+        INDArray gradRows = Nd4j.pullRows(grad, 1, rows, 'c');
+        INDArray paramRows = Nd4j.pullRows(param, 1, rows, 'c');
+        long rowsLength = gradRows.length();
+
+        //Updater state: same layout as the gradient, one array after another (i.e., [m, v] for Adam)
+        GradientUpdater u = gradientUpdater;
+        INDArray[] state = new INDArray[numStateArrays];
+        INDArray[] stateRows = new INDArray[numStateArrays];
+        if (numStateArrays > 0) {
+            INDArray stateRowsView = Nd4j.createUninitialized(updaterView.dataType(), new long[]{1, numStateArrays * rowsLength}, 'c');
+            for (int j = 0; j < numStateArrays; j++) {
+                state[j] = updaterView.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(j * n, (j + 1) * n)).reshape(order, shape);
+                stateRows[j] = stateRowsView.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(j * rowsLength, (j + 1) * rowsLength))
+                        .reshape('c', gradRows.shape());
+                Nd4j.pullRows(state[j], stateRows[j], 1, rows);
+            }
+            u = gradientUpdater.getConfig().instantiate(stateRowsView, false);
+        }
+
+        boolean hasLR = gradientUpdater.getConfig().hasLearningRate();
+        double lr = (hasLR ? gradientUpdater.getConfig().getLearningRate(iteration, epoch) : 1.0);
+        applyRegularization(Regularization.ApplyStep.BEFORE_UPDATER, p.getLayer(), p.getParamName(), gradRows, paramRows, iteration, epoch, lr);
+        u.applyUpdater(gradRows.reshape('c', 1, rowsLength), iteration, epoch);
+        applyRegularization(Regularization.ApplyStep.POST_UPDATER, p.getLayer(), p.getParamName(), gradRows, paramRows, iteration, epoch, lr);
+
+        INDArray indices = Nd4j.createFromArray(rows);
+        Nd4j.scatterUpdate(ScatterUpdate.UpdateOp.ASSIGN, grad, indices, gradRows, 1);
+        for (int j = 0; j < numStateArrays; j++) {
+            Nd4j.scatterUpdate(ScatterUpdate.UpdateOp.ASSIGN, state[j], indices, stateRows[j], 1);
+        }
+        return true;
+    }
+
     protected void applyRegularizationAllVariables(Regularization.ApplyStep applyStep, int iteration, int epoch, boolean externalGradient, INDArray fullNetworkGradientView,
                                                    INDArray fullNetworkParamsArray) {
         for (ParamState p : layersAndVariablesInBlock) {
@@ -16,8 +16,10 @@
 
 package org.deeplearning4j.nn.updater;
 
+import org.deeplearning4j.nn.api.RowSparseGradients;
 import org.deeplearning4j.nn.api.Trainable;
 import org.deeplearning4j.nn.api.TrainingConfig;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
 import org.nd4j.linalg.learning.config.IUpdater;
 
 /**
@@ -37,11 +39,16 @@ public class UpdaterUtils {
         //(b) If one or more of the params are pretrainable params, they are in the same layer
         //    This last point is necessary as we don't want to modify the pretrain gradient/updater state during
         //    backprop, or modify the pretrain gradient/updater state of one layer while training another
+        //(c) Neither of the params is row-sparse: these are updated row-wise, in a block of their own
         if (!u1.equals(u2)) {
             //Different updaters or different config
             return false;
         }
 
+        if (isRowSparse(layer1, param1) || isRowSparse(layer2, param2)) {
+            return false;
+        }
+
         boolean isPretrainParam1 = l1.isPretrainParam(param1);
         boolean isPretrainParam2 = l2.isPretrainParam(param2);
         if (isPretrainParam1 || isPretrainParam2) {
@@ -53,4 +60,21 @@ public class UpdaterUtils {
 
         return true;
     }
+
+    /**
+     * @return The layer as a {@link RowSparseGradients} instance (unwrapping graph vertices), or null if the layer
+     * doesn't implement it
+     */
+    public static RowSparseGradients getRowSparseGradients(Trainable layer) {
+        if (layer instanceof GraphVertex && ((GraphVertex) layer).hasLayer()) {
+            Object l = ((GraphVertex) layer).getLayer();
+            return l instanceof RowSparseGradients ? (RowSparseGradients) l : null;
+        }
+        return layer instanceof RowSparseGradients ? (RowSparseGradients) layer : null;
+    }
+
+    public static boolean isRowSparse(Trainable layer, String paramName) {
+        RowSparseGradients r = getRowSparseGradients(layer);
+        return r != null && r.isRowSparse(paramName);
+    }
 }
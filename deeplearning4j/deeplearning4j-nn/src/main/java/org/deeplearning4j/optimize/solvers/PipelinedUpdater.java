@@ -0,0 +1,180 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.optimize.solvers;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.optimize.api.StepFunction;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.memory.enums.ResetPolicy;
+import org.nd4j.linalg.api.memory.enums.SpillPolicy;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the updater and step function to the parameters of each layer of a network on a background thread, as soon
+ * as the gradients for that layer have been calculated. This allows the parameter updates to be overlapped with the
+ * backward pass for the remaining layers.<br>
+ * Usage, for each iteration: {@link #start(int, int, int)}, then {@link #layerGradientsComplete(Layer, Gradient)} for
+ * each layer during backprop, then {@link #await()} before the parameters are used again.<br>
+ * See {@link org.deeplearning4j.nn.conf.MultiLayerConfiguration.Builder#pipelinedUpdates(boolean)}
+ *
+ * @see BaseMultiLayerUpdater#updateLayer(org.deeplearning4j.nn.api.Trainable, Gradient, int, int, int, LayerWorkspaceMgr)
+ */
+public class PipelinedUpdater {
+
+    protected static final String WS_UPDATER_WORKING_MEM = "WS_PIPELINED_UPDATER_WORKING_MEM";
+    protected static final WorkspaceConfiguration WS_UPDATER_WORKING_MEM_CONFIG = WorkspaceConfiguration.builder()
+            .initialSize(0)
+            .overallocationLimit(0.02)
+            .policyLearning(LearningPolicy.OVER_TIME)
+            .cyclesBeforeInitialization(1)
+            .policyReset(ResetPolicy.BLOCK_LEFT)
+            .policySpill(SpillPolicy.REALLOCATE)
+            .policyAllocation(AllocationPolicy.OVERALLOCATE)
+            .build();
+
+    @Getter
+    protected final BaseMultiLayerUpdater<?> updater;
+    protected final StepFunction stepFunction;
+    protected final LayerWorkspaceMgr workspaceMgr;
+    protected final ThreadPoolExecutor executor;
+    protected final List<Future<?>> pending = new ArrayList<>();
+    protected Integer deviceId;
+    protected int iteration;
+    protected int epoch;
+    protected int batchSize;
+
+    /**
+     * @param updater       Updater to apply. Must have been created with updater blocks that do not span multiple layers
+     * @param stepFunction  Step function, used to apply the updates to the parameters
+     * @param useWorkspaces If true: use a workspace for the updater working memory
+     */
+    public PipelinedUpdater(@NonNull BaseMultiLayerUpdater<?> updater, @NonNull StepFunction stepFunction, boolean useWorkspaces) {
+        this.updater = updater;
+        this.stepFunction = stepFunction;
+        if (useWorkspaces) {
+            this.workspaceMgr = LayerWorkspaceMgr.builder()
+                    .defaultNoWorkspace()
+                    .with(ArrayType.UPDATER_WORKING_MEM, WS_UPDATER_WORKING_MEM, WS_UPDATER_WORKING_MEM_CONFIG)
+                    .build();
+        } else {
+            this.workspaceMgr = LayerWorkspaceMgr.noWorkspaces();
+        }
+
+        //Single thread: updates are applied in the order the layer gradients become available. The thread is
+        // released when idle, so that no thread is retained for networks that are no longer being trained
+        executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "PipelinedUpdater");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Start a new iteration
+     *
+     * @param iteration The current iteration (i.e., number of parameter updates so far)
+     * @param epoch     The current epoch
+     * @param batchSize The current minibatch size (number of examples)
+     */
+    public void start(int iteration, int epoch, int batchSize) {
+        this.iteration = iteration;
+        this.epoch = epoch;
+        this.batchSize = batchSize;
+        this.deviceId = Nd4j.getAffinityManager().getDeviceForCurrentThread();
+    }
+
+    /**
+     * Called once the gradients for the specified layer have been calculated. The update for the layer is applied
+     * asynchronously: neither the layer's parameters nor its gradients should be used until {@link #await()} has been called
+     *
+     * @param layer         Layer whose gradients are complete
+     * @param layerGradient Gradients for the layer, keyed by parameter name
+     */
+    public void layerGradientsComplete(@NonNull final Layer layer, @NonNull final Gradient layerGradient) {
+        if (layer.numParams() == 0)
+            return;
+
+        //Ensure any (asynchronous) ops using the layer's parameters and gradients have completed before the update
+        Nd4j.getExecutioner().commit();
+        pending.add(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+                updater.updateLayer(layer, layerGradient, iteration, epoch, batchSize, workspaceMgr);
+                stepFunction.step(layer.params(), layer.getGradientsViewArray());
+                Nd4j.getExecutioner().commit();
+            }
+        }));
+    }
+
+    /**
+     * Wait for the updates for all layers to be applied. If applying any of the updates failed, the first exception
+     * is rethrown
+     */
+    public void await() {
+        Throwable t = null;
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                if (t == null)
+                    t = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (t == null)
+                    t = e;
+            }
+        }
+        pending.clear();
+
+        if (t != null) {
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            throw new RuntimeException("Error applying parameter updates", t);
+        }
+    }
+
+    /**
+     * Shut down the background thread used to apply updates
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -18,13 +18,18 @@ package org.deeplearning4j.optimize.solvers;
 
 import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.deeplearning4j.nn.updater.UpdaterCreator;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.deeplearning4j.optimize.api.StepFunction;
 import org.deeplearning4j.optimize.api.TrainingListener;
+import org.nd4j.common.base.Preconditions;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
@@ -41,6 +46,7 @@ import java.util.Collection;
 @Slf4j
 public class StochasticGradientDescent extends BaseOptimizer {
 
+    protected transient PipelinedUpdater pipelinedUpdater;
 
     public StochasticGradientDescent(NeuralNetConfiguration conf, StepFunction stepFunction,
                     Collection<TrainingListener> trainingListeners, Model model) {
@@ -60,7 +66,8 @@ public class StochasticGradientDescent extends BaseOptimizer {
             }
         }
 
-        Pair<Gradient, Double> pair = gradientAndScore(workspaceMgr);
+        boolean pipelined = usePipelinedUpdates();
+        Pair<Gradient, Double> pair = (pipelined ? gradientAndScorePipelined() : gradientAndScore(workspaceMgr));
 
         Gradient gradient = pair.getFirst();
 
@@ -88,7 +95,7 @@ public class StochasticGradientDescent extends BaseOptimizer {
             accumulator.applyUpdate(stepFunction, params, gradient.gradient(), true);
 
             // if there's no update available - just go on then
-        } else {
+        } else if (!pipelined) {
             // if accumulator isn't used - we just to for direct updates application
             stepFunction.step(params, gradient.gradient());
         }
@@ -110,6 +117,74 @@ public class StochasticGradientDescent extends BaseOptimizer {
         return true;
     }
 
+    /**
+     * @return True if the updates should be applied layer by layer during backprop - see
+     * {@link org.deeplearning4j.nn.conf.MultiLayerConfiguration.Builder#pipelinedUpdates(boolean)}
+     */
+    protected boolean usePipelinedUpdates() {
+        if (accumulator != null || !(model instanceof MultiLayerNetwork))
+            return false;
+        MultiLayerConfiguration conf = ((MultiLayerNetwork) model).getLayerWiseConfigurations();
+        return conf.isPipelinedUpdates() && conf.getMixedPrecision() == null;
+    }
+
+    /**
+     * Calculate the gradients and score, with the updater and step function applied to each layer's parameters as
+     * soon as the gradients for that layer are available. On return, the parameters have been updated
+     */
+    protected Pair<Gradient, Double> gradientAndScorePipelined() {
+        MultiLayerNetwork network = (MultiLayerNetwork) model;
+        if (updater == null) {
+            try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                updater = UpdaterCreator.getUpdater(model);
+            }
+        }
+        Preconditions.checkState(updater instanceof BaseMultiLayerUpdater, "Pipelined updates require a " +
+                "BaseMultiLayerUpdater, got %s", updater.getClass());
+        if (pipelinedUpdater == null || pipelinedUpdater.getUpdater() != updater) {
+            if (pipelinedUpdater != null)
+                pipelinedUpdater.shutdown();
+            pipelinedUpdater = new PipelinedUpdater((BaseMultiLayerUpdater<?>) updater, stepFunction,
+                    network.getLayerWiseConfigurations().getTrainingWorkspaceMode() != WorkspaceMode.NONE);
+        }
+
+        oldScore = score;
+        pipelinedUpdater.start(getIterationCount(model), getEpochCount(model), model.batchSize());
+        Throwable t = null;
+        try {
+            network.computeGradientAndScore(pipelinedUpdater);
+        } catch (Throwable t2) {
+            t = t2;
+        } finally {
+            //Always wait for in-flight updates; if backprop failed, report that exception in preference to any others
+            try {
+                pipelinedUpdater.await();
+            } catch (RuntimeException e) {
+                if (t == null)
+                    t = e;
+            }
+        }
+        if (t != null) {
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new RuntimeException(t);
+        }
+
+        if (trainingListeners != null && !trainingListeners.isEmpty()) {
+            try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                for (TrainingListener l : trainingListeners) {
+                    l.onGradientCalculation(model);
+                }
+            }
+        }
+
+        Pair<Gradient, Double> pair = model.gradientAndScore();
+        score = pair.getSecond();
+        return pair;
+    }
+
     @Override
     public void preProcessLine() {}
 
@@ -0,0 +1,280 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.optimize.solvers.accumulation;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.optimize.api.StepFunction;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.util.AtomicThrowable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * GradientsAccumulator implementation that averages dense updates across model replicas training within the same
+ * JVM (i.e. ParallelWrapper workers), without any compression.<br>
+ * Every consumer publishes its updates array, and then reduces its own chunk of the flattened updates across all
+ * consumers (reduce-scatter), writing the averaged chunk back into every replica's updates array (all-gather).
+ * Chunks are disjoint, so no locks are involved: consumers only meet at two spin barriers per iteration.<br>
+ * As result, after {@link #storeUpdate(INDArray, int, int)} all replicas hold exactly the same averaged updates,
+ * and parameters of all replicas stay in sync.<br>
+ * If a consumer fails outside of this accumulator, {@link #abort(Throwable)} must be called, so the other consumers
+ * don't wait for it at the barriers forever.
+ *
+ * PLEASE NOTE: this accumulator is meant for single-host training only, external sources are not supported.
+ */
+@Slf4j
+public class AllReduceGradientsAccumulator implements GradientsAccumulator, Registerable {
+    /**
+     * Chunk boundaries are aligned to this number of elements, so different consumers won't write into the same
+     * cache line
+     */
+    protected static final int CHUNK_ALIGNMENT = 16;
+    protected static final int SPINS_BEFORE_YIELD = 1000;
+
+    @Getter
+    protected final int parties;
+
+    // updates published by consumers for the current iteration, indexed by rank
+    protected final AtomicReferenceArray<INDArray> candidates;
+
+    protected final AtomicInteger currentConsumers = new AtomicInteger(0);
+    protected final AtomicInteger ranks = new AtomicInteger(0);
+    protected final AtomicInteger arrivals = new AtomicInteger(0);
+    protected final AtomicInteger generation = new AtomicInteger(0);
+    protected final AtomicBoolean registered = new AtomicBoolean(false);
+    protected final AtomicBoolean bypassMode = new AtomicBoolean(false);
+
+    protected final AtomicThrowable throwable = new AtomicThrowable();
+
+    /**
+     * @param parties maximum number of consumers (i.e. workers) sharing updates via this accumulator
+     */
+    public AllReduceGradientsAccumulator(int parties) {
+        Preconditions.checkArgument(parties > 0, "Number of parties must be positive, got %s", parties);
+        this.parties = parties;
+        this.candidates = new AtomicReferenceArray<>(parties);
+    }
+
+    @Override
+    public void registerConsumers(int numConsumers) {
+        Preconditions.checkArgument(numConsumers > 0 && numConsumers <= parties,
+                        "Number of consumers must be in range [1, %s], got %s", parties, numConsumers);
+
+        // previous cycle might be still in progress, so we wait till all its consumers are done with all-reduce
+        while (registered.get()) {
+            Thread.yield();
+            if (throwable.isTriggered())
+                throw new RuntimeException(throwable.get());
+        }
+
+        currentConsumers.set(numConsumers);
+        registered.set(true);
+    }
+
+    @Override
+    public void fallbackToSingleConsumerMode(boolean reallyFallback) {
+        bypassMode.set(reallyFallback);
+    }
+
+    /**
+     * This method averages given updates across all consumers registered for the current cycle. Once it returns,
+     * given array holds averaged updates
+     *
+     * @param array updates suitable for StepFunction
+     */
+    @Override
+    public void storeUpdate(INDArray array, int iterationNumber, int epochNumber) {
+        int consumers = bypassMode.get() ? 1 : Math.max(1, currentConsumers.get());
+        if (consumers == 1) {
+            registered.set(false);
+            return;
+        }
+
+        if (throwable.isTriggered())
+            throw new RuntimeException(throwable.get());
+
+        try {
+            // all queued ops over updates must be finished before other threads will read them
+            Nd4j.getExecutioner().commit();
+
+            int rank = ranks.getAndIncrement();
+            Preconditions.checkState(rank < consumers, "More consumers than registered: %s", consumers);
+            candidates.set(rank, array);
+
+            // reduce-scatter can't start until all consumers have published their updates
+            await(consumers, false);
+
+            INDArray first = candidates.get(0);
+            long length = first.length();
+            long chunk = alignedChunk(length, consumers);
+            long from = Math.min(length, rank * chunk);
+            long to = Math.min(length, from + chunk);
+
+            if (from < to) {
+                // rank 0 updates are used as accumulation buffer for this chunk
+                INDArray reduced = chunkOf(first, from, to);
+                for (int e = 1; e < consumers; e++) {
+                    INDArray other = candidates.get(e);
+                    Preconditions.checkState(other.length() == length,
+                                    "Updates length mismatch: %s vs %s", length, other.length());
+                    reduced.addi(chunkOf(other, from, to));
+                }
+                reduced.divi(consumers);
+
+                for (int e = 1; e < consumers; e++)
+                    chunkOf(candidates.get(e), from, to).assign(reduced);
+            }
+
+            Nd4j.getExecutioner().commit();
+
+            // all chunks must be written before anyone proceeds to applying updates
+            await(consumers, true);
+        } catch (RuntimeException e) {
+            throwable.setIfFirst(e);
+            throw e;
+        }
+    }
+
+    /**
+     * This method aborts the all-reduce: consumers waiting at the barriers (and the master thread waiting in
+     * {@link #registerConsumers(int)}) will fail with an exception, instead of waiting for a consumer that will never
+     * arrive. All subsequent calls will fail as well.
+     *
+     * @param cause failure of the consumer
+     */
+    public void abort(Throwable cause) {
+        throwable.setIfFirst(cause);
+    }
+
+    /**
+     * This method applies updates averaged by {@link #storeUpdate(INDArray, int, int)} via given StepFunction
+     *
+     * @param function
+     * @param params
+     */
+    @Override
+    public void applyUpdate(StepFunction function, INDArray params, INDArray updates, boolean isFinalStep) {
+        function.step(params, updates);
+    }
+
+    /**
+     * This method applies updates averaged by {@link #storeUpdate(INDArray, int, int)} via given StepFunction
+     *
+     * @param function
+     * @param params
+     */
+    @Override
+    public void applyUpdate(StepFunction function, INDArray params, INDArray updates, double alpha) {
+        function.step(params, updates, alpha);
+    }
+
+    /**
+     * Spin barrier. Last consumer to arrive resets the barrier, and - if that's the final barrier of the cycle -
+     * releases the master thread waiting in {@link #registerConsumers(int)}
+     */
+    protected void await(int consumers, boolean finalBarrier) {
+        int gen = generation.get();
+        if (arrivals.incrementAndGet() == consumers) {
+            arrivals.set(0);
+            if (finalBarrier) {
+                for (int e = 0; e < consumers; e++)
+                    candidates.set(e, null);
+
+                ranks.set(0);
+            }
+
+            generation.incrementAndGet();
+
+            if (finalBarrier)
+                registered.set(false);
+        } else {
+            int spins = 0;
+            while (generation.get() == gen) {
+                if (++spins > SPINS_BEFORE_YIELD)
+                    Thread.yield();
+
+                if (throwable.isTriggered())
+                    throw new RuntimeException(throwable.get());
+            }
+        }
+    }
+
+    protected static long alignedChunk(long length, int consumers) {
+        long chunk = (length + consumers - 1) / consumers;
+        return ((chunk + CHUNK_ALIGNMENT - 1) / CHUNK_ALIGNMENT) * CHUNK_ALIGNMENT;
+    }
+
+    protected static INDArray chunkOf(INDArray array, long from, long to) {
+        // chunks must be views, since averaged values are written back in place
+        if (array.rank() == 1)
+            return array.get(NDArrayIndex.interval(from, to));
+        else if (array.rank() == 2 && array.size(0) == 1)
+            return array.get(NDArrayIndex.point(0), NDArrayIndex.interval(from, to));
+
+        Preconditions.checkArgument(array.rank() == 2 && array.size(1) == 1, "Updates must be a vector, got shape %s",
+                        array.shape());
+        return array.get(NDArrayIndex.interval(from, to), NDArrayIndex.point(0));
+    }
+
+    @Override
+    public void receiveUpdate(INDArray array) {
+        throw new UnsupportedOperationException("AllReduceGradientsAccumulator doesn't support external updates");
+    }
+
+    @Override
+    public void setExternalSource(IndexedTail source) {
+        throw new UnsupportedOperationException("AllReduceGradientsAccumulator doesn't support external sources");
+    }
+
+    @Override
+    public IndexedTail getExternalSource() {
+        return null;
+    }
+
+    @Override
+    public void markExternalUpdates(boolean updatesAvailable) {
+        // no-op
+    }
+
+    /**
+     * This method resets all accumulated updates (if any)
+     */
+    @Override
+    public void reset() {
+        // no-op, updates aren't stored between iterations
+    }
+
+    /**
+     * This method does initialization of given worker wrt Thread-Device Affinity
+     */
+    @Override
+    public void touch() {
+        // no-op
+    }
+
+    @Override
+    public boolean hasAnything() {
+        return false;
+    }
+}
@@ -0,0 +1,185 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.util;
+
+import lombok.Getter;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+
+/**
+ * Compressed sparse row (CSR) representation of a 2d floating point matrix, used for sparse weights at inference
+ * time (for example, for pruned layers - see {@link org.deeplearning4j.nn.conf.constraint.MagnitudePruningConstraint}).<br>
+ * Only the non-zero values are stored: row i has non-zero values {@code values[rowPointers[i] .. rowPointers[i+1]-1]}
+ * in columns {@code columnIndices[rowPointers[i] .. rowPointers[i+1]-1]}.<br>
+ * FLOAT and DOUBLE matrices are supported.
+ */
+@Getter
+public class CsrMatrix {
+
+    private final DataType dataType;
+    private final int rows;
+    private final int columns;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final float[] floatValues;      //Used for FLOAT matrices
+    private final double[] doubleValues;    //Used for DOUBLE matrices
+
+    private CsrMatrix(DataType dataType, int rows, int columns, int[] rowPointers, int[] columnIndices,
+                      float[] floatValues, double[] doubleValues) {
+        this.dataType = dataType;
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.floatValues = floatValues;
+        this.doubleValues = doubleValues;
+    }
+
+    /**
+     * Create a CSR matrix from the specified dense matrix
+     *
+     * @param matrix Dense matrix. Must be rank 2, FLOAT or DOUBLE data type
+     * @return CSR representation of the matrix
+     */
+    public static CsrMatrix fromDense(INDArray matrix) {
+        Preconditions.checkArgument(matrix.rank() == 2, "Expected rank 2 matrix, got array with shape %ndShape", matrix);
+        Preconditions.checkArgument(matrix.dataType() == DataType.FLOAT || matrix.dataType() == DataType.DOUBLE,
+                "Only FLOAT and DOUBLE matrices are supported, got %s", matrix.dataType());
+        Preconditions.checkArgument(matrix.length() < Integer.MAX_VALUE, "Matrix is too large: %ndShape", matrix);
+        int rows = (int) matrix.rows();
+        int columns = (int) matrix.columns();
+        int nnz = (int) matrix.neq(0.0).castTo(DataType.INT32).sumNumber().longValue();
+
+        int[] rowPointers = new int[rows + 1];
+        int[] columnIndices = new int[nnz];
+        double[] dense = matrix.dup('c').data().asDouble();
+        double[] values = new double[nnz];
+        int pos = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                double v = dense[i * columns + j];
+                if (v != 0.0) {
+                    columnIndices[pos] = j;
+                    values[pos++] = v;
+                }
+            }
+            rowPointers[i + 1] = pos;
+        }
+
+        if (matrix.dataType() == DataType.DOUBLE) {
+            return new CsrMatrix(DataType.DOUBLE, rows, columns, rowPointers, columnIndices, null, values);
+        }
+        float[] f = new float[nnz];
+        for (int i = 0; i < nnz; i++) {
+            f[i] = (float) values[i];
+        }
+        return new CsrMatrix(DataType.FLOAT, rows, columns, rowPointers, columnIndices, f, null);
+    }
+
+    /**
+     * @return Number of non-zero values
+     */
+    public int nnz() {
+        return columnIndices.length;
+    }
+
+    /**
+     * @return Fraction of zero values in the matrix
+     */
+    public double sparsity() {
+        return 1.0 - nnz() / ((double) rows * columns);
+    }
+
+    /**
+     * Multiply the specified dense matrix by this sparse matrix: {@code out = input x this}.<br>
+     * Zero values in the input are also skipped, which is common for activations such as ReLU.<br>
+     * The input is read and the output written directly via their data buffers when they are c order contiguous
+     * arrays of the same data type as this matrix; otherwise a temporary copy is used.
+     *
+     * @param input Dense input, shape [m, rows]
+     * @param out   Dense output array, shape [m, columns]. Same data type as this matrix
+     * @return The output array
+     */
+    public INDArray leftMultiply(INDArray input, INDArray out) {
+        Preconditions.checkArgument(input.rank() == 2 && input.columns() == rows, "Expected input with shape [m, %s], got %ndShape",
+                rows, input);
+        Preconditions.checkArgument(out.dataType() == dataType, "Output array must have data type %s, got %s", dataType, out.dataType());
+        long m = input.rows();
+        Preconditions.checkArgument(out.rank() == 2 && out.rows() == m && out.columns() == columns,
+                "Expected output array with shape [%s, %s], got %ndShape", m, columns, out);
+
+        INDArray x = (input.dataType() == dataType && isContiguousC(input) ? input : input.castTo(dataType).dup('c'));
+        INDArray z = (isContiguousC(out) ? out : Nd4j.createUninitialized(dataType, new long[]{m, columns}, 'c'));
+        DataBuffer xb = x.data();
+        DataBuffer zb = z.data();
+        if (dataType == DataType.FLOAT) {
+            float[] acc = new float[columns];
+            for (long r = 0; r < m; r++) {
+                long xOffset = r * rows;
+                long zOffset = r * columns;
+                Arrays.fill(acc, 0.0f);
+                for (int i = 0; i < rows; i++) {
+                    float xv = xb.getFloat(xOffset + i);
+                    if (xv == 0.0f) {
+                        continue;
+                    }
+                    for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                        acc[columnIndices[p]] += xv * floatValues[p];
+                    }
+                }
+                for (int j = 0; j < columns; j++) {
+                    zb.put(zOffset + j, acc[j]);
+                }
+            }
+        } else {
+            double[] acc = new double[columns];
+            for (long r = 0; r < m; r++) {
+                long xOffset = r * rows;
+                long zOffset = r * columns;
+                Arrays.fill(acc, 0.0);
+                for (int i = 0; i < rows; i++) {
+                    double xv = xb.getDouble(xOffset + i);
+                    if (xv == 0.0) {
+                        continue;
+                    }
+                    for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                        acc[columnIndices[p]] += xv * doubleValues[p];
+                    }
+                }
+                for (int j = 0; j < columns; j++) {
+                    zb.put(zOffset + j, acc[j]);
+                }
+            }
+        }
+
+        if (z != out) {
+            out.assign(z);
+        }
+        return out;
+    }
+
+    private static boolean isContiguousC(INDArray arr) {
+        return arr.ordering() == 'c' && Shape.hasDefaultStridesForShape(arr);
+    }
+}
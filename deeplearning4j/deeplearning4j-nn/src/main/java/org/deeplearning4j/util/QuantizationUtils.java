@@ -0,0 +1,164 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.util;
+
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+/**
+ * Utilities for symmetric INT8 quantization, as used by the quantized inference layers
+ * @see org.deeplearning4j.nn.conf.layers.QuantizedDenseLayer
+ * @see org.deeplearning4j.nn.conf.layers.QuantizedConvolutionLayer
+ * @see org.deeplearning4j.nn.transferlearning.PostTrainingQuantization
+ */
+public class QuantizationUtils {
+
+    /**
+     * Maximum absolute value of a quantized value. -128 is not used, so that the quantization range is symmetric
+     */
+    public static final int INT8_MAX = 127;
+
+    /**
+     * Number of INT8 values packed into each element of the (FLOAT or DOUBLE) parameter array: 3 bytes, so that the
+     * packed values are integers in range [0, 2^24) which are exactly representable as FLOAT
+     */
+    public static final int INT8_PER_ELEMENT = 3;
+
+    private QuantizationUtils() {
+    }
+
+    /**
+     * Calculate the scale to use for quantizing values with the specified maximum absolute value, such that
+     * x_int8 = round(x / scale)
+     *
+     * @param maxAbs Maximum absolute value of the array to be quantized
+     * @return Scale for quantization
+     */
+    public static double scale(double maxAbs) {
+        //All zeros (or an empty calibration set): any scale works, avoid division by zero
+        return maxAbs > 0 ? maxAbs / INT8_MAX : 1.0;
+    }
+
+    /**
+     * Quantize the specified floating point array to INT8: round(x / scale), clipped to [-127, 127]
+     *
+     * @param x     Array to quantize
+     * @param scale Quantization scale
+     * @return INT8 array
+     */
+    public static INDArray quantize(INDArray x, double scale) {
+        INDArray scaled = Transforms.round(x.div(scale), false);
+        Transforms.min(scaled, INT8_MAX, false);
+        Transforms.max(scaled, -INT8_MAX, false);
+        return scaled.castTo(DataType.INT8);
+    }
+
+    /**
+     * @param length Number of INT8 values
+     * @return Number of elements required to store the specified number of INT8 values, as per {@link #pack(INDArray, char)}
+     */
+    public static long packedLength(long length) {
+        return (length + INT8_PER_ELEMENT - 1) / INT8_PER_ELEMENT;
+    }
+
+    /**
+     * Pack the specified INT8 array into a FLOAT array, {@link #INT8_PER_ELEMENT} values per element, so that quantized
+     * weights can be stored in the network's floating point parameter array. Each element is the integer
+     * (x0+128) + 256*(x1+128) + 65536*(x2+128), so the packed values are not modified by copying or by casting between
+     * FLOAT and DOUBLE.
+     *
+     * @param int8  INT8 array to pack
+     * @param order Order in which to flatten the INT8 array
+     * @return Packed FLOAT array, shape [1, packedLength(int8.length())]
+     * @see #unpack(INDArray, long)
+     */
+    public static INDArray pack(INDArray int8, char order) {
+        Preconditions.checkState(int8.dataType() == DataType.INT8, "Expected INT8 array, got %s", int8.dataType());
+        long n = int8.length();
+        long packed = packedLength(n);
+        INDArray u = Nd4j.valueArrayOf(new long[]{packed * INT8_PER_ELEMENT}, 128, DataType.INT32);
+        u.get(NDArrayIndex.interval(0, n)).addi(int8.reshape(order, new long[]{n}).castTo(DataType.INT32));
+        INDArray v = u.reshape(packed, INT8_PER_ELEMENT).mmul(Nd4j.createFromArray(1, 256, 65536).reshape(INT8_PER_ELEMENT, 1));
+        return v.castTo(DataType.FLOAT).reshape(1, packed);
+    }
+
+    /**
+     * Unpack INT8 values previously packed with {@link #pack(INDArray, char)}.
+     *
+     * @param packed Packed array
+     * @param length Number of INT8 values
+     * @return INT32 vector with the specified length, with values in range [-127, 127]
+     */
+    public static INDArray unpack(INDArray packed, long length) {
+        Preconditions.checkState(packedLength(length) == packed.length(), "Expected packed array with length %s for %s " +
+                "INT8 values, got length %s", packedLength(length), length, packed.length());
+        INDArray v = packed.castTo(DataType.INT32).reshape(packed.length());
+        INDArray out = Nd4j.createUninitialized(DataType.INT32, packed.length(), INT8_PER_ELEMENT);
+        for (int i = 0; i < INT8_PER_ELEMENT; i++) {
+            out.getColumn(i).assign(v.fmod(256));
+            v.divi(256);
+        }
+        out.subi(128);
+        return out.reshape(out.length()).get(NDArrayIndex.interval(0, length));
+    }
+
+    /**
+     * Unpack and dequantize weights previously packed with {@link #pack(INDArray, char)}: w = w_int8 * scale, where the
+     * scale is per output column.<br>
+     * libnd4j has no INT8 x INT8 -> INT32 matrix multiplication, so the quantized layers dequantize their weights once
+     * (caching the result) and use the floating point (BLAS) matrix multiplication. As the inputs are rounded to the
+     * INT8 grid too (see {@link #quantizeDequantize(INDArray, double)}), the result is the same as INT32 accumulation
+     * up to floating point rounding.<br>
+     * The returned array is detached (not in any workspace).
+     *
+     * @param packed      Packed weights
+     * @param rows        Number of rows of the weights
+     * @param columns     Number of columns of the weights
+     * @param order       Order in which the weights were packed
+     * @param weightScale Per-column weight scale, shape [1, columns]
+     * @return Dequantized weights, shape [rows, columns], with the data type of the weight scale
+     */
+    public static INDArray dequantize(INDArray packed, long rows, long columns, char order, INDArray weightScale) {
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            INDArray w = Nd4j.createUninitialized(weightScale.dataType(), new long[]{rows, columns}, order);
+            w.assign(unpack(packed, rows * columns).reshape(order, rows, columns));
+            return w.muliRowVector(weightScale);
+        }
+    }
+
+    /**
+     * Round the specified floating point array (in place) to the nearest value representable with symmetric INT8
+     * quantization with the specified scale: clip(round(x / scale), -127, 127) * scale
+     *
+     * @param x     Array to round. Modified in place
+     * @param scale Quantization scale
+     * @return The input array
+     */
+    public static INDArray quantizeDequantize(INDArray x, double scale) {
+        x.divi(scale);
+        Transforms.round(x, false);
+        Transforms.min(x, INT8_MAX, false);
+        Transforms.max(x, -INT8_MAX, false);
+        return x.muli(scale);
+    }
+}
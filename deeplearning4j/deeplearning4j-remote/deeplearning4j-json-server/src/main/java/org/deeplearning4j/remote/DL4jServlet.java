@@ -51,6 +51,10 @@ public class DL4jServlet<I,O> extends SameDiffServlet<I,O> {
     protected Model model;
     protected boolean parallelEnabled = true;
 
+    // models served from shared registry
+    protected ModelRegistry registry;
+    protected String modelName;
+
     public DL4jServlet(@NonNull ParallelInference parallelInference, @NonNull InferenceAdapter<I, O> inferenceAdapter,
                        JsonSerializer<O> serializer, JsonDeserializer<I> deserializer) {
         super(inferenceAdapter, serializer, deserializer);
@@ -93,9 +97,22 @@ public class DL4jServlet<I,O> extends SameDiffServlet<I,O> {
         this.parallelEnabled = true;
     }
 
+    public DL4jServlet(@NonNull ModelRegistry registry, @NonNull String modelName, @NonNull InferenceAdapter<I, O> inferenceAdapter,
+                       JsonSerializer<O> jsonSerializer, JsonDeserializer<I> jsonDeserializer,
+                       BinarySerializer<O> binarySerializer, BinaryDeserializer<I> binaryDeserializer) {
+        super(inferenceAdapter, jsonSerializer, jsonDeserializer, binarySerializer, binaryDeserializer);
+        this.registry = registry;
+        this.modelName = modelName;
+        this.model = null;
+        this.parallelInference = null;
+        this.parallelEnabled = true;
+    }
+
     private O process(MultiDataSet mds) {
         O result = null;
-        if (parallelEnabled) {
+        if (registry != null) {
+            result = inferenceAdapter.apply(registry.output(modelName, mds.getFeatures(), mds.getFeaturesMaskArrays()));
+        } else if (parallelEnabled) {
             // process result
             result = inferenceAdapter.apply(parallelInference.output(mds.getFeatures(), mds.getFeaturesMaskArrays()));
         } else {
@@ -188,6 +205,8 @@ public class DL4jServlet<I,O> extends SameDiffServlet<I,O> {
 
         private ParallelInference pi;
         private Model model;
+        private ModelRegistry registry;
+        private String modelName;
 
         private InferenceAdapter<I, O> inferenceAdapter;
         private JsonSerializer<O> serializer;
@@ -205,6 +224,11 @@ public class DL4jServlet<I,O> extends SameDiffServlet<I,O> {
             this.model = model;
         }
 
+        public Builder(@NonNull ModelRegistry registry, @NonNull String modelName) {
+            this.registry = registry;
+            this.modelName = modelName;
+        }
+
         public Builder<I,O> inferenceAdapter(@NonNull InferenceAdapter<I,O> inferenceAdapter) {
             this.inferenceAdapter = inferenceAdapter;
             return this;
@@ -277,6 +301,9 @@ public class DL4jServlet<I,O> extends SameDiffServlet<I,O> {
         }
 
         public DL4jServlet<I,O> build() {
+            if (registry != null)
+                return new DL4jServlet<I, O>(registry, modelName, inferenceAdapter, serializer, deserializer, binarySerializer, binaryDeserializer);
+
             return parallelEnabled ? new DL4jServlet<I, O>(pi, inferenceAdapter, serializer, deserializer, binarySerializer, binaryDeserializer) :
                     new DL4jServlet<I, O>(model, inferenceAdapter,  serializer, deserializer, binarySerializer, binaryDeserializer);
         }
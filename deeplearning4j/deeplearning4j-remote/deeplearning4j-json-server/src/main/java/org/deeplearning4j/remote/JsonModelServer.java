@@ -72,6 +72,10 @@ public class JsonModelServer<I, O> extends SameDiffJsonModelServer<I, O> {
 
     protected boolean enabledParallel = true;
 
+    // models shared with other servers
+    protected ModelRegistry registry;
+    protected String modelName;
+
     protected JsonModelServer(@NonNull SameDiff sdModel, InferenceAdapter<I, O> inferenceAdapter,
                               JsonSerializer<O> serializer, JsonDeserializer<I> deserializer,
                               BinarySerializer<O> binarySerializer, BinaryDeserializer<I> binaryDeserializer,
@@ -110,9 +114,21 @@ public class JsonModelServer<I, O> extends SameDiffJsonModelServer<I, O> {
         this.parallelInference = pi;
     }
 
+    protected JsonModelServer(@NonNull ModelRegistry registry, @NonNull String modelName, InferenceAdapter<I, O> inferenceAdapter,
+                              JsonSerializer<O> serializer, JsonDeserializer<I> deserializer,
+                              BinarySerializer<O> binarySerializer, BinaryDeserializer<I> binaryDeserializer,
+                              int port) {
+        super(inferenceAdapter, serializer, deserializer, binarySerializer, binaryDeserializer, port);
+
+        this.registry = registry;
+        this.modelName = modelName;
+    }
+
     /**
      * This method stops server
      *
+     * PLEASE NOTE: ModelRegistry is shared, so it's not closed here
+     *
      * @throws Exception
      */
     @Override
@@ -133,6 +149,19 @@ public class JsonModelServer<I, O> extends SameDiffJsonModelServer<I, O> {
             super.start();
             return;
         }
+
+        // model is loaded by registry on first request
+        if (registry != null) {
+            servingServlet = new DL4jServlet.Builder<I, O>(registry, modelName)
+                        .serializer(serializer)
+                        .deserializer(deserializer)
+                        .binarySerializer(binarySerializer)
+                        .binaryDeserializer(binaryDeserializer)
+                        .inferenceAdapter(inferenceAdapter)
+                        .build();
+            start(port, servingServlet);
+            return;
+        }
         Preconditions.checkArgument(cgModel != null || mlnModel != null, "Model serving requires either MultilayerNetwork or ComputationGraph defined");
 
         val model = cgModel != null ? (Model) cgModel : (Model) mlnModel;
@@ -186,6 +215,8 @@ public class JsonModelServer<I, O> extends SameDiffJsonModelServer<I, O> {
         private ComputationGraph cgModel;
         private MultiLayerNetwork mlnModel;
         private ParallelInference pi;
+        private ModelRegistry registry;
+        private String modelName;
 
         private String[] orderedInputNodes;
         private String[] orderedOutputNodes;
@@ -223,6 +254,17 @@ public class JsonModelServer<I, O> extends SameDiffJsonModelServer<I, O> {
             this.pi = pi;
         }
 
+        /**
+         * This constructor allows serving of model registered in {@link ModelRegistry}, shared by multiple servers
+         *
+         * @param registry  registry holding the model
+         * @param modelName name of the model within registry
+         */
+        public Builder(@NonNull ModelRegistry registry, @NonNull String modelName) {
+            this.registry = registry;
+            this.modelName = modelName;
+        }
+
         /**
          * This method defines InferenceAdapter implementation, which will be used to convert object of Input type to the set of INDArray(s), and for conversion of resulting INDArray(s) into object of Output type
          * @param inferenceAdapter
@@ -437,6 +479,10 @@ public class JsonModelServer<I, O> extends SameDiffJsonModelServer<I, O> {
             }
             else if (pi != null) {
                  server = new JsonModelServer<I, O>(pi, inferenceAdapter, serializer, deserializer, binarySerializer, binaryDeserializer, port);
+            }
+            else if (registry != null) {
+                 Preconditions.checkArgument(registry.getModelNames().contains(modelName), "Model [%s] isn't registered", modelName);
+                 server = new JsonModelServer<I, O>(registry, modelName, inferenceAdapter, serializer, deserializer, binarySerializer, binaryDeserializer, port);
             }
               else
                  throw new IllegalStateException("No models were defined for JsonModelServer");
@@ -0,0 +1,553 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.remote;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.parallelism.ParallelInference;
+import org.deeplearning4j.parallelism.inference.InferenceMode;
+import org.deeplearning4j.parallelism.inference.LoadBalanceMode;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class holds multiple models served within single JVM, i.e. by multiple {@link JsonModelServer} instances.
+ *
+ * Models are loaded lazily, on first request, and served via {@link ParallelInference} with parameters shared
+ * between worker replicas. Total size of parameters of loaded models is kept within memory budget:
+ * least recently used models are evicted once new model doesn't fit, unless they are pinned.
+ * Evicted models are loaded again on next request.
+ *
+ * PLEASE NOTE: memory budget accounts model parameters only, activations live in workspaces of inference workers
+ *
+ * @see ModelStats
+ */
+@Slf4j
+public class ModelRegistry implements AutoCloseable {
+    protected long memoryBudget;
+    protected int workers;
+    protected InferenceMode inferenceMode;
+    protected int batchLimit;
+    protected int queueLimit;
+
+    private final Map<String, ModelEntry> models = new LinkedHashMap<>();
+    private long memoryUsed = 0;
+
+    // sequence number of last request, models with lower numbers are evicted first
+    private long requests = 0;
+
+    protected ModelRegistry() {
+        //
+    }
+
+    /**
+     * This method registers model, which will be loaded on first request
+     *
+     * @param name   model name
+     * @param loader loader of the model, called every time model is (re)loaded
+     */
+    public void register(@NonNull String name, @NonNull Callable<Model> loader) {
+        register(name, loader, false);
+    }
+
+    /**
+     * This method registers model, which will be loaded on first request
+     *
+     * @param name   model name
+     * @param loader loader of the model, called every time model is (re)loaded
+     * @param pinned if true, model won't be evicted once loaded
+     */
+    public void register(@NonNull String name, @NonNull Callable<Model> loader, boolean pinned) {
+        synchronized (models) {
+            Preconditions.checkArgument(!models.containsKey(name), "Model [%s] is already registered", name);
+            models.put(name, new ModelEntry(name, loader, pinned));
+        }
+    }
+
+    /**
+     * This method removes model from registry, and releases its resources
+     *
+     * @param name model name
+     */
+    public void unregister(@NonNull String name) {
+        ModelEntry entry;
+        synchronized (models) {
+            entry = models.remove(name);
+            if (entry == null)
+                return;
+
+            entry.removed = true;
+        }
+
+        unload(entry);
+    }
+
+    /**
+     * This method pins model, so it won't be evicted from memory
+     */
+    public void pin(@NonNull String name) {
+        synchronized (models) {
+            entry(name).pinned = true;
+        }
+    }
+
+    /**
+     * This method unpins model, so it can be evicted once memory budget is exceeded
+     */
+    public void unpin(@NonNull String name) {
+        synchronized (models) {
+            entry(name).pinned = false;
+        }
+    }
+
+    /**
+     * This method evicts model from memory, regardless of pinning. Model will be loaded again on next request
+     */
+    public void evict(@NonNull String name) {
+        ModelEntry entry;
+        synchronized (models) {
+            entry = entry(name);
+            markEvicted(entry);
+        }
+
+        unload(entry);
+    }
+
+    /**
+     * This method replaces parameters of loaded model, via {@link ParallelInference#updateModel(Model)}.
+     *
+     * PLEASE NOTE: loader of the model should return updated model as well, since model will be loaded from it
+     * after eviction
+     *
+     * @param name  model name
+     * @param model updated model
+     */
+    public void updateModel(@NonNull String name, @NonNull Model model) {
+        ModelEntry entry = entry(name);
+
+        List<ModelEntry> victims = new ArrayList<>();
+        try {
+            entry.lock.writeLock().lock();
+            try {
+                unload(entry);
+                if (entry.inference == null)
+                    return;
+
+                long previous = entry.bytes;
+                synchronized (models) {
+                    memoryUsed -= previous;
+                    try {
+                        victims.addAll(reserve(entry, estimateBytes(model)));
+                    } catch (RuntimeException e) {
+                        memoryUsed += previous;
+                        throw e;
+                    }
+                }
+
+                entry.inference.updateModel(model);
+            } finally {
+                entry.lock.writeLock().unlock();
+            }
+        } finally {
+            unloadAll(victims);
+        }
+    }
+
+    /**
+     * This method does forward pass of the model, loading it if needed
+     *
+     * @param name       model name
+     * @param input      model input
+     * @param inputMasks model input masks, may be null
+     * @return model output
+     */
+    public INDArray[] output(@NonNull String name, @NonNull INDArray[] input, INDArray[] inputMasks) {
+        ModelEntry entry;
+        synchronized (models) {
+            entry = entry(name);
+            entry.lastUsed = ++requests;
+        }
+
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            while (true) {
+                entry.lock.readLock().lock();
+                try {
+                    if (entry.inference != null && !entry.evicted) {
+                        INDArray[] output = entry.inference.output(input, inputMasks);
+                        failed = false;
+                        return output;
+                    }
+                } finally {
+                    entry.lock.readLock().unlock();
+                }
+
+                load(entry);
+            }
+        } finally {
+            entry.stats.record(System.nanoTime() - started, failed);
+        }
+    }
+
+    /**
+     * @return names of registered models
+     */
+    public Set<String> getModelNames() {
+        synchronized (models) {
+            return new LinkedHashSet<>(models.keySet());
+        }
+    }
+
+    /**
+     * @return true if model is loaded at this moment
+     */
+    public boolean isLoaded(@NonNull String name) {
+        ModelEntry entry = entry(name);
+        return entry.inference != null && !entry.evicted;
+    }
+
+    /**
+     * @return true if model is pinned
+     */
+    public boolean isPinned(@NonNull String name) {
+        return entry(name).pinned;
+    }
+
+    /**
+     * @return serving metrics of the model
+     */
+    public ModelStats getStats(@NonNull String name) {
+        return entry(name).stats;
+    }
+
+    /**
+     * @return memory budget, in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return size of parameters of loaded models, in bytes
+     */
+    public long getMemoryUsed() {
+        synchronized (models) {
+            return memoryUsed;
+        }
+    }
+
+    /**
+     * This method unloads all models, and removes them from registry
+     */
+    @Override
+    public void close() {
+        for (String name : getModelNames())
+            unregister(name);
+    }
+
+    private ModelEntry entry(String name) {
+        synchronized (models) {
+            ModelEntry entry = models.get(name);
+            Preconditions.checkArgument(entry != null, "Model [%s] isn't registered", name);
+            return entry;
+        }
+    }
+
+    private void load(ModelEntry entry) {
+        List<ModelEntry> victims = new ArrayList<>();
+        try {
+            entry.lock.writeLock().lock();
+            try {
+                // model might have been evicted while we were waiting for the lock
+                unload(entry);
+                if (entry.inference != null)
+                    return;
+
+                Preconditions.checkState(!entry.removed, "Model [%s] isn't registered", entry.name);
+
+                Model model;
+                try {
+                    model = entry.loader.call();
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to load model [" + entry.name + "]", e);
+                }
+
+                synchronized (models) {
+                    victims.addAll(reserve(entry, estimateBytes(model)));
+                }
+
+                try {
+                    entry.inference = new ParallelInference.Builder(model)
+                            .inferenceMode(inferenceMode)
+                            .workers(workers)
+                            .loadBalanceMode(LoadBalanceMode.FIFO)
+                            .batchLimit(batchLimit)
+                            .queueLimit(queueLimit)
+                            .sharedParameters(true)
+                            .build();
+                } catch (RuntimeException e) {
+                    synchronized (models) {
+                        memoryUsed -= entry.bytes;
+                    }
+                    throw e;
+                }
+
+                entry.stats.recordLoad();
+                log.info("Model [{}] loaded: {} bytes of {} bytes budget used", entry.name, getMemoryUsed(), memoryBudget);
+            } finally {
+                entry.lock.writeLock().unlock();
+            }
+        } finally {
+            unloadAll(victims);
+        }
+    }
+
+    /**
+     * This method unloads models picked for eviction by {@link #reserve(ModelEntry, long)}.
+     * Eviction waits for requests in flight, so it's done outside of registry lock, and outside of lock of the model
+     * that caused eviction: otherwise two models evicting each other would deadlock
+     */
+    private void unloadAll(List<ModelEntry> victims) {
+        for (ModelEntry victim : victims)
+            unload(victim);
+    }
+
+    /**
+     * This method reserves memory for given model, and picks least recently used models to be evicted
+     * PLEASE NOTE: must be called within registry lock
+     */
+    private List<ModelEntry> reserve(ModelEntry entry, long bytes) {
+        if (bytes > memoryBudget)
+            throw new IllegalStateException("Model [" + entry.name + "] requires " + bytes
+                    + " bytes, which exceeds memory budget of " + memoryBudget + " bytes");
+
+        List<ModelEntry> candidates = new ArrayList<>();
+        for (ModelEntry e : models.values()) {
+            if (e != entry && !e.pinned && e.inference != null && !e.evicted)
+                candidates.add(e);
+        }
+
+        // least recently used models go first
+        Collections.sort(candidates, new Comparator<ModelEntry>() {
+            @Override
+            public int compare(ModelEntry o1, ModelEntry o2) {
+                return Long.compare(o1.lastUsed, o2.lastUsed);
+            }
+        });
+
+        long available = memoryBudget - memoryUsed;
+        List<ModelEntry> victims = new ArrayList<>();
+        for (ModelEntry e : candidates) {
+            if (available >= bytes)
+                break;
+
+            victims.add(e);
+            available += e.bytes;
+        }
+
+        if (available < bytes)
+            throw new IllegalStateException("Model [" + entry.name + "] requires " + bytes + " bytes, but only "
+                    + available + " bytes of memory budget can be released");
+
+        for (ModelEntry victim : victims)
+            markEvicted(victim);
+
+        memoryUsed += bytes;
+        entry.bytes = bytes;
+        return victims;
+    }
+
+    /**
+     * This method releases memory of loaded model. Model is unloaded later, via {@link #unload(ModelEntry)}
+     * PLEASE NOTE: must be called within registry lock
+     */
+    private void markEvicted(ModelEntry entry) {
+        if (entry.inference == null || entry.evicted)
+            return;
+
+        entry.evicted = true;
+        memoryUsed -= entry.bytes;
+    }
+
+    /**
+     * This method shuts down evicted or removed model, once requests in flight are finished.
+     * Only models unloaded while still registered are counted as evictions
+     */
+    private void unload(ModelEntry entry) {
+        entry.lock.writeLock().lock();
+        try {
+            boolean removed;
+            synchronized (models) {
+                removed = entry.removed;
+                if (removed)
+                    markEvicted(entry);
+
+                if (!entry.evicted)
+                    return;
+
+                entry.evicted = false;
+            }
+
+            entry.inference.shutdown();
+            entry.inference = null;
+            if (!removed)
+                entry.stats.recordEviction();
+            log.info("Model [{}] unloaded", entry.name);
+        } finally {
+            entry.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method estimates memory used by model: parameters are shared by replicas on the same device
+     */
+    protected long estimateBytes(Model model) {
+        INDArray params = model.params();
+        long bytes = params == null ? 0 : params.length() * params.dataType().width();
+        return bytes * Math.max(1, Math.min(workers, Nd4j.getAffinityManager().getNumberOfDevices()));
+    }
+
+    private static class ModelEntry {
+        private final String name;
+        private final Callable<Model> loader;
+        private final ModelStats stats = new ModelStats();
+
+        // fair lock, so eviction isn't postponed forever by incoming requests
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+        private volatile ParallelInference inference;
+        private volatile boolean pinned;
+        private volatile boolean evicted;
+        private volatile boolean removed;
+        private long bytes;
+        private long lastUsed;
+
+        private ModelEntry(String name, Callable<Model> loader, boolean pinned) {
+            this.name = name;
+            this.loader = loader;
+            this.pinned = pinned;
+        }
+    }
+
+    public static class Builder {
+        private long memoryBudget = Long.MAX_VALUE;
+        private int workers = Nd4j.getAffinityManager().getNumberOfDevices();
+        private InferenceMode inferenceMode = InferenceMode.BATCHED;
+        private int batchLimit = 16;
+        private int queueLimit = 128;
+
+        public Builder() {
+            //
+        }
+
+        /**
+         * This method defines memory budget for parameters of loaded models
+         *
+         * Default value: unlimited
+         *
+         * @param bytes budget, in bytes
+         * @return
+         */
+        public Builder memoryBudget(long bytes) {
+            if (bytes < 1)
+                throw new IllegalStateException("Memory budget should be positive value");
+
+            this.memoryBudget = bytes;
+            return this;
+        }
+
+        /**
+         * This method defines number of ParallelInference workers per model
+         *
+         * @param workers
+         * @return
+         */
+        public Builder workers(int workers) {
+            if (workers < 1)
+                throw new IllegalStateException("Workers should be positive value");
+
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * This method defines inference mode of models. See {@link InferenceMode} for more details
+         *
+         * PLEASE NOTE: parameters aren't shared between workers in INPLACE mode
+         *
+         * @param inferenceMode
+         * @return
+         */
+        public Builder inferenceMode(@NonNull InferenceMode inferenceMode) {
+            this.inferenceMode = inferenceMode;
+            return this;
+        }
+
+        /**
+         * This method defines batch limit of models, for BATCHED inference mode
+         *
+         * @param limit
+         * @return
+         */
+        public Builder batchLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalStateException("Batch limit should be positive value");
+
+            this.batchLimit = limit;
+            return this;
+        }
+
+        /**
+         * This method defines queue size of models
+         *
+         * @param limit
+         * @return
+         */
+        public Builder queueLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalStateException("Queue limit should be positive value");
+
+            this.queueLimit = limit;
+            return this;
+        }
+
+        public ModelRegistry build() {
+            ModelRegistry registry = new ModelRegistry();
+            registry.memoryBudget = this.memoryBudget;
+            registry.workers = this.workers;
+            registry.inferenceMode = this.inferenceMode;
+            registry.batchLimit = this.batchLimit;
+            registry.queueLimit = this.queueLimit;
+            return registry;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.remote;
+
+import org.nd4j.linalg.profiler.data.primitives.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serving metrics of single model registered in {@link ModelRegistry}: requests rate, latency distribution,
+ * number of errors, loads and evictions
+ */
+public class ModelStats {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong(0);
+    private final AtomicLong errors = new AtomicLong(0);
+    private final AtomicLong loads = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    // requests are counted per second, QPS is reported for last complete second
+    private long currentSecond = System.nanoTime() / SECOND;
+    private long currentCount;
+    private long previousCount;
+
+    /**
+     * This method records single request
+     *
+     * @param latency request latency, in nanoseconds
+     * @param failed  true if request failed
+     */
+    public void record(long latency, boolean failed) {
+        requests.incrementAndGet();
+        if (failed)
+            errors.incrementAndGet();
+        else
+            latencies.record(latency);
+
+        synchronized (this) {
+            roll(System.nanoTime() / SECOND);
+            currentCount++;
+        }
+    }
+
+    protected void recordLoad() {
+        loads.incrementAndGet();
+    }
+
+    protected void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    private void roll(long second) {
+        if (second == currentSecond)
+            return;
+
+        previousCount = second == currentSecond + 1 ? currentCount : 0;
+        currentCount = 0;
+        currentSecond = second;
+    }
+
+    /**
+     * @return Number of requests served during last complete second
+     */
+    public synchronized long getQps() {
+        roll(System.nanoTime() / SECOND);
+        return previousCount;
+    }
+
+    /**
+     * @return Latencies of successful requests, in nanoseconds
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return Total number of requests
+     */
+    public long getNumberOfRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return Number of failed requests
+     */
+    public long getNumberOfErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @return Number of times model was loaded
+     */
+    public long getNumberOfLoads() {
+        return loads.get();
+    }
+
+    /**
+     * @return Number of times model was evicted from memory
+     */
+    public long getNumberOfEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,222 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.remote;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.InferenceMode;
+import org.junit.After;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ModelRegistryTest extends BaseDL4JTest {
+    private ModelRegistry registry;
+
+    @After
+    public void tearDown() {
+        if (registry != null)
+            registry.close();
+    }
+
+    private static MultiLayerNetwork createModel(int seed) {
+        return createModel(seed, 10);
+    }
+
+    private static MultiLayerNetwork createModel(int seed, int nHidden) {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(seed).list()
+                        .layer(new DenseLayer.Builder().nIn(4).nOut(nHidden).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MSE).nIn(nHidden).nOut(1)
+                                        .activation(Activation.IDENTITY).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    private static Callable<Model> loader(final MultiLayerNetwork net, final AtomicInteger loads) {
+        return new Callable<Model>() {
+            @Override
+            public Model call() {
+                loads.incrementAndGet();
+                return net;
+            }
+        };
+    }
+
+    private static long modelBytes() {
+        // 4 * 10 + 10 + 10 * 1 + 1 float parameters
+        return 61 * 4;
+    }
+
+    @Test
+    public void testLazyLoading() {
+        registry = new ModelRegistry.Builder().workers(2).inferenceMode(InferenceMode.SEQUENTIAL).build();
+
+        MultiLayerNetwork net = createModel(119);
+        AtomicInteger loads = new AtomicInteger(0);
+        registry.register("model", loader(net, loads));
+
+        assertFalse(registry.isLoaded("model"));
+        assertEquals(0, loads.get());
+        assertEquals(0, registry.getMemoryUsed());
+
+        for (int e = 0; e < 10; e++) {
+            INDArray input = Nd4j.rand(1, 4);
+            assertEquals(net.output(input), registry.output("model", new INDArray[] {input}, null)[0]);
+        }
+
+        assertTrue(registry.isLoaded("model"));
+        assertEquals(1, loads.get());
+        assertEquals(modelBytes(), registry.getMemoryUsed());
+
+        ModelStats stats = registry.getStats("model");
+        assertEquals(10, stats.getNumberOfRequests());
+        assertEquals(0, stats.getNumberOfErrors());
+        assertEquals(1, stats.getNumberOfLoads());
+        assertEquals(10, stats.getLatencies().getCount());
+        assertTrue(stats.getLatencies().getValueAtPercentile(99) > 0);
+        assertTrue(stats.getQps() >= 0);
+
+        registry.unregister("model");
+        assertFalse(registry.getModelNames().contains("model"));
+        assertEquals(0, registry.getMemoryUsed());
+        // removal isn't an eviction
+        assertEquals(0, stats.getNumberOfEvictions());
+    }
+
+    @Test
+    public void testLruEviction() {
+        registry = new ModelRegistry.Builder().workers(1).memoryBudget(2 * modelBytes()).build();
+
+        AtomicInteger[] loads = new AtomicInteger[3];
+        for (int e = 0; e < 3; e++) {
+            loads[e] = new AtomicInteger(0);
+            registry.register("model_" + e, loader(createModel(e), loads[e]));
+        }
+
+        INDArray[] input = new INDArray[] {Nd4j.rand(1, 4)};
+        registry.output("model_0", input, null);
+        registry.output("model_1", input, null);
+        registry.output("model_2", input, null);
+
+        // model_0 is least recently used
+        assertFalse(registry.isLoaded("model_0"));
+        assertTrue(registry.isLoaded("model_1"));
+        assertTrue(registry.isLoaded("model_2"));
+        assertEquals(2 * modelBytes(), registry.getMemoryUsed());
+        assertEquals(1, registry.getStats("model_0").getNumberOfEvictions());
+
+        // model_1 was used recently, so model_2 goes out now
+        registry.output("model_1", input, null);
+        registry.output("model_0", input, null);
+        assertTrue(registry.isLoaded("model_0"));
+        assertTrue(registry.isLoaded("model_1"));
+        assertFalse(registry.isLoaded("model_2"));
+
+        assertEquals(2, loads[0].get());
+        assertEquals(1, loads[1].get());
+        assertEquals(1, loads[2].get());
+        assertEquals(2 * modelBytes(), registry.getMemoryUsed());
+    }
+
+    @Test(timeout = 120000L)
+    public void testConcurrentUpdatesEvictingEachOther() throws Exception {
+        registry = new ModelRegistry.Builder().workers(1).memoryBudget(2 * modelBytes()).build();
+        registry.register("model_0", loader(createModel(0), new AtomicInteger(0)));
+        registry.register("model_1", loader(createModel(1), new AtomicInteger(0)));
+
+        final INDArray[] input = new INDArray[] {Nd4j.rand(1, 4)};
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int e = 0; e < 20; e++) {
+            registry.output("model_0", input, null);
+            registry.output("model_1", input, null);
+
+            // 4 * 20 + 20 + 20 * 1 + 1 float parameters: each update has to evict the other model
+            Thread[] threads = new Thread[2];
+            for (int t = 0; t < threads.length; t++) {
+                final String name = "model_" + t;
+                final MultiLayerNetwork update = createModel(100 + t, 20);
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            registry.updateModel(name, update);
+                        } catch (Throwable ex) {
+                            failure.compareAndSet(null, ex);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+
+            for (Thread thread : threads)
+                thread.join();
+
+            assertNull(failure.get());
+            assertTrue(registry.getMemoryUsed() <= 2 * modelBytes());
+            assertFalse(registry.isLoaded("model_0") && registry.isLoaded("model_1"));
+        }
+    }
+
+    @Test
+    public void testPinning() {
+        registry = new ModelRegistry.Builder().workers(1).memoryBudget(2 * modelBytes()).build();
+        for (int e = 0; e < 3; e++)
+            registry.register("model_" + e, loader(createModel(e), new AtomicInteger(0)), e == 0);
+
+        INDArray[] input = new INDArray[] {Nd4j.rand(1, 4)};
+        registry.output("model_0", input, null);
+        registry.output("model_1", input, null);
+        registry.output("model_2", input, null);
+
+        assertTrue(registry.isPinned("model_0"));
+        assertTrue(registry.isLoaded("model_0"));
+        assertFalse(registry.isLoaded("model_1"));
+        assertTrue(registry.isLoaded("model_2"));
+
+        // nothing can be evicted once all loaded models are pinned
+        registry.pin("model_2");
+        try {
+            registry.output("model_1", input, null);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("model_1"));
+        }
+        assertEquals(1, registry.getStats("model_1").getNumberOfErrors());
+
+        registry.unpin("model_2");
+        registry.output("model_1", input, null);
+        assertTrue(registry.isLoaded("model_0"));
+        assertTrue(registry.isLoaded("model_1"));
+        assertFalse(registry.isLoaded("model_2"));
+    }
+}
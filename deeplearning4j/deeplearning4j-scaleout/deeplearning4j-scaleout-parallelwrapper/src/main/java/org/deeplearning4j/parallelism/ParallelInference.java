@@ -16,6 +16,7 @@
 
 package org.deeplearning4j.parallelism;
 
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
@@ -25,16 +26,21 @@ import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.BatchCostModel;
+import org.deeplearning4j.parallelism.inference.BatchingStats;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
 import org.deeplearning4j.parallelism.inference.LoadBalanceMode;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
 import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.ZeroCopyBatchedInferenceObservable;
+import org.nd4j.linalg.api.concurrency.NumaTopology;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.profiler.data.primitives.LatencyHistogram;
 import org.nd4j.common.primitives.Pair;
 
 import java.util.ArrayList;
@@ -42,8 +48,10 @@ import java.util.List;
 import java.util.Observer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -61,6 +69,10 @@ public class ParallelInference {
     protected InferenceMode inferenceMode;
     protected int queueLimit;
     protected LoadBalanceMode loadBalanceMode = LoadBalanceMode.FIFO;
+    protected boolean numaBinding = false;
+    protected long latencyTarget = 0;
+    protected boolean zeroCopyBatching = true;
+    protected boolean sharedParameters = false;
 
     // this queue holds data for inference
     private BlockingQueue<InferenceObservable> observables;
@@ -84,11 +96,18 @@ public class ParallelInference {
     }
 
     /**
-     * This method allows to update Model used for inference in runtime, without queue reset
+     * This method allows to update Model used for inference in runtime, without queue reset.<br>
+     * Any parameter caches of the model are cleared, as the parameters may have been modified in place
      *
      * @param model
      */
     public void updateModel(@NonNull Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).clearParamCaches();
+        } else if (model instanceof ComputationGraph) {
+            ((ComputationGraph) model).clearParamCaches();
+        }
+
         if (zoo != null) {
             for (val w: zoo)
                 w.updateModel(model);
@@ -124,13 +143,17 @@ public class ParallelInference {
         int currentDevice = Nd4j.getAffinityManager().getDeviceForCurrentThread();
         AtomicBoolean assignedRoot = new AtomicBoolean(false);
 
+        // with NUMA binding every worker gets its own replica, created by worker thread itself
+        boolean numa = numaBinding && Nd4j.getAffinityManager().getNumberOfNumaNodes() > 1;
+
         zoo = new InferenceWorker[workers];
         for (int i = 0; i < workers; i++) {
             int cDevice = i % numDevices;
-            boolean cRoot = !assignedRoot.get() && cDevice == currentDevice;
+            boolean cRoot = !numa && !assignedRoot.get() && cDevice == currentDevice;
             assignedRoot.compareAndSet(false, cRoot);
+            int cNode = numa ? NumaTopology.getInstance().getNodeForWorker(i, workers) : -1;
 
-            zoo[i] = new InferenceWorker(i, model, observables, cRoot, cDevice);
+            zoo[i] = new InferenceWorker(i, model, observables, cRoot, cDevice, cNode);
 
             zoo[i].setDaemon(true);
             zoo[i].start();
@@ -139,7 +162,12 @@ public class ParallelInference {
 
         if (inferenceMode == InferenceMode.BATCHED) {
             log.info("Initializing ObservablesProvider...");
-            provider = new ObservablesProvider(nanos, batchLimit, observables);
+            if (latencyTarget > 0)
+                provider = new AdaptiveObservablesProvider(latencyTarget, batchLimit, observables);
+            else
+                provider = new ObservablesProvider(nanos, batchLimit, observables);
+
+            provider.setZeroCopy(zeroCopyBatching);
         }
     }
 
@@ -147,6 +175,15 @@ public class ParallelInference {
         return zoo[workerIdx].getCounterValue();
     }
 
+    /**
+     * This method returns batching metrics: queue depth, batch sizes histogram, wait time and latency
+     *
+     * @return BatchingStats instance, or null if inference mode isn't BATCHED
+     */
+    public BatchingStats getBatchingStats() {
+        return provider == null ? null : provider.getStats();
+    }
+
     /**
      * This method gracefully shuts down ParallelInference instance
      */
@@ -292,6 +329,10 @@ public class ParallelInference {
         private InferenceMode inferenceMode = DEFAULT_INFERENCE_MODE;
         private int queueLimit = DEFAULT_QUEUE_LIMIT;
         protected LoadBalanceMode loadBalanceMode = LoadBalanceMode.FIFO;
+        private boolean numaBinding = false;
+        private long latencyTarget = 0;
+        private boolean zeroCopyBatching = true;
+        private boolean sharedParameters = false;
 
         public Builder(@NonNull Model model) {
             this.model = model;
@@ -361,6 +402,75 @@ public class ParallelInference {
             return this;
         }
 
+        /**
+         * This method enables adaptive batching, targeting given p99 latency of requests.
+         * Execution cost of batches is learned online, and batches grow as long as their oldest request
+         * is expected to finish within target latency. batchLimit still applies as upper bound for batch size.
+         *
+         * PLEASE NOTE: This value has effect in BATCHED inference mode only
+         *
+         * @param latency target latency
+         * @param timeUnit time unit of latency
+         * @return
+         */
+        public Builder latencyTarget(long latency, @NonNull TimeUnit timeUnit) {
+            if (latency < 1)
+                throw new IllegalStateException("Latency target should be positive value");
+
+            this.latencyTarget = timeUnit.toNanos(latency);
+            return this;
+        }
+
+        /**
+         * This method enables binding of workers to NUMA nodes. Workers are spread evenly over nodes,
+         * and CPU affinity of each worker's Java thread is set to CPUs of its node.
+         * Native threads used by backend for parallel ops are not bound.
+         *
+         * PLEASE NOTE: This option has effect on multi-socket Linux hosts only
+         * PLEASE NOTE: This option has no effect in INPLACE inference mode
+         *
+         * @param reallyBind
+         * @return
+         */
+        public Builder numaBinding(boolean reallyBind) {
+            this.numaBinding = reallyBind;
+            return this;
+        }
+
+        /**
+         * This method enables zero-copy batching: requests are written directly into preallocated batch tensors
+         * without locks, and callers get views of their rows of batch output instead of copies.
+         * Requests with masks, or with different number of examples across inputs, are batched as usual.
+         *
+         * Default value: true
+         *
+         * PLEASE NOTE: This value has effect in BATCHED inference mode only
+         *
+         * @param reallyEnable
+         * @return
+         */
+        public Builder zeroCopyBatching(boolean reallyEnable) {
+            this.zeroCopyBatching = reallyEnable;
+            return this;
+        }
+
+        /**
+         * This method enables sharing of model parameters between workers: replicas on the same device as the
+         * original model use its parameters directly instead of own copies, so memory use doesn't grow with number
+         * of workers. Replacing model via {@link ParallelInference#updateModel(Model)} is the only supported way
+         * to change parameters of shared model.
+         *
+         * PLEASE NOTE: Parameters aren't shared by NUMA-bound workers, each of them creates own replica
+         * PLEASE NOTE: This option has no effect in INPLACE inference mode
+         *
+         * @param reallyShare
+         * @return
+         */
+        public Builder sharedParameters(boolean reallyShare) {
+            this.sharedParameters = reallyShare;
+            return this;
+        }
+
         /**
          * This method defines buffer queue size.
          *
@@ -401,6 +511,10 @@ public class ParallelInference {
                 inference.model = this.model;
                 inference.workers = this.workers;
                 inference.loadBalanceMode = this.loadBalanceMode;
+                inference.numaBinding = this.numaBinding;
+                inference.latencyTarget = this.latencyTarget;
+                inference.zeroCopyBatching = this.zeroCopyBatching;
+                inference.sharedParameters = this.sharedParameters;
 
                 inference.init();
 
@@ -423,14 +537,18 @@ public class ParallelInference {
         private AtomicLong counter = new AtomicLong(0);
         private boolean rootDevice;
         private int deviceId;
+        private int numaNode;
+        private volatile boolean numaBound = false;
+        private volatile boolean replicaOutdated = false;
 
         private ReentrantReadWriteLock modelLock = new ReentrantReadWriteLock();
 
-        private InferenceWorker(int id, @NonNull Model model, @NonNull BlockingQueue inputQueue, boolean rootDevice, int deviceId) {
+        private InferenceWorker(int id, @NonNull Model model, @NonNull BlockingQueue inputQueue, boolean rootDevice, int deviceId, int numaNode) {
             this.inputQueue = inputQueue;
             this.protoModel = model;
             this.rootDevice = rootDevice;
             this.deviceId = deviceId;
+            this.numaNode = numaNode;
 
             this.setDaemon(true);
             this.setName("InferenceThread-" + id);
@@ -446,8 +564,11 @@ public class ParallelInference {
                 modelLock.writeLock().lock();
                 this.protoModel = model;
 
-                // now re-init model
-                initializeReplicaModel();
+                // replica of NUMA-bound worker must be allocated by worker itself, so it'll be done before next request
+                if (numaBound)
+                    replicaOutdated = true;
+                else
+                    initializeReplicaModel();
             } finally {
                 modelLock.writeLock().unlock();
             }
@@ -458,7 +579,12 @@ public class ParallelInference {
          */
         protected void initializeReplicaModel() {
             if (protoModel instanceof ComputationGraph) {
-                if (!rootDevice) {
+                if (!rootDevice && canShareParameters()) {
+                    val graph = new ComputationGraph(ComputationGraphConfiguration
+                            .fromJson(((ComputationGraph) protoModel).getConfiguration().toJson()));
+                    graph.init(protoModel.params(), false);
+                    this.replicatedModel = graph;
+                } else if (!rootDevice) {
                     this.replicatedModel = new ComputationGraph(ComputationGraphConfiguration
                             .fromJson(((ComputationGraph) protoModel).getConfiguration().toJson()));
                     this.replicatedModel.init();
@@ -472,7 +598,12 @@ public class ParallelInference {
                     this.replicatedModel = protoModel;
                 }
             } else if (protoModel instanceof MultiLayerNetwork) {
-                if (!rootDevice) {
+                if (!rootDevice && canShareParameters()) {
+                    val network = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(
+                            ((MultiLayerNetwork) protoModel).getLayerWiseConfigurations().toJson()));
+                    network.init(protoModel.params(), false);
+                    this.replicatedModel = network;
+                } else if (!rootDevice) {
                     this.replicatedModel = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(
                             ((MultiLayerNetwork) protoModel).getLayerWiseConfigurations().toJson()));
                     this.replicatedModel.init();
@@ -488,9 +619,20 @@ public class ParallelInference {
             }
         }
 
+        /**
+         * This method checks if replica can use parameters of original model instead of own copy
+         */
+        protected boolean canShareParameters() {
+            return sharedParameters && !numaBound
+                    && Nd4j.getAffinityManager().getDeviceForArray(protoModel.params()) == deviceId;
+        }
+
         @Override
         public void run() {
             Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+            if (numaNode >= 0)
+                numaBound = Nd4j.getAffinityManager().attachThreadToNumaNode(numaNode);
+
             try {
                 // model should be replicated & initialized here
                 initializeReplicaModel();
@@ -503,6 +645,17 @@ public class ParallelInference {
 
                     if (request != null) {
                         counter.incrementAndGet();
+                        long started = System.nanoTime();
+
+                        if (replicaOutdated) {
+                            try {
+                                modelLock.writeLock().lock();
+                                replicaOutdated = false;
+                                initializeReplicaModel();
+                            } finally {
+                                modelLock.writeLock().unlock();
+                            }
+                        }
 
                         // FIXME: get rid of instanceof here, model won't change during runtime anyway
                         if (isCG) {
@@ -548,7 +701,8 @@ public class ParallelInference {
                             }
                         }
 
-
+                        if (provider != null && request instanceof BatchedInferenceObservable)
+                            provider.batchCompleted((BatchedInferenceObservable) request, started, System.nanoTime());
                     } else {
                         // just do nothing, i guess and hope for next round?
                     }
@@ -573,17 +727,52 @@ public class ParallelInference {
 
 
     protected static class ObservablesProvider {
-        private BlockingQueue<InferenceObservable> targetQueue;
-        private long nanos;
-        private int batchLimit;
+        protected BlockingQueue<InferenceObservable> targetQueue;
+        protected long nanos;
+        protected int batchLimit;
 
         private volatile BatchedInferenceObservable currentObservable;
         private final Object locker = new Object();
 
+        // batch accepting zero-copy requests, producers claim its rows without locking
+        private final AtomicReference<ZeroCopyBatchedInferenceObservable> currentZeroCopy = new AtomicReference<>();
+        private ZeroCopyBatchedInferenceObservable.BufferPool pool;
+
+        @Getter
+        protected final BatchingStats stats;
+
         protected ObservablesProvider(long nanos, int batchLimit, @NonNull BlockingQueue<InferenceObservable> queue) {
             this.targetQueue = queue;
             this.nanos = nanos;
             this.batchLimit = batchLimit;
+            this.stats = new BatchingStats(queue, batchLimit);
+        }
+
+        /**
+         * This method enables or disables zero-copy batching for inputs that support it
+         */
+        protected void setZeroCopy(boolean reallyEnable) {
+            this.pool = reallyEnable ? new ZeroCopyBatchedInferenceObservable.BufferPool(2 * Math.max(1, targetQueue.remainingCapacity())) : null;
+        }
+
+        /**
+         * This method decides, if next request should go to new batch instead of the current one
+         *
+         * PLEASE NOTE: isLocked() call holds current batch for the following addInput(), so it must be the last check
+         */
+        protected boolean needsNewBatch(BatchedInferenceObservable current) {
+            return current == null || current.getCounter() >= batchLimit || current.isLocked();
+        }
+
+        /**
+         * This method is called by worker, once given batch was executed
+         *
+         * @param batch    executed batch
+         * @param started  System.nanoTime() at start of batch execution
+         * @param finished System.nanoTime() at end of batch execution
+         */
+        protected void batchCompleted(BatchedInferenceObservable batch, long started, long finished) {
+            stats.record(batch.getCounter(), started - batch.getCreationTime(), finished - started);
         }
 
         protected InferenceObservable setInput(@NonNull Observer observer, INDArray input){
@@ -595,16 +784,19 @@ public class ParallelInference {
         }
 
         protected InferenceObservable setInput(@NonNull Observer observer, INDArray[] input, INDArray[] inputMask) {
+            if (pool != null && ZeroCopyBatchedInferenceObservable.canBatch(input, inputMask))
+                return setInputZeroCopy(observer, input);
+
             synchronized (locker) {
                 boolean isNew = false;
-                if (currentObservable == null || currentObservable.getCounter() >= batchLimit
-                                || currentObservable.isLocked()) {
+                if (needsNewBatch(currentObservable)) {
                     isNew = true;
                     currentObservable = new BatchedInferenceObservable();
                 }
 
-                currentObservable.addInput(input, inputMask);
+                // observer goes first: once input is added, batch might be executed and observers notified at any moment
                 currentObservable.addObserver(observer);
+                currentObservable.addInput(input, inputMask);
 
                 try {
                     if (isNew)
@@ -617,5 +809,84 @@ public class ParallelInference {
                 return currentObservable;
             }
         }
+
+        protected InferenceObservable setInputZeroCopy(@NonNull Observer observer, INDArray[] input) {
+            ZeroCopyBatchedInferenceObservable current = currentZeroCopy.get();
+            if (current != null && current.isCompatible(input) && !needsNewBatch(current)
+                            && current.tryAdd(input, observer) >= 0)
+                return current;
+
+            // current batch is full, sealed or incompatible: this request starts new batch
+            ZeroCopyBatchedInferenceObservable batch = new ZeroCopyBatchedInferenceObservable(pool, input, batchLimit);
+            batch.tryAdd(input, observer);
+            currentZeroCopy.compareAndSet(current, batch);
+
+            try {
+                targetQueue.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+
+            return batch;
+        }
+    }
+
+    /**
+     * ObservablesProvider targeting p99 latency: batch accepts new requests only while its oldest request is
+     * expected to finish within latency budget, with batch execution cost learned online.
+     * Latency budget is adjusted to observed p99 latency after every {@link #WINDOW} batches.
+     */
+    protected static class AdaptiveObservablesProvider extends ObservablesProvider {
+        protected static final int WINDOW = 64;
+        protected static final double MIN_BUDGET = 0.1;
+
+        private final long latencyTarget;
+        private final BatchCostModel costModel = new BatchCostModel(0.95);
+        private final LatencyHistogram window = new LatencyHistogram();
+
+        // fraction of latency target available for batch assembly and execution
+        @Getter
+        private volatile double budget = 0.8;
+
+        protected AdaptiveObservablesProvider(long latencyTarget, int batchLimit,
+                        @NonNull BlockingQueue<InferenceObservable> queue) {
+            super(0, batchLimit, queue);
+            this.latencyTarget = latencyTarget;
+        }
+
+        @Override
+        protected boolean needsNewBatch(BatchedInferenceObservable current) {
+            // one more request makes batch slower, and oldest request of this batch must still fit into budget
+            if (current != null) {
+                long age = System.nanoTime() - current.getCreationTime();
+                if (age + costModel.predict(current.getCounter() + 1) > budget * latencyTarget)
+                    return true;
+            }
+
+            return super.needsNewBatch(current);
+        }
+
+        @Override
+        protected void batchCompleted(BatchedInferenceObservable batch, long started, long finished) {
+            super.batchCompleted(batch, started, finished);
+            costModel.update(batch.getCounter(), finished - started);
+            window.record(finished - batch.getCreationTime());
+
+            if (window.getCount() >= WINDOW) {
+                synchronized (window) {
+                    if (window.getCount() < WINDOW)
+                        return;
+
+                    long p99 = window.getValueAtPercentile(99);
+                    if (p99 > latencyTarget)
+                        budget = Math.max(MIN_BUDGET, budget * 0.8);
+                    else if (p99 < latencyTarget * 0.8)
+                        budget = Math.min(1.0, budget * 1.05);
+
+                    window.reset();
+                }
+            }
+        }
     }
 }
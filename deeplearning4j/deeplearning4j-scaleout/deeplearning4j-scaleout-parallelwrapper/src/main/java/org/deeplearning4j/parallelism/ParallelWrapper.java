@@ -34,6 +34,7 @@ import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
 import org.deeplearning4j.optimize.api.TrainingListener;
 import org.deeplearning4j.optimize.listeners.SharedGradient;
+import org.deeplearning4j.optimize.solvers.accumulation.AllReduceGradientsAccumulator;
 import org.deeplearning4j.optimize.solvers.accumulation.EncodedGradientsAccumulator;
 import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
 import org.deeplearning4j.optimize.solvers.accumulation.Registerable;
@@ -44,6 +45,7 @@ import org.deeplearning4j.parallelism.factory.SymmetricTrainerContext;
 import org.deeplearning4j.parallelism.factory.TrainerContext;
 import org.deeplearning4j.parallelism.trainer.Trainer;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.concurrency.NumaTopology;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
@@ -83,6 +85,11 @@ public class ParallelWrapper implements AutoCloseable {
          */
         SHARED_GRADIENTS,
 
+        /**
+         * Models within ParallelWrapper instance will average dense updates after each iteration, via chunked lock-free all-reduce
+         */
+        ALL_REDUCE,
+
         /**
          * This option assumes use of GradientsAccumulator with any MessageHandler
          */
@@ -113,6 +120,7 @@ public class ParallelWrapper implements AutoCloseable {
     protected WorkspaceMode workspaceMode;
     protected Object[] trainerContextArgs;
     protected boolean debug = false;
+    protected boolean numaBinding = false;
 
     protected ThreadPoolExecutor executorService;
 
@@ -126,6 +134,10 @@ public class ParallelWrapper implements AutoCloseable {
         public void uncaughtException(Thread th, Throwable ex) {
             log.error("Uncaught exception: " + ex);
             ex.printStackTrace();
+            // other workers would wait for the failed one at the all-reduce barriers forever otherwise
+            if (gradientsAccumulator instanceof AllReduceGradientsAccumulator)
+                ((AllReduceGradientsAccumulator) gradientsAccumulator).abort(ex);
+
             if(exceptionEncountered != null){
                 exceptionEncountered.set(true);
                 exception = ex;
@@ -156,6 +168,14 @@ public class ParallelWrapper implements AutoCloseable {
                     @Override
                     public void run() {
                         Nd4j.getAffinityManager().unsafeSetDevice(cThread % Nd4j.getAffinityManager().getNumberOfDevices());
+
+                        // model replica and workspaces are created within this thread, after binding
+                        if (numaBinding && Nd4j.getAffinityManager().getNumberOfNumaNodes() > 1) {
+                            int node = NumaTopology.getInstance().getNodeForWorker(cThread % workers, workers);
+                            if (!Nd4j.getAffinityManager().attachThreadToNumaNode(node))
+                                log.warn("Unable to bind training thread {} to NUMA node {}", cThread, node);
+                        }
+
                         r.run();
                     }
                 });
@@ -288,6 +308,8 @@ public class ParallelWrapper implements AutoCloseable {
                 zoo[pos].waitTillRunning();
             }
 
+            syncIdleReplicas(dataSets.length);
+
             //Nd4j.getMemoryManager().invokeGcOccasionally();
 
             // optional averaging
@@ -364,6 +386,19 @@ public class ParallelWrapper implements AutoCloseable {
         return score;
     }
 
+    /**
+     * With all-reduce, replicas that got no data in the last round (i.e. the last round had fewer DataSets than
+     * workers) didn't apply the averaged updates, so their parameters are set from an active replica
+     */
+    private void syncIdleReplicas(int activeWorkers) {
+        if (!(gradientsAccumulator instanceof AllReduceGradientsAccumulator) || activeWorkers >= workers)
+            return;
+
+        INDArray params = zoo[0].getModel().params();
+        for (int pos = activeWorkers; pos < workers; pos++)
+            zoo[pos].updateModelParams(params);
+    }
+
     private void averageUpdatersState(AtomicInteger locker, double score) {
         // averaging updaters state
         if (model instanceof MultiLayerNetwork) {
@@ -594,6 +629,8 @@ public class ParallelWrapper implements AutoCloseable {
                 }
             }
 
+            syncIdleReplicas(dataSets.length);
+
 
             // optional averaging
             if (iterationsCounter.get() % averagingFrequency == 0 && zoo[0].averagingRequired() ) {
@@ -681,6 +718,7 @@ public class ParallelWrapper implements AutoCloseable {
         protected boolean averageUpdaters = true;
         protected boolean legacyAveraging = true;
         protected boolean isMQ = Nd4j.getAffinityManager().getNumberOfDevices() > 1;
+        protected boolean numaBinding = false;
         protected TrainerContext trainerContext = new DefaultTrainerContext();
         protected Object[] trainerContextArgs;
         protected WorkspaceMode workspaceMode = WorkspaceMode.ENABLED;
@@ -727,6 +765,21 @@ public class ParallelWrapper implements AutoCloseable {
             return this;
         }
 
+        /**
+         * This method enables binding of training threads to NUMA nodes. Workers are spread evenly over nodes,
+         * and CPU affinity of each worker's Java thread is set to CPUs of its node.
+         * Native threads used by backend for parallel ops are not bound.
+         *
+         * PLEASE NOTE: This option has effect on multi-socket Linux hosts only
+         *
+         * @param reallyBind
+         * @return
+         */
+        public Builder numaBinding(boolean reallyBind) {
+            this.numaBinding = reallyBind;
+            return this;
+        }
+
         /**
          * This method attaches supplier that'll probably provide model params update
          *
@@ -827,7 +880,8 @@ public class ParallelWrapper implements AutoCloseable {
          *  This method allows you to specify training mode for this instance of PW.<br>
          *  1) AVERAGING - stands for parameters averaging. Each X epochs weights and updaters state will be averaged across all models<br>
          *  2) SHARED_GRADIENTS - stands for gradients sharing - more details available here: <a href="https://deeplearning4j.org/docs/latest/deeplearning4j-scaleout-intro">https://deeplearning4j.org/docs/latest/deeplearning4j-scaleout-intro</a><br>
-         *  3) CUSTOM - this method allows you to specify custom gradients accumulator, this giving you better control of configuration params for training.<br>
+         *  3) ALL_REDUCE - stands for dense updates averaging after each iteration. No compression is involved, so it's suited for multi-core hosts with many workers<br>
+         *  4) CUSTOM - this method allows you to specify custom gradients accumulator, this giving you better control of configuration params for training.<br>
          *
          * @param mode
          * @return
@@ -895,6 +949,7 @@ public class ParallelWrapper implements AutoCloseable {
             wrapper.legacyAveraging = this.legacyAveraging;
             wrapper.isMQ = this.isMQ;
             wrapper.workspaceMode = this.workspaceMode;
+            wrapper.numaBinding = this.numaBinding;
             wrapper.modelParamsSupplier = this.modelParamsSupplier;
             wrapper.updaterParamsSupplier = this.updaterParamsSupplier;
 
@@ -915,6 +970,14 @@ public class ParallelWrapper implements AutoCloseable {
                     }
                 }
                     break;
+                case ALL_REDUCE: {
+                    this.trainerContext = new SymmetricTrainerContext();
+                    if (this.accumulator == null) {
+                        log.info("Creating new AllReduceGradientsAccumulator instance");
+                        this.accumulator = new AllReduceGradientsAccumulator(workers);
+                    }
+                }
+                    break;
                 case CUSTOM: {
                     this.trainerContext = new SymmetricTrainerContext();
                     if (this.accumulator == null)
@@ -0,0 +1,626 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.layers.RecurrentLayer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.InMemoryRnnStateStore;
+import org.deeplearning4j.parallelism.inference.RnnStateStore;
+import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streaming (step by step) RNN inference for many concurrent sessions, using a single network.<br>
+ * Each call to {@link #output(String, INDArray...)} performs {@code rnnTimeStep} for one session: the input is for one
+ * or more time steps, and the RNN layer state is continued from the previous call with the same session ID.
+ * Session states are kept in a {@link RnnStateStore} instead of in the network, so any number of sessions can be
+ * served without cloning the network or swapping state per request.<br>
+ * As with BATCHED {@link ParallelInference}, requests that are waiting when a worker becomes free are combined into a
+ * single minibatch: the stored states of those sessions are stacked, one {@code rnnTimeStep} call is done for all of
+ * them, and the outputs and new states are split back per session. Requests for the same session are always executed
+ * in order, one at a time.<br>
+ * Supported models: MultiLayerNetwork and ComputationGraph, where all RNN layer states have the minibatch dimension
+ * first (LSTM, GravesLSTM, SimpleRnn, etc.)
+ */
+@Slf4j
+public class StreamingRnnInference {
+    public final static int DEFAULT_NUM_WORKERS = Nd4j.getAffinityManager().getNumberOfDevices();
+    public final static int DEFAULT_BATCH_LIMIT = 256;
+    public final static int DEFAULT_QUEUE_LIMIT = 1024;
+
+    protected Model model;
+    protected int workers;
+    protected int batchLimit;
+    protected int queueLimit;
+    @Getter
+    protected RnnStateStore stateStore;
+
+    private BlockingQueue<SessionRequest> requests;
+    //Sessions claimed by a worker, with the requests waiting for the current one to finish, in arrival order.
+    //The worker holding the claim executes the waiting requests. Guarded by locker
+    private final Map<String, Queue<SessionRequest>> claimedSessions = new HashMap<>();
+    private final Object locker = new Object();
+    private volatile boolean isShutdown = false;
+
+    private StreamingWorker[] zoo;
+
+    protected StreamingRnnInference() {
+        //
+    }
+
+    protected void init() {
+        requests = new LinkedBlockingQueue<>(queueLimit);
+
+        int numDevices = Nd4j.getAffinityManager().getNumberOfDevices();
+        int currentDevice = Nd4j.getAffinityManager().getDeviceForCurrentThread();
+        boolean assignedRoot = false;
+
+        zoo = new StreamingWorker[workers];
+        for (int i = 0; i < workers; i++) {
+            int cDevice = i % numDevices;
+            boolean cRoot = !assignedRoot && cDevice == currentDevice;
+            assignedRoot |= cRoot;
+
+            zoo[i] = new StreamingWorker(i, cRoot, cDevice);
+            zoo[i].start();
+        }
+    }
+
+    protected long getWorkerCounter(int workerIdx) {
+        return zoo[workerIdx].counter.get();
+    }
+
+    /**
+     * Perform {@code rnnTimeStep} for the specified session, for a network with a single input and output
+     *
+     * @param sessionId Session ID. State from the previous call with this ID is used, if any
+     * @param input     Input for one or more time steps: [minibatch, nIn] or [minibatch, nIn, timeSteps]
+     * @return Output of the network for this session
+     */
+    public INDArray output(@NonNull String sessionId, @NonNull INDArray input) {
+        INDArray[] out = output(sessionId, new INDArray[]{input});
+        if (out.length != 1) {
+            throw new IllegalArgumentException("Network has multiple (" + out.length + ") output arrays, but only a" +
+                    " single output can be returned using this method. Use output(String, INDArray...) for multi-output nets");
+        }
+        return out[0];
+    }
+
+    /**
+     * Perform {@code rnnTimeStep} for the specified session. Blocks until the output is available.
+     *
+     * @param sessionId Session ID. State from the previous call with this ID is used, if any
+     * @param inputs    Inputs to the network, for one or more time steps
+     * @return Outputs of the network for this session
+     */
+    public INDArray[] output(@NonNull String sessionId, @NonNull INDArray... inputs) {
+        Preconditions.checkArgument(inputs.length > 0, "At least one input array is required");
+        for (INDArray in : inputs) {
+            Preconditions.checkArgument(in.rank() >= 2 && in.size(0) == inputs[0].size(0),
+                    "Input arrays must have rank 2 or more, with the same minibatch size: got %ndShape, %ndShape", in, inputs[0]);
+        }
+        if (isShutdown)
+            throw new IllegalStateException("StreamingRnnInference has been shut down");
+
+        Nd4j.getExecutioner().commit(); //Commit before passing input to other thread
+
+        BasicInferenceObserver observer = new BasicInferenceObserver();
+        SessionRequest request = new SessionRequest(sessionId, inputs);
+        request.addObserver(observer);
+        try {
+            requests.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (isShutdown) {
+            //Shut down while this request was being added: it may not have been seen by shutdown()
+            failPending();
+        }
+
+        observer.waitTillDone();
+        return request.getOutput();
+    }
+
+    /**
+     * End the specified session, removing its state from the state store. A subsequent call with the same session ID
+     * will start from the initial (zero) state
+     *
+     * @param sessionId Session ID
+     */
+    public void endSession(@NonNull String sessionId) {
+        stateStore.remove(sessionId);
+    }
+
+    /**
+     * This method gracefully shuts down StreamingRnnInference instance. Requests that have not been executed yet
+     * fail with an {@link IllegalStateException}
+     */
+    public synchronized void shutdown() {
+        if (zoo == null)
+            return;
+        isShutdown = true;
+
+        for (int e = 0; e < zoo.length; e++) {
+            if (zoo[e] == null)
+                continue;
+
+            zoo[e].interrupt();
+            zoo[e].shutdown();
+            failRequests(zoo[e].next);
+            zoo[e] = null;
+        }
+        zoo = null;
+
+        failPending();
+    }
+
+    /**
+     * Fail all requests that are waiting in the queue, or for an earlier request of the same session
+     */
+    private void failPending() {
+        List<SessionRequest> pending = new ArrayList<>();
+        synchronized (locker) {
+            for (Queue<SessionRequest> q : claimedSessions.values())
+                pending.addAll(q);
+            claimedSessions.clear();
+        }
+        requests.drainTo(pending);
+        failRequests(pending);
+    }
+
+    private static void failRequests(List<SessionRequest> pending) {
+        for (SessionRequest s : pending)
+            s.setOutputException(new IllegalStateException("StreamingRnnInference has been shut down"));
+        pending.clear();
+    }
+
+
+    public static class Builder {
+        private Model model;
+        private int workers = DEFAULT_NUM_WORKERS;
+        private int batchLimit = DEFAULT_BATCH_LIMIT;
+        private int queueLimit = DEFAULT_QUEUE_LIMIT;
+        private RnnStateStore stateStore;
+
+        public Builder(@NonNull Model model) {
+            Preconditions.checkArgument(model instanceof MultiLayerNetwork || model instanceof ComputationGraph,
+                    "Only MultiLayerNetwork and ComputationGraph models are supported, got %s", model.getClass());
+            this.model = model;
+        }
+
+        /**
+         * This method defines, how many model copies will be used for inference.
+         *
+         * PLEASE NOTE: This method primarily suited for multi-GPU systems
+         *
+         * @param workers
+         * @return
+         */
+        public Builder workers(int workers) {
+            if (workers < 1)
+                throw new IllegalStateException("Workers should be positive value");
+
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * This method defines the maximum number of session requests that will be combined into a single
+         * rnnTimeStep call
+         *
+         * @param limit
+         * @return
+         */
+        public Builder batchLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalStateException("Batch limit should be positive value");
+
+            this.batchLimit = limit;
+            return this;
+        }
+
+        /**
+         * This method defines buffer queue size.
+         *
+         * Default value: 1024
+         *
+         * @param limit
+         * @return
+         */
+        public Builder queueLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalStateException("Queue limit should be positive value");
+
+            this.queueLimit = limit;
+            return this;
+        }
+
+        /**
+         * Store for the session states. Default: {@link InMemoryRnnStateStore} without session expiry
+         *
+         * @param stateStore
+         * @return
+         */
+        public Builder stateStore(@NonNull RnnStateStore stateStore) {
+            this.stateStore = stateStore;
+            return this;
+        }
+
+        /**
+         * This method builds new StreamingRnnInference instance
+         *
+         * @return
+         */
+        public StreamingRnnInference build() {
+            StreamingRnnInference inference = new StreamingRnnInference();
+            inference.model = this.model;
+            inference.workers = this.workers;
+            inference.batchLimit = this.batchLimit;
+            inference.queueLimit = this.queueLimit;
+            inference.stateStore = (this.stateStore == null ? new InMemoryRnnStateStore() : this.stateStore);
+
+            inference.init();
+
+            return inference;
+        }
+    }
+
+
+    /**
+     * One rnnTimeStep request for a session
+     */
+    protected static class SessionRequest extends BasicInferenceObservable {
+        @Getter
+        private final String sessionId;
+        @Getter
+        private final INDArray[] inputs;
+
+        protected SessionRequest(String sessionId, INDArray[] inputs) {
+            super(inputs);
+            this.sessionId = sessionId;
+            this.inputs = inputs;
+        }
+
+        protected long minibatchSize() {
+            return inputs[0].size(0);
+        }
+
+        //Requests can be combined if the inputs have the same shape other than the minibatch dimension
+        protected String batchKey() {
+            StringBuilder sb = new StringBuilder();
+            for (INDArray in : inputs) {
+                long[] shape = in.shape();
+                sb.append(Arrays.toString(Arrays.copyOfRange(shape, 1, shape.length))).append(in.dataType());
+            }
+            return sb.toString();
+        }
+    }
+
+
+    /**
+     * This class gathers session requests into batches and executes them, with respect to device affinity
+     */
+    private class StreamingWorker extends Thread implements Runnable {
+        private AtomicBoolean shouldWork = new AtomicBoolean(true);
+        private AtomicBoolean isStopped = new AtomicBoolean(false);
+        private AtomicLong counter = new AtomicLong(0);
+        private boolean rootDevice;
+        private int deviceId;
+        private Model replicatedModel;
+
+        //Requests for sessions claimed by this worker, to execute in the next iteration
+        private final List<SessionRequest> next = new ArrayList<>();
+
+        private StreamingWorker(int id, boolean rootDevice, int deviceId) {
+            this.rootDevice = rootDevice;
+            this.deviceId = deviceId;
+
+            this.setDaemon(true);
+            this.setName("StreamingInferenceThread-" + id);
+        }
+
+        /**
+         * This method duplicates model for future use during inference
+         */
+        protected void initializeReplicaModel() {
+            if (rootDevice) {
+                this.replicatedModel = model;
+            } else if (model instanceof ComputationGraph) {
+                this.replicatedModel = new ComputationGraph(ComputationGraphConfiguration
+                        .fromJson(((ComputationGraph) model).getConfiguration().toJson()));
+                this.replicatedModel.init();
+
+                synchronized (locker) {
+                    this.replicatedModel.setParams(model.params().unsafeDuplication(true));
+
+                    Nd4j.getExecutioner().commit();
+                }
+            } else {
+                this.replicatedModel = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(
+                        ((MultiLayerNetwork) model).getLayerWiseConfigurations().toJson()));
+                this.replicatedModel.init();
+
+                synchronized (locker) {
+                    this.replicatedModel.setParams(model.params().unsafeDuplication(true));
+
+                    Nd4j.getExecutioner().commit();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+            try {
+                // model should be replicated & initialized here
+                initializeReplicaModel();
+
+                List<SessionRequest> candidates = new ArrayList<>();
+                while (shouldWork.get()) {
+                    //Block for new requests only if this worker has no requests of its claimed sessions to execute
+                    candidates.clear();
+                    if (next.isEmpty())
+                        candidates.add(requests.take());
+                    requests.drainTo(candidates, Math.max(0, batchLimit - next.size() - candidates.size()));
+
+                    List<SessionRequest> batch = new ArrayList<>(next);
+                    next.clear();
+                    batch.addAll(claimSessions(candidates));
+                    if (batch.isEmpty())
+                        continue;
+
+                    counter.incrementAndGet();
+
+                    //Combine requests with the same input shape
+                    Map<String, List<SessionRequest>> groups = new LinkedHashMap<>();
+                    for (SessionRequest s : batch) {
+                        String key = s.batchKey();
+                        if (!groups.containsKey(key))
+                            groups.put(key, new ArrayList<SessionRequest>());
+                        groups.get(key).add(s);
+                    }
+
+                    for (List<SessionRequest> group : groups.values()) {
+                        List<INDArray[]> outputs = null;
+                        Exception exception = null;
+                        try {
+                            outputs = execute(group);
+                        } catch (Exception e) {
+                            exception = e;
+                        } finally {
+                            Nd4j.getExecutioner().commit();
+                            for (SessionRequest s : group)
+                                releaseSession(s.getSessionId());
+                        }
+
+                        for (int i = 0; i < group.size(); i++) {
+                            if (exception != null) {
+                                group.get(i).setOutputException(exception);
+                            } else {
+                                group.get(i).setOutputBatches(Collections.singletonList(outputs.get(i)));
+                            }
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // do nothing
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            } finally {
+                isStopped.set(true);
+            }
+        }
+
+        /**
+         * Select the requests to execute now: requests for sessions that are not claimed yet. Requests for claimed
+         * sessions are added to the session queue, to be executed in order by the worker holding the claim
+         */
+        private List<SessionRequest> claimSessions(List<SessionRequest> candidates) {
+            List<SessionRequest> batch = new ArrayList<>();
+            synchronized (locker) {
+                for (SessionRequest s : candidates) {
+                    Queue<SessionRequest> waiting = claimedSessions.get(s.getSessionId());
+                    if (waiting == null) {
+                        claimedSessions.put(s.getSessionId(), new ArrayDeque<SessionRequest>());
+                        batch.add(s);
+                    } else {
+                        waiting.add(s);
+                    }
+                }
+            }
+            return batch;
+        }
+
+        /**
+         * Called after a request for the session has been executed: the next waiting request for the session (if any)
+         * is executed by this worker in the next iteration; otherwise, the claim is released
+         */
+        private void releaseSession(String sessionId) {
+            synchronized (locker) {
+                Queue<SessionRequest> waiting = claimedSessions.get(sessionId);
+                if (waiting == null)
+                    return;     //Shut down
+
+                SessionRequest s = waiting.poll();
+                if (s != null) {
+                    next.add(s);
+                } else {
+                    claimedSessions.remove(sessionId);
+                }
+            }
+        }
+
+        /**
+         * Execute one rnnTimeStep for all requests in the group, which must have the same input shapes
+         *
+         * @return Output arrays for each request
+         */
+        private List<INDArray[]> execute(List<SessionRequest> group) {
+            int numInputs = group.get(0).getInputs().length;
+            INDArray[] inputs = new INDArray[numInputs];
+            for (int i = 0; i < numInputs; i++) {
+                if (group.size() == 1) {
+                    inputs[i] = group.get(0).getInputs()[i];
+                } else {
+                    INDArray[] toMerge = new INDArray[group.size()];
+                    for (int j = 0; j < toMerge.length; j++)
+                        toMerge[j] = group.get(j).getInputs()[i];
+                    inputs[i] = Nd4j.concat(0, toMerge);
+                }
+            }
+
+            //Gather the stored states, stacked in the same order as the inputs. New sessions start from zeros
+            List<Map<String, Map<String, INDArray>>> sessionStates = new ArrayList<>(group.size());
+            Map<String, Map<String, INDArray>> template = null;
+            for (SessionRequest s : group) {
+                Map<String, Map<String, INDArray>> state = stateStore.get(s.getSessionId());
+                sessionStates.add(state);
+                if (template == null)
+                    template = state;
+            }
+
+            if (replicatedModel instanceof ComputationGraph) {
+                ((ComputationGraph) replicatedModel).rnnClearPreviousState();
+            } else {
+                ((MultiLayerNetwork) replicatedModel).rnnClearPreviousState();
+            }
+            if (template != null) {
+                Map<String, Map<String, INDArray>> stacked = new HashMap<>();
+                for (Map.Entry<String, Map<String, INDArray>> layer : template.entrySet()) {
+                    Map<String, INDArray> layerState = new HashMap<>();
+                    for (Map.Entry<String, INDArray> e : layer.getValue().entrySet()) {
+                        INDArray[] toMerge = new INDArray[group.size()];
+                        for (int j = 0; j < toMerge.length; j++) {
+                            Map<String, Map<String, INDArray>> state = sessionStates.get(j);
+                            INDArray arr = null;
+                            if (state != null && state.containsKey(layer.getKey()))
+                                arr = state.get(layer.getKey()).get(e.getKey());
+                            if (arr == null) {
+                                long[] shape = e.getValue().shape().clone();
+                                shape[0] = group.get(j).minibatchSize();
+                                arr = Nd4j.zeros(e.getValue().dataType(), shape);
+                            }
+                            toMerge[j] = arr;
+                        }
+                        layerState.put(e.getKey(), toMerge.length == 1 ? toMerge[0] : Nd4j.concat(0, toMerge));
+                    }
+                    stacked.put(layer.getKey(), layerState);
+                }
+                setStates(stacked);
+            }
+
+            INDArray[] out;
+            if (replicatedModel instanceof ComputationGraph) {
+                out = ((ComputationGraph) replicatedModel).rnnTimeStep(inputs);
+            } else {
+                out = new INDArray[]{((MultiLayerNetwork) replicatedModel).rnnTimeStep(inputs[0])};
+            }
+
+            //Split the outputs and new states back per session
+            Map<String, Map<String, INDArray>> newStates = getStates();
+            List<INDArray[]> ret = new ArrayList<>(group.size());
+            long offset = 0;
+            for (SessionRequest s : group) {
+                long mb = s.minibatchSize();
+                INDArray[] sOut = new INDArray[out.length];
+                for (int i = 0; i < out.length; i++)
+                    sOut[i] = getRows(out[i], offset, mb, group.size() > 1);
+
+                Map<String, Map<String, INDArray>> sState = new HashMap<>();
+                for (Map.Entry<String, Map<String, INDArray>> layer : newStates.entrySet()) {
+                    Map<String, INDArray> layerState = new HashMap<>();
+                    for (Map.Entry<String, INDArray> e : layer.getValue().entrySet())
+                        layerState.put(e.getKey(), getRows(e.getValue(), offset, mb, group.size() > 1));
+                    sState.put(layer.getKey(), layerState);
+                }
+                stateStore.put(s.getSessionId(), sState);
+
+                ret.add(sOut);
+                offset += mb;
+            }
+            return ret;
+        }
+
+        private INDArray getRows(INDArray arr, long offset, long count, boolean split) {
+            if (!split)
+                return arr;
+            INDArrayIndex[] indices = new INDArrayIndex[arr.rank()];
+            indices[0] = NDArrayIndex.interval(offset, offset + count);
+            for (int i = 1; i < indices.length; i++)
+                indices[i] = NDArrayIndex.all();
+            return arr.get(indices).dup();
+        }
+
+        /**
+         * @return RNN layer states of the model: keyed by layer name (ComputationGraph) or index (MultiLayerNetwork)
+         */
+        private Map<String, Map<String, INDArray>> getStates() {
+            if (replicatedModel instanceof ComputationGraph)
+                return ((ComputationGraph) replicatedModel).rnnGetPreviousStates();
+
+            MultiLayerNetwork net = (MultiLayerNetwork) replicatedModel;
+            Map<String, Map<String, INDArray>> states = new HashMap<>();
+            for (int i = 0; i < net.getnLayers(); i++) {
+                Layer l = net.getLayer(i);
+                if (l instanceof BaseWrapperLayer)
+                    l = ((BaseWrapperLayer) l).getUnderlying();
+                if (l instanceof RecurrentLayer)
+                    states.put(String.valueOf(i), net.rnnGetPreviousState(i));
+            }
+            return states;
+        }
+
+        private void setStates(Map<String, Map<String, INDArray>> states) {
+            if (replicatedModel instanceof ComputationGraph) {
+                ((ComputationGraph) replicatedModel).rnnSetPreviousStates(states);
+            } else {
+                for (Map.Entry<String, Map<String, INDArray>> e : states.entrySet())
+                    ((MultiLayerNetwork) replicatedModel).rnnSetPreviousState(Integer.parseInt(e.getKey()), e.getValue());
+            }
+        }
+
+        protected void shutdown() {
+            shouldWork.set(false);
+            while (!isStopped.get()) {
+                // block until main loop is finished
+            }
+        }
+    }
+}
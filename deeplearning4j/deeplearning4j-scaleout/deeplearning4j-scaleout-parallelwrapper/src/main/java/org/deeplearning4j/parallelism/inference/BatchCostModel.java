@@ -0,0 +1,86 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism.inference;
+
+import org.nd4j.common.base.Preconditions;
+
+/**
+ * Online model of batch execution cost: {@code cost(size) = fixed + perRequest * size}, fitted via least squares with
+ * exponential forgetting, so the model tracks changes in load (i.e. other models sharing the host).<br>
+ * Until batches of at least 2 different sizes were observed, cost is assumed to be proportional to batch size,
+ * which overestimates cost of larger batches and thus keeps latency on the safe side.
+ */
+public class BatchCostModel {
+    private final double decay;
+
+    // decayed sums for weighted least squares
+    private double sw, sx, sy, sxx, sxy;
+    private double minSize = Double.MAX_VALUE, maxSize = 0;
+
+    /**
+     * @param decay Weight of past observations after each update, in range (0, 1). Values close to 1 mean long memory
+     */
+    public BatchCostModel(double decay) {
+        Preconditions.checkArgument(decay > 0 && decay < 1, "Decay must be in range (0, 1), got %s", decay);
+        this.decay = decay;
+    }
+
+    /**
+     * @param batchSize Number of requests in the batch
+     * @param nanos     Time spent executing the batch
+     */
+    public synchronized void update(int batchSize, long nanos) {
+        sw = sw * decay + 1;
+        sx = sx * decay + batchSize;
+        sy = sy * decay + nanos;
+        sxx = sxx * decay + (double) batchSize * batchSize;
+        sxy = sxy * decay + (double) batchSize * nanos;
+
+        minSize = Math.min(minSize, batchSize);
+        maxSize = Math.max(maxSize, batchSize);
+    }
+
+    /**
+     * @return TRUE if at least one batch was observed
+     */
+    public synchronized boolean hasObservations() {
+        return sw > 0;
+    }
+
+    /**
+     * @param batchSize Number of requests in the batch
+     * @return Expected execution time of the batch in nanoseconds, or 0 if nothing was observed yet
+     */
+    public synchronized long predict(int batchSize) {
+        if (sw == 0)
+            return 0;
+
+        double meanX = sx / sw;
+        double meanY = sy / sw;
+        double varX = sxx / sw - meanX * meanX;
+
+        if (maxSize > minSize && varX > 1e-3) {
+            // both terms are clamped: neither fixed cost nor per-request cost can be negative
+            double slope = Math.max(0, (sxy / sw - meanX * meanY) / varX);
+            double intercept = Math.max(0, meanY - slope * meanX);
+            return (long) (intercept + slope * batchSize);
+        }
+
+        return (long) (meanY / meanX * batchSize);
+    }
+}
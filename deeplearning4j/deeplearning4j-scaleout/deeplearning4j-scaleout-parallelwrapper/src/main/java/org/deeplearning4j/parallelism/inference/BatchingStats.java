@@ -0,0 +1,123 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism.inference;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.profiler.data.primitives.LatencyHistogram;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Batching metrics of {@link org.deeplearning4j.parallelism.ParallelInference} in BATCHED mode: queue depth,
+ * histogram of batch sizes (in requests), time batches spend waiting in queue, execution time and
+ * end-to-end latency of the oldest request in each batch.
+ */
+public class BatchingStats {
+    private final Collection<?> queue;
+    private final AtomicLongArray batchSizes;
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong requests = new AtomicLong(0);
+
+    @Getter
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram executionTimes = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * @param queue        Queue of batches waiting for workers
+     * @param maxBatchSize Maximal number of requests per batch
+     */
+    public BatchingStats(@NonNull Collection<?> queue, int maxBatchSize) {
+        this.queue = queue;
+        this.batchSizes = new AtomicLongArray(maxBatchSize + 1);
+    }
+
+    /**
+     * @param batchSize Number of requests in the batch
+     * @param waitNanos Time since batch creation till worker started executing it
+     * @param execNanos Batch execution time
+     */
+    public void record(int batchSize, long waitNanos, long execNanos) {
+        batchSizes.incrementAndGet(Math.min(batchSize, batchSizes.length() - 1));
+        batches.incrementAndGet();
+        requests.addAndGet(batchSize);
+
+        waitTimes.record(waitNanos);
+        executionTimes.record(execNanos);
+        latencies.record(waitNanos + execNanos);
+    }
+
+    /**
+     * @return Number of batches waiting for workers at this moment
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return Histogram of batch sizes: element i holds number of batches with i requests
+     */
+    public long[] getBatchSizeHistogram() {
+        long[] result = new long[batchSizes.length()];
+        for (int e = 0; e < result.length; e++)
+            result[e] = batchSizes.get(e);
+
+        return result;
+    }
+
+    /**
+     * @return Number of executed batches
+     */
+    public long getNumberOfBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return Number of requests in executed batches
+     */
+    public long getNumberOfRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return Mean number of requests per batch
+     */
+    public double getMeanBatchSize() {
+        long cnt = batches.get();
+        return cnt == 0 ? 0.0 : (double) requests.get() / cnt;
+    }
+
+    /**
+     * Removes all recorded values
+     */
+    public void reset() {
+        for (int e = 0; e < batchSizes.length(); e++)
+            batchSizes.set(e, 0);
+
+        batches.set(0);
+        requests.set(0);
+        waitTimes.reset();
+        executionTimes.reset();
+        latencies.reset();
+    }
+}
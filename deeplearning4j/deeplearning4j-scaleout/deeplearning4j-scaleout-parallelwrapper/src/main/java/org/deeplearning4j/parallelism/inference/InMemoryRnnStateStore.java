@@ -0,0 +1,97 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism.inference;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link RnnStateStore} that keeps session states in memory.<br>
+ * Optionally, sessions that have not been accessed for longer than a maximum idle time are removed: this avoids
+ * accumulating state for streaming clients that disconnect without ending their session.
+ */
+public class InMemoryRnnStateStore implements RnnStateStore {
+
+    private final Map<String, Entry> states = new ConcurrentHashMap<>();
+    private final long maxIdleMillis;
+    private volatile long lastEviction = System.currentTimeMillis();
+
+    /**
+     * Create a store without session expiry
+     */
+    public InMemoryRnnStateStore() {
+        this(0);
+    }
+
+    /**
+     * @param maxIdleMillis Sessions not accessed for longer than this are removed. 0 to never remove sessions
+     */
+    public InMemoryRnnStateStore(long maxIdleMillis) {
+        if (maxIdleMillis < 0)
+            throw new IllegalArgumentException("Maximum idle time must be >= 0, got " + maxIdleMillis);
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    @Override
+    public Map<String, Map<String, INDArray>> get(@NonNull String sessionId) {
+        Entry e = states.get(sessionId);
+        if (e == null)
+            return null;
+        e.lastAccess = System.currentTimeMillis();
+        return e.state;
+    }
+
+    @Override
+    public void put(@NonNull String sessionId, @NonNull Map<String, Map<String, INDArray>> state) {
+        long now = System.currentTimeMillis();
+        states.put(sessionId, new Entry(state, now));
+        if (maxIdleMillis > 0 && now - lastEviction > maxIdleMillis) {
+            lastEviction = now;
+            removeIdle(now);
+        }
+    }
+
+    @Override
+    public void remove(@NonNull String sessionId) {
+        states.remove(sessionId);
+    }
+
+    @Override
+    public int size() {
+        return states.size();
+    }
+
+    protected void removeIdle(long now) {
+        Iterator<Entry> iter = states.values().iterator();
+        while (iter.hasNext()) {
+            if (now - iter.next().lastAccess > maxIdleMillis)
+                iter.remove();
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final Map<String, Map<String, INDArray>> state;
+        private volatile long lastAccess;
+    }
+}
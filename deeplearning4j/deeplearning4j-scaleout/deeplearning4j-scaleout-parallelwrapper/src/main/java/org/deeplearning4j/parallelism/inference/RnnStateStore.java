@@ -0,0 +1,59 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism.inference;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Map;
+
+/**
+ * Storage for the recurrent layer state of streaming inference sessions, as used by
+ * {@link org.deeplearning4j.parallelism.StreamingRnnInference}.<br>
+ * A session state is the map of RNN layer states (as per {@code rnnGetPreviousState()}), keyed by layer name for a
+ * ComputationGraph or by layer index for a MultiLayerNetwork. State arrays are detached, with the session's examples
+ * along dimension 0.<br>
+ * Implementations must be thread safe.
+ */
+public interface RnnStateStore {
+
+    /**
+     * @param sessionId Session ID
+     * @return State for the session, or null if no state is stored (new session)
+     */
+    Map<String, Map<String, INDArray>> get(String sessionId);
+
+    /**
+     * Store (or replace) the state for the specified session
+     *
+     * @param sessionId Session ID
+     * @param state     State to store
+     */
+    void put(String sessionId, Map<String, Map<String, INDArray>> state);
+
+    /**
+     * Remove the state for the specified session, if present
+     *
+     * @param sessionId Session ID
+     */
+    void remove(String sessionId);
+
+    /**
+     * @return Number of sessions with stored state
+     */
+    int size();
+}
@@ -53,10 +53,17 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
     private AtomicBoolean isLocked = new AtomicBoolean(false);
     private AtomicBoolean isReadLocked = new AtomicBoolean(false);
 
+    // System.nanoTime() of batch creation, i.e. arrival of its oldest request
+    private final long creationTime = System.nanoTime();
+
     public BatchedInferenceObservable() {
 
     }
 
+    public long getCreationTime() {
+        return creationTime;
+    }
+
     @Override
     public void addInput(INDArray[] input, INDArray[] inputMasks) {
         synchronized (locker) {
@@ -0,0 +1,346 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism.inference.observers;
+
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Observer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * BATCHED inference observable without locks and intermediate copies.<br>
+ * Batch owns preallocated input tensors with room for batchLimit requests. Producers claim rows of these tensors
+ * via single CAS over packed state (number of requests and rows), and write their inputs right into the claimed rows.
+ * Worker seals batch with single atomic update, and executes model over view of filled rows. Each producer then gets
+ * views of its own rows of the output, so there's no concatenation of inputs and no copies of outputs.<br>
+ * Input tensors are returned to {@link BufferPool} once batch is executed, and reused by next batches.
+ *
+ * PLEASE NOTE: only inputs without masks, with equal number of examples in each input array are supported here.
+ * Other inputs are handled by {@link BatchedInferenceObservable}
+ */
+public class ZeroCopyBatchedInferenceObservable extends BatchedInferenceObservable {
+    private static final long SEALED = Long.MIN_VALUE;
+    private static final long ROWS_MASK = 0xFFFFFFFFL;
+
+    private final BufferPool pool;
+    private final String signature;
+    private final INDArray[] buffers;
+    private final int maxRequests;
+    private final long capacity;
+
+    // number of claimed requests (high bits) and claimed rows (low bits), negative once batch is sealed
+    private final AtomicLong state = new AtomicLong(0);
+    private final AtomicInteger committed = new AtomicInteger(0);
+    private final long[] offsets;
+    private final long[] rows;
+    private final AtomicReferenceArray<Observer> observers;
+    // failures of producers while copying their inputs, reported via getOutput() of the failed request only
+    private final AtomicReferenceArray<RuntimeException> failures;
+    private final ThreadLocal<Integer> position = new ThreadLocal<>();
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private volatile INDArray[] batchOutput;
+
+    /**
+     * @param pool        pool of input tensors
+     * @param template    first input of this batch, defines shapes and data types of batch tensors
+     * @param maxRequests maximal number of requests in this batch
+     */
+    public ZeroCopyBatchedInferenceObservable(@NonNull BufferPool pool, @NonNull INDArray[] template, int maxRequests) {
+        Preconditions.checkArgument(canBatch(template, null), "Inputs can't be batched without copies");
+        Preconditions.checkArgument(maxRequests > 0, "Number of requests must be positive, got %s", maxRequests);
+
+        this.pool = pool;
+        this.maxRequests = maxRequests;
+        this.capacity = template[0].size(0) * maxRequests;
+        this.signature = signature(template, capacity);
+        this.buffers = pool.acquire(signature, template, capacity);
+        this.offsets = new long[maxRequests];
+        this.rows = new long[maxRequests];
+        this.observers = new AtomicReferenceArray<>(maxRequests);
+        this.failures = new AtomicReferenceArray<>(maxRequests);
+    }
+
+    /**
+     * This method checks if given input can be handled without copies: no masks, and equal number of examples
+     * in all input arrays
+     */
+    public static boolean canBatch(INDArray[] input, INDArray[] inputMasks) {
+        if (input == null || input.length == 0 || inputMasks != null)
+            return false;
+
+        for (INDArray in : input) {
+            if (in == null || in.rank() < 2 || in.size(0) != input[0].size(0) || in.size(0) == 0)
+                return false;
+        }
+
+        // number of rows is stored in 32 bits of state
+        return input[0].size(0) < Integer.MAX_VALUE;
+    }
+
+    /**
+     * This method checks if given input has the same data types and shapes (apart from dimension 0) as this batch
+     */
+    public boolean isCompatible(@NonNull INDArray[] input) {
+        if (input.length != buffers.length || !canBatch(input, null))
+            return false;
+
+        for (int e = 0; e < input.length; e++) {
+            if (input[e].dataType() != buffers[e].dataType() || input[e].rank() != buffers[e].rank())
+                return false;
+
+            for (int d = 1; d < input[e].rank(); d++) {
+                if (input[e].size(d) != buffers[e].size(d))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * This method claims rows for given input, and copies input into them.
+     * Observer will be notified once batch is executed. If the copy fails, the request stays in this batch,
+     * and the failure is thrown by {@link #getOutput()} for this request
+     *
+     * @return index of the request within this batch, or -1 if batch was sealed or has no room for given input
+     */
+    public int tryAdd(@NonNull INDArray[] input, Observer observer) {
+        long numRows = input[0].size(0);
+        while (true) {
+            long s = state.get();
+            if (s < 0)
+                return -1;
+
+            int requests = (int) (s >>> 32);
+            long used = s & ROWS_MASK;
+            if (requests >= maxRequests || used + numRows > capacity)
+                return -1;
+
+            if (state.compareAndSet(s, ((long) (requests + 1) << 32) | (used + numRows))) {
+                offsets[requests] = used;
+                rows[requests] = numRows;
+                if (observer != null)
+                    observers.set(requests, observer);
+
+                try {
+                    for (int e = 0; e < input.length; e++)
+                        rowsOf(buffers[e], used, numRows).assign(input[e]);
+
+                    // copy must be finished before worker can see this request as committed
+                    Nd4j.getExecutioner().commit();
+                } catch (RuntimeException e) {
+                    failures.set(requests, e);
+                } finally {
+                    // worker waits for all claimed requests to be committed, so this must happen even on failure
+                    position.set(requests);
+                    committed.incrementAndGet();
+                }
+                return requests;
+            }
+        }
+    }
+
+    @Override
+    public void addInput(@NonNull INDArray[] input, INDArray[] inputMasks) {
+        Preconditions.checkArgument(inputMasks == null, "Input masks aren't supported");
+        Preconditions.checkState(isCompatible(input) && tryAdd(input, null) >= 0,
+                        "Input can't be added to this batch");
+    }
+
+    @Override
+    public List<Pair<INDArray[], INDArray[]>> getInputBatches() {
+        long s = state.get();
+        while (s >= 0 && !state.compareAndSet(s, s | SEALED))
+            s = state.get();
+
+        s &= ~SEALED;
+        int requests = (int) (s >>> 32);
+        long used = s & ROWS_MASK;
+
+        // producers that claimed rows before sealing might be still copying their inputs
+        while (committed.get() < requests)
+            Thread.yield();
+
+        INDArray[] features = new INDArray[buffers.length];
+        for (int e = 0; e < buffers.length; e++)
+            features[e] = used == capacity ? buffers[e] : rowsOf(buffers[e], 0, used);
+
+        return Collections.singletonList(new Pair<INDArray[], INDArray[]>(features, null));
+    }
+
+    @Override
+    public void setOutputBatches(@NonNull List<INDArray[]> output) {
+        Preconditions.checkArgument(output.size() == 1, "Expected size 1 output: got size %s", output.size());
+        this.batchOutput = output.get(0);
+
+        release(batchOutput);
+        notifyRequests();
+    }
+
+    @Override
+    public void setOutputException(Exception exception) {
+        this.exception = exception;
+        release(null);
+        notifyRequests();
+    }
+
+    @Override
+    public INDArray[] getOutput() {
+        checkOutputException();
+
+        // views are created by consumers, so worker doesn't spend time on this
+        int request = position.get();
+        RuntimeException failure = failures.get(request);
+        if (failure != null)
+            throw failure;
+
+        INDArray[] result = new INDArray[batchOutput.length];
+        for (int e = 0; e < result.length; e++) {
+            long numRows = batchOutput[e].size(0);
+            result[e] = offsets[request] == 0 && rows[request] == numRows ? batchOutput[e]
+                            : rowsOf(batchOutput[e], offsets[request], rows[request]);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void setPosition(int pos) {
+        position.set(pos);
+    }
+
+    @Override
+    public int getCounter() {
+        return (int) ((state.get() & ~SEALED) >>> 32);
+    }
+
+    @Override
+    public boolean isLocked() {
+        return state.get() < 0;
+    }
+
+    private void notifyRequests() {
+        int requests = getCounter();
+        for (int e = 0; e < requests; e++) {
+            Observer observer = observers.get(e);
+            if (observer != null)
+                observer.update(this, null);
+        }
+
+        // observers added via addObserver()
+        this.setChanged();
+        notifyObservers();
+    }
+
+    private void release(INDArray[] output) {
+        if (!released.compareAndSet(false, true))
+            return;
+
+        // model might return its input as output, i.e. for identity layers, and such buffers can't be reused
+        if (output != null) {
+            for (INDArray out : output) {
+                for (INDArray buffer : buffers) {
+                    if (out != null && out.data().sameUnderlyingData(buffer.data()))
+                        return;
+                }
+            }
+        }
+
+        pool.release(signature, buffers);
+    }
+
+    private static INDArray rowsOf(INDArray array, long offset, long numRows) {
+        INDArrayIndex[] indices = new INDArrayIndex[array.rank()];
+        indices[0] = NDArrayIndex.interval(offset, offset + numRows);
+        for (int e = 1; e < indices.length; e++)
+            indices[e] = NDArrayIndex.all();
+
+        return array.get(indices);
+    }
+
+    private static String signature(INDArray[] template, long capacity) {
+        StringBuilder builder = new StringBuilder().append(capacity);
+        for (INDArray in : template)
+            builder.append("/").append(in.dataType()).append(Arrays.toString(in.shape()).replaceFirst("\\[\\d+", "["));
+
+        return builder.toString();
+    }
+
+    /**
+     * Pool of batch input tensors, allocated out of workspaces, so they can be filled from any thread
+     */
+    public static class BufferPool {
+        private final int maxPerSignature;
+        private final ConcurrentHashMap<String, ConcurrentLinkedQueue<INDArray[]>> free = new ConcurrentHashMap<>();
+
+        /**
+         * @param maxPerSignature maximal number of idle buffer sets kept per shape
+         */
+        public BufferPool(int maxPerSignature) {
+            this.maxPerSignature = maxPerSignature;
+        }
+
+        protected INDArray[] acquire(String signature, INDArray[] template, long capacity) {
+            ConcurrentLinkedQueue<INDArray[]> queue = free.get(signature);
+            INDArray[] buffers = queue == null ? null : queue.poll();
+            if (buffers != null)
+                return buffers;
+
+            buffers = new INDArray[template.length];
+            try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                for (int e = 0; e < template.length; e++) {
+                    long[] shape = template[e].shape().clone();
+                    shape[0] = capacity;
+                    DataType dataType = template[e].dataType();
+                    buffers[e] = Nd4j.createUninitialized(dataType, shape, 'c');
+                }
+            }
+
+            return buffers;
+        }
+
+        protected void release(String signature, INDArray[] buffers) {
+            ConcurrentLinkedQueue<INDArray[]> queue = free.get(signature);
+            if (queue == null) {
+                ConcurrentLinkedQueue<INDArray[]> created = new ConcurrentLinkedQueue<>();
+                queue = free.putIfAbsent(signature, created);
+                if (queue == null)
+                    queue = created;
+            }
+            if (queue.size() < maxPerSignature)
+                queue.offer(buffers);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.BatchCostModel;
+import org.deeplearning4j.parallelism.inference.BatchingStats;
+import org.deeplearning4j.parallelism.inference.InferenceMode;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
+import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.nd4j.linalg.profiler.data.primitives.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveBatchingTest extends BaseDL4JTest {
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (int e = 1; e <= 1000; e++)
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(e));
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), histogram.getMaximum());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500) + 500, histogram.getMean(), 0.0);
+
+        // buckets are 1/16 of power of 2 wide, so percentiles are precise within 6.25%
+        double p50 = histogram.getValueAtPercentile(50);
+        double p99 = histogram.getValueAtPercentile(99);
+        assertEquals(500_000, p50, 500_000 * 0.0625);
+        assertEquals(990_000, p99, 990_000 * 0.0625);
+        assertTrue(p50 >= 500_000 && p99 >= 990_000);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaximum());
+    }
+
+    @Test
+    public void testCostModel() {
+        BatchCostModel model = new BatchCostModel(0.95);
+        assertFalse(model.hasObservations());
+        assertEquals(0, model.predict(10));
+
+        // single size observed: cost is assumed to be proportional
+        model.update(4, 4_000_000);
+        assertEquals(8_000_000, model.predict(8));
+
+        // fixed cost of 1ms and 100us per request
+        for (int i = 0; i < 10; i++) {
+            for (int b = 1; b <= 16; b++)
+                model.update(b, 1_000_000 + 100_000 * b);
+        }
+
+        assertEquals(4_200_000, model.predict(32), 4_200_000 * 0.05);
+        assertEquals(1_100_000, model.predict(1), 1_100_000 * 0.05);
+    }
+
+    @Test
+    public void testAdaptiveProviderBatchSize() {
+        LinkedBlockingQueue<InferenceObservable> queue = new LinkedBlockingQueue<>();
+        ParallelInference.AdaptiveObservablesProvider provider = new ParallelInference.AdaptiveObservablesProvider(
+                        TimeUnit.SECONDS.toNanos(1), 100, queue);
+
+        // teach the provider that each request costs 90ms
+        for (int b = 1; b <= 10; b++) {
+            BatchedInferenceObservable batch = new BatchedInferenceObservable();
+            for (int e = 0; e < b; e++)
+                batch.addInput(new INDArray[] {Nd4j.create(1, 10)}, null);
+
+            long now = System.nanoTime();
+            provider.batchCompleted(batch, now, now + 90_000_000L * b);
+        }
+
+        List<INDArray> inputs = new ArrayList<>();
+        for (int e = 0; e < 12; e++)
+            inputs.add(Nd4j.create(1, 10));
+
+        // initial budget is 80% of target, so 8 requests fit into single batch
+        BasicInferenceObserver observer = new BasicInferenceObserver();
+        List<InferenceObservable> observables = new ArrayList<>();
+        for (INDArray input : inputs)
+            observables.add(provider.setInput(observer, input));
+
+        assertEquals(2, queue.size());
+        assertEquals(8, ((BatchedInferenceObservable) observables.get(0)).getCounter());
+        assertTrue(observables.get(7) == observables.get(0));
+        assertTrue(observables.get(8) != observables.get(0));
+
+        BatchingStats stats = provider.getStats();
+        assertEquals(10, stats.getNumberOfBatches());
+        assertEquals(55, stats.getNumberOfRequests());
+        assertEquals(2, stats.getQueueDepth());
+        long[] histogram = stats.getBatchSizeHistogram();
+        for (int b = 1; b <= 10; b++)
+            assertEquals(1, histogram[b]);
+    }
+
+    @Test(timeout = 60000L)
+    public void testAdaptiveInference() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(new DenseLayer.Builder().nIn(10).nOut(20).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(20).nOut(5)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+        final MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        final ParallelInference inf = new ParallelInference.Builder(net).inferenceMode(InferenceMode.BATCHED)
+                        .workers(2).batchLimit(16).latencyTarget(50, TimeUnit.MILLISECONDS).build();
+
+        int numThreads = 4;
+        final int perThread = 50;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            INDArray in = Nd4j.rand(1, 10);
+                            INDArray expected = net.output(in);
+                            assertEquals(expected, inf.output(in));
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread t : threads)
+            t.join();
+
+        assertNull(failure.get());
+
+        BatchingStats stats = inf.getBatchingStats();
+        assertNotNull(stats);
+        assertEquals(numThreads * perThread, stats.getNumberOfRequests());
+        assertTrue(stats.getNumberOfBatches() <= stats.getNumberOfRequests());
+        assertTrue(stats.getLatencies().getValueAtPercentile(99) > 0);
+
+        inf.shutdown();
+    }
+}
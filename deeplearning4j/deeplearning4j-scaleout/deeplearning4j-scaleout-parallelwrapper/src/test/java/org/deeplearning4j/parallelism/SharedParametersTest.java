@@ -0,0 +1,111 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.InferenceMode;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class SharedParametersTest extends BaseDL4JTest {
+
+    private static MultiLayerNetwork createModel(int seed) {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(seed).list()
+                        .layer(new DenseLayer.Builder().nIn(10).nOut(20).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(20).nOut(5)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    private static Model[] awaitReplicas(ParallelInference inf) throws Exception {
+        // replicas are created by workers on start
+        for (int i = 0; i < 100; i++) {
+            Model[] models = inf.getCurrentModelsFromWorkers();
+            boolean ready = true;
+            for (Model m : models)
+                ready &= m != null;
+
+            if (ready)
+                return models;
+
+            Thread.sleep(50);
+        }
+
+        throw new IllegalStateException("Workers weren't initialized");
+    }
+
+    @Test(timeout = 60000L)
+    public void testSharedParameters() throws Exception {
+        MultiLayerNetwork net = createModel(12345);
+        ParallelInference inf = new ParallelInference.Builder(net).inferenceMode(InferenceMode.SEQUENTIAL)
+                        .workers(3).sharedParameters(true).build();
+
+        Model[] models = awaitReplicas(inf);
+        assertEquals(3, models.length);
+        for (Model m : models)
+            assertTrue(m.params().data().sameUnderlyingData(net.params().data()));
+
+        for (int i = 0; i < 10; i++) {
+            INDArray in = Nd4j.rand(2, 10);
+            assertEquals(net.output(in), inf.output(in));
+        }
+
+        // updated model is shared as well
+        MultiLayerNetwork updated = createModel(119);
+        inf.updateModel(updated);
+        for (Model m : inf.getCurrentModelsFromWorkers())
+            assertTrue(m.params().data().sameUnderlyingData(updated.params().data()));
+
+        INDArray in = Nd4j.rand(2, 10);
+        assertEquals(updated.output(in), inf.output(in));
+
+        inf.shutdown();
+    }
+
+    @Test(timeout = 60000L)
+    public void testPrivateParameters() throws Exception {
+        MultiLayerNetwork net = createModel(12345);
+        ParallelInference inf = new ParallelInference.Builder(net).inferenceMode(InferenceMode.SEQUENTIAL)
+                        .workers(3).build();
+
+        int shared = 0;
+        for (Model m : awaitReplicas(inf)) {
+            if (m.params().data().sameUnderlyingData(net.params().data()))
+                shared++;
+        }
+
+        // only root worker uses original model
+        assertEquals(1, shared);
+
+        inf.shutdown();
+    }
+}
@@ -0,0 +1,233 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.conf.layers.recurrent.SimpleRnn;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.InMemoryRnnStateStore;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StreamingRnnInferenceTest extends BaseDL4JTest {
+
+    @Test(timeout = 60000L)
+    public void testConcurrentSessionsMLN() throws Exception {
+        final int nIn = 3;
+        final int tsLength = 6;
+        int numSessions = 16;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .list()
+                .layer(new LSTM.Builder().nIn(nIn).nOut(5).activation(Activation.TANH).build())
+                .layer(new SimpleRnn.Builder().nIn(5).nOut(4).activation(Activation.TANH).build())
+                .layer(new RnnOutputLayer.Builder().nIn(4).nOut(2).activation(Activation.SOFTMAX).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        final List<INDArray> inputs = new ArrayList<>();
+        List<INDArray> expected = new ArrayList<>();
+        for (int i = 0; i < numSessions; i++) {
+            INDArray in = Nd4j.rand(DataType.DOUBLE, 1, nIn, tsLength);
+            inputs.add(in);
+            expected.add(net.output(in));
+        }
+
+        final StreamingRnnInference inf = new StreamingRnnInference.Builder(net).workers(2).batchLimit(8).build();
+        try {
+            //Each session is stepped from its own thread, one time step per call
+            final List<INDArray> actual = Collections.synchronizedList(new ArrayList<INDArray>());
+            final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < numSessions; i++) {
+                actual.add(null);
+                final int sessionIdx = i;
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            INDArray out = Nd4j.create(DataType.DOUBLE, 1, 2, tsLength);
+                            for (int j = 0; j < tsLength; j++) {
+                                INDArray step = inputs.get(sessionIdx).get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(j));
+                                out.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(j))
+                                        .assign(inf.output("session-" + sessionIdx, step));
+                            }
+                            actual.set(sessionIdx, out);
+                        } catch (Throwable t) {
+                            errors.add(t);
+                        }
+                    }
+                });
+                t.start();
+                threads.add(t);
+            }
+            for (Thread t : threads)
+                t.join();
+
+            assertTrue(errors.toString(), errors.isEmpty());
+            for (int i = 0; i < numSessions; i++) {
+                assertTrue("Session " + i, expected.get(i).equalsWithEps(actual.get(i), 1e-6));
+            }
+
+            assertEquals(numSessions, inf.getStateStore().size());
+            Map<String, Map<String, INDArray>> state = inf.getStateStore().get("session-0");
+            assertEquals(2, state.size());
+            assertArrayEquals(new long[]{1, 5}, state.get("0").get("prevAct").shape());
+
+            //Ending a session: continues from initial state
+            inf.endSession("session-0");
+            assertEquals(numSessions - 1, inf.getStateStore().size());
+            INDArray firstStep = inputs.get(0).get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(0));
+            INDArray out = inf.output("session-0", firstStep);
+            assertTrue(expected.get(0).get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(0)).equalsWithEps(out, 1e-6));
+        } finally {
+            inf.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void testMultipleTimeStepsCG() {
+        int nIn = 4;
+        int tsLength = 8;
+
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .graphBuilder()
+                .addInputs("in")
+                .layer("lstm", new LSTM.Builder().nIn(nIn).nOut(6).activation(Activation.TANH).build(), "in")
+                .layer("out", new RnnOutputLayer.Builder().nIn(6).nOut(3).activation(Activation.SOFTMAX).build(), "lstm")
+                .setOutputs("out")
+                .build();
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+
+        //Sessions with minibatch size > 1, stepped 2 or 3 time steps at a time, interleaved
+        INDArray inA = Nd4j.rand(DataType.DOUBLE, 2, nIn, tsLength);
+        INDArray inB = Nd4j.rand(DataType.DOUBLE, 3, nIn, tsLength);
+        INDArray expA = net.outputSingle(inA);
+        INDArray expB = net.outputSingle(inB);
+
+        StreamingRnnInference inf = new StreamingRnnInference.Builder(net).workers(1).build();
+        try {
+            int[][] chunks = {{0, 2}, {2, 5}, {5, 8}};
+            for (int[] c : chunks) {
+                INDArray outA = inf.output("a", inA.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.interval(c[0], c[1])));
+                INDArray outB = inf.output("b", inB.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.interval(c[0], c[1])));
+                assertTrue(expA.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.interval(c[0], c[1])).equalsWithEps(outA, 1e-6));
+                assertTrue(expB.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.interval(c[0], c[1])).equalsWithEps(outB, 1e-6));
+            }
+            assertArrayEquals(new long[]{3, 6}, inf.getStateStore().get("b").get("lstm").get("prevMem").shape());
+        } finally {
+            inf.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void testShutdownFailsPendingRequests() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .list()
+                .layer(new LSTM.Builder().nIn(3).nOut(5).activation(Activation.TANH).build())
+                .layer(new RnnOutputLayer.Builder().nIn(5).nOut(2).activation(Activation.SOFTMAX).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        final StreamingRnnInference inf = new StreamingRnnInference.Builder(net).workers(2).batchLimit(4).build();
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final AtomicInteger completed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final String sessionId = "session-" + (i % 2);
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 50; j++) {
+                            inf.output(sessionId, Nd4j.rand(DataType.DOUBLE, 1, 3));
+                            completed.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        while (completed.get() < 20)
+            Thread.sleep(1);
+        inf.shutdown();
+
+        //All callers return: either with output, or with an exception for requests not executed before shutdown
+        for (Thread t : threads)
+            t.join();
+        for (Throwable t : errors) {
+            assertTrue(t.toString(), t instanceof IllegalStateException);
+        }
+
+        try {
+            inf.output("session-0", Nd4j.rand(DataType.DOUBLE, 1, 3));
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testStateStoreExpiry() throws Exception {
+        InMemoryRnnStateStore store = new InMemoryRnnStateStore(50);
+        Map<String, Map<String, INDArray>> state = Collections.singletonMap("0",
+                Collections.singletonMap("prevAct", Nd4j.zeros(1, 3)));
+        store.put("a", state);
+        store.put("b", state);
+        assertEquals(2, store.size());
+
+        Thread.sleep(100);
+        store.get("b");
+        store.put("c", state);
+        assertNull(store.get("a"));
+        assertNotNull(store.get("b"));
+        assertNotNull(store.get("c"));
+        assertEquals(2, store.size());
+    }
+}
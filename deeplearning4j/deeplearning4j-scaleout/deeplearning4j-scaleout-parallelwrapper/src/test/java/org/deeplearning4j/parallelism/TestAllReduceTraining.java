@@ -0,0 +1,103 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.optimize.api.BaseTrainingListener;
+import org.deeplearning4j.optimize.solvers.accumulation.AllReduceGradientsAccumulator;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestAllReduceTraining extends BaseDL4JTest {
+
+    @Test
+    public void testAllReduceTraining() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(new Adam(1e-2))
+                        .list()
+                        .layer(new DenseLayer.Builder().nIn(10).nOut(20).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MSE).nIn(20).nOut(3)
+                                        .activation(Activation.IDENTITY).build())
+                        .build();
+
+        MultiLayerNetwork model = new MultiLayerNetwork(conf);
+        model.init();
+
+        INDArray w = Nd4j.rand(10, 3);
+        // 10 minibatches for 4 workers: last round will have fewer consumers than workers
+        List<DataSet> data = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            INDArray f = Nd4j.rand(16, 10);
+            data.add(new DataSet(f, f.mmul(w)));
+        }
+        DataSet all = DataSet.merge(data);
+
+        INDArray paramsBefore = model.params().dup();
+        double scoreBefore = model.score(all);
+
+        ParallelWrapper wrapper = new ParallelWrapper.Builder<>(model).workers(4).prefetchBuffer(0)
+                        .trainingMode(ParallelWrapper.TrainingMode.ALL_REDUCE).build();
+        assertTrue(wrapper.getGradientsAccumulator() instanceof AllReduceGradientsAccumulator);
+
+        // listeners are shared by all workers, so this collects every model replica. New replicas are created on each fit
+        final Set<Model> replicas = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Model, Boolean>()));
+        wrapper.setListeners(new BaseTrainingListener() {
+            @Override
+            public void iterationDone(Model model, int iteration, int epoch) {
+                replicas.add(model);
+            }
+        });
+
+        for (int epoch = 0; epoch < 5; epoch++) {
+            replicas.clear();
+            wrapper.fit(new ExistingDataSetIterator(data));
+        }
+
+        wrapper.shutdown();
+
+        assertEquals(4, replicas.size());
+        for (Model replica : replicas)
+            assertEquals(model.params(), replica.params());
+
+        assertNotEquals(paramsBefore, model.params());
+        double scoreAfter = model.score(all);
+        assertTrue(scoreBefore + " vs " + scoreAfter, scoreAfter < scoreBefore);
+    }
+}
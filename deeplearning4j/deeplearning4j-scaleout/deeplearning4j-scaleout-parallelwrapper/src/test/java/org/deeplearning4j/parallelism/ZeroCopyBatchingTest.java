@@ -0,0 +1,254 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.InferenceMode;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
+import org.deeplearning4j.parallelism.inference.observers.ZeroCopyBatchedInferenceObservable;
+import org.junit.Test;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ZeroCopyBatchingTest extends BaseDL4JTest {
+
+    @Test
+    public void testRowClaims() {
+        ZeroCopyBatchedInferenceObservable.BufferPool pool = new ZeroCopyBatchedInferenceObservable.BufferPool(2);
+        List<INDArray> inputs = new ArrayList<>();
+        for (int e = 0; e < 5; e++)
+            inputs.add(Nd4j.rand(DataType.FLOAT, 2, 3));
+
+        ZeroCopyBatchedInferenceObservable batch = new ZeroCopyBatchedInferenceObservable(pool,
+                        new INDArray[] {inputs.get(0)}, 4);
+        for (int e = 0; e < 4; e++)
+            assertEquals(e, batch.tryAdd(new INDArray[] {inputs.get(e)}, null));
+
+        // no room for 5th request
+        assertEquals(-1, batch.tryAdd(new INDArray[] {inputs.get(4)}, null));
+        assertEquals(4, batch.getCounter());
+        assertFalse(batch.isLocked());
+
+        List<Pair<INDArray[], INDArray[]>> batches = batch.getInputBatches();
+        assertEquals(1, batches.size());
+        assertNull(batches.get(0).getSecond());
+        assertEquals(Nd4j.vstack(inputs.subList(0, 4)), batches.get(0).getFirst()[0]);
+        assertTrue(batch.isLocked());
+
+        INDArray output = batches.get(0).getFirst()[0].mul(2);
+        batch.setOutputBatches(Collections.singletonList(new INDArray[] {output}));
+
+        for (int e = 0; e < 4; e++) {
+            batch.setPosition(e);
+            INDArray out = batch.getOutput()[0];
+            assertTrue(out.isView());
+            assertEquals(inputs.get(e).mul(2), out);
+        }
+    }
+
+    @Test
+    public void testSealedBatch() {
+        ZeroCopyBatchedInferenceObservable.BufferPool pool = new ZeroCopyBatchedInferenceObservable.BufferPool(2);
+        INDArray first = Nd4j.rand(DataType.FLOAT, 1, 5);
+        INDArray second = Nd4j.rand(DataType.FLOAT, 3, 5);
+
+        ZeroCopyBatchedInferenceObservable batch = new ZeroCopyBatchedInferenceObservable(pool, new INDArray[] {first}, 8);
+        assertEquals(0, batch.tryAdd(new INDArray[] {first}, null));
+        assertEquals(1, batch.tryAdd(new INDArray[] {second}, null));
+
+        // only claimed rows are passed to the model
+        INDArray features = batch.getInputBatches().get(0).getFirst()[0];
+        assertArrayEquals(new long[] {4, 5}, features.shape());
+        assertEquals(Nd4j.vstack(first, second), features);
+
+        assertEquals(-1, batch.tryAdd(new INDArray[] {first}, null));
+        assertEquals(2, batch.getCounter());
+        assertTrue(batch.isLocked());
+
+        batch.setOutputBatches(Collections.singletonList(new INDArray[] {features.add(1)}));
+        batch.setPosition(1);
+        assertEquals(second.add(1), batch.getOutput()[0]);
+    }
+
+    @Test
+    public void testFailedCopy() {
+        ZeroCopyBatchedInferenceObservable.BufferPool pool = new ZeroCopyBatchedInferenceObservable.BufferPool(2);
+        INDArray first = Nd4j.rand(DataType.FLOAT, 1, 5);
+        INDArray second = Nd4j.rand(DataType.FLOAT, 1, 5);
+
+        // rows are claimed before the copy, so the failed request stays in the batch and must not block the worker
+        ZeroCopyBatchedInferenceObservable batch = new ZeroCopyBatchedInferenceObservable(pool, new INDArray[] {first}, 4);
+        assertEquals(0, batch.tryAdd(new INDArray[] {first}, null));
+        assertEquals(1, batch.tryAdd(new INDArray[] {Nd4j.rand(DataType.FLOAT, 1, 4)}, null));
+        assertEquals(2, batch.tryAdd(new INDArray[] {second}, null));
+
+        INDArray features = batch.getInputBatches().get(0).getFirst()[0];
+        assertArrayEquals(new long[] {3, 5}, features.shape());
+        batch.setOutputBatches(Collections.singletonList(new INDArray[] {features.add(1)}));
+
+        // failure is reported to the failed request only
+        batch.setPosition(1);
+        try {
+            batch.getOutput();
+            fail("Expected exception");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        batch.setPosition(0);
+        assertEquals(first.add(1), batch.getOutput()[0]);
+        batch.setPosition(2);
+        assertEquals(second.add(1), batch.getOutput()[0]);
+    }
+
+    @Test
+    public void testCompatibility() {
+        INDArray input = Nd4j.create(DataType.FLOAT, 2, 3);
+
+        assertTrue(ZeroCopyBatchedInferenceObservable.canBatch(new INDArray[] {input}, null));
+        assertFalse(ZeroCopyBatchedInferenceObservable.canBatch(new INDArray[] {input}, new INDArray[] {Nd4j.ones(2, 1)}));
+        assertFalse(ZeroCopyBatchedInferenceObservable.canBatch(new INDArray[] {input, Nd4j.create(DataType.FLOAT, 3, 3)}, null));
+        assertFalse(ZeroCopyBatchedInferenceObservable.canBatch(new INDArray[] {Nd4j.create(DataType.FLOAT, 3)}, null));
+
+        ZeroCopyBatchedInferenceObservable batch = new ZeroCopyBatchedInferenceObservable(
+                        new ZeroCopyBatchedInferenceObservable.BufferPool(2), new INDArray[] {input}, 4);
+        assertTrue(batch.isCompatible(new INDArray[] {Nd4j.create(DataType.FLOAT, 1, 3)}));
+        assertFalse(batch.isCompatible(new INDArray[] {Nd4j.create(DataType.FLOAT, 2, 4)}));
+        assertFalse(batch.isCompatible(new INDArray[] {Nd4j.create(DataType.DOUBLE, 2, 3)}));
+        assertFalse(batch.isCompatible(new INDArray[] {input, input}));
+    }
+
+    @Test
+    public void testBufferReuse() {
+        ZeroCopyBatchedInferenceObservable.BufferPool pool = new ZeroCopyBatchedInferenceObservable.BufferPool(2);
+        INDArray[] input = new INDArray[] {Nd4j.rand(DataType.FLOAT, 1, 4)};
+
+        ZeroCopyBatchedInferenceObservable first = new ZeroCopyBatchedInferenceObservable(pool, input, 2);
+        first.tryAdd(input, null);
+        INDArray firstFeatures = first.getInputBatches().get(0).getFirst()[0];
+        first.setOutputBatches(Collections.singletonList(new INDArray[] {firstFeatures.dup()}));
+
+        // buffers of executed batch are reused by the next one
+        ZeroCopyBatchedInferenceObservable second = new ZeroCopyBatchedInferenceObservable(pool, input, 2);
+        second.tryAdd(input, null);
+        INDArray secondFeatures = second.getInputBatches().get(0).getFirst()[0];
+        assertTrue(secondFeatures.data().sameUnderlyingData(firstFeatures.data()));
+
+        // output backed by input buffer can't be recycled
+        second.setOutputBatches(Collections.singletonList(new INDArray[] {secondFeatures}));
+        ZeroCopyBatchedInferenceObservable third = new ZeroCopyBatchedInferenceObservable(pool, input, 2);
+        third.tryAdd(input, null);
+        INDArray thirdFeatures = third.getInputBatches().get(0).getFirst()[0];
+        assertFalse(thirdFeatures.data().sameUnderlyingData(secondFeatures.data()));
+    }
+
+    @Test
+    public void testProviderFallback() {
+        LinkedBlockingQueue<InferenceObservable> queue = new LinkedBlockingQueue<>();
+        ParallelInference.ObservablesProvider provider = new ParallelInference.ObservablesProvider(10000000L, 3, queue);
+        provider.setZeroCopy(true);
+
+        BasicInferenceObserver observer = new BasicInferenceObserver();
+        List<InferenceObservable> observables = new ArrayList<>();
+        for (int e = 0; e < 4; e++)
+            observables.add(provider.setInput(observer, Nd4j.create(DataType.FLOAT, 1, 10)));
+
+        assertTrue(observables.get(0) instanceof ZeroCopyBatchedInferenceObservable);
+        assertTrue(observables.get(2) == observables.get(0));
+        assertTrue(observables.get(3) != observables.get(0));
+        assertEquals(2, queue.size());
+
+        // masked input goes through regular batching
+        InferenceObservable masked = provider.setInput(observer, new INDArray[] {Nd4j.create(DataType.FLOAT, 1, 10)},
+                        new INDArray[] {Nd4j.ones(1, 1)});
+        assertFalse(masked instanceof ZeroCopyBatchedInferenceObservable);
+        assertEquals(3, queue.size());
+
+        // input of different shape starts new batch
+        InferenceObservable other = provider.setInput(observer, Nd4j.create(DataType.FLOAT, 1, 12));
+        assertTrue(other instanceof ZeroCopyBatchedInferenceObservable);
+        assertTrue(other != observables.get(3));
+        assertEquals(4, queue.size());
+    }
+
+    @Test(timeout = 60000L)
+    public void testZeroCopyInference() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(new DenseLayer.Builder().nIn(10).nOut(20).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(20).nOut(5)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+        final MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        final ParallelInference inf = new ParallelInference.Builder(net).inferenceMode(InferenceMode.BATCHED)
+                        .workers(2).batchLimit(8).zeroCopyBatching(true).build();
+
+        int numThreads = 4;
+        final int perThread = 50;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            final int rows = t % 2 + 1;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            INDArray in = Nd4j.rand(rows, 10);
+                            INDArray expected = net.output(in);
+                            INDArray output = inf.output(in);
+                            assertArrayEquals(expected.shape(), output.shape());
+                            assertEquals(expected, output);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread t : threads)
+            t.join();
+
+        assertNull(failure.get());
+        assertEquals(numThreads * perThread, inf.getBatchingStats().getNumberOfRequests());
+
+        inf.shutdown();
+    }
+}
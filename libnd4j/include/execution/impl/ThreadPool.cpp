@@ -153,7 +153,8 @@ namespace samediff {
         {
             // we lock before checking availability
             std::unique_lock<std::mutex> lock(_lock);
-            if (_available >= numThreads) {
+            // threads are marked available before their ticket is returned, so concurrent callers may find free threads but no free ticket
+            if (_available >= numThreads && !_tickets.empty()) {
                 threaded = true;
                 _available -= numThreads;
 
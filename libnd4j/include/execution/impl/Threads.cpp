@@ -526,6 +526,12 @@ namespace samediff {
     }
 
     int Threads::parallel_do(FUNC_DO function, uint64_t numThreads) {
+        // shortcut
+        if (numThreads <= 1) {
+            function(0, 1);
+            return 1;
+        }
+
         auto ticket = ThreadPool::getInstance()->tryAcquire(numThreads - 1);
         if (ticket != nullptr) {
 
@@ -1458,6 +1458,7 @@ public class SDVariable implements Serializable {
     public void addControlDependency(SDVariable controlDependency){
         Variable vThis = sameDiff.getVariables().get(getVarName());
         Variable vCD = sameDiff.getVariables().get(controlDependency.name());
+        sameDiff.markStructureModified();
 
         //If possible: add control dependency on ops
         if(vThis.getOutputOfOp() != null && vCD.getOutputOfOp() != null ){
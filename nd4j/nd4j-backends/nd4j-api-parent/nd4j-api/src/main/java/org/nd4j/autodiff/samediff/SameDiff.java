@@ -89,7 +89,14 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -271,6 +278,47 @@ public class SameDiff extends SDBaseOps {
     @Setter
     boolean logExecution = true;
 
+    /**
+     * If true (default): for graphs without control flow, record the order that ops are executed in, and reuse it for
+     * subsequent executions with the same signature (requested outputs, placeholder shapes and types).<br>
+     * See {@link org.nd4j.autodiff.samediff.internal.ExecutionPlan} for details
+     */
+    @Getter
+    @Setter
+    boolean cacheExecutionPlans = true;
+
+    /**
+     * If true: ops in independent branches of the graph (i.e., ops without any data dependencies between them) may be
+     * executed concurrently, using a shared pool of threads. Default: false.<br>
+     * Concurrent execution is only used for executions that replay a cached execution plan (see
+     * {@link #setCacheExecutionPlans(boolean)}) and have no listeners. Results are identical to sequential execution:
+     * only the op computation itself is performed concurrently; everything else (array allocation, deallocation, etc)
+     * is performed by the calling thread, in a fixed order.<br>
+     * This is mainly useful for graphs with wide independent branches, executed with small minibatches - i.e., where
+     * individual ops are too small to make use of all cores.
+     */
+    @Getter
+    @Setter
+    boolean parallelOpExecution = false;
+
+    /**
+     * Number of threads used for concurrent op execution (see {@link #setParallelOpExecution(boolean)}). All threads
+     * executing this SameDiff instance share one pool of this size, created on first use: changes only take effect
+     * after {@link #close()}. Default: 0, meaning the number of available processors
+     */
+    @Getter
+    @Setter
+    int parallelOpExecutionThreads = 0;
+
+    private ExecutorService parallelOpExecutor;     //Created on first use; see getParallelOpExecutor()
+    private final Object parallelOpExecutorLock = new Object();
+
+    /**
+     * Number of modifications of the graph structure: ops or variables added, removed, renamed or rewired, and variable
+     * types changed. Used to detect that cached execution plans are no longer valid - see {@link #markStructureModified()}
+     */
+    private final AtomicLong structureVersion = new AtomicLong(0);
+
     @Getter
     private SameDiff parent;
 
@@ -495,6 +543,7 @@ public class SameDiff extends SDBaseOps {
      * @return
      */
     public SDVariable invokeGraphOn(SameDiff sameDiff) {
+        sameDiff.markStructureModified();
         //map the new vertices on to the old ones
         Map<Integer, Integer> thisVertexIdToNew = new HashMap<>();
         int idx = 1;
@@ -576,6 +625,79 @@ public class SameDiff extends SDBaseOps {
         return ops.get(variables.get(variableName).getOutputOfOp()).getOp();
     }
 
+    /**
+     * Remove all sessions (one per thread that has executed this SameDiff instance), releasing any cached arrays/state.
+     * New sessions are created as required
+     */
+    public void clearSessions() {
+        sessions.clear();
+    }
+
+    /**
+     * Get the executor used for concurrent op execution (see {@link #setParallelOpExecution(boolean)}), shared by the
+     * sessions of all threads executing this SameDiff instance. Created on first use with
+     * {@link #getParallelOpExecutionThreads()} threads, which are released when idle or by {@link #close()}.<br>
+     * Used internally by the sessions; not intended to be used otherwise.
+     *
+     * @return Executor for concurrent op execution
+     */
+    public ExecutorService getParallelOpExecutor() {
+        synchronized (parallelOpExecutorLock) {
+            if (parallelOpExecutor == null) {
+                int threads = parallelOpExecutionThreads > 0 ? parallelOpExecutionThreads : Runtime.getRuntime().availableProcessors();
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread t = Executors.defaultThreadFactory().newThread(r);
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+                executor.allowCoreThreadTimeOut(true);
+                parallelOpExecutor = executor;
+            }
+            return parallelOpExecutor;
+        }
+    }
+
+    /**
+     * Release the resources held by this SameDiff instance for execution: remove all sessions (see
+     * {@link #clearSessions()}) and shut down the executor used for concurrent op execution, if one was created.
+     * The instance can still be used after this: sessions and the executor are created again as required. Must not be
+     * called while other threads are executing this instance
+     */
+    public void close() {
+        clearSessions();
+        ExecutorService executor;
+        synchronized (parallelOpExecutorLock) {
+            executor = parallelOpExecutor;
+            parallelOpExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the current version of the graph structure. The version changes every time the graph structure is
+     * modified, so anything derived from the structure (such as cached execution plans) can be checked for staleness
+     *
+     * @return Graph structure version
+     */
+    public long getStructureVersion() {
+        return structureVersion.get();
+    }
+
+    /**
+     * Record that the graph structure was modified. Called by all methods that modify ops or variables; code that
+     * modifies {@link #getOps()}, {@link #getVariables()} or their {@link SameDiffOp}/{@link Variable} instances directly
+     * must call this method afterwards.
+     */
+    public void markStructureModified() {
+        structureVersion.incrementAndGet();
+    }
+
     /**
      * Get the function by the {@link DifferentialFunction#getOwnName()}
      *
@@ -600,6 +722,7 @@ public class SameDiff extends SDBaseOps {
         if (ops.containsKey(id) && ops.get(id).getOp() == null) {
             throw new ND4JIllegalStateException("Function by id already exists!");
         }
+        markStructureModified();
 
         if (!ops.containsKey(id)) {
             ops.put(id, SameDiffOp.builder().name(id).op(function).build());
@@ -958,7 +1081,6 @@ public class SameDiff extends SDBaseOps {
      * @param function Differential function
      */
     public void addOutgoingFor(String[] varNames, DifferentialFunction function) {
-
         if (function.getOwnName() == null)
             throw new ND4JIllegalStateException("Instance id can not be null. Function not initialized properly");
 
@@ -976,6 +1098,7 @@ public class SameDiff extends SDBaseOps {
                 throw new ND4JIllegalStateException("Variable name elements can not be null!");
         }
 
+        markStructureModified();
         ops.get(function.getOwnName()).setOutputsOfOp(Arrays.asList(varNames));
 
         for (String resultName : varNames) {
@@ -1076,7 +1199,6 @@ public class SameDiff extends SDBaseOps {
      * @param function  Function
      */
     public void addArgsFor(String[] variables, DifferentialFunction function) {
-
         ArgumentInterceptor interceptor = getArgumentInterceptorToUse();
 
         if (interceptor != null) {
@@ -1090,6 +1212,8 @@ public class SameDiff extends SDBaseOps {
         if (function.getOwnName() == null)
             throw new ND4JIllegalStateException("Instance id can not be null. Function not initialized properly");
 
+        markStructureModified();
+
         //Add function if it doesn't exist
         //TODO could "not existing" be a bug sometimes?
         if (!ops.containsKey(function.getOwnName())) {
@@ -1132,11 +1256,12 @@ public class SameDiff extends SDBaseOps {
      * Does not use (or remove) ArgumentInterceptor stuff
      */
     public void replaceArgFor(int i, @NonNull SDVariable newArg, @NonNull DifferentialFunction function) {
-
         Preconditions.checkArgument(i < function.args().length, "Index out of range: function " +
                 function.getOwnName() + " only has " + function.args().length + " args but you are trying" +
                 "to replace the argument at " + i);
 
+        markStructureModified();
+
         String oldName = function.arg(i).name();
         String newName = newArg.name();
 
@@ -2686,6 +2811,7 @@ public class SameDiff extends SDBaseOps {
      */
     public SDVariable constant(String name, @NonNull INDArray constant) {
         Preconditions.checkState(!variables.containsKey(name), "Variable with name \"%s\" already exists", name);
+        markStructureModified();
         if (name == null || name.length() < 1)
             name = getNewVarName();
         if(constant.isView()) {
@@ -2714,6 +2840,7 @@ public class SameDiff extends SDBaseOps {
      */
     public SDVariable placeHolder(@NonNull String name, org.nd4j.linalg.api.buffer.DataType dataType, long... shape) {
         Preconditions.checkState(!variables.containsKey(name), "Variable already exists with name %s", name);
+        markStructureModified();
         SDVariable ret = new SDVariable(name, VariableType.PLACEHOLDER, this, shape, dataType);
         variables.put(name, Variable.builder().name(name).variable(ret).build());
         return ret;
@@ -3052,9 +3179,10 @@ public class SameDiff extends SDBaseOps {
         if (allConst) {
             return; //No op
         }
+        markStructureModified();
 
         //Remove all sessions in case they have any cached arrays/state
-        sessions.clear();
+        clearSessions();
 
         //If gradient function has been defined, remove it (so it will be recreated later)
         sameDiffFunctionInstances.remove(GRAD_FN_KEY);
@@ -3150,9 +3278,10 @@ public class SameDiff extends SDBaseOps {
         if (allConst) {
             return; //No op
         }
+        markStructureModified();
 
         //Remove all sessions in case they have any cached arrays/state
-        sessions.clear();
+        clearSessions();
 
         //If gradient function has been defined, remove it (so it will be recreated later)
         sameDiffFunctionInstances.remove(GRAD_FN_KEY);
@@ -3226,6 +3355,7 @@ public class SameDiff extends SDBaseOps {
                         "and non-numerical types: attempting to convert variable \"%s\" from %s to %s", e.getKey(), v.dataType(), e.getValue());
             }
         }
+        markStructureModified();
 
         boolean anyChanged = false;
         for (Map.Entry<String, DataType> e : dataTypeMap.entrySet()) {
@@ -3264,7 +3394,7 @@ public class SameDiff extends SDBaseOps {
         }
 
         if (anyChanged) {
-            sessions.clear();
+            clearSessions();
 
             //Recalculate datatypes of outputs, and dynamically update them
             Set<String> allSeenOps = new HashSet<>();
@@ -3326,6 +3456,7 @@ public class SameDiff extends SDBaseOps {
     public void renameVariable(String from, String to) {
         Preconditions.checkState(variables.containsKey(from), "Cannot rename variable \"%s\": no variable with this name exists", from);
         Preconditions.checkState(!variables.containsKey(to), "Cannot rename variable \"%s\" to name \"%s\": a variable with name \"%s\" already exists", from, to, to);
+        markStructureModified();
 
         Variable v = variables.get(from);
         v.setName(to);
@@ -3467,6 +3598,7 @@ public class SameDiff extends SDBaseOps {
      * @param function the function to remove the argument from
      */
     public void removeArgFromOp(String varName, DifferentialFunction function) {
+        markStructureModified();
         val args = function.args();
 
         for (int i = 0; i < args.length; i++) {
@@ -3773,6 +3905,7 @@ public class SameDiff extends SDBaseOps {
         }
 
         Preconditions.checkState(variable.getSameDiff() == this, "Same diff instance for variable must be the same!");
+        markStructureModified();
         variables.put(variable.name(), Variable.builder().name(variable.name()).variable(variable).build());
         return variable;
     }
@@ -4128,6 +4261,7 @@ public class SameDiff extends SDBaseOps {
                         " Only floating point SDVariables have gradients defined - variable has type %s", s, dt);
             }
         }
+        markStructureModified();
 
 
         /*
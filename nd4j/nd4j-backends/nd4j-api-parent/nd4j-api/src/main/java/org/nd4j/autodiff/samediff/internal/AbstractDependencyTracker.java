@@ -408,6 +408,30 @@ public abstract class AbstractDependencyTracker<T, D> {
         return ret;
     }
 
+    /**
+     * As per {@link #getNewAllSatisfiedList()} but does not remove the values - i.e., they will still be returned by
+     * subsequent calls to the "new all satisfied" methods
+     *
+     * @return All new/unprocessed "all satisfied" dependents. Empty list if none
+     */
+    public List<T> peekNewAllSatisfiedList() {
+        return new ArrayList<>(allSatisfiedQueue);
+    }
+
+    /**
+     * Mark the specified dependent (Y in X->Y) as having all dependencies satisfied, adding it to the "new all satisfied"
+     * queue if it is not already marked as such. Used to restore the queue to a previously recorded state, without
+     * adding any dependencies for the value.
+     *
+     * @param y Dependent to mark as all satisfied
+     */
+    public void markAllSatisfied(@NonNull T y) {
+        if (!allSatisfied.contains(y)) {
+            allSatisfied.add(y);
+            allSatisfiedQueue.add(y);
+        }
+    }
+
     /**
      * As per {@link #getNewAllSatisfied()} but instead of returning the first dependee, it returns the first that matches
      * the provided predicate. If no value matches the predicate, null is returned
@@ -30,6 +30,7 @@ import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.common.function.Predicate;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * AbstractSession is a SameDiff graph execution class that inference and training it built upon
@@ -86,6 +87,29 @@ public abstract class AbstractSession<T, O> {
      */
     protected final Set<String> zeroInputOpsInSubgraph = new HashSet<>();
 
+    /**
+     * Maximum number of execution plans to cache per session. When exceeded, the least recently used plan is removed
+     */
+    public static final int MAX_CACHED_EXECUTION_PLANS = 32;
+
+    /**
+     * Cached execution plans for static (no control flow) graphs - see {@link ExecutionPlan}.
+     * Access order, so iteration order is least recently used first
+     */
+    @Getter
+    protected final Map<ExecutionPlan.Key, ExecutionPlan> executionPlans = new LinkedHashMap<ExecutionPlan.Key, ExecutionPlan>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ExecutionPlan.Key, ExecutionPlan> eldest) {
+            return size() > MAX_CACHED_EXECUTION_PLANS;
+        }
+    };
+    /**
+     * The most recently executed plan, if any. Used to avoid resetting the subgraph sets when the same plan is replayed
+     */
+    protected ExecutionPlan lastPlan;
+
     public AbstractSession(@NonNull SameDiff sameDiff) {
         this.sameDiff = sameDiff;
     }
@@ -147,20 +171,36 @@ public abstract class AbstractSession<T, O> {
 
         //Clear state from past iterations, if any
         dt.clear();
-        subgraph.clear();
-        subgraphOps.clear();
         nodeOutputs.clear();            //TODO eventually we'll have (optional) cache here for later execs... main challenge is detecting in-place array modifications and invalidating old results. And overall memory use...
         tensorArrays.clear();
 
-        //Step 1: determine subgraph structure we actually need to execute
-        //Basic plan: work backwards from the variables we want, based on the graph structure, to work out what
-        // we actually need to execute
-        //TODO we'll optimize this and cache the results, only recalculating if the graph structure changes
         Set<String> userRequestedUnique = new HashSet<>(variables);
         Set<String> allRequired = new HashSet<>(requiredActivations);
         allRequired.addAll(variables);
+
+        //If we have previously executed the (static) graph with the same signature, replay the recorded execution plan
+        // instead of working out the subgraph and execution order again
+        ExecutionPlan.Key planKey = null;
+        if (sameDiff.isCacheExecutionPlans()) {
+            planKey = new ExecutionPlan.Key(userRequestedUnique, new HashSet<>(requiredActivations), placeholderSignatures(placeholderValues),
+                    sameDiff.getStructureVersion());
+            ExecutionPlan plan = executionPlans.get(planKey);
+            if (plan != null) {
+                return executePlan(plan, userRequestedUnique, allRequired, placeholderValues, batch, listeners, at);
+            }
+        }
+
+        //Step 1: determine subgraph structure we actually need to execute
+        //Basic plan: work backwards from the variables we want, based on the graph structure, to work out what
+        // we actually need to execute
+        subgraph.clear();
+        subgraphOps.clear();
+        lastPlan = null;
         initSubgraph(allRequired);
 
+        //Record the execution order, if the required subgraph is static - so we can reuse it next time
+        List<ExecStep> planSteps = (planKey != null && isStaticSubgraph()) ? new ArrayList<ExecStep>() : null;
+
         //Step 2: Check that we have required placeholders
         List<String> phNames = sameDiff.inputs();
         if (placeholderValues == null || !placeholderValues.keySet().containsAll(phNames)) {
@@ -280,6 +320,9 @@ public abstract class AbstractSession<T, O> {
             currParentFrame = es.getFrameIter().getParentFrame();
 
             log.trace("Beginning execution step {}: {}", step, es);
+            if (planSteps != null) {
+                planSteps.add(es);
+            }
 
             FrameIter outFrameIter;
             boolean skipDepUpdate = false;      //Only used for Switch ops, which have slighly different handling...
@@ -488,12 +531,281 @@ public abstract class AbstractSession<T, O> {
             step++;
         }
 
+        if (planSteps != null) {
+            ExecutionPlan plan = new ExecutionPlan(planSteps, subgraph, subgraphOps, dt.peekNewAllSatisfiedList());
+            executionPlans.put(planKey, plan);
+            lastPlan = plan;
+        }
+
         //TODO we should clear the node outputs map to get rid of the invalid (closed, out of workspace, etc) arrays
 
         out = postProcessOutput(out);   //Hook-in for subclass sessions, if needed
         return out;
     }
 
+    /**
+     * Execute a previously recorded execution plan. This is equivalent to dynamically scheduled execution in
+     * {@link #output(List, Map, MultiDataSet, Collection, List, At)}, but the order of execution is fixed in advance,
+     * so no dependency tracking is required.<br>
+     * Note that execution plans only exist for static graphs, hence all steps are executed in the outer frame
+     *
+     * @param plan                Execution plan to execute
+     * @param userRequestedUnique Outputs the user requested
+     * @param allRequired         All variables required to be calculated (outputs and required activations)
+     * @param placeholderValues   The (preprocessed) placeholder values
+     * @return The requested outputs
+     */
+    protected Map<String, T> executePlan(ExecutionPlan plan, Set<String> userRequestedUnique, Set<String> allRequired,
+                                         Map<String, T> placeholderValues, MultiDataSet batch, List<Listener> listeners, At at) {
+        if (plan != lastPlan) {
+            subgraph.clear();
+            subgraph.addAll(plan.getSubgraph());
+            subgraphOps.clear();
+            subgraphOps.addAll(plan.getSubgraphOps());
+            lastPlan = plan;
+        }
+
+        Map<String, T> out = new HashMap<>();
+        if (sameDiff.isParallelOpExecution() && (listeners == null || listeners.isEmpty())) {
+            for (ExecStep es : plan.getSteps()) {
+                if (es.getType() != ExecType.OP) {
+                    executePlanStep(es, out, userRequestedUnique, allRequired, placeholderValues, batch, listeners, at);
+                }
+            }
+            for (List<ExecStep> level : plan.getLevels(sameDiff)) {
+                if (level.size() == 1) {
+                    executePlanStep(level.get(0), out, userRequestedUnique, allRequired, placeholderValues, batch, listeners, at);
+                } else {
+                    executePlanLevel(level, out, userRequestedUnique, placeholderValues, batch, listeners, at);
+                }
+            }
+        } else {
+            for (ExecStep es : plan.getSteps()) {
+                executePlanStep(es, out, userRequestedUnique, allRequired, placeholderValues, batch, listeners, at);
+            }
+        }
+
+        //Ops that were available but not executed when the plan was recorded: queue them in the dependency tracker, as
+        // would be the case after dynamically scheduled execution
+        for (ExecStep es : plan.getPending()) {
+            dt.markAllSatisfied(es);
+        }
+
+        return postProcessOutput(out);
+    }
+
+    /**
+     * Execute a single step of an {@link ExecutionPlan}
+     */
+    protected void executePlanStep(ExecStep es, Map<String, T> out, Set<String> userRequestedUnique, Set<String> allRequired,
+                                   Map<String, T> placeholderValues, MultiDataSet batch, List<Listener> listeners, At at) {
+        String name = es.getName();
+        VarId vid = new VarId(name, OUTER_FRAME, 0, null);
+        switch (es.getType()) {
+            case CONSTANT:
+            case VARIABLE:
+                T arr = getConstantOrVariable(name);
+                Preconditions.checkNotNull(arr, "Encountered null placeholder array for constant: %s", vid);
+                nodeOutputs.put(vid, arr);
+                if (userRequestedUnique.contains(name)) {
+                    out.put(name, arr);
+                }
+                break;
+            case PLACEHOLDER:
+                T phVal = placeholderValues == null ? null : placeholderValues.get(name);
+                nodeOutputs.put(vid, phVal);
+                if (allRequired.contains(name)) {
+                    Preconditions.checkState(phVal != null, "No array was provided for the placeholder variable \"%s\" that is required for execution", name);
+                    out.put(name, phVal);
+                }
+                break;
+            case OP:
+                PlanOpInputs in = new PlanOpInputs(name);
+                O parameterizedOp = getAndParameterizeOp(name, in.frameIter, in.inputs, in.allIterInputs, in.constAndPhInputs, placeholderValues, userRequestedUnique);
+                T[] opOutputValues = getOutputs(parameterizedOp, in.frameIter, in.inputs, in.allIterInputs, in.constAndPhInputs, listeners, at, batch, userRequestedUnique);
+                storePlanOpOutputs(name, parameterizedOp, opOutputValues, out, userRequestedUnique);
+                break;
+            default:
+                //Should never happen - only static graphs have execution plans
+                throw new IllegalStateException("Unexpected step in execution plan: " + es);
+        }
+    }
+
+    /**
+     * Execute one level of an {@link ExecutionPlan} (see {@link ExecutionPlan#getLevels(SameDiff)}), executing ops
+     * concurrently where possible.<br>
+     * All ops in the level are first parameterized (in order), then the ops that support it are executed concurrently
+     * (see {@link #canExecConcurrently(Object)}), and finally the outputs are post-processed (in order). Hence the only
+     * thing that happens on other threads is the op computation itself, and the results do not depend on the order in
+     * which the concurrently executed ops complete.
+     */
+    protected void executePlanLevel(List<ExecStep> level, Map<String, T> out, Set<String> userRequestedUnique,
+                                    Map<String, T> placeholderValues, MultiDataSet batch, List<Listener> listeners, At at) {
+        int n = level.size();
+        List<PlanOpInputs> inputs = new ArrayList<>(n);
+        List<O> parameterized = new ArrayList<>(n);
+        List<Future<T[]>> futures = new ArrayList<>(n);
+        for (ExecStep es : level) {
+            PlanOpInputs in = new PlanOpInputs(es.getName());
+            inputs.add(in);
+            parameterized.add(getAndParameterizeOp(es.getName(), in.frameIter, in.inputs, in.allIterInputs, in.constAndPhInputs, placeholderValues, userRequestedUnique));
+        }
+
+        ExecutorService executor = sameDiff.getParallelOpExecutor();
+        for (int i = 0; i < n; i++) {
+            final O op = parameterized.get(i);
+            final PlanOpInputs in = inputs.get(i);
+            if (canExecConcurrently(op)) {
+                futures.add(executor.submit(new Callable<T[]>() {
+                    @Override
+                    public T[] call() {
+                        return execOp(op, in.frameIter, in.inputs, in.allIterInputs, in.constAndPhInputs);
+                    }
+                }));
+            } else {
+                futures.add(null);
+            }
+        }
+
+        //Wait for all ops to complete before any post processing, so that post processing happens in a fixed order
+        List<T[]> results = new ArrayList<>(n);
+        Throwable t = null;
+        for (Future<T[]> f : futures) {
+            try {
+                results.add(f == null ? null : f.get());
+            } catch (ExecutionException e) {
+                results.add(null);
+                if (t == null)
+                    t = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for op execution", e);
+            }
+        }
+        if (t != null) {
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new RuntimeException(t);
+        }
+
+        for (int i = 0; i < n; i++) {
+            String name = level.get(i).getName();
+            O op = parameterized.get(i);
+            PlanOpInputs in = inputs.get(i);
+            T[] opOutputValues;
+            if (futures.get(i) != null) {
+                opOutputValues = postExecOp(op, results.get(i), in.frameIter, in.inputs, in.allIterInputs, in.constAndPhInputs, listeners, at, batch, userRequestedUnique);
+            } else {
+                opOutputValues = getOutputs(op, in.frameIter, in.inputs, in.allIterInputs, in.constAndPhInputs, listeners, at, batch, userRequestedUnique);
+            }
+            storePlanOpOutputs(name, op, opOutputValues, out, userRequestedUnique);
+        }
+    }
+
+    private void storePlanOpOutputs(String opName, O parameterizedOp, T[] opOutputValues, Map<String, T> out, Set<String> userRequestedUnique) {
+        List<String> opOutVarNames = sameDiff.getOps().get(opName).getOutputsOfOp();
+        Preconditions.checkState(opOutputValues.length == opOutVarNames.size(), "Unexpected number of outputs from executed op %s:" +
+                        " got %s outputs when %s outputs were expected (%s)", parameterizedOp.getClass().getSimpleName(), opOutputValues.length,
+                opOutVarNames.size(), opOutVarNames);
+
+        for (int i = 0; i < opOutputValues.length; i++) {
+            String n = opOutVarNames.get(i);
+            nodeOutputs.put(new VarId(n, OUTER_FRAME, 0, null), opOutputValues[i]);
+            if (userRequestedUnique.contains(n)) {
+                out.put(n, opOutputValues[i]);
+            }
+        }
+    }
+
+    /**
+     * The inputs for an op in an execution plan. As plans only exist for static graphs, all inputs are in the outer frame
+     */
+    private class PlanOpInputs {
+        private final FrameIter frameIter = new FrameIter(OUTER_FRAME, 0, null);
+        private Set<VarId> inputs;
+        private Set<VarId> allIterInputs;
+        private Set<String> constAndPhInputs;
+
+        private PlanOpInputs(String opName) {
+            List<String> inputNames = sameDiff.getOps().get(opName).getInputsToOp();
+            if (inputNames != null && !inputNames.isEmpty()) {
+                inputs = new HashSet<>();
+                allIterInputs = new HashSet<>();
+                constAndPhInputs = new HashSet<>();
+                for (String s : inputNames) {
+                    VariableType vt = sameDiff.getVariables().get(s).getVariable().getVariableType();
+                    if (vt == VariableType.CONSTANT || vt == VariableType.PLACEHOLDER) {
+                        constAndPhInputs.add(s);
+                    } else {
+                        inputs.add(new VarId(s, OUTER_FRAME, 0, null));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine whether the current subgraph (as determined by {@link #initSubgraph(Set)}) is static - i.e., has no control
+     * flow ops or control dependencies, and hence the order of execution does not depend on the values of any arrays.
+     *
+     * @return True if the subgraph is static, and can be executed using an {@link ExecutionPlan}
+     */
+    protected boolean isStaticSubgraph() {
+        for (String opName : subgraphOps) {
+            SameDiffOp op = sameDiff.getOps().get(opName);
+            DifferentialFunction o = op.getOp();
+            if (o instanceof Enter || o instanceof Exit || o instanceof NextIteration || o instanceof Switch ||
+                    o instanceof Merge || o instanceof LoopCond) {
+                return false;
+            }
+            if (!isNullOrEmpty(op.getControlDeps()) || !isNullOrEmpty(op.getVarControlDeps()) || !isNullOrEmpty(op.getControlDepFor())) {
+                return false;
+            }
+        }
+
+        for (Variable v : sameDiff.getVariables().values()) {
+            if (!isNullOrEmpty(v.getControlDeps())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNullOrEmpty(List<String> list) {
+        return list == null || list.isEmpty();
+    }
+
+    /**
+     * Get the signatures of the placeholder values, used as part of the key for {@link ExecutionPlan}s.
+     * Placeholders with equal signatures are considered interchangeable for the purposes of reusing an execution plan
+     *
+     * @param placeholders Placeholder values. May be null
+     * @return Map of placeholder signatures
+     */
+    protected Map<String, Object> placeholderSignatures(Map<String, T> placeholders) {
+        if (placeholders == null || placeholders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> out = new HashMap<>();
+        for (Map.Entry<String, T> e : placeholders.entrySet()) {
+            out.put(e.getKey(), placeholderSignature(e.getValue()));
+        }
+        return out;
+    }
+
+    /**
+     * Get the signature of a single placeholder value - for example, the shape and datatype of the array.
+     * By default, only the placeholder names are used (i.e., all values are considered to have the same signature).
+     *
+     * @param value Placeholder value
+     * @return Signature for the value
+     */
+    protected Object placeholderSignature(T value) {
+        return null;
+    }
+
     /**
      * Add the control dependency from Op -> variable
      *
@@ -878,6 +1190,31 @@ public abstract class AbstractSession<T, O> {
     public abstract T[] getOutputs(O op, FrameIter outputFrameIter, Set<VarId> inputs, Set<VarId> allIterInputs, Set<String> constAndPhInputs,
                                    List<Listener> listeners, At at, MultiDataSet batch, Set<String> allReqVariables);
 
+    /**
+     * Whether the specified (parameterized) op can be executed via {@link #execOp(Object, FrameIter, Set, Set, Set)}
+     * concurrently with other ops that it has no dependencies with. If so, {@link #getOutputs(Object, FrameIter, Set, Set, Set, List, At, MultiDataSet, Set)}
+     * must be equivalent to execOp followed by {@link #postExecOp(Object, Object[], FrameIter, Set, Set, Set, List, At, MultiDataSet, Set)}.
+     *
+     * @param op Parameterized op, as returned by {@link #getAndParameterizeOp(String, FrameIter, Set, Set, Set, Map, Set)}
+     */
+    protected abstract boolean canExecConcurrently(O op);
+
+    /**
+     * Execute the specified (parameterized) op only, without any other processing. Only used for ops where
+     * {@link #canExecConcurrently(Object)} returns true; may be called from any thread.
+     *
+     * @return The op outputs
+     */
+    protected abstract T[] execOp(O op, FrameIter outputFrameIter, Set<VarId> inputs, Set<VarId> allIterInputs, Set<String> constAndPhInputs);
+
+    /**
+     * Post process the outputs of an op executed via {@link #execOp(Object, FrameIter, Set, Set, Set)}
+     *
+     * @return The op outputs
+     */
+    protected abstract T[] postExecOp(O op, T[] outputs, FrameIter outputFrameIter, Set<VarId> inputs, Set<VarId> allIterInputs,
+                                      Set<String> constAndPhInputs, List<Listener> listeners, At at, MultiDataSet batch, Set<String> allReqVariables);
+
     /**
      * Get the VarId from the specified name. The VarId should be in one or the other of the collections,
      * and only one VarId with that name should exist
@@ -0,0 +1,125 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+package org.nd4j.autodiff.samediff.internal;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.autodiff.samediff.SameDiff;
+
+import java.util.*;
+
+/**
+ * ExecutionPlan: A static, linearized execution order for a SameDiff graph, for one execution "signature" - i.e., one
+ * combination of requested outputs, required activations and placeholder shapes/types.<br>
+ * Execution plans are recorded by {@link AbstractSession} during normal (dynamically scheduled) execution. Subsequent
+ * executions with the same signature replay the recorded steps directly, without rebuilding the dependency tracker
+ * or re-determining the execution order from the graph structure. For small graphs/small minibatches, this per-call
+ * graph walking overhead can be a significant fraction of the total execution time.<br>
+ * <br>
+ * Only static graphs can be executed using an execution plan: if the required subgraph contains any control flow
+ * ops (Enter, Exit, Switch, Merge, NextIteration, LoopCond) or control dependencies, execution always falls back to
+ * dynamic scheduling.<br>
+ * Execution plan caching can be disabled using {@link org.nd4j.autodiff.samediff.SameDiff#setCacheExecutionPlans(boolean)}
+ */
+@Getter
+public class ExecutionPlan {
+
+    private final List<AbstractSession.ExecStep> steps;
+    private final Set<String> subgraph;
+    private final Set<String> subgraphOps;
+    private final List<AbstractSession.ExecStep> pending;
+    @Getter(AccessLevel.NONE)
+    private volatile List<List<AbstractSession.ExecStep>> levels;
+
+    /**
+     * @param steps       The execution steps, in the order they should be executed
+     * @param subgraph    The variables in the subgraph required to calculate the requested outputs
+     * @param subgraphOps The ops in the subgraph required to calculate the requested outputs
+     * @param pending     Steps that were available for execution (i.e., all dependencies satisfied) when execution
+     *                    completed, but were not executed as they were not required for the requested outputs
+     */
+    public ExecutionPlan(@NonNull List<AbstractSession.ExecStep> steps, @NonNull Set<String> subgraph,
+                         @NonNull Set<String> subgraphOps, @NonNull List<AbstractSession.ExecStep> pending) {
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.subgraph = Collections.unmodifiableSet(new HashSet<>(subgraph));
+        this.subgraphOps = Collections.unmodifiableSet(new HashSet<>(subgraphOps));
+        this.pending = Collections.unmodifiableList(new ArrayList<>(pending));
+    }
+
+    /**
+     * @return Number of steps in the execution plan
+     */
+    public int numSteps() {
+        return steps.size();
+    }
+
+    /**
+     * Group the op steps of this plan into levels: the ops in each level depend only on ops in earlier levels (and on
+     * variables, constants and placeholders), hence the ops within one level can be executed in any order, or
+     * concurrently. Within each level, ops are in the same relative order as in {@link #getSteps()}
+     *
+     * @param sameDiff The SameDiff instance this plan was recorded for
+     * @return The op steps, grouped by level
+     */
+    public List<List<AbstractSession.ExecStep>> getLevels(@NonNull SameDiff sameDiff) {
+        if (levels == null) {
+            Map<String, Integer> varLevel = new HashMap<>();
+            List<List<AbstractSession.ExecStep>> l = new ArrayList<>();
+            for (AbstractSession.ExecStep es : steps) {
+                if (es.getType() != AbstractSession.ExecType.OP)
+                    continue;
+                SameDiffOp op = sameDiff.getOps().get(es.getName());
+                int level = 0;
+                if (op.getInputsToOp() != null) {
+                    for (String s : op.getInputsToOp()) {
+                        Integer inLevel = varLevel.get(s);
+                        if (inLevel != null)
+                            level = Math.max(level, inLevel + 1);
+                    }
+                }
+                for (String s : op.getOutputsOfOp()) {
+                    varLevel.put(s, level);
+                }
+                while (l.size() <= level)
+                    l.add(new ArrayList<AbstractSession.ExecStep>());
+                l.get(level).add(es);
+            }
+            List<List<AbstractSession.ExecStep>> out = new ArrayList<>(l.size());
+            for (List<AbstractSession.ExecStep> list : l)
+                out.add(Collections.unmodifiableList(list));
+            levels = Collections.unmodifiableList(out);
+        }
+        return levels;
+    }
+
+    /**
+     * Key for looking up a previously recorded execution plan.
+     * The graph structure version (see {@link org.nd4j.autodiff.samediff.SameDiff#getStructureVersion()}) is included
+     * in the key, so that plans recorded before the graph structure was modified are not reused.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Key {
+        private Set<String> outputs;
+        private Set<String> requiredActivations;
+        private Map<String, Object> placeholders;   //Key: placeholder name. Value: shape/type signature for placeholder
+        private long structureVersion;
+    }
+}
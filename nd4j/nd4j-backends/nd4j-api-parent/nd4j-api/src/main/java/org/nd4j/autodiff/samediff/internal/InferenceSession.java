@@ -93,6 +93,7 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
 
     @Override
     protected Map<String, INDArray> preprocessPlaceholders(Map<String, INDArray> placeholders, At at) {
+        mmgr.executionStart();
         arrayUseTracker.clear();
 
         //We'll also use this method as a "pre execution" hook-in, to mark variables as something we should never deallocate
@@ -178,6 +179,12 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
         return out;
     }
 
+    @Override
+    protected Object placeholderSignature(INDArray value) {
+        //Execution plans are specific to the placeholder shapes and types
+        return value == null ? null : LongShapeDescriptor.fromShape(value.shape(), value.dataType());
+    }
+
     @Override
     protected Map<String, INDArray> postProcessOutput(Map<String, INDArray> output) {
 
@@ -203,6 +210,7 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
             }
         }
 
+        mmgr.executionEnd();
         return output;
     }
 
@@ -220,6 +228,32 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
         }
 
         INDArray[] out = doExec(op.getOp(), opPair.getRight(), outputFrameIter, opInputs, allIterInputs, constAndPhInputs);
+        return postExecOp(opPair, out, outputFrameIter, opInputs, allIterInputs, constAndPhInputs, listeners, at, batch, allReqVariables);
+    }
+
+    @Override
+    protected boolean canExecConcurrently(Pair<SameDiffOp, OpContext> opPair) {
+        //Only ops that are executed purely via their OpContext: not control flow, TensorArray or other special case ops
+        // that look up or allocate arrays during execution
+        DifferentialFunction df = opPair.getFirst().getOp();
+        if (opPair.getSecond() == null || df instanceof Identity || df instanceof GradientBackwardsMarker ||
+                df instanceof ExternalErrorsFunction || df instanceof Assert)
+            return false;
+        return df instanceof CustomOp || df instanceof Op;
+    }
+
+    @Override
+    protected INDArray[] execOp(Pair<SameDiffOp, OpContext> opPair, FrameIter outputFrameIter, Set<VarId> opInputs,
+                                Set<VarId> allIterInputs, Set<String> constAndPhInputs) {
+        return doExec(opPair.getFirst().getOp(), opPair.getSecond(), outputFrameIter, opInputs, allIterInputs, constAndPhInputs);
+    }
+
+    @Override
+    protected INDArray[] postExecOp(Pair<SameDiffOp, OpContext> opPair, INDArray[] out, FrameIter outputFrameIter, Set<VarId> opInputs,
+                                    Set<VarId> allIterInputs, Set<String> constAndPhInputs, List<Listener> listeners, At at,
+                                    MultiDataSet batch, Set<String> allReqVariables) {
+        SameDiffOp op = opPair.getFirst();
+        at.setFrameIter(outputFrameIter);
 
         if (log.isTraceEnabled()) {
             StringBuilder sb = new StringBuilder();
@@ -52,6 +52,18 @@ public interface SessionMemMgr extends Closeable {
      */
     void release(INDArray array);
 
+    /**
+     * Called by the session at the start of each execution (i.e., each output/fit iteration), before any arrays are
+     * allocated for that execution. Memory managers that plan allocations across executions can use this as a boundary.
+     */
+    void executionStart();
+
+    /**
+     * Called by the session at the end of each execution, after all arrays that can be released have been passed to
+     * {@link #release(INDArray)}. Any arrays still not released at this point are outputs (or otherwise escape the session).
+     */
+    void executionEnd();
+
     /**
      * Close the session memory manager and clean up any memory / resources, if any
      */
@@ -143,10 +143,11 @@ public class TrainingSession extends InferenceSession {
     }
 
     @Override
-    public INDArray[] getOutputs(Pair<SameDiffOp, OpContext> opPair, FrameIter outputFrameIter, Set<VarId> opInputs, Set<VarId> allIterInputs,
-                                 Set<String> constAndPhInputs, List<Listener> listeners, At at, MultiDataSet batch, Set<String> allReqVariables) {
-        //Get outputs from InferenceSession
-        INDArray[] out = super.getOutputs(opPair, outputFrameIter, opInputs, allIterInputs, constAndPhInputs, listeners, at, batch, allReqVariables);
+    protected INDArray[] postExecOp(Pair<SameDiffOp, OpContext> opPair, INDArray[] opOutputs, FrameIter outputFrameIter, Set<VarId> opInputs,
+                                    Set<VarId> allIterInputs, Set<String> constAndPhInputs, List<Listener> listeners, At at,
+                                    MultiDataSet batch, Set<String> allReqVariables) {
+        //Post process outputs as per InferenceSession - this is used for all ops, whether executed concurrently or not
+        INDArray[] out = super.postExecOp(opPair, opOutputs, outputFrameIter, opInputs, allIterInputs, constAndPhInputs, listeners, at, batch, allReqVariables);
         SameDiffOp op = opPair.getFirst();
 
         List<String> outputs = op.getOutputsOfOp();
@@ -5,7 +5,8 @@ import org.nd4j.autodiff.samediff.internal.SessionMemMgr;
 import org.nd4j.linalg.api.ndarray.INDArray;
 
 /**
- * Abstract memory manager, that implements ulike and dup methods using the underlying allocate methods
+ * Abstract memory manager, that implements ulike and dup methods using the underlying allocate methods, and no-op
+ * execution start/end methods
  *
  * @author Alex Black
  */
@@ -22,4 +23,14 @@ public abstract class AbstractMemoryMgr implements SessionMemMgr {
         out.assign(arr);
         return out;
     }
+
+    @Override
+    public void executionStart() {
+        //No op by default
+    }
+
+    @Override
+    public void executionEnd() {
+        //No op by default
+    }
 }
@@ -84,6 +84,16 @@ public class CloseValidationMemoryMgr extends AbstractMemoryMgr implements Sessi
         released.put(array, true);
     }
 
+    @Override
+    public void executionStart() {
+        underlying.executionStart();
+    }
+
+    @Override
+    public void executionEnd() {
+        underlying.executionEnd();
+    }
+
     @Override
     public void close() {
         underlying.close();
@@ -0,0 +1,475 @@
+package org.nd4j.autodiff.samediff.internal.memory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.samediff.internal.SessionMemMgr;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.util.ArrayUtil;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.LongShapeDescriptor;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.*;
+
+/**
+ * PlannedMemoryMgr is a {@link SessionMemMgr} that plans memory statically, using the lifetimes of the arrays allocated
+ * during an execution.<br>
+ * The first execution is recorded: the datatype and shape of each allocation is stored, along with its lifetime - i.e.,
+ * the allocations that happened between the array being allocated and being released. At the end of the execution,
+ * each allocation is assigned to a shared buffer, such that no two arrays that are live at the same time share a buffer.
+ * Allocations are assigned greedily in order of decreasing size; each buffer is as large as the largest array assigned
+ * to it.<br>
+ * On subsequent executions, as long as the allocations match the recorded allocations, and each array is released no
+ * later than it was in the recorded execution, arrays are returned using the planned buffers - i.e., in the steady state
+ * no memory is allocated for intermediate arrays at all. Note that the order of release calls need not match.
+ * <br><br>
+ * Arrays that are not planned are allocated from the fallback memory manager (an {@link ArrayCacheMemoryMgr} by default):
+ * <ul>
+ * <li>Detached arrays (i.e., arrays that may be returned to the user)</li>
+ * <li>Arrays that were never released during the recorded execution</li>
+ * <li>Empty and UTF8 arrays</li>
+ * </ul>
+ * If an execution deviates from the plan (for example, due to different placeholder shapes), the remaining allocations
+ * for that execution come from the fallback memory manager and a new plan is computed at the end of the execution.
+ * Existing buffers are reused for the new plan where they are large enough.<br>
+ * Note that planned arrays always start at offset 0 of their buffer (as per {@link ArrayCacheMemoryMgr}), rather than
+ * being packed at different offsets into one large buffer, as not all ops support output arrays with a buffer offset.<br>
+ * NOTE: The execution boundaries are provided by the session via {@link #executionStart()} and {@link #executionEnd()};
+ * outside of these, all calls are passed directly to the fallback memory manager.
+ */
+@Slf4j
+public class PlannedMemoryMgr extends AbstractMemoryMgr {
+
+    @Getter
+    private final SessionMemMgr fallback;
+
+    private Plan plan;
+    private final Map<DataType, List<INDArray>> buffers = new HashMap<>();
+
+    //Execution state
+    private boolean inExecution;
+    private boolean replaying;
+    private int allocIdx;
+    private int[] releasedAt = new int[0];      //When replaying: number of allocations before each array was released
+    private final List<Allocation> trace = new ArrayList<>();
+    private final Map<INDArray, Integer> live = new IdentityHashMap<>();
+    private final Map<INDArray, INDArray> livePlanned = new IdentityHashMap<>();     //Planned array -> buffer
+    private final Set<INDArray> escaped = Collections.newSetFromMap(new IdentityHashMap<INDArray, Boolean>());
+
+    //Statistics
+    /**
+     * Total size (in bytes) of the currently allocated planned buffers
+     */
+    @Getter
+    private long bufferBytes;
+    /**
+     * Size (in bytes) required for the current plan; this may be smaller than {@link #getBufferBytes()} if a previous
+     * plan required larger buffers
+     */
+    @Getter
+    private long plannedBytes;
+    /**
+     * Maximum number of bytes of planned arrays that are live at the same time, for the current plan. This is a lower
+     * bound on {@link #getPlannedBytes()}
+     */
+    @Getter
+    private long peakLiveBytes;
+    /**
+     * Number of allocations that are served from the planned buffers, for the current plan
+     */
+    @Getter
+    private int numPlannedAllocations;
+    /**
+     * Number of times a plan has been computed
+     */
+    @Getter
+    private int planCount;
+    /**
+     * Number of times a planned buffer has been allocated
+     */
+    @Getter
+    private long bufferAllocationCount;
+    /**
+     * Number of non-detached arrays that have been allocated from the fallback memory manager during executions
+     */
+    @Getter
+    private long fallbackAllocationCount;
+
+    /**
+     * Create a PlannedMemoryMgr with an {@link ArrayCacheMemoryMgr} for allocations that are not planned
+     */
+    public PlannedMemoryMgr() {
+        this(new ArrayCacheMemoryMgr());
+    }
+
+    /**
+     * @param fallback Memory manager for allocations that are not planned
+     */
+    public PlannedMemoryMgr(@NonNull SessionMemMgr fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void executionStart() {
+        if (inExecution) {
+            //Previous execution did not complete (for example, an exception was thrown) - discard it
+            log.debug("Execution started before previous execution ended - discarding partial execution trace");
+            discardLive();
+        }
+        inExecution = true;
+        replaying = plan != null;
+        allocIdx = 0;
+        trace.clear();
+        if (replaying) {
+            if (releasedAt.length < plan.allocations.size())
+                releasedAt = new int[plan.allocations.size()];
+            Arrays.fill(releasedAt, -1);
+        }
+    }
+
+    @Override
+    public void executionEnd() {
+        if (!inExecution)
+            return;
+        inExecution = false;
+
+        if (replaying && allocIdx != plan.allocations.size()) {
+            //Fewer allocations than the plan
+            deviate();
+        }
+
+        discardLive();
+
+        if (!replaying) {
+            createPlan();
+        }
+        trace.clear();
+    }
+
+    @Override
+    public INDArray allocate(boolean detached, DataType dataType, long... shape) {
+        if (!inExecution)
+            return fallback.allocate(detached, dataType, shape);
+
+        if (replaying) {
+            if (allocIdx < plan.allocations.size() && plan.allocations.get(allocIdx).matches(detached, dataType, shape)
+                    && dueReleased(allocIdx)) {
+                Allocation a = plan.allocations.get(allocIdx);
+                INDArray out;
+                if (a.buffer >= 0) {
+                    INDArray buffer = plan.buffers.get(a.buffer);
+                    out = Nd4j.create(buffer.data(), a.shape, a.stride, 0, 'c', dataType);
+                    livePlanned.put(out, buffer);
+                } else {
+                    out = fallbackAllocate(detached, dataType, shape);
+                }
+                live.put(out, allocIdx++);
+                return out;
+            }
+            deviate();
+        }
+
+        //Recording
+        INDArray out = fallbackAllocate(detached, dataType, shape);
+        int idx = trace.size();
+        trace.add(new Allocation(dataType, shape, detached, idx));
+        live.put(out, idx);
+        return out;
+    }
+
+    @Override
+    public INDArray allocate(boolean detached, LongShapeDescriptor descriptor) {
+        if (descriptor.isEmpty())
+            return fallback.allocate(detached, descriptor);
+        return allocate(detached, descriptor.dataType(), descriptor.getShape());
+    }
+
+    @Override
+    public void release(@NonNull INDArray array) {
+        if (escaped.remove(array)) {
+            //Planned array from an earlier execution that was not released in time; the buffer has already been discarded
+            return;
+        }
+
+        Integer idx = inExecution ? live.remove(array) : null;
+        if (idx == null) {
+            //Not allocated by this memory manager during the current execution
+            fallback.release(array);
+            return;
+        }
+
+        boolean planned = livePlanned.remove(array) != null;
+        if (replaying) {
+            releasedAt[idx] = allocIdx;
+        } else {
+            trace.get(idx).end = trace.size();
+        }
+        if (!planned)
+            fallback.release(array);
+    }
+
+    @Override
+    public void close() {
+        for (List<INDArray> l : buffers.values()) {
+            for (INDArray arr : l) {
+                if (arr.closeable())
+                    arr.close();
+            }
+        }
+        buffers.clear();
+        escaped.clear();
+        bufferBytes = 0;
+        plan = null;
+        fallback.close();
+    }
+
+    private INDArray fallbackAllocate(boolean detached, DataType dataType, long[] shape) {
+        if (!detached)
+            fallbackAllocationCount++;
+        return fallback.allocate(detached, dataType, shape);
+    }
+
+    /**
+     * @return True if all planned arrays that must be released before allocation idx have been released
+     */
+    private boolean dueReleased(int idx) {
+        int[] due = plan.due[idx];
+        if (due != null) {
+            for (int d : due) {
+                if (releasedAt[d] < 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Switch from replaying the plan to recording. The part of the plan that has been replayed so far is copied to the
+     * execution trace, so that the trace is complete at the end of the execution
+     */
+    private void deviate() {
+        log.debug("Execution deviated from plan at allocation {} of {} - recording new plan", allocIdx, plan.allocations.size());
+        replaying = false;
+        trace.clear();
+        for (int i = 0; i < allocIdx; i++) {
+            Allocation a = plan.allocations.get(i);
+            Allocation copy = new Allocation(a.dataType, a.shape, a.detached, i);
+            copy.end = releasedAt[i];
+            trace.add(copy);
+        }
+    }
+
+    /**
+     * Any planned arrays that are still live are escaping the session - the buffers they use can no longer be reused
+     */
+    private void discardLive() {
+        for (Map.Entry<INDArray, INDArray> e : livePlanned.entrySet()) {
+            DataType dt = e.getKey().dataType();
+            log.debug("Planned array of type {} was not released by the end of execution - discarding buffer", dt);
+            escaped.add(e.getKey());
+            List<INDArray> l = buffers.get(dt);
+            for (int i = 0; i < l.size(); i++) {
+                if (l.get(i) == e.getValue()) {
+                    bufferBytes -= l.get(i).length() * dt.width();
+                    l.remove(i);
+                    break;
+                }
+            }
+            //Plan can't be replayed without the buffer
+            plan = null;
+        }
+        livePlanned.clear();
+        live.clear();
+    }
+
+    private void createPlan() {
+        List<Allocation> allocations = new ArrayList<>(trace);
+        Map<DataType, List<Allocation>> byType = new HashMap<>();
+        for (Allocation a : allocations) {
+            a.buffer = -1;
+            if (!a.detached && a.end >= 0 && a.length > 0 && a.dataType != DataType.UTF8 && a.dataType != DataType.COMPRESSED) {
+                if (!byType.containsKey(a.dataType))
+                    byType.put(a.dataType, new ArrayList<Allocation>());
+                byType.get(a.dataType).add(a);
+            }
+        }
+
+        List<INDArray> planBuffers = new ArrayList<>();
+        long planned = 0;
+        int count = 0;
+        for (DataType dt : DataType.values()) {
+            List<Allocation> l = byType.get(dt);
+            List<INDArray> available = buffers.containsKey(dt) ? buffers.get(dt) : Collections.<INDArray>emptyList();
+            List<INDArray> used = new ArrayList<>();
+            if (l != null) {
+                long[] required = assignBuffers(l, planBuffers.size());
+                count += l.size();
+
+                //Reuse existing buffers where possible: both required and available are sorted by decreasing size
+                Collections.sort(available, new Comparator<INDArray>() {
+                    @Override
+                    public int compare(INDArray a1, INDArray a2) {
+                        return Long.compare(a2.length(), a1.length());
+                    }
+                });
+                int next = 0;
+                for (long r : required) {
+                    planned += r * dt.width();
+                    INDArray b;
+                    if (next < available.size() && available.get(next).length() >= r) {
+                        b = available.get(next++);
+                    } else {
+                        b = Nd4j.createUninitializedDetached(dt, r);
+                        bufferAllocationCount++;
+                        bufferBytes += r * dt.width();
+                    }
+                    used.add(b);
+                    planBuffers.add(b);
+                }
+                for (int i = next; i < available.size(); i++) {
+                    //No planned arrays are live at this point (otherwise the buffer would have been discarded)
+                    INDArray b = available.get(i);
+                    bufferBytes -= b.length() * dt.width();
+                    if (b.closeable())
+                        b.close();
+                }
+            } else {
+                for (INDArray b : available) {
+                    bufferBytes -= b.length() * dt.width();
+                    if (b.closeable())
+                        b.close();
+                }
+            }
+
+            if (used.isEmpty()) {
+                buffers.remove(dt);
+            } else {
+                buffers.put(dt, used);
+            }
+        }
+
+        plan = new Plan(allocations, planBuffers);
+        plannedBytes = planned;
+        peakLiveBytes = peakLiveBytes(allocations);
+        numPlannedAllocations = count;
+        planCount++;
+        log.debug("Created memory plan: {} allocations, {} planned, {} buffers, {} bytes required, {} bytes peak live",
+                allocations.size(), count, planBuffers.size(), planned, peakLiveBytes);
+    }
+
+    /**
+     * Assign the specified allocations (all of the same datatype) to buffers: larger arrays first, each to the first
+     * buffer that has no array assigned to it with an overlapping lifetime
+     *
+     * @param firstIdx Index of the first buffer
+     * @return Required size (in elements) of each buffer, in decreasing order
+     */
+    private static long[] assignBuffers(List<Allocation> allocations, int firstIdx) {
+        List<Allocation> sorted = new ArrayList<>(allocations);
+        Collections.sort(sorted, new Comparator<Allocation>() {
+            @Override
+            public int compare(Allocation a1, Allocation a2) {
+                int c = Long.compare(a2.length, a1.length);
+                return c != 0 ? c : Integer.compare(a1.start, a2.start);
+            }
+        });
+
+        List<List<Allocation>> assigned = new ArrayList<>();
+        for (Allocation a : sorted) {
+            int b = 0;
+            for (; b < assigned.size(); b++) {
+                boolean overlaps = false;
+                for (Allocation other : assigned.get(b)) {
+                    if (a.start < other.end && other.start < a.end) {
+                        overlaps = true;
+                        break;
+                    }
+                }
+                if (!overlaps)
+                    break;
+            }
+            if (b == assigned.size())
+                assigned.add(new ArrayList<Allocation>());
+            assigned.get(b).add(a);
+            a.buffer = firstIdx + b;
+        }
+
+        long[] required = new long[assigned.size()];
+        for (int i = 0; i < required.length; i++) {
+            required[i] = assigned.get(i).get(0).length;    //First assigned is the largest
+        }
+        return required;
+    }
+
+    private static long peakLiveBytes(List<Allocation> allocations) {
+        long[] delta = new long[allocations.size() + 1];
+        for (Allocation a : allocations) {
+            if (a.buffer >= 0) {
+                long bytes = a.length * a.dataType.width();
+                delta[a.start] += bytes;
+                delta[a.end] -= bytes;
+            }
+        }
+        long current = 0;
+        long peak = 0;
+        for (long d : delta) {
+            current += d;
+            peak = Math.max(peak, current);
+        }
+        return peak;
+    }
+
+    private static class Plan {
+        private final List<Allocation> allocations;
+        private final List<INDArray> buffers;
+        private final int[][] due;      //Planned arrays that must have been released before allocation i, null if none
+
+        private Plan(List<Allocation> allocations, List<INDArray> buffers) {
+            this.allocations = allocations;
+            this.buffers = buffers;
+            int n = allocations.size();
+            List<List<Integer>> l = new ArrayList<>(n);
+            for (int i = 0; i < n; i++)
+                l.add(null);
+            for (Allocation a : allocations) {
+                if (a.buffer >= 0 && a.end < n) {
+                    if (l.get(a.end) == null)
+                        l.set(a.end, new ArrayList<Integer>());
+                    l.get(a.end).add(a.start);
+                }
+            }
+            due = new int[n][];
+            for (int i = 0; i < n; i++) {
+                if (l.get(i) != null)
+                    due[i] = ArrayUtil.toArray(l.get(i));
+            }
+        }
+    }
+
+    private static class Allocation {
+        private final DataType dataType;
+        private final long[] shape;
+        private final long[] stride;
+        private final boolean detached;
+        private final long length;
+        private final int start;        //Index of this allocation
+        private int end = -1;           //Number of allocations before release; -1 if not released
+        private int buffer = -1;        //Index of the planned buffer; -1 if not planned
+
+        private Allocation(DataType dataType, long[] shape, boolean detached, int start) {
+            Preconditions.checkNotNull(dataType, "Datatype must not be null");
+            this.dataType = dataType;
+            this.shape = shape.clone();
+            this.stride = Nd4j.getStrides(this.shape, 'c');
+            this.detached = detached;
+            this.length = this.shape.length == 0 ? 1 : ArrayUtil.prodLong(this.shape);
+            this.start = start;
+        }
+
+        private boolean matches(boolean detached, DataType dataType, long[] shape) {
+            return this.detached == detached && this.dataType == dataType && Arrays.equals(this.shape, shape);
+        }
+    }
+}
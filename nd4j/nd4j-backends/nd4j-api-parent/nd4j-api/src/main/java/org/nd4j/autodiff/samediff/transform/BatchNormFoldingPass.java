@@ -0,0 +1,157 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff.transform;
+
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.DynamicCustomOp;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.BatchNorm;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.Conv2D;
+import org.nd4j.linalg.factory.Broadcast;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Folds inference batch normalization into the preceding conv2d op: (x -> conv2d(W, b) -> batchnorm -> y) becomes
+ * (x -> conv2d(W', b') -> y) with W' = W * gamma / sqrt(var + eps) and b' = (b - mean) * gamma / sqrt(var + eps) + beta,
+ * applied per output channel.<br>
+ * Only applied when the conv2d output is used only by the batch norm op, the batch norm axis is the conv2d channel axis,
+ * and all weights, biases and batch norm parameters are constants or variables. The folded weights and biases are
+ * added as new constants; the original arrays are left in place (for {@link DeadCodeEliminationPass} to remove if they
+ * are no longer used).
+ */
+public class BatchNormFoldingPass implements OptimizationPass {
+
+    @Override
+    public SameDiff apply(final SameDiff sd, final Set<String> requiredOutputs) {
+        final OpPredicate conv = new OpPredicate() {
+            @Override
+            public boolean matches(SameDiff sameDiff, DifferentialFunction function) {
+                if (function.getClass() != Conv2D.class || ((Conv2D) function).iArgs().length < 10)
+                    return false;
+                SDVariable[] args = function.args();
+                return GraphOptimizer.consumedOnlyOnce(sameDiff, function.outputVariable().name(), requiredOutputs) &&
+                        GraphOptimizer.hasArray(sameDiff, args[1]) && (args.length < 3 || GraphOptimizer.hasArray(sameDiff, args[2]));
+            }
+        };
+        OpPredicate bn = new OpPredicate() {
+            @Override
+            public boolean matches(SameDiff sameDiff, DifferentialFunction function) {
+                if (function.getClass() != BatchNorm.class || GraphOptimizer.hasControlDeps(sameDiff.getOps().get(function.getOwnName())))
+                    return false;
+                SDVariable[] args = function.args();
+                for (int i = 1; i < args.length; i++) {
+                    if (!GraphOptimizer.hasArray(sameDiff, args[i]))
+                        return false;
+                }
+                //iArgs: applyGamma, applyBeta, then the (optional, default: last dimension) axis
+                long[] iArgs = ((BatchNorm) function).iArgs();
+                long axis = iArgs.length < 3 ? 3 : (iArgs[2] < 0 ? iArgs[2] + 4 : iArgs[2]);
+                DifferentialFunction convFn = sameDiff.getVariableOutputOp(args[0].name());
+                return iArgs.length <= 3 && convFn instanceof Conv2D && channelAxis((Conv2D) convFn) == axis;
+            }
+        };
+
+        List<SubGraph> subgraphs = GraphTransformUtil.getSubgraphsMatching(sd, SubGraphPredicate.withRoot(bn).withInputSubgraph(0, conv));
+        for (SubGraph sg : subgraphs) {
+            fold(sd, (Conv2D) sg.getChildNodes().get(0), (BatchNorm) sg.getRootNode());
+        }
+        return sd;
+    }
+
+    protected void fold(SameDiff sd, Conv2D conv, BatchNorm bn) {
+        SDVariable[] bnArgs = bn.args();
+        long[] bnIArgs = bn.iArgs();
+        boolean applyGamma = bnIArgs[0] != 0;
+        boolean applyBeta = bnIArgs[1] != 0;
+        double eps = bn.tArgs()[0];
+
+        SDVariable[] convArgs = conv.args();
+        INDArray w = convArgs[1].getArr();
+        DataType dt = w.dataType();
+        int oCDim = outputChannelDim(conv);
+        long oC = w.size(oCDim);
+
+        INDArray mean = bnArgs[1].getArr().castTo(dt).reshape(oC);
+        INDArray scale = bnArgs[2].getArr().castTo(dt).reshape(oC).add(eps);
+        Transforms.sqrt(scale, false);
+        scale = applyGamma ? bnArgs[3].getArr().castTo(dt).reshape(oC).div(scale) : scale.rdiv(1.0);
+
+        INDArray newW = Broadcast.mul(w, scale, w.ulike(), oCDim);
+        INDArray newB = (convArgs.length > 2 ? convArgs[2].getArr().castTo(dt).reshape(oC) : Nd4j.zeros(dt, oC)).sub(mean).muli(scale);
+        if (applyBeta)
+            newB.addi(bnArgs[applyGamma ? 4 : 3].getArr().castTo(dt).reshape(oC));
+
+        //Replace conv2d weights and bias with the folded constants
+        SameDiffOp convOp = sd.getOps().get(conv.getOwnName());
+        setInput(sd, convOp, 1, sd.constant(newW).name());
+        setInput(sd, convOp, 2, sd.constant(newB).name());
+
+        //Bypass and remove the batch norm op, keeping the name of its output
+        String convOut = conv.outputVariable().name();
+        String bnOut = bn.outputVariable().name();
+        GraphTransformUtil.replaceVariableUses(sd, bnOut, convOut);
+        GraphTransformUtil.removeOp(sd, bn.getOwnName(), true);
+        sd.renameVariable(convOut, bnOut);
+    }
+
+    private static void setInput(SameDiff sd, SameDiffOp op, int idx, String varName) {
+        sd.markStructureModified();
+        List<String> inputs = new ArrayList<>(op.getInputsToOp());
+        if (idx < inputs.size()) {
+            Variable old = sd.getVariables().get(inputs.get(idx));
+            List<String> l = new ArrayList<>(old.getInputsForOp());
+            l.remove(op.getName());
+            old.setInputsForOp(l);
+            inputs.set(idx, varName);
+        } else {
+            inputs.add(varName);
+        }
+        op.setInputsToOp(inputs);
+
+        Variable v = sd.getVariables().get(varName);
+        List<String> l = v.getInputsForOp() == null ? new ArrayList<String>() : new ArrayList<>(v.getInputsForOp());
+        l.add(op.getName());
+        v.setInputsForOp(l);
+    }
+
+    /**
+     * Channel axis of the conv2d activations: iArgs[9] is the data format, 0 = NCHW, 1 = NHWC
+     */
+    private static long channelAxis(Conv2D conv) {
+        return conv.iArgs()[9] == 0 ? 1 : 3;
+    }
+
+    /**
+     * Output channel dimension of the conv2d weights: iArgs[10] (if present) is the weights format, 0 = [kH, kW, iC, oC]
+     * (the default), otherwise [oC, ...]
+     */
+    private static int outputChannelDim(Conv2D conv) {
+        long[] iArgs = conv.iArgs();
+        return iArgs.length <= 10 || iArgs[10] == 0 ? 3 : 0;
+    }
+}
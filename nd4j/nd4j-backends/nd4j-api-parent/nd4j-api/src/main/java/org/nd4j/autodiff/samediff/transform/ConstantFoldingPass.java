@@ -0,0 +1,124 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff.transform;
+
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.RandomOp;
+import org.nd4j.linalg.api.ops.custom.RandomCrop;
+import org.nd4j.linalg.api.ops.impl.controlflow.compat.BaseCompatOp;
+import org.nd4j.linalg.api.ops.impl.layers.ExternalErrorsFunction;
+import org.nd4j.linalg.api.ops.impl.transforms.Assert;
+import org.nd4j.linalg.api.ops.impl.transforms.gradient.GradientBackwardsMarker;
+import org.nd4j.linalg.api.ops.random.compat.RandomStandardNormal;
+import org.nd4j.linalg.api.ops.random.custom.*;
+
+import java.util.*;
+
+/**
+ * Constant folding: ops whose inputs are all constants (or the outputs of other folded ops) are executed once, and
+ * their outputs are replaced by constants.<br>
+ * Random ops (legacy {@link RandomOp}s and the custom ops in {@link #RANDOM_CUSTOM_OPS}), control flow ops, ops without
+ * any inputs and ops with control dependencies are never folded.
+ * The constants that were inputs to folded ops are left in place; {@link DeadCodeEliminationPass} will remove them
+ * if they are no longer used.
+ */
+public class ConstantFoldingPass implements OptimizationPass {
+
+    /**
+     * Random custom ops. Unlike the legacy random ops, these don't implement {@link RandomOp}, and must be listed here
+     * explicitly so that they are not folded
+     */
+    public static final Set<Class<?>> RANDOM_CUSTOM_OPS = Collections.unmodifiableSet(new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            DistributionUniform.class,
+            RandomBernoulli.class,
+            RandomExponential.class,
+            RandomGamma.class,
+            RandomNormal.class,
+            RandomPoisson.class,
+            RandomShuffle.class,
+            RandomStandardNormal.class,
+            RandomCrop.class)));
+
+    @Override
+    public SameDiff apply(SameDiff sd, Set<String> requiredOutputs) {
+        Set<String> constants = new HashSet<>();
+        for (SDVariable v : sd.variables()) {
+            if (v.getVariableType() == VariableType.CONSTANT)
+                constants.add(v.name());
+        }
+
+        //Ops are not necessarily stored in topological order: repeat until no more ops can be folded
+        List<SameDiffOp> toFold = new ArrayList<>();
+        Set<String> folded = new HashSet<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (SameDiffOp op : sd.getOps().values()) {
+                if (folded.contains(op.getName()) || !canFold(op) || !constants.containsAll(op.getInputsToOp()))
+                    continue;
+                toFold.add(op);
+                folded.add(op.getName());
+                constants.addAll(op.getOutputsOfOp());
+                changed = true;
+            }
+        }
+
+        if (toFold.isEmpty())
+            return sd;
+
+        List<String> outputs = new ArrayList<>();
+        for (SameDiffOp op : toFold) {
+            outputs.addAll(op.getOutputsOfOp());
+        }
+        Map<String, INDArray> values = sd.output(Collections.<String, INDArray>emptyMap(), outputs);
+        sd.clearSessions();
+
+        for (SameDiffOp op : toFold) {
+            GraphTransformUtil.removeOp(sd, op.getName(), false);
+            for (String s : op.getOutputsOfOp()) {
+                SDVariable v = sd.getVariable(s);
+                v.setVariableType(VariableType.CONSTANT);
+                sd.setArrayForVariable(s, values.get(s));
+            }
+        }
+
+        return sd;
+    }
+
+    protected boolean canFold(SameDiffOp op) {
+        DifferentialFunction df = op.getOp();
+        if (df instanceof RandomOp || df instanceof BaseCompatOp || df instanceof Assert || df instanceof ExternalErrorsFunction ||
+                df instanceof GradientBackwardsMarker || isRandomCustomOp(df))
+            return false;
+        return op.getInputsToOp() != null && !op.getInputsToOp().isEmpty() && op.getOutputsOfOp() != null &&
+                !op.getOutputsOfOp().isEmpty() && !GraphOptimizer.hasControlDeps(op);
+    }
+
+    protected static boolean isRandomCustomOp(DifferentialFunction df) {
+        for (Class<?> c : RANDOM_CUSTOM_OPS) {
+            if (c.isInstance(df))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,92 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff.transform;
+
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+
+import java.util.*;
+
+/**
+ * Dead code elimination: removes all ops and variables that are not needed to calculate the required outputs.<br>
+ * Placeholders are never removed, so the optimized graph accepts the same placeholder values as the original.
+ * Loss variables that are removed are also removed from {@link SameDiff#getLossVariables()}.
+ */
+public class DeadCodeEliminationPass implements OptimizationPass {
+
+    @Override
+    public SameDiff apply(SameDiff sd, Set<String> requiredOutputs) {
+        if (requiredOutputs.isEmpty())
+            return sd;
+
+        Map<String, Variable> vars = sd.getVariables();
+        Map<String, SameDiffOp> ops = sd.getOps();
+
+        //Work backwards from the required outputs, including control dependencies.
+        //Note that ops and variables may have the same names, so they are tracked separately
+        Set<String> neededVars = new HashSet<>();
+        Set<String> neededOps = new HashSet<>();
+        Deque<String> varQueue = new ArrayDeque<>(requiredOutputs);
+        Deque<String> opQueue = new ArrayDeque<>();
+        while (!varQueue.isEmpty() || !opQueue.isEmpty()) {
+            if (!varQueue.isEmpty()) {
+                String s = varQueue.removeFirst();
+                Variable v = vars.get(s);
+                if (v == null || !neededVars.add(s))
+                    continue;
+                if (v.getOutputOfOp() != null)
+                    opQueue.add(v.getOutputOfOp());
+                if (v.getControlDeps() != null) {
+                    //Control dependencies for variables may be either ops or variables
+                    for (String cd : v.getControlDeps()) {
+                        if (vars.containsKey(cd))
+                            varQueue.add(cd);
+                        if (ops.containsKey(cd))
+                            opQueue.add(cd);
+                    }
+                }
+            } else {
+                String s = opQueue.removeFirst();
+                SameDiffOp op = ops.get(s);
+                if (op == null || !neededOps.add(s))
+                    continue;
+                for (List<String> l : Arrays.asList(op.getInputsToOp(), op.getControlDeps(), op.getVarControlDeps())) {
+                    if (l != null)
+                        varQueue.addAll(l);
+                }
+            }
+        }
+
+        for (String s : new ArrayList<>(ops.keySet())) {
+            if (!neededOps.contains(s))
+                GraphTransformUtil.removeOp(sd, s, true);
+        }
+        for (String s : new ArrayList<>(vars.keySet())) {
+            if (!neededVars.contains(s) && vars.get(s).getVariable().getVariableType() != VariableType.PLACEHOLDER)
+                GraphTransformUtil.removeVariable(sd, s);
+        }
+
+        List<String> losses = new ArrayList<>(sd.getLossVariables());
+        if (losses.retainAll(vars.keySet()))
+            sd.setLossVariables(losses.toArray(new String[0]));
+
+        return sd;
+    }
+}
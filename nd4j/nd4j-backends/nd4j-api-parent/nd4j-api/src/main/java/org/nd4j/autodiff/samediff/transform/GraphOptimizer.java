@@ -0,0 +1,156 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff.transform;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.common.base.Preconditions;
+
+import java.util.*;
+
+/**
+ * GraphOptimizer applies a sequence of {@link OptimizationPass}es to a SameDiff graph, to reduce the number of ops
+ * (and hence native calls and intermediate arrays) needed at inference time. It is intended to be run once, before
+ * deploying a (usually imported) graph for serving.<br>
+ * The default passes are, in order:<br>
+ * - {@link IdentityRemovalPass}: remove identity ops<br>
+ * - {@link ConstantFoldingPass}: pre-compute ops whose inputs are all constants<br>
+ * - {@link BatchNormFoldingPass}: fold inference batch norm into the weights and bias of the preceding conv2d op<br>
+ * - {@link LinearFusionPass}: fuse matmul + bias (+ relu) into a single xw_plus_b / relu_layer op<br>
+ * - {@link DeadCodeEliminationPass}: remove ops and variables not needed to calculate the required outputs<br>
+ * <br>
+ * Note that the original SameDiff instance is not modified; a copy is optimized and returned. The returned graph is
+ * intended for inference only: folded weights are stored as constants, and any parts of the graph not needed for the
+ * required outputs (such as losses) are removed.
+ */
+@Slf4j
+public class GraphOptimizer {
+
+    private GraphOptimizer() {
+    }
+
+    /**
+     * @return The default optimization passes, in the order they are applied
+     */
+    public static List<OptimizationPass> defaultPasses() {
+        return Arrays.<OptimizationPass>asList(
+                new IdentityRemovalPass(),
+                new ConstantFoldingPass(),
+                new BatchNormFoldingPass(),
+                new LinearFusionPass(),
+                new DeadCodeEliminationPass());
+    }
+
+    /**
+     * See {@link #optimize(SameDiff, List, List)}, using the default optimization passes
+     */
+    public static SameDiff optimize(@NonNull SameDiff sd, String... requiredOutputs) {
+        return optimize(sd, requiredOutputs == null ? null : Arrays.asList(requiredOutputs));
+    }
+
+    /**
+     * See {@link #optimize(SameDiff, List, List)}, using the default optimization passes
+     */
+    public static SameDiff optimize(@NonNull SameDiff sd, List<String> requiredOutputs) {
+        return optimize(sd, requiredOutputs, defaultPasses());
+    }
+
+    /**
+     * Optimize a copy of the specified graph using the specified passes.<br>
+     * If no required outputs are specified, the outputs set via {@link SameDiff#setOutputs(List)} are used; if none have
+     * been set either, all ARRAY type variables that are not used as input to any op are treated as required outputs.
+     *
+     * @param sd              SameDiff instance to optimize. Not modified
+     * @param requiredOutputs The names of the variables that will be requested from the optimized graph. May be null
+     * @param passes          Optimization passes to apply, in order
+     * @return The optimized copy of the graph
+     */
+    public static SameDiff optimize(@NonNull SameDiff sd, List<String> requiredOutputs, @NonNull List<OptimizationPass> passes) {
+        Set<String> outputs = new LinkedHashSet<>();
+        if (requiredOutputs != null && !requiredOutputs.isEmpty()) {
+            outputs.addAll(requiredOutputs);
+        } else if (sd.outputs() != null && !sd.outputs().isEmpty()) {
+            outputs.addAll(sd.outputs());
+        } else {
+            for (Variable v : sd.getVariables().values()) {
+                if (v.getVariable().getVariableType() == VariableType.ARRAY && (v.getInputsForOp() == null || v.getInputsForOp().isEmpty())) {
+                    outputs.add(v.getName());
+                }
+            }
+        }
+        for (String s : outputs) {
+            Preconditions.checkState(sd.hasVariable(s), "Cannot optimize graph: required output \"%s\" does not exist", s);
+        }
+
+        //Make a copy so that the user's graph is not modified
+        SameDiff out = sd.dup();
+        for (OptimizationPass p : passes) {
+            int opsBefore = out.getOps().size();
+            out = p.apply(out, Collections.unmodifiableSet(outputs));
+            //Remove any sessions (and cached execution plans) that may refer to the old structure
+            out.markStructureModified();
+            out.clearSessions();
+            log.debug("Applied optimization pass {}: {} ops before, {} ops after", p.getClass().getSimpleName(), opsBefore, out.getOps().size());
+        }
+
+        //Copy again, so that arrays of removed variables are not retained
+        return out.dup();
+    }
+
+    /**
+     * @return True if the specified variable is a constant or variable with an array available
+     */
+    protected static boolean hasArray(SameDiff sd, SDVariable v) {
+        if (v == null || (v.getVariableType() != VariableType.CONSTANT && v.getVariableType() != VariableType.VARIABLE))
+            return false;
+        return sd.getArrForVarName(v.name()) != null;
+    }
+
+    /**
+     * @return True if the specified variable is only used as input to a single op, and is not a required output
+     */
+    protected static boolean consumedOnlyOnce(SameDiff sd, String varName, Set<String> requiredOutputs) {
+        if (requiredOutputs.contains(varName))
+            return false;
+        Variable v = sd.getVariables().get(varName);
+        return v.getInputsForOp() != null && v.getInputsForOp().size() == 1 && !hasControlDeps(v);
+    }
+
+    /**
+     * @return True if the op has any control dependencies, or is a control dependency for any variable
+     */
+    protected static boolean hasControlDeps(SameDiffOp op) {
+        return !isEmpty(op.getControlDeps()) || !isEmpty(op.getVarControlDeps()) || !isEmpty(op.getControlDepFor());
+    }
+
+    /**
+     * @return True if the variable has any control dependencies, or is a control dependency for any op or variable
+     */
+    protected static boolean hasControlDeps(Variable v) {
+        return !isEmpty(v.getControlDeps()) || !isEmpty(v.getControlDepsForOp()) || !isEmpty(v.getControlDepsForVar());
+    }
+
+    private static boolean isEmpty(List<String> l) {
+        return l == null || l.isEmpty();
+    }
+}
@@ -25,6 +25,8 @@ import org.nd4j.autodiff.samediff.internal.Variable;
 import org.nd4j.common.base.Preconditions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -67,7 +69,6 @@ public class GraphTransformUtil {
             //Step 1: replace the old outputs with new outputs
             //So for initial graph (x -> y -> z) and post application of processor we now have (x -> (y, A); y->z),
             // we want to end up with (x -> A -> z)
-            List<DifferentialFunction> allSubGraphFns = sg.allFunctionsInSubgraph();
             for (int i = 0; i < oldOutputs.size(); i++) {
                 String oldOutVarName = oldOutputs.get(i).name();
                 String newOutVarName = newOutputs.get(i).name();
@@ -79,7 +80,7 @@ public class GraphTransformUtil {
                     List<String> newInputsForOps = new ArrayList<>();
                     for (String s : oldInputsForOps) {
                         DifferentialFunction df = sd.getOpById(s);
-                        if (!allSubGraphFns.contains(df)) {
+                        if (!sg.inSubgraph(df)) {
                             newInputsForOps.add(s);
                         }
                     }
@@ -142,7 +143,7 @@ public class GraphTransformUtil {
                         // (2) variable is now connected directly as an output: (A->B->C) becomes (A->C)
                         // For the latter case, this
                         DifferentialFunction df = sd.getOpById(opName);
-                        if (allSubGraphFns.contains(df)) {
+                        if (sg.inSubgraph(df)) {
                             newInputsForOp.remove(opName);
                         }
                     }
@@ -169,6 +170,146 @@ public class GraphTransformUtil {
         return sd;
     }
 
+    /**
+     * Replace all uses of one variable as an op input with another variable.<br>
+     * For example, given (x -> identity -> y -> z), calling replaceVariableUses(sd, "y", "x") results in (x -> z) with
+     * the identity op and variable y no longer consumed by any op.<br>
+     * Note that unlike {@link #replaceSubgraphsMatching(SameDiff, SubGraphPredicate, SubGraphProcessor)} the SameDiff
+     * instance is modified in place, and the old variable is not removed.
+     *
+     * @param sd         SameDiff instance to modify
+     * @param oldVarName Name of the variable that should no longer be used as an input
+     * @param newVarName Name of the variable to use in its place
+     */
+    public static void replaceVariableUses(@NonNull SameDiff sd, @NonNull String oldVarName, @NonNull String newVarName) {
+        Variable oldVar = sd.getVariables().get(oldVarName);
+        Variable newVar = sd.getVariables().get(newVarName);
+        Preconditions.checkState(oldVar != null, "No variable with name \"%s\" exists", oldVarName);
+        Preconditions.checkState(newVar != null, "No variable with name \"%s\" exists", newVarName);
+
+        if (oldVar.getInputsForOp() == null || oldVar.getInputsForOp().isEmpty())
+            return;
+
+        sd.markStructureModified();
+        List<String> newInputsForOp = newVar.getInputsForOp() == null ? new ArrayList<String>() : new ArrayList<>(newVar.getInputsForOp());
+        for (String opName : oldVar.getInputsForOp()) {
+            SameDiffOp op = sd.getOps().get(opName);
+            List<String> inputsToOp = new ArrayList<>(op.getInputsToOp());
+            int idx;
+            while ((idx = inputsToOp.indexOf(oldVarName)) >= 0) {
+                inputsToOp.set(idx, newVarName);
+            }
+            op.setInputsToOp(inputsToOp);
+
+            if (!newInputsForOp.contains(opName)) {
+                newInputsForOp.add(opName);
+            }
+        }
+        newVar.setInputsForOp(newInputsForOp);
+        oldVar.setInputsForOp(new ArrayList<String>());
+    }
+
+    /**
+     * Remove the specified op from the graph, along with all references to it from other ops and variables.<br>
+     * If removeOutputs is false, the output variables of the op are kept, but they are no longer the output of any op -
+     * the caller is responsible for converting them to some other type (for example, constants).
+     *
+     * @param sd            SameDiff instance to modify in place
+     * @param opName        Name of the op to remove
+     * @param removeOutputs If true: also remove the output variables of the op
+     */
+    public static void removeOp(@NonNull SameDiff sd, @NonNull String opName, boolean removeOutputs) {
+        SameDiffOp op = sd.getOps().get(opName);
+        Preconditions.checkState(op != null, "No op with name \"%s\" exists", opName);
+        sd.markStructureModified();
+        Map<String, Variable> vars = sd.getVariables();
+
+        if (op.getInputsToOp() != null) {
+            for (String s : op.getInputsToOp()) {
+                Variable v = vars.get(s);
+                if (v != null)
+                    v.setInputsForOp(without(v.getInputsForOp(), opName));
+            }
+        }
+        for (List<String> l : Arrays.asList(op.getControlDeps(), op.getVarControlDeps())) {
+            if (l != null) {
+                for (String s : l) {
+                    Variable v = vars.get(s);
+                    if (v != null)
+                        v.setControlDepsForOp(without(v.getControlDepsForOp(), opName));
+                }
+            }
+        }
+        if (op.getControlDepFor() != null) {
+            for (String s : op.getControlDepFor()) {
+                Variable v = vars.get(s);
+                if (v != null)
+                    v.setControlDeps(without(v.getControlDeps(), opName));
+            }
+        }
+
+        if (op.getOutputsOfOp() != null) {
+            for (String s : op.getOutputsOfOp()) {
+                if (removeOutputs) {
+                    removeVariable(sd, s);
+                } else if (vars.containsKey(s)) {
+                    vars.get(s).setOutputOfOp(null);
+                }
+            }
+        }
+
+        sd.getOps().remove(opName);
+    }
+
+    /**
+     * Remove the specified variable from the graph, along with all control dependency references to it.<br>
+     * The variable should not be used as an input to any op that remains in the graph.
+     *
+     * @param sd      SameDiff instance to modify in place
+     * @param varName Name of the variable to remove
+     */
+    public static void removeVariable(@NonNull SameDiff sd, @NonNull String varName) {
+        Map<String, Variable> vars = sd.getVariables();
+        Variable v = vars.remove(varName);
+        if (v == null)
+            return;
+
+        sd.markStructureModified();
+
+        for (List<String> l : Arrays.asList(v.getControlDeps(), v.getControlDepsForVar())) {
+            if (l != null) {
+                for (String s : l) {
+                    Variable other = vars.get(s);
+                    if (other != null) {
+                        other.setControlDeps(without(other.getControlDeps(), varName));
+                        other.setControlDepsForVar(without(other.getControlDepsForVar(), varName));
+                    }
+                }
+            }
+        }
+        if (v.getControlDepsForOp() != null) {
+            for (String s : v.getControlDepsForOp()) {
+                SameDiffOp op = sd.getOps().get(s);
+                if (op != null) {
+                    op.setControlDeps(without(op.getControlDeps(), varName));
+                    op.setVarControlDeps(without(op.getVarControlDeps(), varName));
+                }
+            }
+        }
+        if (v.getOutputOfOp() != null && sd.getOps().containsKey(v.getOutputOfOp())) {
+            SameDiffOp op = sd.getOps().get(v.getOutputOfOp());
+            op.setControlDepFor(without(op.getControlDepFor(), varName));
+        }
+    }
+
+    private static List<String> without(List<String> list, String value) {
+        if (list == null || !list.contains(value))
+            return list;
+        List<String> out = new ArrayList<>(list);
+        out.removeAll(Collections.singletonList(value));
+        return out;
+    }
+
     /**
      * Get a list of all the subgraphs that match the specified predicate
      *
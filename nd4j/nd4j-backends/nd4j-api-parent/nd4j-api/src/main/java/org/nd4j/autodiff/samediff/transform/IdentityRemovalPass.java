@@ -0,0 +1,56 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff.transform;
+
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.linalg.api.ops.impl.transforms.same.Identity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes identity ops, so that (x -> identity -> y -> z) becomes (x -> z).<br>
+ * Identity ops are left in place if their output is a required output, or if they are part of any control dependency
+ * (as is common in imported TensorFlow graphs, where identity ops are used as synchronization points).
+ */
+public class IdentityRemovalPass implements OptimizationPass {
+
+    @Override
+    public SameDiff apply(SameDiff sd, Set<String> requiredOutputs) {
+        List<SameDiffOp> ops = new ArrayList<>(sd.getOps().values());
+        for (SameDiffOp op : ops) {
+            if (op.getOp().getClass() != Identity.class || GraphOptimizer.hasControlDeps(op))
+                continue;
+            if (op.getInputsToOp() == null || op.getInputsToOp().size() != 1 || op.getOutputsOfOp() == null || op.getOutputsOfOp().size() != 1)
+                continue;
+
+            String in = op.getInputsToOp().get(0);
+            String out = op.getOutputsOfOp().get(0);
+            Variable outVar = sd.getVariables().get(out);
+            if (requiredOutputs.contains(out) || GraphOptimizer.hasControlDeps(outVar))
+                continue;
+
+            GraphTransformUtil.replaceVariableUses(sd, out, in);
+            GraphTransformUtil.removeOp(sd, op.getName(), true);
+        }
+        return sd;
+    }
+}
@@ -0,0 +1,156 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff.transform;
+
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.broadcast.BiasAdd;
+import org.nd4j.linalg.api.ops.impl.reduce.Mmul;
+import org.nd4j.linalg.api.ops.impl.scalar.RectifiedLinear;
+import org.nd4j.linalg.api.ops.impl.transforms.pairwise.arithmetic.AddOp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fuses matrix multiplication followed by a bias add (and optionally ReLU) into a single op:<br>
+ * relu(mmul(x, W) + b) becomes relu_layer(x, W, b), and mmul(x, W) + b becomes xw_plus_b(x, W, b).<br>
+ * The bias add may be either a BiasAdd op or an add op (with the matrix multiplication as either input).
+ * Only applied when W and b are constants or variables (W with rank 2, b with shape [nOut] or [1, nOut]), the matrix
+ * multiplication does not transpose any of its inputs, and the intermediate results are not used elsewhere.
+ */
+public class LinearFusionPass implements OptimizationPass {
+
+    @Override
+    public SameDiff apply(SameDiff sd, Set<String> requiredOutputs) {
+        //Fuse the larger pattern (with ReLU) first
+        for (boolean relu : new boolean[]{true, false}) {
+            for (int mmulIdx = 0; mmulIdx < 2; mmulIdx++) {
+                SubGraphPredicate linear = SubGraphPredicate.withRoot(biasAdd(mmulIdx, relu, requiredOutputs))
+                        .withInputSubgraph(mmulIdx, mmul(requiredOutputs));
+                SubGraphPredicate p = relu ? SubGraphPredicate.withRoot(relu()).withInputSubgraph(0, linear) : linear;
+                if (GraphTransformUtil.getSubgraphsMatching(sd, p).isEmpty())
+                    continue;
+
+                final List<Pair<String, String>> renames = new ArrayList<>();
+                sd = GraphTransformUtil.replaceSubgraphsMatching(sd, p, new Processor(mmulIdx, relu, renames));
+
+                //Keep the original output names
+                for (Pair<String, String> rename : renames) {
+                    sd.renameVariable(rename.getSecond(), rename.getFirst());
+                }
+            }
+        }
+        return sd;
+    }
+
+    private static OpPredicate relu() {
+        return new OpPredicate() {
+            @Override
+            public boolean matches(SameDiff sameDiff, DifferentialFunction function) {
+                if (function.getClass() != RectifiedLinear.class)
+                    return false;
+                INDArray cutoff = ((RectifiedLinear) function).scalar();
+                return cutoff == null || cutoff.getDouble(0) == 0.0;
+            }
+        };
+    }
+
+    private static OpPredicate mmul(final Set<String> requiredOutputs) {
+        return new OpPredicate() {
+            @Override
+            public boolean matches(SameDiff sameDiff, DifferentialFunction function) {
+                if (function.getClass() != Mmul.class)
+                    return false;
+                Mmul m = (Mmul) function;
+                for (long l : m.iArgs()) {
+                    if (l != 0)
+                        return false;   //Transpose x, y or result
+                }
+                double[] tArgs = m.tArgs();
+                if (tArgs.length >= 2 && (tArgs[0] != 1.0 || tArgs[1] != 0.0))
+                    return false;       //alpha * mmul(x,y) + beta * z
+                SDVariable[] args = function.args();
+                long[] xShape = args[0].getShape();
+                return GraphOptimizer.consumedOnlyOnce(sameDiff, function.outputVariable().name(), requiredOutputs) &&
+                        (xShape == null || xShape.length == 2) && GraphOptimizer.hasArray(sameDiff, args[1]) &&
+                        args[1].getArr().rank() == 2;
+            }
+        };
+    }
+
+    private static OpPredicate biasAdd(final int mmulIdx, final boolean withRelu, final Set<String> requiredOutputs) {
+        return new OpPredicate() {
+            @Override
+            public boolean matches(SameDiff sameDiff, DifferentialFunction function) {
+                if (!(function.getClass() == AddOp.class || (mmulIdx == 0 && function.getClass() == BiasAdd.class)))
+                    return false;
+                SDVariable[] args = function.args();
+                if (args.length != 2 || (withRelu && !GraphOptimizer.consumedOnlyOnce(sameDiff, function.outputVariable().name(), requiredOutputs)))
+                    return false;
+                DifferentialFunction m = sameDiff.getVariableOutputOp(args[mmulIdx].name());
+                SDVariable b = args[1 - mmulIdx];
+                if (!(m instanceof Mmul) || !GraphOptimizer.hasArray(sameDiff, b) || !GraphOptimizer.hasArray(sameDiff, m.arg(1)))
+                    return false;
+
+                INDArray w = m.arg(1).getArr();
+                INDArray bArr = b.getArr();
+                if (w.rank() != 2 || w.dataType() != bArr.dataType() || !w.dataType().isFPType() || m.arg(0).dataType() != w.dataType())
+                    return false;
+                long nOut = w.size(1);
+                return (bArr.rank() == 1 && bArr.length() == nOut) || (bArr.rank() == 2 && bArr.size(0) == 1 && bArr.size(1) == nOut);
+            }
+        };
+    }
+
+    private static class Processor implements SubGraphProcessor {
+        private final int mmulIdx;
+        private final boolean relu;
+        private final List<Pair<String, String>> renames;
+
+        private Processor(int mmulIdx, boolean relu, List<Pair<String, String>> renames) {
+            this.mmulIdx = mmulIdx;
+            this.relu = relu;
+            this.renames = renames;
+        }
+
+        @Override
+        public List<SDVariable> processSubgraph(SameDiff sd, SubGraph subGraph) {
+            List<DifferentialFunction> children = subGraph.getChildNodes();
+            DifferentialFunction add = relu ? children.get(0) : subGraph.getRootNode();
+            DifferentialFunction mmul = relu ? children.get(1) : children.get(0);
+
+            SDVariable x = mmul.arg(0);
+            SDVariable w = mmul.arg(1);
+            SDVariable b = add.arg(1 - mmulIdx);
+            if (b.getArr().rank() == 2)
+                b = sd.constant(b.getArr().reshape(b.getArr().length()));
+
+            SDVariable out = relu ? sd.nn().reluLayer(x, w, b) : sd.nn().linear(x, w, b);
+            renames.add(new Pair<>(subGraph.getRootNode().outputVariable().name(), out.name()));
+
+            //If the output is not used by any op, the subgraph has no outputs to replace
+            return subGraph.outputs().isEmpty() ? Collections.<SDVariable>emptyList() : Collections.singletonList(out);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff.transform;
+
+import org.nd4j.autodiff.samediff.SameDiff;
+
+import java.util.Set;
+
+/**
+ * A single graph optimization, applied by {@link GraphOptimizer}.<br>
+ * Passes may modify the provided SameDiff instance in place, or return a new instance (for example, when using
+ * {@link GraphTransformUtil#replaceSubgraphsMatching(SameDiff, SubGraphPredicate, SubGraphProcessor)}).
+ * Passes must not change the name or value of any of the required outputs.
+ */
+public interface OptimizationPass {
+
+    /**
+     * Apply the optimization to the specified graph
+     *
+     * @param sd              SameDiff instance to optimize. May be modified in place
+     * @param requiredOutputs Names of the variables that must still be available (with the same values) after optimization
+     * @return The optimized SameDiff instance - either sd itself, or a new instance
+     */
+    SameDiff apply(SameDiff sd, Set<String> requiredOutputs);
+
+}
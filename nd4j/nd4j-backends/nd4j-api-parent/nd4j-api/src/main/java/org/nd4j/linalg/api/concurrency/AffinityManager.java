@@ -138,4 +138,23 @@ public interface AffinityManager {
      * @param reallyAllow
      */
     void allowCrossDeviceAccess(boolean reallyAllow);
+
+    /**
+     * This method returns number of NUMA nodes (with CPUs attached) available on this host
+     */
+    int getNumberOfNumaNodes();
+
+    /**
+     * This method sets CPU affinity of the current Java thread to CPUs of the specified NUMA node.
+     * PLEASE NOTE: only the Java thread itself is bound, native threads used by backend for parallel ops are not.
+     *
+     * @param nodeId NUMA node to bind to
+     * @return TRUE if thread was bound, FALSE if binding isn't supported or needed on this system
+     */
+    boolean attachThreadToNumaNode(int nodeId);
+
+    /**
+     * This method returns NUMA node current thread is bound to, or -1 if thread wasn't bound
+     */
+    int getNumaNodeForCurrentThread();
 }
@@ -23,6 +23,8 @@ import org.nd4j.linalg.api.ndarray.INDArray;
  * @author raver119@gmail.com
  */
 public abstract class BasicAffinityManager implements AffinityManager {
+    private final ThreadLocal<Integer> numaNode = new ThreadLocal<>();
+
     @Override
     public Integer getDeviceForCurrentThread() {
         return 0;
@@ -101,4 +103,27 @@ public abstract class BasicAffinityManager implements AffinityManager {
     public Location getActiveLocation(INDArray array) {
         return Location.EVERYWHERE;
     }
+
+    @Override
+    public int getNumberOfNumaNodes() {
+        return NumaTopology.getInstance().getNumberOfNodes();
+    }
+
+    @Override
+    public boolean attachThreadToNumaNode(int nodeId) {
+        NumaTopology topology = NumaTopology.getInstance();
+
+        // there's nothing to gain from binding on single-node hosts
+        if (topology.getNumberOfNodes() < 2 || !topology.bindCurrentThread(nodeId))
+            return false;
+
+        numaNode.set(nodeId);
+        return true;
+    }
+
+    @Override
+    public int getNumaNodeForCurrentThread() {
+        Integer node = numaNode.get();
+        return node == null ? -1 : node;
+    }
 }
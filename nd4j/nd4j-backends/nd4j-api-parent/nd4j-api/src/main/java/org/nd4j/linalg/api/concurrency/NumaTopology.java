@@ -0,0 +1,239 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.api.concurrency;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.nd4j.common.base.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class describes NUMA topology of the host: NUMA nodes that have CPUs attached, and CPUs of each node.<br>
+ * Topology is discovered from {@code /sys/devices/system/node} on Linux. On other systems (or if sysfs isn't
+ * available) whole host is reported as single node.
+ *
+ * PLEASE NOTE: binding affects CPU affinity of the calling Java thread only. Native threads used by libnd4j for
+ * parallel ops are not bound, and no guarantees are made about memory placement.
+ */
+@Slf4j
+public class NumaTopology {
+    public static final String SYSFS_NODES_PATH = "/sys/devices/system/node";
+
+    private static final Pattern NODE_PATTERN = Pattern.compile("node(\\d+)");
+    private static final long TASKSET_TIMEOUT_MS = 10000;
+
+    private static volatile NumaTopology instance;
+
+    // CPU ids of each node, only nodes with CPUs attached are here
+    private final List<int[]> cpus;
+
+    protected NumaTopology(@NonNull List<int[]> cpus) {
+        Preconditions.checkArgument(!cpus.isEmpty(), "Topology must have at least 1 node");
+        this.cpus = cpus;
+    }
+
+    /**
+     * This method returns topology of the current host. Topology is discovered once, on first call
+     */
+    public static NumaTopology getInstance() {
+        if (instance == null) {
+            synchronized (NumaTopology.class) {
+                if (instance == null)
+                    instance = discover(new File(SYSFS_NODES_PATH));
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * This method builds topology out of given sysfs nodes directory
+     *
+     * @param nodesDirectory directory containing nodeX subdirectories, each with cpulist file
+     */
+    public static NumaTopology discover(@NonNull File nodesDirectory) {
+        List<int[]> result = new ArrayList<>();
+
+        File[] nodes = nodesDirectory.listFiles();
+        if (nodes != null) {
+            List<File> sorted = new ArrayList<>();
+            for (File node : nodes) {
+                if (node.isDirectory() && NODE_PATTERN.matcher(node.getName()).matches())
+                    sorted.add(node);
+            }
+
+            // nodes are sorted by id, so node index matches OS numbering whenever all nodes have CPUs
+            Collections.sort(sorted, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    return Integer.compare(nodeId(a), nodeId(b));
+                }
+            });
+
+            for (File node : sorted) {
+                File cpuList = new File(node, "cpulist");
+                if (!cpuList.exists())
+                    continue;
+
+                try {
+                    int[] nodeCpus = parseCpuList(FileUtils.readFileToString(cpuList, StandardCharsets.UTF_8));
+
+                    // memory-only nodes can't host threads
+                    if (nodeCpus.length > 0)
+                        result.add(nodeCpus);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Unable to read NUMA node CPUs from [{}]: {}", cpuList, e.getMessage());
+                }
+            }
+        }
+
+        if (result.isEmpty()) {
+            int[] all = new int[Runtime.getRuntime().availableProcessors()];
+            for (int e = 0; e < all.length; e++)
+                all[e] = e;
+
+            result.add(all);
+        }
+
+        return new NumaTopology(result);
+    }
+
+    private static int nodeId(File node) {
+        Matcher matcher = NODE_PATTERN.matcher(node.getName());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * This method parses CPU list in kernel format, i.e. "0-3,8-11,16"
+     */
+    public static int[] parseCpuList(@NonNull String cpuList) {
+        List<Integer> result = new ArrayList<>();
+        for (String part : cpuList.trim().split(",")) {
+            part = part.trim();
+            if (part.isEmpty())
+                continue;
+
+            int dash = part.indexOf('-');
+            if (dash < 0) {
+                result.add(Integer.parseInt(part));
+            } else {
+                int first = Integer.parseInt(part.substring(0, dash));
+                int last = Integer.parseInt(part.substring(dash + 1));
+                for (int e = first; e <= last; e++)
+                    result.add(e);
+            }
+        }
+
+        int[] array = new int[result.size()];
+        for (int e = 0; e < array.length; e++)
+            array[e] = result.get(e);
+
+        return array;
+    }
+
+    /**
+     * This method returns number of NUMA nodes with CPUs attached
+     */
+    public int getNumberOfNodes() {
+        return cpus.size();
+    }
+
+    /**
+     * This method returns CPU ids of the given node
+     */
+    public int[] getCpusForNode(int node) {
+        Preconditions.checkArgument(node >= 0 && node < cpus.size(), "Node must be in range [0, %s), got %s",
+                        cpus.size(), node);
+        return cpus.get(node).clone();
+    }
+
+    /**
+     * This method returns node for the given worker, if workers are spread evenly over nodes.
+     * Neighbouring workers are placed on the same node, so node i gets workers [i * N / nodes, (i + 1) * N / nodes)
+     *
+     * @param worker     worker index
+     * @param numWorkers total number of workers
+     */
+    public int getNodeForWorker(int worker, int numWorkers) {
+        Preconditions.checkArgument(worker >= 0 && worker < numWorkers, "Worker must be in range [0, %s), got %s",
+                        numWorkers, worker);
+        return (int) ((long) worker * cpus.size() / numWorkers);
+    }
+
+    /**
+     * This method sets CPU affinity of the current Java thread to CPUs of the given node.
+     * Binding is done for Linux only, via taskset utility, since JVM provides no thread affinity API.
+     * Native threads of libnd4j are not affected.
+     *
+     * @return TRUE if thread was bound, FALSE otherwise
+     */
+    public boolean bindCurrentThread(int node) {
+        int[] nodeCpus = getCpusForNode(node);
+
+        // kernel thread id of the current thread
+        File threadSelf = new File("/proc/thread-self");
+        if (!threadSelf.exists())
+            return false;
+
+        try {
+            String tid = threadSelf.getCanonicalFile().getName();
+
+            StringBuilder list = new StringBuilder();
+            for (int e = 0; e < nodeCpus.length; e++) {
+                if (e > 0)
+                    list.append(",");
+                list.append(nodeCpus[e]);
+            }
+
+            // we don't need output, so it's discarded rather than read, which could block if taskset hangs
+            Process process = new ProcessBuilder("taskset", "-p", "-c", list.toString(), tid)
+                            .redirectErrorStream(true).redirectOutput(new File("/dev/null")).start();
+
+            // Process.waitFor(long, TimeUnit) is Java 8+, so we poll for exit value
+            long deadline = System.currentTimeMillis() + TASKSET_TIMEOUT_MS;
+            while (true) {
+                try {
+                    return process.exitValue() == 0;
+                } catch (IllegalThreadStateException e) {
+                    // still running
+                    if (System.currentTimeMillis() > deadline) {
+                        process.destroy();
+                        return false;
+                    }
+                    Thread.sleep(10);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IOException e) {
+            log.warn("Unable to bind thread to NUMA node {}: {}", node, e.getMessage());
+            return false;
+        }
+    }
+}
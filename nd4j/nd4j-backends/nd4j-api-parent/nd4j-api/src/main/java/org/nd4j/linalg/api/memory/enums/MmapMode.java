@@ -0,0 +1,67 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.api.memory.enums;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * This enum describes how a file is memory-mapped when arrays are opened directly from disk
+ * - see {@link org.nd4j.serde.binary.BinarySerde#mapFromDisk(java.io.File, MmapMode)}
+ */
+public enum MmapMode {
+    /**
+     * File is mapped without write permission. Pages are shared with all other processes mapping the same file.<br>
+     * PLEASE NOTE: any attempt to modify the array (including in-place ops) will crash the JVM, so this mode
+     * should only be used for arrays that are never written to - for example, frozen weights used for inference
+     */
+    READ_ONLY,
+
+    /**
+     * File is mapped privately: pages are shared until they are modified, and modifications are never written back
+     * to the file (copy-on-write)
+     */
+    COPY_ON_WRITE,
+
+    /**
+     * File is mapped in shared read/write mode: modifications of the array are written back to the file
+     */
+    READ_WRITE;
+
+    /**
+     * @return The {@link FileChannel.MapMode} to map the file with for this mode
+     */
+    public FileChannel.MapMode toMapMode() {
+        switch (this) {
+            case READ_ONLY:
+                return FileChannel.MapMode.READ_ONLY;
+            case COPY_ON_WRITE:
+                return FileChannel.MapMode.PRIVATE;
+            case READ_WRITE:
+                return FileChannel.MapMode.READ_WRITE;
+            default:
+                throw new UnsupportedOperationException("Unknown mapping mode: " + this);
+        }
+    }
+
+    /**
+     * @return The {@link java.io.RandomAccessFile} access mode ("r" or "rw") to open the file with for this mode
+     */
+    public String toFileMode() {
+        return this == READ_ONLY ? "r" : "rw";
+    }
+}
@@ -0,0 +1,68 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.api.memory.pointers;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.Pointer;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * Pointer to memory of a {@link MappedByteBuffer}.<br>
+ * JavaCPP pointers created from NIO buffers don't keep a reference to the buffer, and the file is unmapped as soon
+ * as the buffer is garbage collected. This pointer keeps the buffer reachable via its deallocator, and so do all
+ * typed pointers created from it (i.e., {@code new FloatPointer(mappedPointer)}), so the mapping stays valid for as
+ * long as any DataBuffer using it is reachable.
+ */
+public class MappedFilePointer extends Pointer {
+    @Getter
+    private final MappedByteBuffer buffer;
+
+    /**
+     * @param buffer Mapped buffer
+     * @param offset Offset within the buffer, in bytes
+     * @param length Number of elements (of the DataBuffer type that will use this pointer) following the offset
+     */
+    public MappedFilePointer(@NonNull MappedByteBuffer buffer, long offset, long length) {
+        this.buffer = buffer;
+
+        // deallocator is set while capacity is still 0, so mapped memory isn't counted by JavaCPP as allocated memory
+        deallocator(new MappingReference(buffer));
+
+        this.address = new BytePointer(buffer).address() + offset;
+        this.capacity = length;
+        this.limit = length;
+        this.position = 0;
+    }
+
+    protected static class MappingReference implements Deallocator {
+        private MappedByteBuffer buffer;
+
+        protected MappingReference(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void deallocate() {
+            // the file is unmapped when the buffer is garbage collected
+            buffer = null;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.common.primitives.Pair;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.cache.CacheStatistics;
 import org.nd4j.linalg.factory.Nd4j;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -81,4 +82,10 @@ public abstract class BaseShapeInfoProvider implements ShapeInfoProvider {
     public long getCachedBytes() {
         return bytes.get();
     }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        // no cache here, so only bytes are reported
+        return new CacheStatistics(0, 0, 0, 0, bytes.get());
+    }
 }
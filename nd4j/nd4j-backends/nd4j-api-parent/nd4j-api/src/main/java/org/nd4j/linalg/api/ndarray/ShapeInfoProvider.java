@@ -19,6 +19,7 @@ package org.nd4j.linalg.api.ndarray;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.common.primitives.Pair;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.cache.CacheStatistics;
 
 /**
  * @author raver119@gmail.com
@@ -58,4 +59,11 @@ public interface ShapeInfoProvider {
      * @return
      */
     long getCachedBytes();
+
+    /**
+     * This method returns hit/miss/eviction counters and current size of the shape info cache, if cache is available
+     * for specific implementation
+     * @return
+     */
+    CacheStatistics getCacheStatistics();
 }
@@ -30,6 +30,12 @@ import java.util.List;
  */
 public interface OpContext extends AutoCloseable {
 
+    /**
+     * This method releases native resources held by this context
+     */
+    @Override
+    void close();
+
     /**
      * This method sets integer arguments required for operation
      * @param arguments
@@ -0,0 +1,88 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.api.ops.aggregates;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.CustomOp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wrapper for a "batch of custom ops": the {@link CustomOp} counterpart of {@link Batch}.<br>
+ * Ops are executed in the order they were added, via {@link org.nd4j.linalg.api.ops.executioner.OpExecutioner#exec(CustomOpBatch)}.
+ * Compared to executing each op separately, the whole batch shares one op context and one RNG state transfer, which
+ * reduces the per-op overhead when executing many ops on small arrays. Note however that each op is still a separate
+ * native call: the batch is not passed to the backend as a whole, and SameDiff execution does not use it.<br>
+ * Note that inputs are taken from each op at execution time: to use the output of one op as the input of a later op in
+ * the same batch, create the output array up front and pass it to both ops.
+ * After execution, the output arrays of each op are available via {@link #getOutputs(int)}.
+ */
+public class CustomOpBatch {
+
+    @Getter
+    private final List<CustomOp> ops;
+
+    public CustomOpBatch() {
+        this(new ArrayList<CustomOp>());
+    }
+
+    public CustomOpBatch(@NonNull List<CustomOp> ops) {
+        this.ops = ops;
+    }
+
+    /**
+     * Append the op to the end of this batch
+     *
+     * @param op Op to append
+     * @return This batch
+     */
+    public CustomOpBatch append(@NonNull CustomOp op) {
+        ops.add(op);
+        return this;
+    }
+
+    /**
+     * @return Number of ops in this batch
+     */
+    public int size() {
+        return ops.size();
+    }
+
+    /**
+     * Get the output arrays of the specified op. If the op did not have output arrays set when it was added, they are
+     * only available after the batch has been executed.
+     *
+     * @param opIdx Index of the op, in the order the ops were added
+     * @return Output arrays of the op
+     */
+    public INDArray[] getOutputs(int opIdx) {
+        Preconditions.checkArgument(opIdx >= 0 && opIdx < ops.size(), "Invalid op index %s: batch has %s ops", opIdx, ops.size());
+        return ops.get(opIdx).outputArguments().toArray(new INDArray[0]);
+    }
+
+    /**
+     * Remove all ops from this batch, so it can be reused
+     */
+    public void clear() {
+        ops.clear();
+    }
+}
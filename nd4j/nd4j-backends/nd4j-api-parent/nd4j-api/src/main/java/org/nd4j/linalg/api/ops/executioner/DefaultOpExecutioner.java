@@ -16,6 +16,7 @@
 
 package org.nd4j.linalg.api.ops.executioner;
 
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.bytedeco.javacpp.Pointer;
@@ -30,6 +31,7 @@ import org.nd4j.linalg.api.ndarray.INDArrayStatistics;
 import org.nd4j.linalg.api.ops.*;
 import org.nd4j.linalg.api.ops.aggregates.Aggregate;
 import org.nd4j.linalg.api.ops.aggregates.Batch;
+import org.nd4j.linalg.api.ops.aggregates.CustomOpBatch;
 import org.nd4j.linalg.api.ops.compression.DecodeBitmap;
 import org.nd4j.linalg.api.ops.compression.DecodeThreshold;
 import org.nd4j.linalg.api.ops.compression.EncodeBitmap;
@@ -45,6 +47,7 @@ import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.common.primitives.AtomicBoolean;
 import org.nd4j.common.primitives.Optional;
+import org.nd4j.common.primitives.Pair;
 import org.nd4j.linalg.profiler.OpProfiler;
 import org.nd4j.linalg.profiler.ProfilerConfig;
 import org.nd4j.common.util.ArrayUtil;
@@ -518,6 +521,9 @@ public abstract class DefaultOpExecutioner implements OpExecutioner {
         if (OpProfiler.getInstance().getConfig().isCheckElapsedTime()) {
             OpProfiler.getInstance().timeOpCall(op, timeStart);
         }
+        if (OpProfiler.getInstance().getConfig().isOpMetrics()) {
+            OpProfiler.getInstance().recordOpMetrics(op, timeStart);
+        }
         if (OpProfiler.getInstance().getConfig().isCheckForNAN()) {
             OpExecutionerUtil.checkForNaN(op, oc);
         }
@@ -551,6 +557,9 @@ public abstract class DefaultOpExecutioner implements OpExecutioner {
         if (OpProfiler.getInstance().getConfig().isCheckElapsedTime()) {
             OpProfiler.getInstance().timeOpCall(op, timeStart);
         }
+        if (OpProfiler.getInstance().getConfig().isOpMetrics()) {
+            OpProfiler.getInstance().recordOpMetrics(op, oc, timeStart);
+        }
         if (OpProfiler.getInstance().getConfig().isCheckForNAN()) {
             OpExecutionerUtil.checkForNaN(op, oc);
         }
@@ -909,6 +918,59 @@ public abstract class DefaultOpExecutioner implements OpExecutioner {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public INDArray[][] exec(@NonNull CustomOpBatch batch) {
+        INDArray[][] out = new INDArray[batch.size()][0];
+        if (batch.size() == 0)
+            return out;
+
+        Random rng = Nd4j.getRandom();
+        try (OpContext context = buildContext()) {
+            //RNG state is transferred once for the whole batch, rather than once per op
+            context.setRngStates(rng.rootState(), rng.nodeState());
+
+            for (int i = 0; i < batch.size(); i++) {
+                CustomOp op = batch.getOps().get(i);
+                context.markInplace(op.isInplaceCall());
+                context.setInputArrays(op.inputArguments());
+                context.setBArguments(op.bArgs());
+                context.setIArguments(op.iArgs());
+                context.setTArguments(op.tArgs());
+                context.setDArguments(op.dArgs());
+
+                boolean shapeOverride = false;
+                if (op.numOutputArguments() == 0 && !op.isInplaceCall()) {
+                    List<LongShapeDescriptor> shapes;
+                    try {
+                        shapes = calculateOutputShape(op, context);
+                    } catch (Exception e) {
+                        throw new ND4JIllegalStateException("Op name " + op.opName() + " (batch index " + i +
+                                ") - no output arrays were provided and calculateOutputShape failed to execute", e);
+                    }
+                    if (shapes.isEmpty())
+                        throw new ND4JIllegalStateException("Op name " + op.opName() + " (batch index " + i + ") failed to calculate output datatypes");
+
+                    for (LongShapeDescriptor shape : shapes)
+                        op.addOutputArgument(Nd4j.create(shape, false));
+                    shapeOverride = true;
+                }
+                context.shapeFunctionOverride(shapeOverride);
+                context.setOutputArrays(op.outputArguments());
+
+                out[i] = exec(op, context);
+                context.purge();
+            }
+
+            Pair<Long, Long> states = context.getRngStates();
+            rng.setStates(states.getFirst(), states.getSecond());
+        } catch (ND4JIllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Execution of batch of " + batch.size() + " ops failed", e);
+        }
+        return out;
+    }
+
     @Override
     public INDArrayStatistics inspectArray(INDArray array) {
         throw new UnsupportedOperationException();
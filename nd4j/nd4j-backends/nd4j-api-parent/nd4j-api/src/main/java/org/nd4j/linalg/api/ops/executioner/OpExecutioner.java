@@ -25,6 +25,7 @@ import org.nd4j.linalg.api.ndarray.INDArrayStatistics;
 import org.nd4j.linalg.api.ops.*;
 import org.nd4j.linalg.api.ops.aggregates.Aggregate;
 import org.nd4j.linalg.api.ops.aggregates.Batch;
+import org.nd4j.linalg.api.ops.aggregates.CustomOpBatch;
 import org.nd4j.linalg.api.ops.impl.scatter.ScatterUpdate;
 import org.nd4j.linalg.api.ops.impl.summarystats.Variance;
 import org.nd4j.linalg.api.rng.Random;
@@ -369,6 +370,16 @@ public interface OpExecutioner {
      */
     INDArray[] exec(CustomOp op, OpContext context);
 
+    /**
+     * This method executes all ops in the given batch, in order, using a single op context.
+     * Each op is still executed via a separate native call.
+     * Output arrays are allocated (based on the calculated output shapes) for ops that don't have them set.
+     *
+     * @param batch Batch of ops to execute
+     * @return Output arrays for each op in the batch, in the same order as the ops
+     */
+    INDArray[][] exec(CustomOpBatch batch);
+
     List<LongShapeDescriptor> calculateOutputShape(CustomOp op);
 
     List<LongShapeDescriptor> calculateOutputShape(CustomOp op, OpContext opContext);
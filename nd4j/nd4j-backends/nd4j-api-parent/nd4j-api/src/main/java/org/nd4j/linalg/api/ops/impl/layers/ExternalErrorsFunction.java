@@ -72,6 +72,7 @@ public class ExternalErrorsFunction extends DynamicCustomOp {
                 out = sameDiff.zero(name, Nd4j.dataType(), 1);
                 sameDiff.getOps().get(getOwnName()).setOutputsOfOp(Collections.singletonList(out.name()));
                 sameDiff.getVariables().get(name).setOutputOfOp(getOwnName());
+                sameDiff.markStructureModified();
             }
         }
         return new SDVariable[]{out};
@@ -131,6 +131,7 @@ public class BatchNorm extends DynamicCustomOp {
         List<String> list = op.getInputsToOp();
         List<String> newList = Arrays.asList(list.get(0), list.get(3), list.get(4), list.get(1), list.get(2));
         op.setInputsToOp(newList);
+        initWith.markStructureModified();
 
         this.applyGamma = true;
         this.applyBeta = true;
@@ -66,6 +66,7 @@ public class SparseSoftmaxCrossEntropyLossWithLogits extends DynamicCustomOp {
         List<String> list = op.getInputsToOp();
         List<String> newList = Arrays.asList(list.get(1), list.get(0));
         op.setInputsToOp(newList);
+        initWith.markStructureModified();
     }
 
     @Override
@@ -73,7 +73,9 @@ public class CheckNumerics extends DynamicCustomOp {
         newInputs.addAll(initWith.getOps().get(name).getInputsToOp());
         newInputs.add(msg.name());
         initWith.getOps().get(name).setInputsToOp(newInputs);
-        initWith.getVariables().get(msg.name()).setInputsForOp(Collections.singletonList(getOwnName()));    }
+        initWith.getVariables().get(msg.name()).setInputsForOp(Collections.singletonList(getOwnName()));
+        initWith.markStructureModified();
+    }
 
     @Override
     public List<DataType> calculateOutputDataTypes(List<DataType> inputDataTypes){
@@ -0,0 +1,225 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.cache;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe cache bounded by both the number of entries and the number of bytes held, with least-recently-used
+ * eviction. Used for shape info buffers, TAD descriptors and constant buffers, where the number of distinct keys
+ * (shapes, dimensions, constants) may grow without limit in long running processes - for example, variable length
+ * sequence inputs.<br>
+ * Lookups are lock-free; recency is tracked with a per-entry stamp, taken from a counter that advances on every
+ * access. When either bound is exceeded, the least recently used entries are evicted in one pass until the cache is
+ * 10% below the bound, so that the cost of eviction is amortized over many insertions.<br>
+ * Subclasses can override {@link #onRemoval(Object, Object, long)} to release resources associated with removed values.
+ *
+ * @param <K> Key type - must implement equals/hashCode
+ * @param <V> Value type
+ */
+public class BoundedLruCache<K, V> {
+
+    @Getter
+    protected final long maxEntries;
+    @Getter
+    protected final long maxBytes;
+
+    protected final ConcurrentHashMap<K, CacheEntry<V>> map = new ConcurrentHashMap<>();
+    protected final AtomicLong clock = new AtomicLong(0);
+    protected final AtomicLong bytes = new AtomicLong(0);
+    protected final AtomicLong hits = new AtomicLong(0);
+    protected final AtomicLong misses = new AtomicLong(0);
+    protected final AtomicLong evictions = new AtomicLong(0);
+
+    /**
+     * @param maxEntries Maximum number of entries. Must be positive
+     * @param maxBytes   Maximum number of bytes held by all entries. Must be positive
+     */
+    public BoundedLruCache(long maxEntries, long maxBytes) {
+        Preconditions.checkArgument(maxEntries > 0, "Maximum number of entries must be positive, got %s", maxEntries);
+        Preconditions.checkArgument(maxBytes > 0, "Maximum number of bytes must be positive, got %s", maxBytes);
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cached value for the specified key, counting the lookup as a hit or a miss
+     *
+     * @param key Key to look up
+     * @return Cached value, or null if the key is not present
+     */
+    public V get(@NonNull K key) {
+        CacheEntry<V> entry = map.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        entry.lastAccess = clock.incrementAndGet();
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Add a value to the cache, evicting least recently used entries if necessary.<br>
+     * If another thread has already added a value for the same key, that value is kept and returned instead.
+     * Values larger than the byte bound of the cache are not cached at all.
+     *
+     * @param key      Key
+     * @param value    Value to cache
+     * @param numBytes Number of bytes held by the value
+     * @return The value that is now associated with the key (or the provided value, if it was too large to cache)
+     */
+    public V put(@NonNull K key, @NonNull V value, long numBytes) {
+        if (numBytes > maxBytes)
+            return value;
+
+        CacheEntry<V> entry = new CacheEntry<>(value, numBytes, clock.incrementAndGet());
+        CacheEntry<V> existing = map.putIfAbsent(key, entry);
+        if (existing != null) {
+            existing.lastAccess = clock.incrementAndGet();
+            return existing.value;
+        }
+
+        long current = bytes.addAndGet(numBytes);
+        if (map.size() > maxEntries || current > maxBytes)
+            evict(key);
+
+        return value;
+    }
+
+    /**
+     * Remove all entries from the cache. Counters for hits, misses and evictions are not reset.
+     */
+    public void purge() {
+        for (Map.Entry<K, CacheEntry<V>> e : map.entrySet()) {
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * @return Number of entries currently in the cache
+     */
+    public long size() {
+        return map.size();
+    }
+
+    /**
+     * @return Number of bytes held by all entries currently in the cache
+     */
+    public long getCachedBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return Snapshot of the counters for this cache
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.get(), misses.get(), evictions.get(), map.size(), bytes.get());
+    }
+
+    /**
+     * Called after an entry was removed from the cache, either due to eviction or {@link #purge()}.
+     * No-op by default.
+     *
+     * @param key      Key of the removed entry
+     * @param value    Removed value
+     * @param numBytes Number of bytes that were held by the value
+     */
+    protected void onRemoval(K key, V value, long numBytes) {
+        //No op
+    }
+
+    protected synchronized void evict(K justAdded) {
+        long targetEntries = maxEntries - maxEntries / 10;
+        long targetBytes = maxBytes - maxBytes / 10;
+        if (map.size() <= maxEntries && bytes.get() <= maxBytes)
+            return;     //Another thread already evicted
+
+        List<Map.Entry<K, CacheEntry<V>>> candidates = new ArrayList<>(map.entrySet());
+        Collections.sort(candidates, new Comparator<Map.Entry<K, CacheEntry<V>>>() {
+            @Override
+            public int compare(Map.Entry<K, CacheEntry<V>> o1, Map.Entry<K, CacheEntry<V>> o2) {
+                return Long.compare(o1.getValue().lastAccess, o2.getValue().lastAccess);
+            }
+        });
+
+        for (Map.Entry<K, CacheEntry<V>> e : candidates) {
+            if (map.size() <= targetEntries && bytes.get() <= targetBytes)
+                break;
+            if (e.getKey().equals(justAdded))
+                continue;
+
+            if (remove(e.getKey(), e.getValue()))
+                evictions.incrementAndGet();
+        }
+    }
+
+    protected boolean remove(K key, CacheEntry<V> entry) {
+        if (!map.remove(key, entry))
+            return false;
+
+        bytes.addAndGet(-entry.numBytes);
+        onRemoval(key, entry.value, entry.numBytes);
+        return true;
+    }
+
+    /**
+     * Get a positive long value from a system property (see {@link org.nd4j.common.config.ND4JSystemProperties}),
+     * or the default value if the property is not set
+     *
+     * @param property     Name of the system property
+     * @param defaultValue Value to use if the property is not set
+     */
+    public static long boundFromProperty(@NonNull String property, long defaultValue) {
+        String s = System.getProperty(property);
+        if (s == null || s.isEmpty())
+            return defaultValue;
+
+        long value;
+        try {
+            value = Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for system property \"" + property + "\": expected a positive integer, got \"" + s + "\"", e);
+        }
+        Preconditions.checkArgument(value > 0, "Invalid value for system property \"%s\": expected a positive integer, got %s", property, value);
+        return value;
+    }
+
+    protected static class CacheEntry<V> {
+        protected final V value;
+        protected final long numBytes;
+        protected volatile long lastAccess;
+
+        protected CacheEntry(V value, long numBytes, long lastAccess) {
+            this.value = value;
+            this.numBytes = numBytes;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Point-in-time snapshot of the counters of a cache - i.e., {@link TADManager}, {@link ConstantHandler} or
+ * {@link org.nd4j.linalg.api.ndarray.ShapeInfoProvider}.<br>
+ * Implementations that don't cache anything on the java side report zero hits, misses and evictions.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatistics {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long entries;
+    private long bytes;
+
+    /**
+     * @return Fraction of lookups that were served from the cache, or 0.0 if there were no lookups yet
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : hits / (double) total;
+    }
+
+    /**
+     * Combine the counters of two caches - for example, for caches that are kept separately for each device
+     *
+     * @param other Statistics to add to these ones
+     * @return New CacheStatistics instance
+     */
+    public CacheStatistics plus(CacheStatistics other) {
+        return new CacheStatistics(hits + other.hits, misses + other.misses, evictions + other.evictions,
+                entries + other.entries, bytes + other.bytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStatistics(hits=%d, misses=%d, hitRate=%.4f, evictions=%d, entries=%d, bytes=%d)",
+                hits, misses, getHitRate(), evictions, entries, bytes);
+    }
+}
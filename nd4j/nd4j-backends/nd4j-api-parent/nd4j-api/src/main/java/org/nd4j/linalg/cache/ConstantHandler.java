@@ -109,4 +109,11 @@ public interface ConstantHandler {
      * @return
      */
     long getCachedBytes();
+
+    /**
+     * This method returns hit/miss/eviction counters and current size of the constants cache
+     *
+     * @return
+     */
+    CacheStatistics getCacheStatistics();
 }
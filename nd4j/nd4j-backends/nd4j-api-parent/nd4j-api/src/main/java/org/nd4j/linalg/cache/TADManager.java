@@ -54,4 +54,11 @@ public interface TADManager {
      * @return
      */
     long getCachedBytes();
+
+    /**
+     * This method returns hit/miss/eviction counters and current size of the TAD cache
+     *
+     * @return
+     */
+    CacheStatistics getCacheStatistics();
 }
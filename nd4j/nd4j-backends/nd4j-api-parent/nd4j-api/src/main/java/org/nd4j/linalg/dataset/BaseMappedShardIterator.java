@@ -0,0 +1,144 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.dataset;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Base class for iterators over memory-mapped {@link MappedShard}s. Minibatches are contiguous ranges of examples
+ * within a shard, and so are returned as views of the mapped files without any copying. When shuffling is enabled,
+ * the order of these minibatches (across all shards) is shuffled on every reset; examples within a minibatch keep
+ * the order they were written in.<br>
+ * With {@link MmapMode#COPY_ON_WRITE} shards are re-mapped on reset, so in-place changes made during an epoch
+ * (for example by a normalizer) are discarded instead of being applied again in the next epoch.
+ */
+public abstract class BaseMappedShardIterator {
+
+    protected final List<File> files;
+    @Getter
+    protected final MmapMode mode;
+    @Getter
+    protected final int batchSize;
+    protected final boolean shuffle;
+    protected final Random rng;
+
+    protected MappedShard[] shards;
+    protected final List<long[]> batches = new ArrayList<>();
+    protected int cursor;
+
+    protected BaseMappedShardIterator(@NonNull List<File> files, int batchSize, @NonNull MmapMode mode, boolean shuffle, long seed) {
+        Preconditions.checkArgument(!files.isEmpty(), "No shard files provided");
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive, got %s", batchSize);
+        this.files = new ArrayList<>(files);
+        this.batchSize = batchSize;
+        this.mode = mode;
+        this.shuffle = shuffle;
+        this.rng = new Random(seed);
+
+        open();
+        for (int s = 0; s < shards.length; s++) {
+            long n = shards[s].numExamples();
+            for (long from = 0; from < n; from += batchSize)
+                batches.add(new long[]{s, from, Math.min(n, from + batchSize)});
+        }
+        if (shuffle)
+            Collections.shuffle(batches, rng);
+    }
+
+    protected static List<File> listShards(@NonNull File dir) {
+        List<File> out = new ArrayList<>();
+        for (int i = 0; ; i++) {
+            File f = new File(dir, String.format(MappedShard.DEFAULT_PATTERN, i));
+            if (!f.exists())
+                break;
+            out.add(f);
+        }
+        Preconditions.checkState(!out.isEmpty(), "No shard files found in directory %s", dir);
+        return out;
+    }
+
+    private void open() {
+        shards = new MappedShard[files.size()];
+        for (int i = 0; i < shards.length; i++) {
+            try {
+                shards[i] = MappedShard.open(files.get(i), mode);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to map shard " + files.get(i), e);
+            }
+        }
+    }
+
+    /**
+     * @return Total number of examples over all shards
+     */
+    public long totalExamples() {
+        long n = 0;
+        for (MappedShard s : shards)
+            n += s.numExamples();
+        return n;
+    }
+
+    public boolean hasNext() {
+        return cursor < batches.size();
+    }
+
+    protected org.nd4j.linalg.dataset.api.MultiDataSet nextBatch() {
+        if (!hasNext())
+            throw new NoSuchElementException("No more minibatches");
+        long[] b = batches.get(cursor++);
+        return shards[(int) b[0]].getMultiDataSet(b[1], b[2]);
+    }
+
+    protected DataSet nextDataSet() {
+        if (!hasNext())
+            throw new NoSuchElementException("No more minibatches");
+        long[] b = batches.get(cursor++);
+        return shards[(int) b[0]].getDataSet(b[1], b[2]);
+    }
+
+    public boolean resetSupported() {
+        return true;
+    }
+
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    public void reset() {
+        if (mode == MmapMode.COPY_ON_WRITE && cursor > 0)
+            open();
+        cursor = 0;
+        if (shuffle)
+            Collections.shuffle(batches, rng);
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,396 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.dataset;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
+import org.nd4j.linalg.api.memory.pointers.MappedFilePointer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A shard of examples stored in a columnar, page-aligned binary format that can be memory-mapped.<br>
+ * Each features/labels/mask array of a {@link org.nd4j.linalg.dataset.api.DataSet} or
+ * {@link org.nd4j.linalg.dataset.api.MultiDataSet} is stored as one contiguous, c-order block containing all examples
+ * of the shard, starting at a page boundary. When a shard is opened, every block is mapped separately and minibatches
+ * returned by {@link #getMultiDataSet(long, long)} and {@link #getDataSet(long, long)} are views of the mapped memory:
+ * nothing is deserialized or copied.<br>
+ * Data is stored in native byte order, so shards can only be opened on machines with the same endianness as the
+ * machine that wrote them.
+ *
+ * @see MappedShardDataSetIterator
+ * @see MappedShardMultiDataSetIterator
+ */
+public class MappedShard {
+
+    public enum ArrayType {FEATURES, LABELS, FEATURES_MASK, LABELS_MASK}
+
+    public static final String DEFAULT_PATTERN = "shard-%d.bin";
+    public static final int PAGE_SIZE = 4096;
+
+    private static final long MAGIC = 0x4E44344A53485244L;     //"ND4JSHRD"
+    private static final int BYTE_ORDER_MARKER = 0x01020304;
+    private static final int VERSION = 1;
+    private static final int PREFIX_LENGTH = 8 + 4 + 4 + 8 + 4 + 4;
+
+    @Getter
+    private final File file;
+    @Getter
+    private final MmapMode mode;
+    private final long numExamples;
+    private final INDArray[][] arrays;
+
+    private MappedShard(File file, MmapMode mode, long numExamples, INDArray[][] arrays) {
+        this.file = file;
+        this.mode = mode;
+        this.numExamples = numExamples;
+        this.arrays = arrays;
+    }
+
+    /**
+     * @return Number of examples in this shard
+     */
+    public long numExamples() {
+        return numExamples;
+    }
+
+    /**
+     * Get all arrays of the given type, covering all examples of the shard. Entries are null for absent mask arrays,
+     * and the returned array is empty if the shard has no arrays of this type.
+     */
+    public INDArray[] getArrays(@NonNull ArrayType type) {
+        return Arrays.copyOf(arrays[type.ordinal()], arrays[type.ordinal()].length);
+    }
+
+    /**
+     * Get examples {@code [from, to)} of this shard as a MultiDataSet. The returned arrays are views of the mapped
+     * file: in-place modifications are written back to the file if the shard was opened with {@link MmapMode#READ_WRITE},
+     * and are not allowed at all with {@link MmapMode#READ_ONLY}.
+     *
+     * @param from First example (inclusive)
+     * @param to   Last example (exclusive)
+     */
+    public org.nd4j.linalg.dataset.api.MultiDataSet getMultiDataSet(long from, long to) {
+        Preconditions.checkArgument(from >= 0 && from < to && to <= numExamples, "Invalid example range [%s, %s) for shard with %s examples",
+                from, to, numExamples);
+        INDArray[] f = slice(ArrayType.FEATURES, from, to);
+        INDArray[] l = slice(ArrayType.LABELS, from, to);
+        INDArray[] fm = slice(ArrayType.FEATURES_MASK, from, to);
+        INDArray[] lm = slice(ArrayType.LABELS_MASK, from, to);
+        return new MultiDataSet(f, l, fm, lm);
+    }
+
+    /**
+     * Get examples {@code [from, to)} of this shard as a DataSet. The shard must have been written from a DataSet,
+     * i.e., have a single features array and at most one labels array. See {@link #getMultiDataSet(long, long)}
+     * for details on the returned arrays.
+     *
+     * @param from First example (inclusive)
+     * @param to   Last example (exclusive)
+     */
+    public DataSet getDataSet(long from, long to) {
+        Preconditions.checkState(arrays[ArrayType.FEATURES.ordinal()].length == 1 && arrays[ArrayType.LABELS.ordinal()].length <= 1,
+                "Unable to get DataSet from shard %s: shard has %s features arrays and %s labels arrays", file,
+                arrays[ArrayType.FEATURES.ordinal()].length, arrays[ArrayType.LABELS.ordinal()].length);
+        org.nd4j.linalg.dataset.api.MultiDataSet mds = getMultiDataSet(from, to);
+        return new DataSet(mds.getFeatures(0), mds.numLabelsArrays() == 0 ? null : mds.getLabels(0),
+                mds.getFeaturesMaskArray(0), mds.numLabelsArrays() == 0 ? null : mds.getLabelsMaskArray(0));
+    }
+
+    private INDArray[] slice(ArrayType type, long from, long to) {
+        INDArray[] all = arrays[type.ordinal()];
+        if (all.length == 0)
+            return null;
+
+        INDArray[] out = new INDArray[all.length];
+        for (int i = 0; i < all.length; i++) {
+            if (all[i] == null)
+                continue;
+            long[] shape = all[i].shape();
+            if (all[i].isEmpty()) {
+                shape[0] = to - from;
+                out[i] = Nd4j.create(all[i].dataType(), shape);
+                continue;
+            }
+            long[] stride = all[i].stride();
+            shape[0] = to - from;
+            out[i] = Nd4j.create(all[i].data(), shape, stride, from * stride[0], 'c');
+        }
+        return out;
+    }
+
+    /**
+     * Memory-map a shard previously written with one of the {@code write} methods
+     *
+     * @param file Shard file
+     * @param mode Mapping mode. Note that {@link MmapMode#READ_ONLY} does not allow in-place modification of the returned
+     *             arrays, which also rules out in-place preprocessors such as normalizers
+     */
+    public static MappedShard open(@NonNull File file, @NonNull MmapMode mode) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, mode.toFileMode())) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer prefix = readFully(channel, 0, PREFIX_LENGTH);
+            if (prefix.getLong() != MAGIC)
+                throw new IllegalStateException("File " + file + " is not a shard file");
+            if (prefix.getInt() != BYTE_ORDER_MARKER)
+                throw new IllegalStateException("Shard " + file + " was written on a machine with a different byte order");
+            int version = prefix.getInt();
+            if (version != VERSION)
+                throw new IllegalStateException("Unsupported shard format version " + version + " in file " + file);
+            long numExamples = prefix.getLong();
+            int numEntries = prefix.getInt();
+            int headerLength = prefix.getInt();
+
+            ByteBuffer header = readFully(channel, PREFIX_LENGTH, headerLength - PREFIX_LENGTH);
+            int[] counts = new int[ArrayType.values().length];
+            for (int i = 0; i < counts.length; i++)
+                counts[i] = header.getInt();
+
+            INDArray[][] arrays = new INDArray[counts.length][];
+            for (int i = 0; i < counts.length; i++)
+                arrays[i] = new INDArray[counts[i]];
+
+            for (int e = 0; e < numEntries; e++) {
+                int type = header.getInt();
+                int idx = header.getInt();
+                int rank = header.getInt();
+                if (rank < 0)
+                    continue;       //Absent mask array
+                DataType dataType = DataType.values()[header.getInt()];
+                long[] shape = new long[rank];
+                for (int j = 0; j < rank; j++)
+                    shape[j] = header.getLong();
+                long offset = header.getLong();
+
+                long length = 1;
+                for (long s : shape)
+                    length *= s;
+                long bytes = length * dataType.width();
+                if (offset + bytes > channel.size())
+                    throw new IllegalStateException("Shard " + file + " is too short: expected at least " + (offset + bytes) + " bytes, got " + channel.size());
+                if (bytes > Integer.MAX_VALUE)
+                    throw new IllegalStateException("Array " + ArrayType.values()[type] + "[" + idx + "] in shard " + file + " is "
+                            + bytes + " bytes: arrays larger than 2GB can't be mapped, write smaller shards instead");
+
+                if (length == 0) {
+                    arrays[type][idx] = Nd4j.create(dataType, shape);
+                    continue;
+                }
+
+                // mapping remains valid after the channel is closed
+                MappedByteBuffer mapped = channel.map(mode.toMapMode(), offset, bytes);
+                DataBuffer buffer = Nd4j.createBuffer(new MappedFilePointer(mapped, 0, length), length, dataType);
+                arrays[type][idx] = Nd4j.create(buffer, shape, Nd4j.getStrides(shape, 'c'), 0, 'c');
+            }
+
+            return new MappedShard(file, mode, numExamples, arrays);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(length).order(ByteOrder.nativeOrder());
+        while (bb.hasRemaining()) {
+            if (channel.read(bb, position + bb.position()) < 0)
+                throw new IllegalStateException("Unexpected end of shard file: expected at least " + (position + length) + " bytes");
+        }
+        bb.flip();
+        return bb;
+    }
+
+    /**
+     * Write the given DataSet as a single shard
+     */
+    public static void write(@NonNull org.nd4j.linalg.dataset.api.DataSet data, @NonNull File file) throws IOException {
+        write(new MultiDataSet(data.getFeatures(), data.getLabels(), data.getFeaturesMaskArray(), data.getLabelsMaskArray()), file);
+    }
+
+    /**
+     * Write the given MultiDataSet as a single shard. All arrays must have the examples as their first dimension.
+     */
+    public static void write(@NonNull org.nd4j.linalg.dataset.api.MultiDataSet data, @NonNull File file) throws IOException {
+        INDArray[][] arrays = new INDArray[][]{
+                orEmpty(data.getFeatures()), orEmpty(data.getLabels()),
+                orEmpty(data.getFeaturesMaskArrays()), orEmpty(data.getLabelsMaskArrays())};
+        Preconditions.checkArgument(arrays[0].length > 0 && arrays[0][0] != null, "Unable to write shard: no features arrays");
+
+        long numExamples = arrays[0][0].size(0);
+        int headerLength = PREFIX_LENGTH + 4 * arrays.length;
+        int numEntries = 0;
+        for (INDArray[] a : arrays) {
+            for (INDArray arr : a) {
+                numEntries++;
+                headerLength += 3 * 4;
+                if (arr != null) {
+                    Preconditions.checkArgument(arr.rank() >= 1 && arr.size(0) == numExamples, "Unable to write shard: all arrays " +
+                            "must have %s examples as their first dimension, got array with shape %ndShape", numExamples, arr);
+                    Preconditions.checkArgument(arr.dataType() != DataType.UTF8 && arr.dataType() != DataType.COMPRESSED,
+                            "Unable to write shard: arrays of type %s are not supported", arr.dataType());
+                    Preconditions.checkArgument(arr.length() * arr.dataType().width() <= Integer.MAX_VALUE, "Unable to write shard: " +
+                            "arrays larger than 2GB can't be mapped, use fewer examples per shard. Got array with shape %ndShape", arr);
+                    headerLength += 4 + 8 * arr.rank() + 8;
+                }
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.nativeOrder());
+        header.putLong(MAGIC).putInt(BYTE_ORDER_MARKER).putInt(VERSION).putLong(numExamples).putInt(numEntries).putInt(headerLength);
+        for (INDArray[] a : arrays)
+            header.putInt(a.length);
+
+        long offset = align(headerLength);
+        List<Long> offsets = new ArrayList<>();
+        for (int t = 0; t < arrays.length; t++) {
+            for (int i = 0; i < arrays[t].length; i++) {
+                INDArray arr = arrays[t][i];
+                header.putInt(t).putInt(i);
+                if (arr == null) {
+                    header.putInt(-1);
+                    continue;
+                }
+                header.putInt(arr.rank()).putInt(arr.dataType().ordinal());
+                for (long s : arr.shape())
+                    header.putLong(s);
+                header.putLong(offset);
+                offsets.add(offset);
+                offset = align(offset + arr.length() * arr.dataType().width());
+            }
+        }
+        header.flip();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            writeFully(channel, header, 0);
+            int next = 0;
+            for (INDArray[] a : arrays) {
+                for (INDArray arr : a) {
+                    if (arr == null)
+                        continue;
+                    long pos = offsets.get(next++);
+                    if (arr.length() == 0)
+                        continue;
+                    if (arr.isView() || arr.ordering() != 'c' || arr.data().length() != arr.length())
+                        arr = arr.dup('c');
+                    Nd4j.getAffinityManager().ensureLocation(arr, AffinityManager.Location.HOST);
+                    ByteBuffer bb = arr.data().pointer().asByteBuffer();
+                    bb.limit((int) (arr.length() * arr.dataType().width()));
+                    writeFully(channel, bb, pos);
+                }
+            }
+            raf.setLength(Math.max(align(headerLength), offset));
+        }
+    }
+
+    /**
+     * Write all DataSets of the iterator to shard files {@code shard-0.bin, shard-1.bin, ...} in the given directory.
+     * Minibatches are merged until a shard has at least {@code examplesPerShard} examples, so shards are cut at
+     * minibatch boundaries. Note that this is also the place to shuffle examples, if shuffling beyond the minibatch
+     * order of {@link MappedShardDataSetIterator} is required.
+     *
+     * @return The shard files that were written
+     */
+    public static List<File> writeShards(@NonNull DataSetIterator iterator, @NonNull File dir, int examplesPerShard) throws IOException {
+        Preconditions.checkArgument(examplesPerShard > 0, "Examples per shard must be positive, got %s", examplesPerShard);
+        List<File> out = new ArrayList<>();
+        List<org.nd4j.linalg.dataset.api.DataSet> pending = new ArrayList<>();
+        long count = 0;
+        while (iterator.hasNext()) {
+            org.nd4j.linalg.dataset.api.DataSet ds = iterator.next();
+            pending.add(ds);
+            count += ds.getFeatures().size(0);
+            if (count >= examplesPerShard) {
+                out.add(flush(DataSet.merge(pending), dir, out.size()));
+                pending.clear();
+                count = 0;
+            }
+        }
+        if (!pending.isEmpty())
+            out.add(flush(DataSet.merge(pending), dir, out.size()));
+        return out;
+    }
+
+    /**
+     * Write all MultiDataSets of the iterator to shard files {@code shard-0.bin, shard-1.bin, ...} in the given
+     * directory. See {@link #writeShards(DataSetIterator, File, int)} for details.
+     *
+     * @return The shard files that were written
+     */
+    public static List<File> writeShards(@NonNull MultiDataSetIterator iterator, @NonNull File dir, int examplesPerShard) throws IOException {
+        Preconditions.checkArgument(examplesPerShard > 0, "Examples per shard must be positive, got %s", examplesPerShard);
+        List<File> out = new ArrayList<>();
+        List<org.nd4j.linalg.dataset.api.MultiDataSet> pending = new ArrayList<>();
+        long count = 0;
+        while (iterator.hasNext()) {
+            org.nd4j.linalg.dataset.api.MultiDataSet mds = iterator.next();
+            pending.add(mds);
+            count += mds.getFeatures(0).size(0);
+            if (count >= examplesPerShard) {
+                out.add(flush(MultiDataSet.merge(pending), dir, out.size()));
+                pending.clear();
+                count = 0;
+            }
+        }
+        if (!pending.isEmpty())
+            out.add(flush(MultiDataSet.merge(pending), dir, out.size()));
+        return out;
+    }
+
+    private static File flush(org.nd4j.linalg.dataset.api.DataSet ds, File dir, int idx) throws IOException {
+        File f = new File(dir, String.format(DEFAULT_PATTERN, idx));
+        write(ds, f);
+        return f;
+    }
+
+    private static File flush(org.nd4j.linalg.dataset.api.MultiDataSet mds, File dir, int idx) throws IOException {
+        File f = new File(dir, String.format(DEFAULT_PATTERN, idx));
+        write(mds, f);
+        return f;
+    }
+
+    private static INDArray[] orEmpty(INDArray[] arrays) {
+        return arrays == null ? new INDArray[0] : arrays;
+    }
+
+    private static long align(long offset) {
+        return (offset + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bb, long position) throws IOException {
+        long pos = position;
+        while (bb.hasRemaining())
+            pos += channel.write(bb, pos);
+    }
+}
@@ -0,0 +1,101 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.dataset;
+
+import lombok.NonNull;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * DataSetIterator over memory-mapped shards written with {@link MappedShard#write(org.nd4j.linalg.dataset.api.DataSet, File)}
+ * or {@link MappedShard#writeShards(DataSetIterator, File, int)}. Unlike {@link ExistingMiniBatchDataSetIterator},
+ * minibatches are not deserialized: features, labels and masks are views of the mapped files.
+ * See {@link BaseMappedShardIterator} for details on shuffling and mapping modes.
+ */
+public class MappedShardDataSetIterator extends BaseMappedShardIterator implements DataSetIterator {
+
+    private DataSetPreProcessor preProcessor;
+
+    /**
+     * Iterate over all shards ({@link MappedShard#DEFAULT_PATTERN}) in the given directory, in order, using
+     * copy-on-write mappings
+     */
+    public MappedShardDataSetIterator(@NonNull File rootDir, int batchSize) {
+        this(listShards(rootDir), batchSize, MmapMode.COPY_ON_WRITE, false, 0);
+    }
+
+    /**
+     * @param files     Shard files
+     * @param batchSize Minibatch size. The last minibatch of each shard may be smaller
+     * @param mode      Mapping mode
+     * @param shuffle   If true, shuffle the order of minibatches on every reset
+     * @param seed      Seed for shuffling
+     */
+    public MappedShardDataSetIterator(@NonNull List<File> files, int batchSize, @NonNull MmapMode mode, boolean shuffle, long seed) {
+        super(files, batchSize, mode, shuffle, seed);
+    }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException("Unable to load custom number of examples");
+    }
+
+    @Override
+    public DataSet next() {
+        DataSet ds = nextDataSet();
+        if (preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public int inputColumns() {
+        return (int) shards[0].getArrays(MappedShard.ArrayType.FEATURES)[0].size(1);
+    }
+
+    @Override
+    public int totalOutcomes() {
+        INDArray[] labels = shards[0].getArrays(MappedShard.ArrayType.LABELS);
+        return labels.length == 0 ? -1 : (int) labels[0].size(1);
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.dataset;
+
+import lombok.NonNull;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
+import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * MultiDataSetIterator over memory-mapped shards written with
+ * {@link MappedShard#write(org.nd4j.linalg.dataset.api.MultiDataSet, File)} or
+ * {@link MappedShard#writeShards(MultiDataSetIterator, File, int)}. Features, labels and masks of the returned
+ * MultiDataSets are views of the mapped files. See {@link BaseMappedShardIterator} for details on shuffling and
+ * mapping modes.
+ */
+public class MappedShardMultiDataSetIterator extends BaseMappedShardIterator implements MultiDataSetIterator {
+
+    private MultiDataSetPreProcessor preProcessor;
+
+    /**
+     * Iterate over all shards ({@link MappedShard#DEFAULT_PATTERN}) in the given directory, in order, using
+     * copy-on-write mappings
+     */
+    public MappedShardMultiDataSetIterator(@NonNull File rootDir, int batchSize) {
+        this(listShards(rootDir), batchSize, MmapMode.COPY_ON_WRITE, false, 0);
+    }
+
+    /**
+     * @param files     Shard files
+     * @param batchSize Minibatch size. The last minibatch of each shard may be smaller
+     * @param mode      Mapping mode
+     * @param shuffle   If true, shuffle the order of minibatches on every reset
+     * @param seed      Seed for shuffling
+     */
+    public MappedShardMultiDataSetIterator(@NonNull List<File> files, int batchSize, @NonNull MmapMode mode, boolean shuffle, long seed) {
+        super(files, batchSize, mode, shuffle, seed);
+    }
+
+    @Override
+    public org.nd4j.linalg.dataset.api.MultiDataSet next(int num) {
+        throw new UnsupportedOperationException("Unable to load custom number of examples");
+    }
+
+    @Override
+    public org.nd4j.linalg.dataset.api.MultiDataSet next() {
+        org.nd4j.linalg.dataset.api.MultiDataSet mds = nextBatch();
+        if (preProcessor != null)
+            preProcessor.preProcess(mds);
+        return mds;
+    }
+
+    @Override
+    public void setPreProcessor(MultiDataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public MultiDataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+}
@@ -43,11 +43,13 @@ import org.nd4j.linalg.api.concurrency.AffinityManager;
 import org.nd4j.linalg.api.concurrency.BasicAffinityManager;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.memory.MemoryWorkspaceManager;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
 import org.nd4j.linalg.api.ndarray.*;
 import org.nd4j.linalg.api.ops.CustomOp;
 import org.nd4j.linalg.api.ops.DynamicCustomOp;
 import org.nd4j.linalg.api.ops.Op;
 import org.nd4j.linalg.api.ops.OpContext;
+import org.nd4j.linalg.api.ops.aggregates.CustomOpBatch;
 import org.nd4j.linalg.api.ops.executioner.DefaultOpExecutioner;
 import org.nd4j.linalg.api.ops.executioner.OpExecutioner;
 import org.nd4j.linalg.api.ops.impl.indexaccum.IMax;
@@ -89,6 +91,7 @@ import org.nd4j.linalg.string.NDArrayStrings;
 import org.nd4j.common.util.ArrayUtil;
 import org.nd4j.linalg.util.LongUtils;
 import org.nd4j.common.tools.PropertyParser;
+import org.nd4j.serde.binary.BinarySerde;
 import org.nd4j.versioncheck.VersionCheck;
 
 import java.io.*;
@@ -5667,6 +5670,22 @@ public class Nd4j {
         return INSTANCE.createFromNpyFile(file);
     }
 
+    /**
+     * Create an INDArray by memory-mapping a file saved with {@link BinarySerde#writeArrayToDisk(INDArray, File)}.
+     * The file contents are not copied: opening the array takes constant time, and pages are shared between processes
+     * mapping the same file. See {@link BinarySerde#mapFromDisk(File, MmapMode)} for details and limitations.
+     *
+     * @param file the file to map
+     * @param mode the mapping mode
+     * @return the created ndarray
+     */
+    public static INDArray createFromMappedFile(@NonNull File file, @NonNull MmapMode mode) throws IOException {
+        if (!file.exists())
+            throw new IllegalArgumentException("File [" + file.getAbsolutePath() + "] doesn't exist");
+
+        return BinarySerde.mapFromDisk(file, mode);
+    }
+
     public static Map<String, INDArray> createFromNpzFile(File file) throws Exception{
         return INSTANCE.createFromNpzFile(file);
     }
@@ -6575,6 +6594,16 @@ public class Nd4j {
         return getExecutioner().exec(op, context);
     }
 
+    /**
+     * Execute all of the operations in the batch, in order, and return the results
+     *
+     * @param batch the operations to execute
+     * @return the output arrays of each operation
+     */
+    public static INDArray[][] exec(CustomOpBatch batch){
+        return getExecutioner().exec(batch);
+    }
+
 
     /**
      * This method applies ScatterUpdate op
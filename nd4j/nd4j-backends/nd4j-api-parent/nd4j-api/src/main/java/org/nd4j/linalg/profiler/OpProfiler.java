@@ -22,12 +22,16 @@ import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ndarray.INDArrayStatistics;
 import org.nd4j.linalg.api.ops.*;
+import org.nd4j.linalg.profiler.data.OpMetrics;
 import org.nd4j.linalg.profiler.data.StackAggregator;
 import org.nd4j.linalg.profiler.data.StringAggregator;
 import org.nd4j.linalg.profiler.data.StringCounter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.nd4j.linalg.profiler.OpProfiler.PenaltyCause.NONE;
@@ -104,6 +108,9 @@ public class OpProfiler {
     @Getter
     private StringCounter blasOrderCounter = new StringCounter();
 
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentHashMap<String, OpMetrics> opMetrics = new ConcurrentHashMap<>();
+
 
     private final long THRESHOLD = 100000;
 
@@ -163,6 +170,7 @@ public class OpProfiler {
         blasOrderCounter.reset();
 
         orderCounter.reset();
+        opMetrics.clear();
         listeners.clear();
         statistics = INDArrayStatistics.builder().build();
     }
@@ -480,7 +488,98 @@ public class OpProfiler {
         System.out.println("Unique entries: " + blasAggregator.getUniqueBranchesNumber());
         blasAggregator.renderTree(false);
         System.out.println();
+        if (!opMetrics.isEmpty()) {
+            log.info("--- Op metrics: ---");
+            for (OpMetrics m : opMetrics.values())
+                System.out.println(m);
+            System.out.println();
+        }
+    }
+
+    /**
+     * This method records latency and output bytes of a single op execution, see {@link ProfilerConfig#isOpMetrics()}
+     *
+     * @param op        Executed op
+     * @param startTime Start time, as returned by {@link System#nanoTime()}
+     */
+    public void recordOpMetrics(Op op, long startTime) {
+        long time = System.nanoTime() - startTime;
+        INDArray z = op.z();
+        long bytes = 0;
+        if (z != null && !isInPlace(z, op.x()) && !isInPlace(z, op.y()))
+            bytes = z.length() * z.dataType().width();
+
+        getOrCreateOpMetrics(op.opName()).record(time, bytes);
+    }
 
+    /**
+     * This method records latency and output bytes of a single op execution, see {@link ProfilerConfig#isOpMetrics()}
+     *
+     * @param op        Executed op
+     * @param oc        Op context used for execution, may be null
+     * @param startTime Start time, as returned by {@link System#nanoTime()}
+     */
+    public void recordOpMetrics(CustomOp op, OpContext oc, long startTime) {
+        long time = System.nanoTime() - startTime;
+        List<INDArray> inputs = oc != null ? oc.getInputArrays() : op.inputArguments();
+        List<INDArray> outputs = oc != null ? oc.getOutputArrays() : op.outputArguments();
+        long bytes = 0;
+        if (outputs != null) {
+            for (INDArray out : outputs) {
+                if (out == null)
+                    continue;
+
+                boolean inPlace = false;
+                if (inputs != null) {
+                    for (INDArray in : inputs) {
+                        if (isInPlace(out, in)) {
+                            inPlace = true;
+                            break;
+                        }
+                    }
+                }
+
+                if (!inPlace)
+                    bytes += out.length() * out.dataType().width();
+            }
+        }
+
+        getOrCreateOpMetrics(op.opName()).record(time, bytes);
+    }
+
+    protected static boolean isInPlace(INDArray output, INDArray input) {
+        return input != null && (input == output || (!input.isEmpty() && !output.isEmpty() && input.data() == output.data()));
+    }
+
+    protected OpMetrics getOrCreateOpMetrics(String opName) {
+        OpMetrics m = opMetrics.get(opName);
+        if (m == null) {
+            m = new OpMetrics(opName);
+            OpMetrics existing = opMetrics.putIfAbsent(opName, m);
+            if (existing != null)
+                m = existing;
+        }
+        return m;
+    }
+
+    /**
+     * This method returns per-op metrics recorded while {@link ProfilerConfig#isOpMetrics()} is enabled.
+     * The returned map is a live, read-only view keyed by op name: values are updated as ops are executed.
+     *
+     * @return Map of op name to metrics
+     */
+    public Map<String, OpMetrics> getOpMetrics() {
+        return Collections.unmodifiableMap(opMetrics);
+    }
+
+    /**
+     * This method returns metrics for the specified op name, see {@link #getOpMetrics()}
+     *
+     * @param opName Name of the op
+     * @return Metrics for the op, or null if no executions of this op were recorded
+     */
+    public OpMetrics getOpMetrics(String opName) {
+        return opMetrics.get(opName);
     }
 
 
@@ -31,6 +31,13 @@ public class ProfilerConfig {
     @Builder.Default private boolean stackTrace = false;
     @Builder.Default private boolean checkElapsedTime = false;
 
+    /**
+     * If enabled, per-op latency histograms and output byte counters will be recorded for each op name.
+     * Unlike {@link #isCheckElapsedTime()} and {@link #isStackTrace()}, this is cheap enough to be left enabled in production.
+     * Use {@link OpProfiler#getOpMetrics()} to retrieve the recorded values.
+     */
+    @Builder.Default private boolean opMetrics = false;
+
     /**
      * If enabled, each pointer will be workspace validation will be performed one each call
      */
@@ -0,0 +1,80 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.profiler.data;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.profiler.data.primitives.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Always-on metrics for a single op name: a latency histogram (nanoseconds) and the number of bytes in
+ * the op's newly written output arrays (outputs that are also inputs - i.e., in-place ops - are not counted).<br>
+ * Instances are created and updated by {@link org.nd4j.linalg.profiler.OpProfiler} when
+ * {@link org.nd4j.linalg.profiler.ProfilerConfig#isOpMetrics()} is enabled.
+ */
+public class OpMetrics {
+    @Getter
+    private final String opName;
+    @Getter
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong outputBytes = new AtomicLong(0);
+
+    public OpMetrics(@NonNull String opName) {
+        this.opName = opName;
+    }
+
+    /**
+     * Record a single execution of the op
+     *
+     * @param timeNanos   Execution time, in nanoseconds
+     * @param outputBytes Number of bytes of the output arrays
+     */
+    public void record(long timeNanos, long outputBytes) {
+        latency.record(timeNanos);
+        if (outputBytes > 0)
+            this.outputBytes.addAndGet(outputBytes);
+    }
+
+    /**
+     * @return Number of recorded executions
+     */
+    public long getInvocations() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return Total number of output bytes for all recorded executions
+     */
+    public long getOutputBytes() {
+        return outputBytes.get();
+    }
+
+    public void reset() {
+        latency.reset();
+        outputBytes.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: invocations=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, max=%.1fus, outputBytes=%d", opName,
+                getInvocations(), latency.getMean() / 1000.0, latency.getValueAtPercentile(50.0) / 1000.0,
+                latency.getValueAtPercentile(99.0) / 1000.0, latency.getMaximum() / 1000.0, getOutputBytes());
+    }
+}
@@ -0,0 +1,146 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.profiler.data.primitives;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies (or any other non-negative long values), with log-linear buckets in the style of
+ * HdrHistogram: each power of two range is split into 16 linear sub-buckets, so any recorded value is reported with
+ * a relative error of at most 1/16 (~6%), using a fixed amount of memory (960 counters) for the full long range.<br>
+ * Recording is a few atomic updates with no locking, so it is cheap enough to be left enabled.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Record a single value. Negative values are recorded as 0.
+     *
+     * @param value Value to record, usually nanoseconds
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+            current = max.get();
+    }
+
+    /**
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return Sum of all recorded values
+     */
+    public long getTotal() {
+        return sum.get();
+    }
+
+    /**
+     * @return Mean of all recorded values, or 0 if no values were recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0.0 : sum.get() / (double) n;
+    }
+
+    /**
+     * @return Maximum recorded value (exact), or 0 if no values were recorded
+     */
+    public long getMaximum() {
+        return max.get();
+    }
+
+    /**
+     * Get the value at the specified percentile. The returned value is the highest value that falls into the same
+     * bucket as the value at the requested percentile - i.e., it may over-estimate the actual value by up to ~6%
+     *
+     * @param percentile Percentile, between 0 and 100 - for example 50.0 for the median or 99.9
+     * @return Value at the percentile, or 0 if no values were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percentile);
+
+        long[] snapshot = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long cumulative = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= target)
+                return Math.min(highestEquivalentValue(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Reset all counters. Values recorded concurrently with this call may or may not be retained.
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++)
+            counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    protected static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    protected static long highestEquivalentValue(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS)
+            return bucketIndex;
+
+        int shift = bucketIndex / SUB_BUCKETS - 1;
+        long subBucket = bucketIndex % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -16,12 +16,15 @@
 
 package org.nd4j.serde.binary;
 
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.bytedeco.javacpp.BytePointer;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
+import org.nd4j.linalg.api.memory.pointers.MappedFilePointer;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.shape.Shape;
 import org.nd4j.linalg.compression.CompressedDataBuffer;
@@ -34,9 +37,11 @@ import java.io.*;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 
 /**
  * Created by agibsonccc on 7/1/17.
@@ -298,6 +303,60 @@ public class BinarySerde {
         }
     }
 
+    /**
+     * Open an ndarray saved with {@link #writeArrayToDisk(INDArray, File)} by memory-mapping the file, instead of
+     * copying its contents into a newly allocated buffer. This takes constant time regardless of the array size, and
+     * (with {@link MmapMode#READ_ONLY} and {@link MmapMode#COPY_ON_WRITE}) the pages of the file are shared between
+     * all processes on the host that map the same file.<br>
+     * The mapping stays valid for as long as the returned array (or any view of it) is reachable.<br>
+     * PLEASE NOTE: Only uncompressed arrays, and data of up to {@link Integer#MAX_VALUE} bytes, are supported.
+     * {@link MmapMode#COPY_ON_WRITE} and {@link MmapMode#READ_WRITE} require write permission for the file.
+     * Data is only mapped on the host: backends with device memory will copy it when it is used on the device.
+     *
+     * @param readFrom file to map
+     * @param mode     mapping mode
+     * @return the created INDArray
+     * @throws IOException on an I/O exception.
+     */
+    public static INDArray mapFromDisk(@NonNull File readFrom, @NonNull MmapMode mode) throws IOException {
+        long fileLength = readFrom.length();
+        if (fileLength > Integer.MAX_VALUE)
+            throw new ND4JArraySizeException();
+
+        MappedByteBuffer mapped;
+        try (RandomAccessFile file = new RandomAccessFile(readFrom, mode.toFileMode())) {
+            // mapping remains valid after the channel is closed
+            mapped = file.getChannel().map(mode.toMapMode(), 0, fileLength);
+        }
+        mapped.order(ByteOrder.nativeOrder());
+
+        int rank = mapped.getInt();
+        if (rank < 0)
+            throw new IllegalStateException("Found negative integer. Corrupt serialization?");
+        DataType type = DataType.values()[mapped.getInt()];
+        if (type == DataType.COMPRESSED)
+            throw new UnsupportedOperationException("Compressed arrays can't be memory-mapped, use readFromDisk instead");
+
+        int shapeBufferLength = Shape.shapeInfoLength(rank);
+        long[] shapeInfo = new long[shapeBufferLength];
+        for (int i = 0; i < shapeBufferLength; i++) {
+            shapeInfo[i] = mapped.getLong();
+        }
+        DataBuffer shapeBuff = Nd4j.createBufferDetached(shapeInfo);
+
+        long length = Shape.length(shapeBuff);
+        long dataOffset = mapped.position();
+        if (dataOffset + length * type.width() > fileLength)
+            throw new IllegalStateException("File " + readFrom + " is too short for an array of type " + type + " with shape info "
+                    + Arrays.toString(shapeInfo) + ": expected at least " + (dataOffset + length * type.width()) + " bytes, got " + fileLength);
+
+        if (length == 0)
+            return readFromDisk(readFrom);     //Nothing to map
+
+        DataBuffer buff = Nd4j.createBuffer(new MappedFilePointer(mapped, dataOffset, length), length, type);
+        return Nd4j.createArrayFromShapeBuffer(buff, shapeBuff);
+    }
+
     /**
      * This method returns shape databuffer from saved earlier file
      *
@@ -21,6 +21,7 @@ import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.common.primitives.Pair;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.cache.CacheStatistics;
 import org.nd4j.linalg.cache.TADManager;
 import org.nd4j.nativeblas.NativeOps;
 import org.nd4j.nativeblas.NativeOpsHolder;
@@ -66,4 +67,10 @@ public class BasicTADManager implements TADManager {
     public long getCachedBytes() {
         return bytes.get();
     }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        // no cache here, so only bytes are reported
+        return new CacheStatistics(0, 0, 0, 0, bytes.get());
+    }
 }
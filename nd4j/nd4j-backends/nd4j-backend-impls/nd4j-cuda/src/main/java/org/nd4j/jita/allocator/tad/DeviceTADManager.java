@@ -20,33 +20,46 @@ import lombok.extern.slf4j.Slf4j;
 import org.nd4j.common.primitives.Pair;
 import org.nd4j.jita.allocator.impl.AtomicAllocator;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.common.config.ND4JSystemProperties;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.cache.BoundedLruCache;
+import org.nd4j.linalg.cache.CacheStatistics;
 import org.nd4j.linalg.cache.TadDescriptor;
 import org.nd4j.linalg.factory.Nd4j;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 
 /**
+ * PLEASE NOTE: TAD buffers on CUDA are owned by the native TAD cache, and cached here as wrappers only. Eviction from
+ * this cache releases the java side wrappers, but device memory is only released by the native side.
+ *
  * @author raver119@gmail.com
  */
 @Slf4j
 public class DeviceTADManager extends BasicTADManager {
-    protected List<Map<TadDescriptor, Pair<DataBuffer, DataBuffer>>> tadCache = new ArrayList<>();
+    private static final long MAX_ENTRIES = 10000;
+    private static final long MAX_BYTES = 64 * 1024 * 1024;
+
+    protected List<BoundedLruCache<TadDescriptor, Pair<DataBuffer, DataBuffer>>> tadCache = new ArrayList<>();
     private Semaphore lock = new Semaphore(1);
 
     public DeviceTADManager() {
         int numDevices = Nd4j.getAffinityManager().getNumberOfDevices();
 
         for (int i = 0; i < numDevices; i++) {
-            tadCache.add(i, new ConcurrentHashMap<TadDescriptor, Pair<DataBuffer, DataBuffer>>());
+            tadCache.add(i, newCache());
         }
     }
 
+    protected BoundedLruCache<TadDescriptor, Pair<DataBuffer, DataBuffer>> newCache() {
+        return new BoundedLruCache<>(
+                BoundedLruCache.boundFromProperty(ND4JSystemProperties.TAD_CACHE_MAX_ENTRIES, MAX_ENTRIES),
+                BoundedLruCache.boundFromProperty(ND4JSystemProperties.TAD_CACHE_MAX_BYTES, MAX_BYTES));
+    }
+
     /**
      * This method removes all cached shape buffers
      */
@@ -60,7 +73,7 @@ public class DeviceTADManager extends BasicTADManager {
 
         for (int i = 0; i < numDevices; i++) {
             log.info("Resetting device: [{}]", i);
-            tadCache.add(i, new ConcurrentHashMap<TadDescriptor, Pair<DataBuffer, DataBuffer>>());
+            tadCache.add(i, newCache());
         }
 
         super.purgeBuffers();
@@ -82,7 +95,8 @@ public class DeviceTADManager extends BasicTADManager {
         //extract the dimensions and shape buffer for comparison
         TadDescriptor descriptor = new TadDescriptor(array, dimension);
 
-        if (!tadCache.get(deviceId).containsKey(descriptor)) {
+        Pair<DataBuffer, DataBuffer> cached = tadCache.get(deviceId).get(descriptor);
+        if (cached == null) {
             log.trace("Creating new TAD...");
             //create the TAD with the shape information and corresponding offsets
             //note that we use native code to get access to the shape information.
@@ -117,16 +131,34 @@ public class DeviceTADManager extends BasicTADManager {
 
             // so, at this point we have buffer valid on host side.
             // And we just need to replace DevicePointer with constant pointer
-            tadCache.get(deviceId).put(descriptor, buffers);
-
-            bytes.addAndGet((buffers.getFirst().length() * 4));
+            long numBytes = buffers.getFirst().length() * 4;
 
             if (buffers.getSecond() != null)
-                bytes.addAndGet(buffers.getSecond().length() * 8);
+                numBytes += buffers.getSecond().length() * 8;
+
+            cached = tadCache.get(deviceId).put(descriptor, buffers, numBytes);
 
             log.trace("Using TAD from cache...");
         }
 
-        return tadCache.get(deviceId).get(descriptor);
+        return cached;
+    }
+
+    @Override
+    public long getCachedBytes() {
+        long bytes = 0;
+        for (BoundedLruCache<TadDescriptor, Pair<DataBuffer, DataBuffer>> cache : tadCache)
+            bytes += cache.getCachedBytes();
+
+        return bytes;
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        CacheStatistics statistics = new CacheStatistics();
+        for (BoundedLruCache<TadDescriptor, Pair<DataBuffer, DataBuffer>> cache : tadCache)
+            statistics = statistics.plus(cache.getStatistics());
+
+        return statistics;
     }
 }
@@ -30,6 +30,7 @@ import org.nd4j.linalg.api.memory.AllocationsTracker;
 import org.nd4j.linalg.api.memory.enums.AllocationKind;
 import org.nd4j.linalg.api.ops.performance.PerformanceTracker;
 import org.nd4j.linalg.cache.ArrayDescriptor;
+import org.nd4j.linalg.cache.CacheStatistics;
 import org.nd4j.linalg.cache.ConstantHandler;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
@@ -389,4 +390,10 @@ public class ProtectedCudaConstantHandler implements ConstantHandler {
     public long getCachedBytes() {
         return bytes.get();
     }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        // constant buffers are cached on the native side, so only bytes are reported
+        return new CacheStatistics(0, 0, 0, 0, bytes.get());
+    }
 }
@@ -19,7 +19,10 @@ package org.nd4j.linalg.cpu.nativecpu;
 import lombok.NonNull;
 import lombok.val;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.common.config.ND4JSystemProperties;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.cache.BoundedLruCache;
+import org.nd4j.linalg.cache.CacheStatistics;
 import org.nd4j.linalg.cache.ConstantHandler;
 import org.nd4j.linalg.cache.TADManager;
 import org.nd4j.linalg.cache.TadDescriptor;
@@ -28,21 +31,19 @@ import org.nd4j.common.primitives.Pair;
 import org.nd4j.nativeblas.NativeOps;
 
 import java.util.Arrays;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author raver119@gmail.com
  */
 public class CpuTADManager implements TADManager {
-    private Map<TadDescriptor, Pair<DataBuffer, DataBuffer>> cache = new ConcurrentHashMap<>();
+    private static final long MAX_ENTRIES = 10000;
+    private static final long MAX_BYTES = 64 * 1024 * 1024;
+
+    private BoundedLruCache<TadDescriptor, Pair<DataBuffer, DataBuffer>> cache = new BoundedLruCache<>(
+            BoundedLruCache.boundFromProperty(ND4JSystemProperties.TAD_CACHE_MAX_ENTRIES, MAX_ENTRIES),
+            BoundedLruCache.boundFromProperty(ND4JSystemProperties.TAD_CACHE_MAX_BYTES, MAX_BYTES));
     private NativeOps nativeOps;
     private ConstantHandler constantHandler;
-    private AtomicLong bytes = new AtomicLong(0);
-    private AtomicInteger counter = new AtomicInteger(0);
-    private static final int MAX_ENTRIES = 100;
 
     public CpuTADManager() {
         //
@@ -58,7 +59,7 @@ public class CpuTADManager implements TADManager {
      */
     @Override
     public void purgeBuffers() {
-        cache = new ConcurrentHashMap<>();
+        cache.purge();
     }
 
     @Override
@@ -69,12 +70,24 @@ public class CpuTADManager implements TADManager {
         if (dimension == null)
             dimension = new int[] {Integer.MAX_VALUE};
 
-        val pack = Nd4j.getExecutioner().tadShapeInfoAndOffsets(array, dimension);
+        // TAD packs are kept alive by the native side, here we only cache them to avoid JNI round trips
+        TadDescriptor descriptor = new TadDescriptor(array, dimension.clone());
+        Pair<DataBuffer, DataBuffer> pair = cache.get(descriptor);
+        if (pair == null) {
+            val pack = Nd4j.getExecutioner().tadShapeInfoAndOffsets(array, dimension);
+
+            //   logger.info("TAD shapeInfo after construction: {}", Arrays.toString(TadDescriptor.dataBufferToArray(outputBuffer)));
+            // now we need to copy this buffer to either device global memory or device cache
 
-        //   logger.info("TAD shapeInfo after construction: {}", Arrays.toString(TadDescriptor.dataBufferToArray(outputBuffer)));
-        // now we need to copy this buffer to either device global memory or device cache
+            pair = new Pair<>(pack.getTadShapeInfo(), pack.getTadOffsets());
+            long numBytes = pair.getFirst().length() * 8;
+            if (pair.getSecond() != null)
+                numBytes += pair.getSecond().length() * 8;
+
+            pair = cache.put(descriptor, pair, numBytes);
+        }
 
-        return new Pair<>(pack.getTadShapeInfo(), pack.getTadOffsets());
+        return pair;
 
         /*
         if (dimension != null && dimension.length > 1)
@@ -132,6 +145,11 @@ public class CpuTADManager implements TADManager {
 
     @Override
     public long getCachedBytes() {
-        return bytes.get();
+        return cache.getCachedBytes();
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        return cache.getStatistics();
     }
 }
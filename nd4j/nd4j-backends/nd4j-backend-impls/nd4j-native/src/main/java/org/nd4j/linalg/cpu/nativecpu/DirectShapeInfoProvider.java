@@ -17,6 +17,7 @@
 package org.nd4j.linalg.cpu.nativecpu;
 
 import lombok.extern.slf4j.Slf4j;
+import org.nd4j.common.config.ND4JSystemProperties;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.memory.AllocationsTracker;
 import org.nd4j.linalg.api.memory.enums.AllocationKind;
@@ -26,10 +27,11 @@ import org.nd4j.common.primitives.Pair;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.ndarray.BaseShapeInfoProvider;
 import org.nd4j.linalg.api.shape.ShapeDescriptor;
+import org.nd4j.linalg.cache.BoundedLruCache;
+import org.nd4j.linalg.cache.CacheStatistics;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author raver119@gmail.com
@@ -39,9 +41,17 @@ public class DirectShapeInfoProvider extends BaseShapeInfoProvider {
     // TODO: to be removed
     private Map<ShapeDescriptor, Pair<DataBuffer, long[]>> shapeCache = new ConcurrentHashMap<>();
 
-    private Map<LongShapeDescriptor, Pair<DataBuffer, long[]>> longCache = new ConcurrentHashMap<>();
-    private AtomicInteger counter = new AtomicInteger(0);
-    private static final int MAX_ENTRIES = 1000;
+    private static final long MAX_ENTRIES = 10000;
+    private static final long MAX_BYTES = 32 * 1024 * 1024;
+
+    private BoundedLruCache<LongShapeDescriptor, Pair<DataBuffer, long[]>> longCache = new BoundedLruCache<LongShapeDescriptor, Pair<DataBuffer, long[]>>(
+            BoundedLruCache.boundFromProperty(ND4JSystemProperties.SHAPE_CACHE_MAX_ENTRIES, MAX_ENTRIES),
+            BoundedLruCache.boundFromProperty(ND4JSystemProperties.SHAPE_CACHE_MAX_BYTES, MAX_BYTES)) {
+        @Override
+        protected void onRemoval(LongShapeDescriptor key, Pair<DataBuffer, long[]> value, long numBytes) {
+            AllocationsTracker.getInstance().markReleased(AllocationKind.CONSTANT, 0, numBytes);
+        }
+    };
 
     public Pair<DataBuffer, long[]> createShapeInformation(long[] shape, long[] stride,  long elementWiseStride, char order, DataType dataType) {
         long extras = 0;
@@ -57,30 +67,32 @@ public class DirectShapeInfoProvider extends BaseShapeInfoProvider {
             elementWiseStride = 0;
 
         LongShapeDescriptor descriptor = new LongShapeDescriptor(shape, stride, 0, elementWiseStride, order, extras);
-        if (!longCache.containsKey(descriptor)) {
-            if (counter.get() < MAX_ENTRIES) {
-                synchronized (this) {
-                    if (!longCache.containsKey(descriptor)) {
-                        counter.incrementAndGet();
-                        Pair<DataBuffer, long[]> buffer = super.createShapeInformation(shape, stride, elementWiseStride, order, extras);
-                        longCache.put(descriptor, buffer);
-
-                        bytes.addAndGet(buffer.getFirst().length() * 8 * 2);
-                        AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT,0, buffer.getFirst().length() * 8 * 2);
-                        return buffer;
-                    } else
-                        return longCache.get(descriptor);
-                }
-            } else {
-                return super.createShapeInformation(shape, stride, elementWiseStride, order, extras);
-            }
+        Pair<DataBuffer, long[]> buffer = longCache.get(descriptor);
+        if (buffer == null) {
+            buffer = super.createShapeInformation(shape, stride, elementWiseStride, order, extras);
+            long numBytes = buffer.getFirst().length() * 8 * 2;
+            Pair<DataBuffer, long[]> cached = longCache.put(descriptor, buffer, numBytes);
+            if (cached == buffer && numBytes <= longCache.getMaxBytes())
+                AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT, 0, numBytes);
+            buffer = cached;
         }
 
-        return longCache.get(descriptor);
+        return buffer;
     }
 
     @Override
     public void purgeCache() {
         shapeCache = new ConcurrentHashMap<>();
+        longCache.purge();
+    }
+
+    @Override
+    public long getCachedBytes() {
+        return longCache.getCachedBytes();
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        return longCache.getStatistics();
     }
 }
@@ -16,138 +16,121 @@
 
 package org.nd4j.linalg.cpu.nativecpu.cache;
 
+import org.nd4j.common.config.ND4JSystemProperties;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.memory.AllocationsTracker;
 import org.nd4j.linalg.api.memory.enums.AllocationKind;
 import org.nd4j.linalg.cache.ArrayDescriptor;
 import org.nd4j.linalg.cache.BasicConstantHandler;
+import org.nd4j.linalg.cache.BoundedLruCache;
+import org.nd4j.linalg.cache.CacheStatistics;
 import org.nd4j.linalg.factory.Nd4j;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-
 /**
  * @author raver119@gmail.com
  */
 public class ConstantBuffersCache extends BasicConstantHandler {
-    protected Map<ArrayDescriptor, DataBuffer> buffersCache = new ConcurrentHashMap<>();
-    private AtomicInteger counter = new AtomicInteger(0);
-    private AtomicLong bytes = new AtomicLong(0);
-    private static final int MAX_ENTRIES = 1000;
+    private static final long MAX_ENTRIES = 1000;
+    private static final long MAX_BYTES = 32 * 1024 * 1024;
+
+    protected BoundedLruCache<ArrayDescriptor, DataBuffer> buffersCache = new BoundedLruCache<ArrayDescriptor, DataBuffer>(
+            BoundedLruCache.boundFromProperty(ND4JSystemProperties.CONSTANT_CACHE_MAX_ENTRIES, MAX_ENTRIES),
+            BoundedLruCache.boundFromProperty(ND4JSystemProperties.CONSTANT_CACHE_MAX_BYTES, MAX_BYTES)) {
+        @Override
+        protected void onRemoval(ArrayDescriptor key, DataBuffer value, long numBytes) {
+            AllocationsTracker.getInstance().markReleased(AllocationKind.CONSTANT, 0, numBytes);
+        }
+    };
 
     /**
      * This method removes all cached constants
      */
     @Override
     public void purgeConstants() {
-        buffersCache = new ConcurrentHashMap<>();
+        buffersCache.purge();
     }
 
     @Override
     public DataBuffer getConstantBuffer(int[] array, DataType dataType) {
         ArrayDescriptor descriptor = new ArrayDescriptor(array, dataType);
 
-        if (!buffersCache.containsKey(descriptor)) {
-            DataBuffer buffer = Nd4j.createTypedBufferDetached(array, dataType);
-
-            if (counter.get() < MAX_ENTRIES) {
-                counter.incrementAndGet();
-                buffersCache.put(descriptor, buffer);
-
-                bytes.addAndGet(array.length * Nd4j.sizeOfDataType(dataType));
-                AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT, 0, array.length * Nd4j.sizeOfDataType(dataType));
-            }
-            return buffer;
+        DataBuffer buffer = buffersCache.get(descriptor);
+        if (buffer == null) {
+            buffer = Nd4j.createTypedBufferDetached(array, dataType);
+            buffer = cache(descriptor, buffer, array.length * Nd4j.sizeOfDataType(dataType));
         }
 
-        return buffersCache.get(descriptor);
+        return buffer;
     }
 
     @Override
     public DataBuffer getConstantBuffer(boolean[] array, DataType dataType) {
         ArrayDescriptor descriptor = new ArrayDescriptor(array, dataType);
 
-        if (!buffersCache.containsKey(descriptor)) {
-            DataBuffer buffer = Nd4j.createTypedBufferDetached(array, dataType);
-
-            if (counter.get() < MAX_ENTRIES) {
-                counter.incrementAndGet();
-                buffersCache.put(descriptor, buffer);
-
-                bytes.addAndGet(array.length * Nd4j.sizeOfDataType(dataType));
-                AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT, 0, array.length * Nd4j.sizeOfDataType(dataType));
-            }
-            return buffer;
+        DataBuffer buffer = buffersCache.get(descriptor);
+        if (buffer == null) {
+            buffer = Nd4j.createTypedBufferDetached(array, dataType);
+            buffer = cache(descriptor, buffer, array.length * Nd4j.sizeOfDataType(dataType));
         }
 
-        return buffersCache.get(descriptor);
+        return buffer;
     }
 
     @Override
     public DataBuffer getConstantBuffer(double[] array, DataType dataType) {
         ArrayDescriptor descriptor = new ArrayDescriptor(array, dataType);
 
-        if (!buffersCache.containsKey(descriptor)) {
-            DataBuffer buffer = Nd4j.createTypedBufferDetached(array, dataType);
-
-            if (counter.get() < MAX_ENTRIES) {
-                counter.incrementAndGet();
-                buffersCache.put(descriptor, buffer);
-
-                bytes.addAndGet(array.length * Nd4j.sizeOfDataType(dataType));
-                AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT, 0, array.length * Nd4j.sizeOfDataType(dataType));
-            }
-            return buffer;
+        DataBuffer buffer = buffersCache.get(descriptor);
+        if (buffer == null) {
+            buffer = Nd4j.createTypedBufferDetached(array, dataType);
+            buffer = cache(descriptor, buffer, array.length * Nd4j.sizeOfDataType(dataType));
         }
 
-        return buffersCache.get(descriptor);
+        return buffer;
     }
 
     @Override
     public DataBuffer getConstantBuffer(float[] array, DataType dataType) {
         ArrayDescriptor descriptor = new ArrayDescriptor(array, dataType);
 
-        if (!buffersCache.containsKey(descriptor)) {
-            DataBuffer buffer = Nd4j.createTypedBufferDetached(array, dataType);
-
-            if (counter.get() < MAX_ENTRIES) {
-                counter.incrementAndGet();
-                buffersCache.put(descriptor, buffer);
-
-                bytes.addAndGet(array.length * Nd4j.sizeOfDataType(dataType));
-                AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT, 0, array.length * Nd4j.sizeOfDataType(dataType));
-            }
-            return buffer;
+        DataBuffer buffer = buffersCache.get(descriptor);
+        if (buffer == null) {
+            buffer = Nd4j.createTypedBufferDetached(array, dataType);
+            buffer = cache(descriptor, buffer, array.length * Nd4j.sizeOfDataType(dataType));
         }
 
-        return buffersCache.get(descriptor);
+        return buffer;
     }
 
     @Override
     public DataBuffer getConstantBuffer(long[] array, DataType dataType) {
         ArrayDescriptor descriptor = new ArrayDescriptor(array, dataType);
 
-        if (!buffersCache.containsKey(descriptor)) {
-            DataBuffer buffer = Nd4j.createBufferDetached(array);
+        DataBuffer buffer = buffersCache.get(descriptor);
+        if (buffer == null) {
+            buffer = Nd4j.createBufferDetached(array);
+            buffer = cache(descriptor, buffer, array.length * Nd4j.sizeOfDataType(dataType));
+        }
 
-            if (counter.get() < MAX_ENTRIES) {
-                counter.incrementAndGet();
-                buffersCache.put(descriptor, buffer);
+        return buffer;
+    }
 
-                bytes.addAndGet(array.length * Nd4j.sizeOfDataType(dataType));
-                AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT, 0, array.length * Nd4j.sizeOfDataType(dataType));
-            }
-            return buffer;
-        }
+    protected DataBuffer cache(ArrayDescriptor descriptor, DataBuffer buffer, long bytes) {
+        DataBuffer cached = buffersCache.put(descriptor, buffer, bytes);
+        if (cached == buffer && bytes <= buffersCache.getMaxBytes())
+            AllocationsTracker.getInstance().markAllocated(AllocationKind.CONSTANT, 0, bytes);
 
-        return buffersCache.get(descriptor);
+        return cached;
     }
 
     @Override
     public long getCachedBytes() {
-        return bytes.get();
+        return buffersCache.getCachedBytes();
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        return buffersCache.getStatistics();
     }
 }
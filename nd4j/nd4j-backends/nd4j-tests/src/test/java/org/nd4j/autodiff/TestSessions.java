@@ -22,6 +22,7 @@ import org.nd4j.autodiff.listeners.Operation;
 import org.nd4j.autodiff.samediff.SDVariable;
 import org.nd4j.autodiff.samediff.SameDiff;
 import org.nd4j.autodiff.samediff.internal.AbstractSession;
+import org.nd4j.autodiff.samediff.internal.ExecutionPlan;
 import org.nd4j.autodiff.samediff.internal.FrameIter;
 import org.nd4j.autodiff.samediff.internal.InferenceSession;
 import org.nd4j.autodiff.samediff.internal.memory.NoOpMemoryMgr;
@@ -37,7 +38,9 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import static org.junit.Assert.*;
 
@@ -84,6 +87,157 @@ public class TestSessions extends BaseNd4jTest {
     }
 
 
+    @Test
+    public void testExecutionPlanCaching(){
+        SameDiff sd = SameDiff.create();
+        SDVariable ph1 = sd.placeHolder("x", DataType.FLOAT, -1, 3);
+        SDVariable ph2 = sd.placeHolder("y", DataType.FLOAT, 3, 3);
+
+        SDVariable a = ph1.mmul("a", ph2);
+        SDVariable b = ph1.sub("b", 1.0);
+        SDVariable c = ph1.mul("c", 2.0);
+        SDVariable d = a.add("d", b);
+
+        InferenceSession is = new InferenceSession(sd);
+        INDArray y = Nd4j.linspace(0.0, 0.9, 9, DataType.DOUBLE).castTo(DataType.FLOAT).reshape(3,3);
+
+        for (int mb : new int[]{2, 2, 5, 2}) {
+            INDArray x = Nd4j.linspace(1, 3 * mb, 3 * mb).castTo(DataType.FLOAT).reshape(mb, 3);
+            INDArray dExp = x.mmul(y).add(x.sub(1.0));
+
+            Map<String,INDArray> m = new HashMap<>();
+            m.put("x", x);
+            m.put("y", y);
+
+            Map<String,INDArray> outMap = is.output(Collections.singletonList("d"), m, null,
+                    Collections.<String>emptyList(), null, At.defaultAt(Operation.INFERENCE));
+            assertEquals(1, outMap.size());
+            assertEquals(dExp, outMap.get("d"));
+        }
+
+        //One plan per distinct placeholder shape; the sub-graph for "c" is not part of any plan
+        assertEquals(2, is.getExecutionPlans().size());
+        for (ExecutionPlan p : is.getExecutionPlans().values()) {
+            assertFalse(p.getSubgraphOps().contains(sd.getVariableOutputOp(c.name()).getOwnName()));
+        }
+
+        //Different requested outputs: new plan
+        INDArray x = Nd4j.linspace(1, 6, 6).castTo(DataType.FLOAT).reshape(2, 3);
+        Map<String,INDArray> m = new HashMap<>();
+        m.put("x", x);
+        m.put("y", y);
+        Map<String,INDArray> outMap = is.output(Arrays.asList("c", "d"), m, null,
+                Collections.<String>emptyList(), null, At.defaultAt(Operation.INFERENCE));
+        assertEquals(x.mul(2.0), outMap.get("c"));
+        assertEquals(3, is.getExecutionPlans().size());
+
+        //Plan caching disabled: same results, no plans
+        sd.setCacheExecutionPlans(false);
+        InferenceSession is2 = new InferenceSession(sd);
+        Map<String,INDArray> outMap2 = is2.output(Arrays.asList("c", "d"), m, null,
+                Collections.<String>emptyList(), null, At.defaultAt(Operation.INFERENCE));
+        assertEquals(outMap, outMap2);
+        assertTrue(is2.getExecutionPlans().isEmpty());
+    }
+
+    @Test
+    public void testExecutionPlanInvalidation(){
+        SameDiff sd = SameDiff.create();
+        SDVariable x = sd.placeHolder("x", DataType.FLOAT, -1, 3);
+        SDVariable w = sd.var("w", Nd4j.linspace(0.0, 0.9, 9, DataType.DOUBLE).castTo(DataType.FLOAT).reshape(3, 3));
+        SDVariable a = x.mmul("a", w);
+        SDVariable d = a.add("d", 1.0);
+
+        InferenceSession is = new InferenceSession(sd);
+        INDArray xArr = Nd4j.linspace(1, 6, 6).castTo(DataType.FLOAT).reshape(2, 3);
+        INDArray dExp = xArr.mmul(w.getArr()).add(1.0);
+        Map<String,INDArray> m = Collections.singletonMap("x", xArr);
+
+        for (int i = 0; i < 2; i++) {
+            Map<String,INDArray> outMap = is.output(Collections.singletonList("d"), m, null,
+                    Collections.<String>emptyList(), null, At.defaultAt(Operation.INFERENCE));
+            assertEquals(dExp, outMap.get("d"));
+        }
+        assertEquals(1, is.getExecutionPlans().size());
+
+        //Renaming and converting keep the number of ops and variables, but plans must not be reused
+        long version = sd.getStructureVersion();
+        sd.renameVariable("a", "a2");
+        assertTrue(sd.getStructureVersion() > version);
+        Map<String,INDArray> outMap = is.output(Collections.singletonList("d"), m, null,
+                Collections.<String>emptyList(), null, At.defaultAt(Operation.INFERENCE));
+        assertEquals(dExp, outMap.get("d"));
+        assertEquals(2, is.getExecutionPlans().size());
+
+        version = sd.getStructureVersion();
+        sd.convertToConstant(w);
+        assertTrue(sd.getStructureVersion() > version);
+        outMap = is.output(Collections.singletonList("d"), m, null,
+                Collections.<String>emptyList(), null, At.defaultAt(Operation.INFERENCE));
+        assertEquals(dExp, outMap.get("d"));
+        assertEquals(3, is.getExecutionPlans().size());
+
+        //Rejected modifications don't invalidate the cached plans
+        version = sd.getStructureVersion();
+        try {
+            sd.renameVariable("d", "x");
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("already exists"));
+        }
+        assertEquals(version, sd.getStructureVersion());
+    }
+
+    @Test
+    public void testParallelOpExecution(){
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 4);
+        SDVariable[] branches = new SDVariable[6];
+        for( int i=0; i<branches.length; i++ ){
+            SDVariable w = sd.var("w" + i, Nd4j.rand(DataType.FLOAT, 4, 5));
+            SDVariable b = sd.var("b" + i, Nd4j.rand(DataType.FLOAT, 1, 5));
+            branches[i] = sd.math().tanh(in.mmul(w).add(b));
+        }
+        SDVariable out = sd.math().mergeAdd(branches).mul("out", 2.0);
+
+        INDArray x = Nd4j.rand(DataType.FLOAT, 3, 4);
+        INDArray exp = sd.outputSingle(Collections.singletonMap("in", x), "out");
+
+        sd.setParallelOpExecution(true);
+        sd.setParallelOpExecutionThreads(2);
+        for( int i=0; i<5; i++ ){
+            INDArray outArr = sd.outputSingle(Collections.singletonMap("in", x), "out");
+            assertEquals(exp, outArr);
+        }
+
+        //Independent branches are grouped into the same level
+        InferenceSession is = sd.getSessions().get(Thread.currentThread().getId());
+        assertEquals(1, is.getExecutionPlans().size());
+        ExecutionPlan plan = is.getExecutionPlans().values().iterator().next();
+        int maxLevelSize = 0;
+        for(List<?> l : plan.getLevels(sd)){
+            maxLevelSize = Math.max(maxLevelSize, l.size());
+        }
+        assertEquals(branches.length, maxLevelSize);
+
+        //Different batch size: new plan, same results as sequential execution
+        INDArray x2 = Nd4j.rand(DataType.FLOAT, 7, 4);
+        INDArray out2 = sd.outputSingle(Collections.singletonMap("in", x2), "out");
+        sd.setParallelOpExecution(false);
+        assertEquals(sd.outputSingle(Collections.singletonMap("in", x2), "out"), out2);
+
+        //All sessions share one executor. Sessions and the executor can be released, and are recreated as required
+        ExecutorService executor = sd.getParallelOpExecutor();
+        sd.setParallelOpExecution(true);
+        sd.close();
+        assertTrue(sd.getSessions().isEmpty());
+        assertTrue(executor.isShutdown());
+        assertEquals(exp, sd.outputSingle(Collections.singletonMap("in", x), "out"));
+        assertNotSame(executor, sd.getParallelOpExecutor());
+        sd.close();
+    }
+
     @Test
     public void testInferenceSessionBasic2(){
         //So far: trivial test to check execution order
@@ -0,0 +1,168 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.autodiff.samediff;
+
+import org.junit.Test;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.transform.GraphOptimizer;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.custom.RandomCrop;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.BatchNorm;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.Conv2D;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.config.Conv2DConfig;
+import org.nd4j.linalg.api.ops.impl.reduce.Mmul;
+import org.nd4j.linalg.api.ops.impl.transforms.ReluLayer;
+import org.nd4j.linalg.api.ops.impl.transforms.custom.XwPlusB;
+import org.nd4j.linalg.api.ops.impl.transforms.same.Identity;
+import org.nd4j.linalg.api.ops.random.custom.RandomShuffle;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class GraphOptimizerTest extends BaseNd4jTest {
+
+    public GraphOptimizerTest(Nd4jBackend b){
+        super(b);
+    }
+
+    @Override
+    public char ordering(){
+        return 'c';
+    }
+
+    @Test
+    public void testMlpOptimization(){
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 4);
+        SDVariable w0 = sd.var("w0", Nd4j.rand(DataType.FLOAT, 4, 5));
+        SDVariable b0 = sd.var("b0", Nd4j.rand(DataType.FLOAT, 5));
+        SDVariable w1 = sd.var("w1", Nd4j.rand(DataType.FLOAT, 5, 3));
+        SDVariable b1 = sd.constant("b1", Nd4j.rand(DataType.FLOAT, 1, 3));
+
+        SDVariable h = sd.nn().relu(in.mmul(w0).add(b0), 0.0);
+        SDVariable h2 = sd.identity(h);
+        SDVariable z = sd.nn().biasAdd(h2.mmul(w1), sd.reshape(b1, 3), false);
+        SDVariable c = sd.constant("c", Nd4j.rand(DataType.FLOAT, 3)).mul(2.0).add(1.0);
+        SDVariable out = z.mul("out", c);
+        SDVariable unused = sd.math().exp("unused", h);
+
+        INDArray inArr = Nd4j.rand(DataType.FLOAT, 6, 4);
+        Map<String,INDArray> ph = Collections.singletonMap("in", inArr);
+        INDArray exp = sd.outputSingle(ph, "out");
+        int numOps = sd.getOps().size();
+
+        SameDiff opt = GraphOptimizer.optimize(sd, "out");
+        assertEquals(numOps, sd.getOps().size());       //Original should not be modified
+
+        INDArray outOpt = opt.outputSingle(ph, "out");
+        assertEquals(exp, outOpt);
+
+        //Remaining: relu_layer, xw_plus_b, mul (the constant sub-graph and bias reshape are folded)
+        assertEquals(3, opt.getOps().size());
+        int reluLayer = 0, xwPlusB = 0;
+        for (SameDiffOp op : opt.getOps().values()) {
+            assertFalse(op.getOp() instanceof Identity);
+            assertFalse(op.getOp() instanceof Mmul);
+            if (op.getOp().getClass() == ReluLayer.class)
+                reluLayer++;
+            if (op.getOp().getClass() == XwPlusB.class)
+                xwPlusB++;
+        }
+        assertEquals(1, reluLayer);
+        assertEquals(1, xwPlusB);
+        assertFalse(opt.hasVariable("unused"));
+        assertTrue(opt.hasVariable("in"));
+        assertEquals(VariableType.CONSTANT, opt.getVariable(opt.getVariableOutputOp("out").arg(1).name()).getVariableType());
+
+        //Intermediate variables that are required outputs should not be fused away
+        SameDiff opt2 = GraphOptimizer.optimize(sd, "out", h.name());
+        Map<String,INDArray> m = opt2.output(ph, "out", h.name());
+        assertEquals(exp, m.get("out"));
+        assertEquals(sd.outputSingle(ph, h.name()), m.get(h.name()));
+    }
+
+    @Test
+    public void testBatchNormFolding(){
+        Nd4j.getRandom().setSeed(12345);
+        for (boolean nchw : new boolean[]{true, false}) {
+            SameDiff sd = SameDiff.create();
+            SDVariable in = nchw ? sd.placeHolder("in", DataType.FLOAT, -1, 3, 8, 8) : sd.placeHolder("in", DataType.FLOAT, -1, 8, 8, 3);
+            SDVariable w = sd.var("w", Nd4j.rand(DataType.FLOAT, 2, 2, 3, 4));
+            SDVariable b = nchw ? sd.var("b", Nd4j.rand(DataType.FLOAT, 4)) : null;
+            Conv2DConfig conf = Conv2DConfig.builder().kH(2).kW(2).dataFormat(nchw ? Conv2DConfig.NCHW : Conv2DConfig.NHWC).build();
+            SDVariable conv = sd.cnn().conv2d(in, w, b, conf);
+
+            SDVariable mean = sd.var("mean", Nd4j.rand(DataType.FLOAT, 4));
+            SDVariable var = sd.var("var", Nd4j.rand(DataType.FLOAT, 4).addi(0.5));
+            SDVariable gamma = sd.var("gamma", Nd4j.rand(DataType.FLOAT, 4));
+            SDVariable beta = sd.var("beta", Nd4j.rand(DataType.FLOAT, 4));
+            SDVariable bn = sd.nn().batchNorm(conv, mean, var, gamma, beta, 1e-3, nchw ? 1 : 3);
+            SDVariable out = sd.nn().tanh("out", bn);
+
+            INDArray inArr = nchw ? Nd4j.rand(DataType.FLOAT, 2, 3, 8, 8) : Nd4j.rand(DataType.FLOAT, 2, 8, 8, 3);
+            Map<String,INDArray> ph = new HashMap<>();
+            ph.put("in", inArr);
+            INDArray exp = sd.outputSingle(ph, "out");
+
+            SameDiff opt = GraphOptimizer.optimize(sd, "out");
+            assertEquals(2, opt.getOps().size());
+            for (SameDiffOp op : opt.getOps().values()) {
+                assertFalse(op.getOp() instanceof BatchNorm);
+            }
+            SDVariable convOut = opt.getVariableOutputOp("out").arg();
+            assertTrue(opt.getVariableOutputOp(convOut.name()) instanceof Conv2D);
+            assertEquals(bn.name(), convOut.name());
+            assertFalse(opt.hasVariable("mean"));
+
+            INDArray outOpt = opt.outputSingle(ph, "out");
+            assertTrue(exp.equalsWithEps(outOpt, 1e-5));
+        }
+    }
+
+    @Test
+    public void testRandomOpsNotFolded(){
+        SameDiff sd = SameDiff.create();
+        SDVariable c = sd.constant("c", Nd4j.rand(DataType.FLOAT, 4, 5));
+        SDVariable shape = sd.constant("shape", Nd4j.createFromArray(2, 3));
+        SDVariable crop = new RandomCrop(sd, c, shape).outputVariable();
+        SDVariable shuffle = new RandomShuffle(sd, c).outputVariable();
+        sd.identity("out1", crop);
+        sd.identity("out2", shuffle);
+
+        SameDiff opt = GraphOptimizer.optimize(sd, "out1", "out2");
+        int randomCrop = 0, randomShuffle = 0;
+        for (SameDiffOp op : opt.getOps().values()) {
+            if (op.getOp() instanceof RandomCrop)
+                randomCrop++;
+            if (op.getOp() instanceof RandomShuffle)
+                randomShuffle++;
+        }
+        assertEquals(1, randomCrop);
+        assertEquals(1, randomShuffle);
+        assertEquals(VariableType.ARRAY, opt.getVariable(crop.name()).getVariableType());
+        assertEquals(VariableType.ARRAY, opt.getVariable(shuffle.name()).getVariableType());
+    }
+}
@@ -2,6 +2,7 @@ package org.nd4j.autodiff.samediff;
 
 import org.junit.Test;
 import org.nd4j.autodiff.samediff.internal.memory.ArrayCacheMemoryMgr;
+import org.nd4j.autodiff.samediff.internal.memory.PlannedMemoryMgr;
 import org.nd4j.linalg.BaseNd4jTest;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -9,6 +10,8 @@ import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.factory.Nd4jBackend;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -116,4 +119,56 @@ public class MemoryMgrTest extends BaseNd4jTest {
         assertEquals(2000, mmgr.getLruCacheValues().size());
     }
 
+    @Test
+    public void testPlannedMemoryMgr(){
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 4);
+        SDVariable w1 = sd.var("w1", Nd4j.rand(DataType.FLOAT, 4, 5));
+        SDVariable b1 = sd.var("b1", Nd4j.rand(DataType.FLOAT, 5));
+        SDVariable w2 = sd.var("w2", Nd4j.rand(DataType.FLOAT, 5, 3));
+        SDVariable h = sd.nn().tanh(in.mmul(w1).add(b1));
+        SDVariable h2 = sd.math().square(h).add(h).mul(2.0);
+        SDVariable out = sd.nn().softmax("out", h2.mmul(w2));
+
+        INDArray in2 = Nd4j.rand(DataType.FLOAT, 2, 4);
+        INDArray in7 = Nd4j.rand(DataType.FLOAT, 7, 4);
+        INDArray exp2 = sd.output(Collections.singletonMap("in", in2), "out").get("out");
+        INDArray exp7 = sd.output(Collections.singletonMap("in", in7), "out").get("out");
+
+        PlannedMemoryMgr mmgr = new PlannedMemoryMgr();
+        sd.getSessions().get(Thread.currentThread().getId()).setMmgr(mmgr);
+
+        Map<String,INDArray> ph = Collections.singletonMap("in", in2);
+        assertEquals(exp2, sd.output(ph, "out").get("out"));
+        assertEquals(1, mmgr.getPlanCount());
+        assertTrue(mmgr.getNumPlannedAllocations() > 0);
+        assertTrue(mmgr.getPeakLiveBytes() > 0);
+        assertTrue(mmgr.getPlannedBytes() >= mmgr.getPeakLiveBytes());
+        assertTrue(mmgr.getBufferBytes() >= mmgr.getPlannedBytes());
+
+        //Steady state: no further allocations other than the (detached) outputs
+        long bufferAllocs = mmgr.getBufferAllocationCount();
+        long fallbackAllocs = mmgr.getFallbackAllocationCount();
+        for( int i=0; i<3; i++ ) {
+            assertEquals(exp2, sd.output(ph, "out").get("out"));
+        }
+        assertEquals(1, mmgr.getPlanCount());
+        assertEquals(bufferAllocs, mmgr.getBufferAllocationCount());
+        assertEquals(fallbackAllocs, mmgr.getFallbackAllocationCount());
+
+        //Different shapes: execution deviates from the plan, and is re-planned
+        assertEquals(exp7, sd.output(Collections.singletonMap("in", in7), "out").get("out"));
+        assertEquals(2, mmgr.getPlanCount());
+        assertEquals(exp7, sd.output(Collections.singletonMap("in", in7), "out").get("out"));
+        assertEquals(2, mmgr.getPlanCount());
+
+        //Smaller arrays again: buffers can be reused without reallocation
+        bufferAllocs = mmgr.getBufferAllocationCount();
+        assertEquals(exp2, sd.output(ph, "out").get("out"));
+        assertEquals(exp2, sd.output(ph, "out").get("out"));
+        assertEquals(3, mmgr.getPlanCount());
+        assertEquals(bufferAllocs, mmgr.getBufferAllocationCount());
+    }
+
 }
@@ -0,0 +1,160 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.cache;
+
+import org.junit.Test;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BoundedLruCacheTest extends BaseNd4jTest {
+
+    public BoundedLruCacheTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    @Test
+    public void testEntryBound() {
+        BoundedLruCache<Integer, String> cache = new BoundedLruCache<>(10, Long.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            assertNull(cache.get(i));
+            cache.put(i, String.valueOf(i), 1);
+        }
+        assertEquals(10, cache.size());
+
+        //Touch the oldest entries: they should survive eviction
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), cache.get(i));
+        }
+
+        cache.put(10, "10", 1);
+        assertTrue(cache.size() <= 10);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), cache.get(i));
+        }
+        assertEquals("10", cache.get(10));
+        assertNull(cache.get(3));
+
+        CacheStatistics stats = cache.getStatistics();
+        assertEquals(7, stats.getHits());
+        assertEquals(11, stats.getMisses());
+        assertEquals(11 - cache.size(), stats.getEvictions());
+        assertEquals(cache.size(), stats.getEntries());
+        assertEquals(cache.size(), stats.getBytes());
+        assertEquals(7.0 / 18.0, stats.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testRecencyOnAccess() {
+        BoundedLruCache<Integer, String> cache = new BoundedLruCache<>(4, Long.MAX_VALUE);
+        for (int i = 0; i < 4; i++) {
+            cache.put(i, String.valueOf(i), 1);
+        }
+
+        //No insertions between these lookups: recency must still follow the order of access
+        for (int i = 3; i >= 0; i--) {
+            assertEquals(String.valueOf(i), cache.get(i));
+        }
+
+        cache.put(4, "4", 1);
+        assertNull(cache.get(3));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), cache.get(i));
+        }
+        assertEquals("4", cache.get(4));
+    }
+
+    @Test
+    public void testByteBound() {
+        final AtomicLong released = new AtomicLong();
+        BoundedLruCache<Integer, String> cache = new BoundedLruCache<Integer, String>(1000, 100) {
+            @Override
+            protected void onRemoval(Integer key, String value, long numBytes) {
+                released.addAndGet(numBytes);
+            }
+        };
+
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, String.valueOf(i), 10);
+            assertTrue(cache.getCachedBytes() <= 100);
+        }
+        assertEquals(50 * 10, cache.getCachedBytes() + released.get());
+        assertEquals("49", cache.get(49));
+
+        //Values larger than the bound are returned, but not cached
+        String large = "large";
+        assertSame(large, cache.put(1000, large, 101));
+        assertNull(cache.get(1000));
+
+        //Existing values are kept when the same key is added again
+        assertEquals("49", cache.put(49, "other", 10));
+
+        long before = cache.getCachedBytes();
+        long evictions = cache.getStatistics().getEvictions();
+        cache.purge();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getCachedBytes());
+        assertEquals(50 * 10, released.get());
+        assertTrue(before > 0);
+        assertEquals(evictions, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final BoundedLruCache<Integer, Integer> cache = new BoundedLruCache<>(64, 1024);
+        final AtomicLong wrongValues = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        int key = (i * 31 + seed) % 256;
+                        Integer v = cache.get(key);
+                        if (v == null) {
+                            v = cache.put(key, key, 8);
+                        }
+                        if (v != key)
+                            wrongValues.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(0, wrongValues.get());
+        CacheStatistics stats = cache.getStatistics();
+        assertEquals(4 * 10000, stats.getHits() + stats.getMisses());
+        assertTrue(stats.getEntries() <= 64);
+        assertEquals(stats.getEntries() * 8, stats.getBytes());
+    }
+}
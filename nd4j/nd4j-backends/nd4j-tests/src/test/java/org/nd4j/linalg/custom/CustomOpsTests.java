@@ -26,6 +26,7 @@ import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.CustomOp;
 import org.nd4j.linalg.api.ops.DynamicCustomOp;
+import org.nd4j.linalg.api.ops.aggregates.CustomOpBatch;
 import org.nd4j.linalg.api.ops.custom.*;
 import org.nd4j.linalg.api.ops.executioner.OpExecutioner;
 import org.nd4j.linalg.api.ops.executioner.OpStatus;
@@ -1900,4 +1901,32 @@ public class CustomOpsTests extends BaseNd4jTest {
 
         assertEquals(out, out2);
     }
+
+    @Test
+    public void testCustomOpBatch(){
+        INDArray x = Nd4j.rand(DataType.FLOAT, 3, 4);
+        INDArray y = Nd4j.rand(DataType.FLOAT, 3, 4);
+        INDArray sum = Nd4j.create(DataType.FLOAT, 3, 4);
+
+        CustomOpBatch batch = new CustomOpBatch()
+                .append(new AddOp(x, y, sum))                       //Output provided: used as input by the next op
+                .append(new Mmul(sum, y, false, true, false))       //No output provided: allocated on execution
+                .append(DynamicCustomOp.builder("space_to_depth")
+                        .addInputs(Nd4j.rand(DataType.FLOAT, 1, 2, 4, 4))
+                        .addIntegerArguments(2, 0)
+                        .build());
+        assertEquals(3, batch.size());
+
+        INDArray[][] out = Nd4j.exec(batch);
+        assertEquals(3, out.length);
+
+        assertEquals(x.add(y), sum);
+        assertSame(sum, out[0][0]);
+        assertEquals(sum.mmul(y.transpose()), out[1][0]);
+        assertArrayEquals(new long[]{3, 3}, batch.getOutputs(1)[0].shape());
+        assertArrayEquals(new long[]{1, 8, 2, 2}, out[2][0].shape());
+
+        //Empty batch: no op
+        assertEquals(0, Nd4j.exec(new CustomOpBatch()).length);
+    }
 }
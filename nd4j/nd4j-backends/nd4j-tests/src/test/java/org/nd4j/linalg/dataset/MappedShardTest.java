@@ -0,0 +1,155 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.dataset;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedShardTest extends BaseNd4jTest {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    public MappedShardTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    @Test
+    public void testDataSetShards() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray f = Nd4j.rand(DataType.FLOAT, 25, 4, 3);
+        INDArray l = Nd4j.rand(DataType.DOUBLE, 25, 3);
+        INDArray fm = Nd4j.rand(DataType.FLOAT, 25, 3).gt(0.5).castTo(DataType.FLOAT);
+        DataSet ds = new DataSet(f, l, fm, null);
+
+        File dir = testDir.newFolder();
+        List<File> files = MappedShard.writeShards(new ViewIterator(ds, 5), dir, 10);
+        assertEquals(3, files.size());
+        assertEquals(0, files.get(1).length() % MappedShard.PAGE_SIZE);
+
+        MappedShard shard = MappedShard.open(files.get(2), MmapMode.READ_ONLY);
+        assertEquals(5, shard.numExamples());
+        assertEquals(0, shard.getArrays(MappedShard.ArrayType.LABELS_MASK).length);
+
+        MappedShardDataSetIterator iter = new MappedShardDataSetIterator(dir, 4);
+        assertEquals(25, iter.totalExamples());
+        assertEquals(4, iter.inputColumns());
+        assertEquals(3, iter.totalOutcomes());
+
+        //In-place changes must not leak into the next epoch with copy-on-write mappings
+        iter.setPreProcessor(new DataSetPreProcessor() {
+            @Override
+            public void preProcess(org.nd4j.linalg.dataset.api.DataSet toPreProcess) {
+                toPreProcess.getFeatures().addi(1.0);
+            }
+        });
+
+        for (int epoch = 0; epoch < 2; epoch++) {
+            List<DataSet> batches = new ArrayList<>();
+            while (iter.hasNext())
+                batches.add(iter.next());
+            //10 + 10 + 5 examples: batches of 4, 4, 2, 4, 4, 2, 4, 1
+            assertEquals(8, batches.size());
+            assertEquals(1, batches.get(7).numExamples());
+
+            DataSet merged = DataSet.merge(batches);
+            assertEquals(f.add(1.0), merged.getFeatures());
+            assertEquals(l, merged.getLabels());
+            assertEquals(fm, merged.getFeaturesMaskArray());
+            assertNull(merged.getLabelsMaskArray());
+            iter.reset();
+        }
+    }
+
+    @Test
+    public void testDataSetShardsNoLabels() throws Exception {
+        INDArray f = Nd4j.rand(DataType.FLOAT, 6, 4);
+        File dir = testDir.newFolder();
+        MappedShard.write(new DataSet(f, null), new File(dir, String.format(MappedShard.DEFAULT_PATTERN, 0)));
+
+        MappedShardDataSetIterator iter = new MappedShardDataSetIterator(dir, 4);
+        assertEquals(4, iter.inputColumns());
+        assertEquals(-1, iter.totalOutcomes());
+        DataSet first = iter.next();
+        assertEquals(4, first.numExamples());
+        assertNull(first.getLabels());
+    }
+
+    @Test
+    public void testMultiDataSetShuffled() throws Exception {
+        INDArray ids = Nd4j.arange(0, 30).castTo(DataType.FLOAT).reshape(30, 1);
+        INDArray f2 = Nd4j.rand(DataType.FLOAT, 30, 2, 5);
+        INDArray l = Nd4j.rand(DataType.FLOAT, 30, 2);
+        INDArray fm2 = Nd4j.ones(DataType.FLOAT, 30, 5);
+        MultiDataSet mds = new MultiDataSet(new INDArray[]{ids, f2}, new INDArray[]{l}, new INDArray[]{null, fm2}, null);
+
+        File file = testDir.newFile();
+        MappedShard.write(mds, file);
+        MappedShardMultiDataSetIterator iter = new MappedShardMultiDataSetIterator(Arrays.asList(file, file), 4,
+                MmapMode.READ_ONLY, true, 12345);
+
+        List<String> orders = new ArrayList<>();
+        for (int epoch = 0; epoch < 3; epoch++) {
+            int[] seen = new int[30];
+            StringBuilder order = new StringBuilder();
+            while (iter.hasNext()) {
+                org.nd4j.linalg.dataset.api.MultiDataSet b = iter.next();
+                assertEquals(2, b.numFeatureArrays());
+                assertNull(b.getFeaturesMaskArray(0));
+                assertNotNull(b.getFeaturesMaskArray(1));
+                assertNull(b.getLabelsMaskArrays());
+
+                //Each minibatch is a contiguous range of examples
+                int first = b.getFeatures(0).getInt(0, 0);
+                long n = b.getFeatures(0).size(0);
+                for (int i = 0; i < n; i++) {
+                    assertEquals(first + i, b.getFeatures(0).getInt(i, 0));
+                    assertEquals(f2.slice(first + i), b.getFeatures(1).slice(i));
+                    assertEquals(l.getRow(first + i), b.getLabels(0).getRow(i));
+                    seen[first + i]++;
+                }
+                order.append(first).append(",");
+            }
+            for (int s : seen)
+                assertEquals(2, s);
+            orders.add(order.toString());
+            iter.reset();
+        }
+        assertNotEquals(orders.get(0), orders.get(1));
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+}
@@ -0,0 +1,98 @@
+/* ******************************************************************************
+ * Copyright (c) 2020 Konduit K.K.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Apache License, Version 2.0 which is available at
+ * https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ ******************************************************************************/
+
+
+package org.nd4j.linalg.multithreading;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.concurrency.NumaTopology;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NumaTopologyTest extends BaseNd4jTest {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    public NumaTopologyTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    @Test
+    public void testParseCpuList() {
+        assertArrayEquals(new int[] {0}, NumaTopology.parseCpuList("0\n"));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 8, 10, 11}, NumaTopology.parseCpuList("0-3,8,10-11"));
+        assertArrayEquals(new int[0], NumaTopology.parseCpuList("\n"));
+    }
+
+    @Test
+    public void testDiscovery() throws Exception {
+        File root = testDir.newFolder();
+        writeNode(root, "node0", "0-3,8-11");
+        // memory-only node has no CPUs, and can't host workers
+        writeNode(root, "node1", "");
+        writeNode(root, "node10", "16-17");
+        writeNode(root, "node2", "4-7,12-15");
+        new File(root, "possible").createNewFile();
+
+        NumaTopology topology = NumaTopology.discover(root);
+        assertEquals(3, topology.getNumberOfNodes());
+        assertArrayEquals(new int[] {0, 1, 2, 3, 8, 9, 10, 11}, topology.getCpusForNode(0));
+        assertArrayEquals(new int[] {4, 5, 6, 7, 12, 13, 14, 15}, topology.getCpusForNode(1));
+        assertArrayEquals(new int[] {16, 17}, topology.getCpusForNode(2));
+
+        // neighbouring workers share node
+        int[] expected = new int[] {0, 0, 0, 1, 1, 2, 2};
+        for (int e = 0; e < expected.length; e++)
+            assertEquals(expected[e], topology.getNodeForWorker(e, expected.length));
+    }
+
+    @Test
+    public void testSingleNodeFallback() throws Exception {
+        NumaTopology topology = NumaTopology.discover(testDir.newFolder());
+        assertEquals(1, topology.getNumberOfNodes());
+        assertEquals(Runtime.getRuntime().availableProcessors(), topology.getCpusForNode(0).length);
+
+        assertTrue(Nd4j.getAffinityManager().getNumberOfNumaNodes() >= 1);
+        if (Nd4j.getAffinityManager().getNumberOfNumaNodes() == 1) {
+            // binding isn't needed on single node host
+            assertEquals(false, Nd4j.getAffinityManager().attachThreadToNumaNode(0));
+            assertEquals(-1, Nd4j.getAffinityManager().getNumaNodeForCurrentThread());
+        }
+    }
+
+    private static void writeNode(File root, String name, String cpuList) throws Exception {
+        File node = new File(root, name);
+        node.mkdirs();
+        FileUtils.writeStringToFile(new File(node, "cpulist"), cpuList + "\n", StandardCharsets.UTF_8);
+    }
+}
@@ -40,6 +40,8 @@ import org.nd4j.linalg.ops.transforms.Transforms;
 import org.nd4j.common.primitives.Pair;
 import org.nd4j.linalg.profiler.OpProfiler;
 import org.nd4j.linalg.profiler.ProfilerConfig;
+import org.nd4j.linalg.profiler.data.OpMetrics;
+import org.nd4j.linalg.profiler.data.primitives.LatencyHistogram;
 
 import static org.junit.Assert.*;
 
@@ -543,4 +545,61 @@ public class OperationProfilerTests extends BaseNd4jTest {
             }
         }
     }
+
+    @Test
+    public void testOpMetrics() {
+        Nd4j.getExecutioner().setProfilingConfig(ProfilerConfig.builder().checkWorkspaces(false).opMetrics(true).build());
+        try {
+            INDArray a = Nd4j.rand(DataType.FLOAT, 10, 20);
+            INDArray b = Nd4j.rand(DataType.FLOAT, 20, 30);
+            for (int i = 0; i < 5; i++) {
+                a.mmul(b);                                      //Custom op, new output
+                Transforms.log(a, true);                        //Legacy op, new output
+                a.addi(1.0);                                    //In-place legacy op
+            }
+
+            OpMetrics mmul = OpProfiler.getInstance().getOpMetrics("mmul");
+            assertNotNull(OpProfiler.getInstance().getOpMetrics().keySet().toString(), mmul);
+            assertEquals(5, mmul.getInvocations());
+            assertEquals(5 * 10 * 30 * 4, mmul.getOutputBytes());
+            assertTrue(mmul.getLatency().getValueAtPercentile(50) > 0);
+            assertTrue(mmul.getLatency().getValueAtPercentile(100) >= mmul.getLatency().getValueAtPercentile(50));
+
+            OpMetrics log = OpProfiler.getInstance().getOpMetrics("log");
+            assertEquals(5, log.getInvocations());
+            assertEquals(5 * 10 * 20 * 4, log.getOutputBytes());
+
+            OpMetrics add = OpProfiler.getInstance().getOpMetrics("add_scalar");
+            assertEquals(OpProfiler.getInstance().getOpMetrics().keySet().toString(), 5, add.getInvocations());
+            assertEquals(0, add.getOutputBytes());
+
+            OpProfiler.getInstance().reset();
+            assertTrue(OpProfiler.getInstance().getOpMetrics().isEmpty());
+        } finally {
+            Nd4j.getExecutioner().setProfilingConfig(ProfilerConfig.builder().build());
+        }
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(50));
+
+        for (long i = 1; i <= 1000; i++) {
+            h.record(i * 1000);
+        }
+
+        assertEquals(1000, h.getCount());
+        assertEquals(1_000_000, h.getMaximum());
+        assertEquals(500_500.0, h.getMean(), 1e-6);
+        long p50 = h.getValueAtPercentile(50);
+        long p99 = h.getValueAtPercentile(99);
+        assertTrue(String.valueOf(p50), p50 >= 500_000 && p50 <= 500_000 * 17 / 16);
+        assertTrue(String.valueOf(p99), p99 >= 990_000 && p99 <= 1_000_000);
+        assertEquals(1_000_000, h.getValueAtPercentile(100));
+
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMaximum());
+    }
 }
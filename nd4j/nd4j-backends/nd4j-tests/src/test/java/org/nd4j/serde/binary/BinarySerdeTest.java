@@ -21,9 +21,12 @@ import org.junit.Test;
 import org.nd4j.OpValidationSuite;
 import org.nd4j.linalg.BaseNd4jTest;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.enums.MmapMode;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.factory.Nd4jBackend;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
@@ -105,6 +108,56 @@ public class BinarySerdeTest extends BaseNd4jTest {
         assertEquals(rand, fromDisk);
     }
 
+    @Test
+    public void testMapFile() throws Exception {
+        for (DataType dt : new DataType[]{DataType.DOUBLE, DataType.FLOAT, DataType.HALF, DataType.INT, DataType.LONG, DataType.BYTE}) {
+            File tmpFile = new File(System.getProperty("java.io.tmpdir"),
+                            "ndarraytmp-" + UUID.randomUUID().toString() + " .bin");
+            tmpFile.deleteOnExit();
+            INDArray arr = Nd4j.linspace(1, 60, 60, DataType.DOUBLE).reshape(3, 4, 5).castTo(dt);
+            BinarySerde.writeArrayToDisk(arr, tmpFile);
+
+            INDArray readOnly = Nd4j.createFromMappedFile(tmpFile, MmapMode.READ_ONLY);
+            assertEquals(arr, readOnly);
+            assertEquals(arr.sum(0), readOnly.sum(0));
+
+            //Copy-on-write: changes are visible in the array, but not written back to the file
+            INDArray cow = Nd4j.createFromMappedFile(tmpFile, MmapMode.COPY_ON_WRITE);
+            cow.addi(1);
+            assertEquals(arr.add(1), cow);
+            assertEquals(arr, readOnly);
+            assertEquals(arr, BinarySerde.readFromDisk(tmpFile));
+
+            //Read-write: changes are written back to the file
+            INDArray rw = Nd4j.createFromMappedFile(tmpFile, MmapMode.READ_WRITE);
+            rw.muli(2);
+            rw = null;
+            System.gc();
+            assertEquals(arr.mul(2), BinarySerde.readFromDisk(tmpFile));
+            assertEquals(arr.mul(2), readOnly);
+        }
+    }
+
+    @Test
+    public void testMappedArrayOutlivesMapping() throws Exception {
+        File tmpFile = new File(System.getProperty("java.io.tmpdir"),
+                        "ndarraytmp-" + UUID.randomUUID().toString() + " .bin");
+        tmpFile.deleteOnExit();
+        INDArray arr = Nd4j.rand(DataType.FLOAT, 100, 100);
+        BinarySerde.writeArrayToDisk(arr, tmpFile);
+
+        //Only the views are kept: the mapping must remain valid while they are reachable
+        INDArray row = Nd4j.createFromMappedFile(tmpFile, MmapMode.READ_ONLY).getRow(99);
+        INDArray sub = Nd4j.createFromMappedFile(tmpFile, MmapMode.COPY_ON_WRITE).get(NDArrayIndex.interval(50, 100), NDArrayIndex.all());
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        assertEquals(arr.getRow(99), row);
+        assertEquals(arr.get(NDArrayIndex.interval(50, 100), NDArrayIndex.all()), sub);
+    }
+
     @Test
     public void testReadShapeFile() throws Exception {
         File tmpFile = new File(System.getProperty("java.io.tmpdir"),
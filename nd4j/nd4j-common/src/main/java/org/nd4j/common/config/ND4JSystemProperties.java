@@ -155,6 +155,54 @@ public class ND4JSystemProperties {
      */
     public static final String RESOURCES_LOCAL_DIRS = "org.nd4j.strumpf.resource.dirs";
 
+    /**
+     * Applicability: nd4j-native backend<br>
+     * Description: Maximum number of shape info buffers that are cached by the ShapeInfoProvider. When this number
+     * (or the byte limit set by {@link #SHAPE_CACHE_MAX_BYTES}) is exceeded, the least recently used entries are evicted.<br>
+     * Default: 10000
+     */
+    public static final String SHAPE_CACHE_MAX_ENTRIES = "org.nd4j.cache.shape.maxentries";
+
+    /**
+     * Applicability: nd4j-native backend<br>
+     * Description: Maximum number of bytes held by shape info buffers cached by the ShapeInfoProvider.
+     * See {@link #SHAPE_CACHE_MAX_ENTRIES}<br>
+     * Default: 33554432 (32MB)
+     */
+    public static final String SHAPE_CACHE_MAX_BYTES = "org.nd4j.cache.shape.maxbytes";
+
+    /**
+     * Applicability: always<br>
+     * Description: Maximum number of tensor-along-dimension (TAD) descriptors cached by the TADManager. When this number
+     * (or the byte limit set by {@link #TAD_CACHE_MAX_BYTES}) is exceeded, the least recently used entries are evicted.<br>
+     * Default: 10000
+     */
+    public static final String TAD_CACHE_MAX_ENTRIES = "org.nd4j.cache.tad.maxentries";
+
+    /**
+     * Applicability: always<br>
+     * Description: Maximum number of bytes held by TAD shape info and offset buffers cached by the TADManager.
+     * See {@link #TAD_CACHE_MAX_ENTRIES}<br>
+     * Default: 67108864 (64MB)
+     */
+    public static final String TAD_CACHE_MAX_BYTES = "org.nd4j.cache.tad.maxbytes";
+
+    /**
+     * Applicability: nd4j-native backend<br>
+     * Description: Maximum number of constant buffers cached by the ConstantHandler. When this number
+     * (or the byte limit set by {@link #CONSTANT_CACHE_MAX_BYTES}) is exceeded, the least recently used entries are evicted.<br>
+     * Default: 1000
+     */
+    public static final String CONSTANT_CACHE_MAX_ENTRIES = "org.nd4j.cache.constant.maxentries";
+
+    /**
+     * Applicability: nd4j-native backend<br>
+     * Description: Maximum number of bytes held by constant buffers cached by the ConstantHandler.
+     * See {@link #CONSTANT_CACHE_MAX_ENTRIES}<br>
+     * Default: 33554432 (32MB)
+     */
+    public static final String CONSTANT_CACHE_MAX_BYTES = "org.nd4j.cache.constant.maxbytes";
+
     private ND4JSystemProperties() {
     }
 }